@@ -0,0 +1,316 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.entity.BatchResult;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.mapper.CatalogVersionMapper;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.mapper.JobRetryMapper;
+import com.roc.dscheduler.quartz.CompactJobDataDelegate;
+import com.roc.dscheduler.quartz.DschedulerJobStore;
+import com.roc.dscheduler.quartz.MeteredConnectionProvider;
+import com.roc.dscheduler.service.JobCatalog;
+import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.JobTypeRegistry;
+import com.roc.dscheduler.service.SchedulerRouter;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.InvalidConfigurationException;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.simpl.SimpleThreadPool;
+import org.quartz.spi.SchedulerSignaler;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StreamUtils;
+
+import javax.validation.Validation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory H2 database in MySQL mode with the QRTZ_ and DS_ tables, and the services of the application on top
+ * of it, wired by hand the way Spring wires them: a scheduler on {@link DschedulerJobStore} with the data sources of
+ * {@code application.yml} (not started, the benchmarks call the services and the job store directly), the MyBatis
+ * mappers, the job catalog and {@link JobService}.
+ * <p>
+ * Every instance is a new database with pools of its own, so benchmarks with different parameters do not share data.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    public static final String SCHEDULER_NAME = "Dscheduler";
+    public static final String JOB_CLASS = "com.roc.dscheduler.job.SampleJob";
+
+    private static final String QUARTZ_SCHEMA = "/org/quartz/impl/jdbcjobstore/tables_h2.sql";
+    private static final String DSCHEDULER_SCHEMA = "/db/dscheduler_mysql.sql";
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private final String name;
+    private final String url;
+    private final AnnotationConfigApplicationContext context;
+    private final Scheduler scheduler;
+    private final SqlSessionManager sessions;
+    private final JobCatalog jobCatalog;
+    private final JobService jobService;
+
+    public BenchmarkDatabase() throws Exception {
+        name = "bench" + databases.incrementAndGet();
+        url = inMemoryUrl(name);
+        createSchema(url);
+
+        context = new AnnotationConfigApplicationContext(JobTypeRegistry.class);
+        scheduler = new StdSchedulerFactory(quartzProperties(url, name, name)).getScheduler();
+        SchedulerRouter router = new SchedulerRouter(Collections.singletonList(scheduler), false, false);
+        sessions = SqlSessionManager.newInstance(new SqlSessionFactoryBuilder().build(mybatisConfiguration()));
+        jobCatalog = new JobCatalog(scheduler, router, sessions.getMapper(JobMapper.class),
+                sessions.getMapper(CatalogVersionMapper.class));
+        jobCatalog.init();
+        jobService = new JobService(scheduler, router, sessions.getMapper(JobMapper.class), jobCatalog,
+                Validation.buildDefaultValidatorFactory().getValidator(), context.getBean(JobTypeRegistry.class));
+    }
+
+    /**
+     * @return a job running {@link #JOB_CLASS} every five minutes.
+     */
+    public static JobInfo newJob(String jobName, String jobGroup) {
+        JobInfo jobInfo = new JobInfo();
+        jobInfo.setJobName(jobName);
+        jobInfo.setJobGroup(jobGroup);
+        jobInfo.setJobClass(JOB_CLASS);
+        jobInfo.setCronExpression("0 0/5 * * * ?");
+        jobInfo.setDescription("Benchmark job " + jobName);
+        return jobInfo;
+    }
+
+    /**
+     * Schedules {@code count} jobs named job-0000000 and up, spread over 10 groups, in batches like an import.
+     */
+    public void loadJobs(int count) throws SchedulerException {
+        List<JobInfo> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(newJob(String.format("job-%07d", i), "group-" + (i % 10)));
+            if (batch.size() == LOAD_BATCH_SIZE || i == count - 1) {
+                BatchResult result = jobService.scheduleJobs(batch, false);
+                if (result.getFailed() > 0) {
+                    throw new IllegalStateException(result.getFailed() + " of " + batch.size()
+                            + " jobs could not be loaded");
+                }
+                batch.clear();
+            }
+        }
+        jobCatalog.reload();
+    }
+
+    /**
+     * Creates a job store of its own on this database, named {@code instanceName} so that its triggers are apart
+     * from those of the scheduler. It shares the scheduler's pools, so it is not shut down on its own.
+     */
+    public DschedulerJobStore createJobStore(String instanceName)
+            throws SchedulerException, InvalidConfigurationException {
+        DschedulerJobStore store = new DschedulerJobStore();
+        store.setInstanceName(instanceName);
+        store.setInstanceId("bench");
+        store.setDataSource(name + "-management");
+        store.setSchedulingDataSource(name + "-scheduling");
+        store.setTablePrefix("QRTZ_");
+        store.setDriverDelegateClass(CompactJobDataDelegate.class.getName());
+        store.setUseProperties("false");
+        store.setAcquisitionPolicy("com.roc.dscheduler.quartz.LoadAwareAcquisitionPolicy");
+        // Acquired triggers are released without advancing, they must stay due and not turn into misfires or
+        // rate-limited catch-up fires during a run
+        store.setMisfireThreshold(86_400_000);
+        store.setCatchUpThreshold(86_400_000);
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new NoOpSignaler());
+        store.setThreadPoolSize(300);
+        return store;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public JobCatalog getJobCatalog() {
+        return jobCatalog;
+    }
+
+    public JobService getJobService() {
+        return jobService;
+    }
+
+    public JobMapper getJobMapper() {
+        return sessions.getMapper(JobMapper.class);
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdown(false);
+        context.close();
+        dropDatabase(url);
+    }
+
+    /**
+     * @return the URL of an in-memory database in MySQL mode, kept until {@link #dropDatabase}. Row locks are waited
+     * for up to 10s instead of the 1s of H2, so that contention shows as lock waits rather than failures.
+     */
+    static String inMemoryUrl(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false;LOCK_TIMEOUT=10000";
+    }
+
+    /**
+     * Creates the QRTZ_ and DS_ tables in an empty database.
+     */
+    static void createSchema(String url) throws IOException, SQLException {
+        try (Connection conn = dataSource(url).getConnection(); Statement statement = conn.createStatement()) {
+            for (String sql : statements(read(QUARTZ_SCHEMA, StdSchedulerFactory.class))) {
+                statement.execute(sql);
+            }
+            for (String sql : statements(read(DSCHEDULER_SCHEMA, DschedulerJobStore.class))) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Closes an in-memory database, which drops it.
+     */
+    static void dropDatabase(String url) throws SQLException {
+        try (Connection conn = dataSource(url).getConnection(); Statement statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    private static JdbcDataSource dataSource(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        return dataSource;
+    }
+
+    /**
+     * The Quartz properties of {@code application.yml} on a database, without clustering: a single node has no
+     * check-ins or leases to make and they would only add noise.
+     *
+     * @param dataSourcePrefix prefix of the names of the data sources and their pools, which are global to the JVM.
+     */
+    static Properties quartzProperties(String url, String instanceId, String dataSourcePrefix) {
+        Properties properties = new Properties();
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, SCHEDULER_NAME);
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_ID, instanceId);
+        properties.setProperty(StdSchedulerFactory.PROP_THREAD_POOL_CLASS, SimpleThreadPool.class.getName());
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        properties.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, DschedulerJobStore.class.getName());
+        properties.setProperty("org.quartz.jobStore.driverDelegateClass", CompactJobDataDelegate.class.getName());
+        properties.setProperty("org.quartz.jobStore.useProperties", "false");
+        properties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        properties.setProperty("org.quartz.jobStore.isClustered", "false");
+        properties.setProperty("org.quartz.jobStore.acquireTriggersWithinLock", "true");
+        properties.setProperty("org.quartz.jobStore.acquisitionPolicy",
+                "com.roc.dscheduler.quartz.LoadAwareAcquisitionPolicy");
+        properties.setProperty("org.quartz.jobStore.dataSource", dataSourcePrefix + "-management");
+        properties.setProperty("org.quartz.jobStore.schedulingDataSource", dataSourcePrefix + "-scheduling");
+        addDataSource(properties, url, dataSourcePrefix + "-management", 20);
+        addDataSource(properties, url, dataSourcePrefix + "-scheduling", 20);
+        return properties;
+    }
+
+    static void addDataSource(Properties properties, String url, String dataSource, int maxConnections) {
+        String prefix = StdSchedulerFactory.PROP_DATASOURCE_PREFIX + "." + dataSource + ".";
+        properties.setProperty(prefix + "connectionProvider.class", MeteredConnectionProvider.class.getName());
+        properties.setProperty(prefix + "poolName", dataSource);
+        properties.setProperty(prefix + "driver", "org.h2.Driver");
+        properties.setProperty(prefix + "URL", url);
+        properties.setProperty(prefix + "user", "");
+        properties.setProperty(prefix + "password", "");
+        properties.setProperty(prefix + "maxConnections", String.valueOf(maxConnections));
+    }
+
+    /**
+     * MyBatis as configured by {@code mybatis.*} in {@code application.yml}: the mapper XMLs, the annotated mappers
+     * and the table prefix.
+     */
+    private Configuration mybatisConfiguration() throws IOException {
+        Configuration configuration = new Configuration(new Environment(name, new JdbcTransactionFactory(),
+                dataSource(url)));
+        Properties variables = new Properties();
+        variables.setProperty("tablePrefix", "QRTZ_");
+        configuration.setVariables(variables);
+        for (Resource mapper : new PathMatchingResourcePatternResolver().getResources("classpath*:mapper/*.xml")) {
+            try (InputStream in = mapper.getInputStream()) {
+                new XMLMapperBuilder(in, configuration, mapper.getURL().toString(), configuration.getSqlFragments())
+                        .parse();
+            }
+        }
+        for (Class<?> mapper : new Class<?>[]{CatalogVersionMapper.class, JobRetryMapper.class}) {
+            if (!configuration.hasMapper(mapper)) {
+                configuration.addMapper(mapper);
+            }
+        }
+        return configuration;
+    }
+
+    private static String read(String resource, Class<?> loader) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException(resource + " not found on the classpath");
+            }
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        for (String statement : script.split(";\\s*\\n")) {
+            String sql = statement.replaceAll("(?m)^\\s*--.*$", "").trim();
+            if (!sql.isEmpty()) {
+                statements.add(sql);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * The job store of {@link #createJobStore} has no scheduler to signal.
+     */
+    private static final class NoOpSignaler implements SchedulerSignaler {
+
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.cron.CompiledCron;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing a cron expression, done for every job the catalog loads and every job scheduled, and of computing
+ * its next fire times, done on every fire and for the next fire times shown in the job list. The compiled variants
+ * measure {@link CompiledCron}, used for validation, fire time previews and forecasts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronBenchmark {
+
+    private static final Date START = new Date(1_700_000_000_000L);
+
+    @Param({"0 0/5 * * * ?", "0 15 10 ? * MON-FRI", "0 0 12 1/5 * ?", "0 15 10 L * ?", "0 0 9 ? * 6#3"})
+    public String cronExpression;
+
+    private CronExpression expression;
+    private CompiledCron compiled;
+
+    @Setup
+    public void setUp() throws ParseException {
+        expression = new CronExpression(cronExpression);
+        compiled = CompiledCron.compile(cronExpression, ZoneId.systemDefault());
+    }
+
+    @Benchmark
+    public CronExpression parse() throws ParseException {
+        return new CronExpression(cronExpression);
+    }
+
+    @Benchmark
+    public Date nextFireTime() {
+        return expression.getNextValidTimeAfter(START);
+    }
+
+    @Benchmark
+    public Date nextHundredFireTimes() {
+        Date fireTime = START;
+        for (int i = 0; i < 100; i++) {
+            fireTime = expression.getNextValidTimeAfter(fireTime);
+        }
+        return fireTime;
+    }
+
+    @Benchmark
+    public CompiledCron compile() throws ParseException {
+        return CompiledCron.compile(cronExpression, ZoneId.systemDefault());
+    }
+
+    @Benchmark
+    public long compiledNextFireTime() {
+        return compiled.nextAfter(START.getTime());
+    }
+
+    @Benchmark
+    public long compiledNextHundredFireTimes() {
+        long fireTime = START.getTime();
+        for (int i = 0; i < 100; i++) {
+            fireTime = compiled.nextAfter(fireTime);
+        }
+        return fireTime;
+    }
+}
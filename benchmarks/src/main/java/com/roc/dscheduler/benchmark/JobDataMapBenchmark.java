@@ -0,0 +1,101 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.quartz.JobDataCodec;
+import com.roc.dscheduler.service.JobService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobDataMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing and reading a JobDataMap the way the job store stores it ({@code useProperties: false}): encoded
+ * by {@link JobDataCodec} since {@code CompactJobDataDelegate}, Java serialized before, written when a job or trigger
+ * is stored and read for every trigger fired and every job loaded. The smallest map has the entries of a job with a
+ * timeout, shards and a retry policy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobDataMapBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int entries;
+
+    private JobDataMap jobDataMap;
+    private byte[] serialized;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        jobDataMap = new JobDataMap();
+        jobDataMap.put(JobService.TIMEOUT, 60);
+        jobDataMap.put(JobService.SHARD_INDEX, 0);
+        jobDataMap.put(JobService.SHARD_TOTAL, 4);
+        jobDataMap.put(JobService.SHARD_PARAM, "region-0");
+        jobDataMap.put(JobService.RETRY_MAX_ATTEMPTS, 3);
+        jobDataMap.put(JobService.RETRY_BACKOFF, 10);
+        jobDataMap.put(JobService.RETRY_MAX_BACKOFF, 3600);
+        jobDataMap.put(JobService.RETRY_ON, "java.io.IOException");
+        for (int i = jobDataMap.size(); i < entries; i++) {
+            switch (i % 4) {
+                case 0:
+                    jobDataMap.put("param" + i, "value-" + i);
+                    break;
+                case 1:
+                    jobDataMap.put("param" + i, i);
+                    break;
+                case 2:
+                    jobDataMap.put("param" + i, (long) i << 20);
+                    break;
+                default:
+                    jobDataMap.put("param" + i, i % 2 == 0);
+            }
+        }
+        serialized = serialize();
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(jobDataMap);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return JobDataCodec.encode(jobDataMap.getWrappedMap());
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return JobDataCodec.decode(encoded);
+    }
+}
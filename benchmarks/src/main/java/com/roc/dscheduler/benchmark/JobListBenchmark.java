@@ -0,0 +1,89 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobQuery;
+import com.roc.dscheduler.entity.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of reading the job list with 1k to 100k jobs: all jobs at once, as the exports and the API read them, and
+ * one page of the list page, from the database ({@code JobService.findJobs}) and from the in-memory catalog the list
+ * page is served from ({@code JobCatalog.findJobs}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobListBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int jobCount;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase();
+        database.loadJobs(jobCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<JobInfo> getAllJobs() throws Exception {
+        return database.getJobService().getAllJobs();
+    }
+
+    @Benchmark
+    public Page<JobInfo> databaseFirstPage() throws Exception {
+        return database.getJobService().findJobs(new JobQuery());
+    }
+
+    /**
+     * The last page, clamped from a page out of range: the deepest offset.
+     */
+    @Benchmark
+    public Page<JobInfo> databaseLastPage() throws Exception {
+        return database.getJobService().findJobs(new JobQuery(null, null, "jobName", "asc", Integer.MAX_VALUE, 10));
+    }
+
+    @Benchmark
+    public Page<JobInfo> databaseSearch() throws Exception {
+        return database.getJobService().findJobs(new JobQuery("job-00001", "name", "triggerState", "desc", 1, 10));
+    }
+
+    @Benchmark
+    public Page<JobInfo> catalogFirstPage() throws Exception {
+        return database.getJobCatalog().findJobs(new JobQuery());
+    }
+
+    @Benchmark
+    public Page<JobInfo> catalogLastPage() throws Exception {
+        return database.getJobCatalog().findJobs(new JobQuery(null, null, "jobName", "asc", Integer.MAX_VALUE, 10));
+    }
+
+    @Benchmark
+    public Page<JobInfo> catalogSearch() throws Exception {
+        return database.getJobCatalog().findJobs(new JobQuery("job-00001", "name", "triggerState", "desc", 1, 10));
+    }
+}
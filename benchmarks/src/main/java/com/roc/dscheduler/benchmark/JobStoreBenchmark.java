@@ -0,0 +1,89 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.job.SampleJob;
+import com.roc.dscheduler.quartz.DschedulerJobStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an acquisition cycle of the job store: acquiring a batch of due triggers, as the scheduler thread does
+ * before every fire, and releasing them again, which leaves the triggers due for the next cycle. Measures the fire
+ * path transactions on the scheduling pool without the jobs themselves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobStoreBenchmark {
+
+    private static final int TRIGGER_COUNT = 1000;
+
+    @Param({"1", "10", "50"})
+    public int batchSize;
+
+    private BenchmarkDatabase database;
+    private DschedulerJobStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase();
+        store = database.createJobStore("DschedulerJobStore");
+        Date now = new Date();
+        Map<JobDetail, Set<? extends Trigger>> jobs = new HashMap<>();
+        for (int i = 0; i < TRIGGER_COUNT; i++) {
+            JobDetail job = JobBuilder.newJob(SampleJob.class)
+                    .withIdentity("job-" + i, "store")
+                    .build();
+            OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                    .withIdentity("job-" + i + "_trigger", "store")
+                    .forJob(job)
+                    .startAt(now)
+                    .withSchedule(SimpleScheduleBuilder.repeatMinutelyForever())
+                    .build();
+            trigger.computeFirstFireTime(null);
+            jobs.put(job, Collections.singleton(trigger));
+        }
+        store.storeJobsAndTriggers(jobs, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public int acquireAndRelease() throws Exception {
+        List<OperableTrigger> acquired = store.acquireNextTriggers(System.currentTimeMillis() + 30_000, batchSize, 0L);
+        for (OperableTrigger trigger : acquired) {
+            store.releaseAcquiredTrigger(trigger);
+        }
+        return acquired.size();
+    }
+}
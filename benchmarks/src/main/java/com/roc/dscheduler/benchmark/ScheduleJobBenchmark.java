@@ -0,0 +1,65 @@
+package com.roc.dscheduler.benchmark;
+
+import com.roc.dscheduler.entity.BatchResult;
+import com.roc.dscheduler.entity.JobInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Jobs scheduled per second through {@code JobService}, one at a time as the form and the API schedule them, and in
+ * batches as an import does. Every operation adds a new job, the tables grow during a run like they do in use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleJobBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public void scheduleJob() throws Exception {
+        database.getJobService().scheduleJob(BenchmarkDatabase.newJob("job-" + sequence.incrementAndGet(), "single"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult scheduleJobs() {
+        List<JobInfo> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchmarkDatabase.newJob("job-" + sequence.incrementAndGet(), "batch"));
+        }
+        return database.getJobService().scheduleJobs(batch, false);
+    }
+}
@@ -0,0 +1,350 @@
+package com.roc.dscheduler.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.roc.dscheduler.quartz.ElasticThreadPool;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.ScheduleBuilder;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.SchedulerRepository;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Soak test of a cluster: several schedulers on {@code DschedulerJobStore}, each a node with pools of its own, run in
+ * one JVM on a shared in-memory database and fire many {@link SoakJob}s, on cron or simple triggers, for a while.
+ * Nodes can be killed during the run and restarted later, their fires then being recovered by the other nodes, within
+ * the {@code leaseDuration} of the node leases or, with leases off, after the Quartz {@code checkinInterval}. At the
+ * end the {@link SoakRecorder} report is printed and written as JSON: fire lag behind the scheduled fire times,
+ * misfires, missed and duplicate fires, how long after each kill the first fire of the node was recovered, each node's
+ * share of the fires and the waits for the cluster's row locks.
+ * <p>
+ * Options are {@code name=value} arguments, see {@link #DEFAULTS}:
+ * <pre>
+ * java -cp benchmarks.jar com.roc.dscheduler.benchmark.SoakHarness nodes=4 jobs=2000 duration=300 kill=120:2
+ * </pre>
+ */
+public final class SoakHarness {
+
+    private static final Logger log = LoggerFactory.getLogger(SoakHarness.class);
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("nodes", "3");                 // Simulated nodes
+        DEFAULTS.put("jobs", "1000");
+        DEFAULTS.put("interval", "10");             // Seconds between two fires of a job
+        DEFAULTS.put("cronRatio", "0.5");           // Share of the jobs on cron triggers, the others on simple triggers
+        DEFAULTS.put("durationMs", "200");          // How long each execution blocks
+        DEFAULTS.put("jitter", "0.5");              // Variation of the execution duration, 0 to 1
+        DEFAULTS.put("threads", "50");              // Worker threads per node
+        DEFAULTS.put("duration", "120");            // Seconds of the run
+        DEFAULTS.put("startDelay", "10");           // Seconds from the start of the registration to the first fires
+        DEFAULTS.put("grace", "5");                 // Last seconds of the run left out of the missed fires
+        DEFAULTS.put("checkinInterval", "15000");   // Milliseconds
+        DEFAULTS.put("misfireThreshold", "120000"); // Milliseconds
+        DEFAULTS.put("leaseDuration", "10000");     // Milliseconds, 0 to turn node leases off
+        DEFAULTS.put("leaseRenewInterval", "1000"); // Milliseconds
+        DEFAULTS.put("kill", "");                   // second:node,... e.g. 60:1,90:2
+        DEFAULTS.put("restartAfter", "30");         // Seconds after which a killed node restarts, 0 for never
+        DEFAULTS.put("result", "soak-result.json");
+    }
+
+    private static final int REGISTRATION_BATCH_SIZE = 500;
+    private static final int GROUPS = 10;
+
+    private final Map<String, String> options;
+    private final String url;
+    private final AtomicReferenceArray<Scheduler> nodes;
+    private final Map<String, Trigger> triggers = new LinkedHashMap<>();
+    private final List<Map<String, Object>> events = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Long> kills = Collections.synchronizedMap(new LinkedHashMap<>()); // Node by kill time
+    private long runStart;
+
+    private SoakHarness(Map<String, String> options) {
+        this.options = options;
+        this.url = BenchmarkDatabase.inMemoryUrl("soak");
+        this.nodes = new AtomicReferenceArray<>(intOption("nodes"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                System.err.println("Unknown option " + arg + ", options and their defaults: " + DEFAULTS);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        Map<String, Object> report = new SoakHarness(options).run();
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(mapper.writeValueAsString(report));
+        mapper.writeValue(new File(options.get("result")), report);
+        System.exit(0);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        BenchmarkDatabase.createSchema(url);
+        for (int i = 0; i < nodes.length(); i++) {
+            nodes.set(i, createNode(i));
+        }
+        runStart = System.currentTimeMillis() + intOption("startDelay") * 1000L;
+        registerJobs(nodes.get(0));
+        if (System.currentTimeMillis() > runStart) {
+            log.warn("Registration took longer than startDelay, the first fires are late");
+        }
+        for (int i = 0; i < nodes.length(); i++) {
+            nodes.get(i).start();
+        }
+        log.info("{} nodes started, {} jobs from {}", nodes.length(), triggers.size(), new Date(runStart));
+
+        ScheduledExecutorService killer = Executors.newSingleThreadScheduledExecutor();
+        scheduleKills(killer);
+        long runEnd = runStart + intOption("duration") * 1000L;
+        Thread.sleep(Math.max(0, runEnd - System.currentTimeMillis()));
+        killer.shutdownNow();
+        killer.awaitTermination(1, TimeUnit.MINUTES);
+        for (int i = 0; i < nodes.length(); i++) {
+            Scheduler node = nodes.get(i);
+            if (node != null && !node.isShutdown()) {
+                node.shutdown(false);
+            }
+        }
+
+        long windowEnd = runEnd - intOption("grace") * 1000L;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", options);
+        report.put("targetFiresPerSecond", Math.round(triggers.size() * 10.0 / intOption("interval")) / 10.0);
+        report.putAll(SoakRecorder.report(triggers, runStart, windowEnd, intOption("duration")));
+        report.put("failovers", failovers());
+        report.put("events", events);
+        BenchmarkDatabase.dropDatabase(url);
+        return report;
+    }
+
+    /**
+     * A node with the Quartz properties of {@code application.yml}, clustered, with row locks timed by
+     * {@link TimedRowLockSemaphore}. Its pools are named after it and connect as a database user of its own, so that
+     * a killed node loses its connections.
+     */
+    private Scheduler createNode(int index) throws SchedulerException, SQLException {
+        String instanceId = "node-" + index;
+        try (Connection conn = DriverManager.getConnection(url); Statement statement = conn.createStatement()) {
+            statement.execute("CREATE USER IF NOT EXISTS \"" + instanceId + "\" PASSWORD '' ADMIN");
+        }
+        Properties properties = BenchmarkDatabase.quartzProperties(url, instanceId, "soak-" + instanceId);
+        properties.remove("org.quartz.threadPool.threadCount");
+        properties.setProperty(StdSchedulerFactory.PROP_THREAD_POOL_CLASS, ElasticThreadPool.class.getName());
+        properties.setProperty("org.quartz.threadPool.maxThreads", options.get("threads"));
+        properties.setProperty("org.quartz.threadPool.minThreads", String.valueOf(Math.min(10, intOption("threads"))));
+        properties.setProperty("org.quartz.threadPool.threadNamePrefix", instanceId + "-worker");
+        properties.setProperty("org.quartz.jobStore.isClustered", "true");
+        properties.setProperty("org.quartz.jobStore.clusterCheckinInterval", options.get("checkinInterval"));
+        properties.setProperty("org.quartz.jobStore.misfireThreshold", options.get("misfireThreshold"));
+        properties.setProperty("org.quartz.jobStore.lockHandler.class", TimedRowLockSemaphore.class.getName());
+        properties.setProperty("org.quartz.jobStore.leaseDuration", options.get("leaseDuration"));
+        properties.setProperty("org.quartz.jobStore.leaseRenewInterval", options.get("leaseRenewInterval"));
+        properties.setProperty("org.quartz.jobStore.leaseDataSource", leaseDataSource(instanceId));
+        BenchmarkDatabase.addDataSource(properties, url, leaseDataSource(instanceId), 1);
+        for (String dataSource : dataSources(instanceId)) {
+            properties.setProperty(StdSchedulerFactory.PROP_DATASOURCE_PREFIX + "." + dataSource + ".user", instanceId);
+        }
+
+        Scheduler scheduler = new StdSchedulerFactory(properties).getScheduler();
+        // The repository keeps one scheduler per name, the nodes all have the same
+        SchedulerRepository.getInstance().remove(BenchmarkDatabase.SCHEDULER_NAME);
+        scheduler.getListenerManager().addTriggerListener(new TriggerListenerSupport() {
+            @Override
+            public String getName() {
+                return "soak";
+            }
+
+            @Override
+            public void triggerMisfired(Trigger trigger) {
+                SoakRecorder.misfired();
+            }
+        });
+        return scheduler;
+    }
+
+    /**
+     * Registers the jobs, requesting recovery, with their first fires spread over the first interval after
+     * {@link #runStart}. Cron jobs fire at a second of the minute, so their interval must divide 60.
+     */
+    private void registerJobs(Scheduler scheduler) throws SchedulerException {
+        int jobs = intOption("jobs");
+        int interval = intOption("interval");
+        long cronJobs = Math.round(jobs * Double.parseDouble(options.get("cronRatio")));
+        if (cronJobs > 0 && 60 % interval != 0) {
+            throw new IllegalArgumentException("interval must divide 60 for cron jobs, was " + interval);
+        }
+        Random random = new Random(42);
+        Map<JobDetail, Set<? extends Trigger>> batch = new LinkedHashMap<>();
+        for (int i = 0; i < jobs; i++) {
+            String name = String.format("soak-%06d", i);
+            String group = "soak-" + (i % GROUPS);
+            JobDetail job = JobBuilder.newJob(SoakJob.class)
+                    .withIdentity(name, group)
+                    .usingJobData(SoakJob.DURATION, Long.parseLong(options.get("durationMs")))
+                    .usingJobData(SoakJob.JITTER, Double.parseDouble(options.get("jitter")))
+                    .requestRecovery()
+                    .build();
+            ScheduleBuilder<? extends Trigger> schedule;
+            long startAt = runStart;
+            if (i < cronJobs) {
+                schedule = CronScheduleBuilder.cronSchedule(random.nextInt(interval) + "/" + interval + " * * * * ?");
+            } else {
+                schedule = SimpleScheduleBuilder.repeatSecondlyForever(interval);
+                startAt += random.nextInt(interval * 1000);
+            }
+            Trigger trigger = TriggerBuilder.newTrigger()
+                    .withIdentity(name, group)
+                    .startAt(new Date(startAt))
+                    .withSchedule(schedule)
+                    .build();
+            triggers.put(trigger.getKey().toString(), trigger);
+            batch.put(job, Collections.singleton(trigger));
+            if (batch.size() == REGISTRATION_BATCH_SIZE || i == jobs - 1) {
+                scheduler.scheduleJobs(batch, false);
+                batch.clear();
+            }
+        }
+    }
+
+    private void scheduleKills(ScheduledExecutorService killer) {
+        String kills = options.get("kill").trim();
+        if (kills.isEmpty()) {
+            return;
+        }
+        long restartAfter = intOption("restartAfter") * 1000L;
+        for (String kill : kills.split(",")) {
+            String[] parts = kill.trim().split(":");
+            long at = runStart + Long.parseLong(parts[0]) * 1000L;
+            int index = Integer.parseInt(parts[1]);
+            if (index < 0 || index >= nodes.length()) {
+                throw new IllegalArgumentException("No node " + index + " to kill");
+            }
+            killer.schedule(() -> kill(index), at - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (restartAfter > 0) {
+                killer.schedule(() -> restart(index), at + restartAfter - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops a node the way a process dies: its pools are closed and its database sessions aborted first, so it can
+     * neither renew its lease nor give it up, and its executions cannot complete. Its fired triggers stay in
+     * QRTZ_FIRED_TRIGGERS until another node recovers them, once the lease expired or, with leases off, after the
+     * missed check-in.
+     */
+    private void kill(int index) {
+        Scheduler node = nodes.getAndSet(index, null);
+        if (node == null) {
+            return;
+        }
+        String instanceId = "node-" + index;
+        long killedAt = System.currentTimeMillis();
+        try {
+            for (String dataSource : dataSources(instanceId)) {
+                DBConnectionManager.getInstance().shutdown(dataSource);
+            }
+            try (Connection conn = DriverManager.getConnection(url);
+                 PreparedStatement sessions = conn.prepareStatement(
+                         "SELECT ABORT_SESSION(SESSION_ID) FROM INFORMATION_SCHEMA.SESSIONS WHERE USER_NAME = ?")) {
+                sessions.setString(1, instanceId.toUpperCase(Locale.ROOT)); // H2 keeps user names in upper case
+                sessions.executeQuery().close();
+            }
+            node.shutdown(false);
+            kills.put(instanceId + "@" + killedAt, killedAt);
+            event("killed " + instanceId);
+        } catch (SchedulerException | SQLException e) {
+            log.error("Failed to kill {}", instanceId, e);
+        }
+    }
+
+    /**
+     * @return for each kill, how long until the first fire the node had in progress was recovered by another node.
+     */
+    private Map<String, Object> failovers() {
+        Map<String, Object> failovers = new LinkedHashMap<>();
+        synchronized (kills) {
+            for (Map.Entry<String, Long> kill : kills.entrySet()) {
+                long recoveredAt = SoakRecorder.firstRecoveryAfter(kill.getValue());
+                failovers.put(kill.getKey().substring(0, kill.getKey().indexOf('@')) + " at "
+                                + Math.round((kill.getValue() - runStart) / 100.0) / 10.0 + "s",
+                        recoveredAt < 0 ? "not recovered" : (recoveredAt - kill.getValue()) + "ms");
+            }
+        }
+        return failovers;
+    }
+
+    private static String leaseDataSource(String instanceId) {
+        return "soak-" + instanceId + "-lease";
+    }
+
+    private static String[] dataSources(String instanceId) {
+        return new String[]{"soak-" + instanceId + "-management", "soak-" + instanceId + "-scheduling",
+                leaseDataSource(instanceId)};
+    }
+
+    /**
+     * Starts a killed node again with the same instance ID, as a restarted process would.
+     */
+    private void restart(int index) {
+        if (nodes.get(index) != null) {
+            return;
+        }
+        try {
+            Scheduler node = createNode(index);
+            node.start();
+            nodes.set(index, node);
+            event("restarted node-" + index);
+        } catch (SchedulerException | SQLException e) {
+            log.error("Failed to restart node-{}", index, e);
+        }
+    }
+
+    private void event(String event) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("atSecond", Math.round((System.currentTimeMillis() - runStart) / 100.0) / 10.0);
+        entry.put("event", event);
+        events.add(entry);
+        log.info("{}s: {}", entry.get("atSecond"), event);
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+}
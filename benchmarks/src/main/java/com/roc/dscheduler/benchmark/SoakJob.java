@@ -0,0 +1,50 @@
+package com.roc.dscheduler.benchmark;
+
+import org.quartz.InterruptableJob;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Synthetic job of the {@link SoakHarness}: records when it started, then blocks for its duration the way
+ * {@code SampleJob} does, like a job waiting on I/O.
+ */
+public class SoakJob implements InterruptableJob {
+
+    /**
+     * Job data keys: the duration in milliseconds, and the jitter, from 0 to 1, by which each execution's duration
+     * varies around it.
+     */
+    static final String DURATION = "durationMs";
+    static final String JITTER = "jitter";
+
+    private volatile Thread worker;
+
+    @Override
+    public void execute(JobExecutionContext context) {
+        worker = Thread.currentThread();
+        SoakRecorder.fired(context);
+        JobDataMap data = context.getMergedJobDataMap();
+        long duration = data.getLong(DURATION);
+        double jitter = data.getDouble(JITTER);
+        if (jitter > 0) {
+            duration = Math.round(duration * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+        }
+        try {
+            Thread.sleep(Math.max(0, duration));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            worker = null;
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
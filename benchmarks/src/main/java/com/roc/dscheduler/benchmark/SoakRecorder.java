@@ -0,0 +1,206 @@
+package com.roc.dscheduler.benchmark;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What happened during a soak run, recorded by all simulated nodes of the JVM: every fire of a {@link SoakJob} with
+ * its lag behind its scheduled fire time, the misfires and the row lock waits. {@link #report} compares the fires with
+ * the fire times the triggers were scheduled for.
+ */
+final class SoakRecorder {
+
+    private static final Map<String, LongList> firesByTrigger = new ConcurrentHashMap<>(); // scheduled time << 1 | recovering
+    private static final Map<String, LongAdder> firesByNode = new ConcurrentHashMap<>();
+    private static final Map<String, LongList> lockWaits = new ConcurrentHashMap<>(); // nanos by lock name
+    private static final LongList lags = new LongList();
+    private static final LongList recoveries = new LongList(); // When recovered fires started
+    private static final LongAdder misfires = new LongAdder();
+
+    private SoakRecorder() {
+    }
+
+    static void fired(JobExecutionContext context) {
+        long scheduled = context.getScheduledFireTime().getTime();
+        lags.add(System.currentTimeMillis() - scheduled);
+        // A fire recovered from a failed node runs on a one-shot trigger of its own, at the original scheduled time
+        TriggerKey triggerKey = context.isRecovering() ? context.getRecoveringTriggerKey()
+                : context.getTrigger().getKey();
+        firesByTrigger.computeIfAbsent(triggerKey.toString(), key -> new LongList())
+                .add(scheduled << 1 | (context.isRecovering() ? 1 : 0));
+        if (context.isRecovering()) {
+            recoveries.add(System.currentTimeMillis());
+        }
+        String node;
+        try {
+            node = context.getScheduler().getSchedulerInstanceId();
+        } catch (Exception e) {
+            node = "unknown";
+        }
+        firesByNode.computeIfAbsent(node, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return when the first recovered fire started at or after a time, -1 if none did.
+     */
+    static long firstRecoveryAfter(long time) {
+        long[] sorted = recoveries.toSortedArray();
+        int index = Arrays.binarySearch(sorted, time);
+        index = index < 0 ? -index - 1 : index;
+        return index < sorted.length ? sorted[index] : -1;
+    }
+
+    static void misfired() {
+        misfires.increment();
+    }
+
+    static void lockWaited(String lockName, long nanos) {
+        lockWaits.computeIfAbsent(lockName, key -> new LongList()).add(nanos);
+    }
+
+    /**
+     * Compares the fires with the schedule of every trigger between {@code windowStart} and {@code windowEnd}.
+     * <ul>
+     *     <li>missed: scheduled fire times that never fired, misfires included;</li>
+     *     <li>duplicates: fire times executed more than once, apart from re-executions of the fires in progress on a
+     *     node that failed, counted as recovered;</li>
+     *     <li>off schedule: fires at a time the trigger was not scheduled for, e.g. a misfire fired late.</li>
+     * </ul>
+     *
+     * @param triggers the triggers by key, as scheduled.
+     */
+    static Map<String, Object> report(Map<String, Trigger> triggers, long windowStart, long windowEnd,
+                                      double seconds) {
+        long expected = 0;
+        long missed = 0;
+        long duplicates = 0;
+        long recovered = 0;
+        long offSchedule = 0;
+        for (Map.Entry<String, Trigger> entry : triggers.entrySet()) {
+            LongList schedule = new LongList();
+            Trigger trigger = entry.getValue();
+            for (Date time = trigger.getFireTimeAfter(new Date(windowStart - 1));
+                 time != null && time.getTime() <= windowEnd; time = trigger.getFireTimeAfter(time)) {
+                schedule.add(time.getTime());
+            }
+            long[] scheduledTimes = schedule.toSortedArray();
+            LongList fires = firesByTrigger.get(entry.getKey());
+            long[] observed = fires == null ? new long[0] : fires.toSortedArray();
+
+            expected += scheduledTimes.length;
+            for (long time : scheduledTimes) {
+                if (Arrays.binarySearch(observed, time << 1) < 0 && Arrays.binarySearch(observed, time << 1 | 1) < 0) {
+                    missed++;
+                }
+            }
+            for (int i = 0; i < observed.length; ) {
+                long scheduled = observed[i] >> 1;
+                int executions = 0;
+                boolean recovering = false;
+                for (; i < observed.length && observed[i] >> 1 == scheduled; i++) {
+                    executions++;
+                    recovering |= (observed[i] & 1) == 1;
+                }
+                if (recovering) {
+                    recovered += executions - 1;
+                } else {
+                    duplicates += executions - 1;
+                }
+                if (scheduled >= windowStart && scheduled <= windowEnd
+                        && Arrays.binarySearch(scheduledTimes, scheduled) < 0) {
+                    offSchedule++;
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        long[] sortedLags = lags.toSortedArray();
+        Map<String, Object> fires = new LinkedHashMap<>();
+        fires.put("executed", sortedLags.length);
+        fires.put("perSecond", Math.round(sortedLags.length / seconds * 10) / 10.0);
+        fires.put("expectedInWindow", expected);
+        fires.put("missed", missed);
+        fires.put("misfires", misfires.sum());
+        fires.put("duplicates", duplicates);
+        fires.put("recovered", recovered);
+        fires.put("offSchedule", offSchedule);
+        report.put("fires", fires);
+        report.put("fireLagMillis", distribution(sortedLags, 1));
+
+        Map<String, Object> nodes = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> node : firesByNode.entrySet()) {
+            Map<String, Object> share = new LinkedHashMap<>();
+            share.put("fires", node.getValue().sum());
+            share.put("share", sortedLags.length == 0 ? 0
+                    : Math.round(node.getValue().sum() * 1000.0 / sortedLags.length) / 10.0);
+            nodes.put(node.getKey(), share);
+        }
+        report.put("nodes", nodes);
+
+        Map<String, Object> locks = new TreeMap<>();
+        for (Map.Entry<String, LongList> lock : lockWaits.entrySet()) {
+            long[] waits = lock.getValue().toSortedArray();
+            Map<String, Object> summary = distribution(waits, 1_000_000);
+            summary.put("totalMillis", Arrays.stream(waits).sum() / 1_000_000);
+            locks.put(lock.getKey(), summary);
+        }
+        report.put("lockWaitMillis", locks);
+        return report;
+    }
+
+    /**
+     * @param divisor to milliseconds.
+     */
+    private static Map<String, Object> distribution(long[] sorted, double divisor) {
+        Map<String, Object> distribution = new LinkedHashMap<>();
+        distribution.put("count", sorted.length);
+        if (sorted.length == 0) {
+            return distribution;
+        }
+        distribution.put("mean", round(Arrays.stream(sorted).average().orElse(0) / divisor));
+        distribution.put("p50", round(percentile(sorted, 0.5) / divisor));
+        distribution.put("p90", round(percentile(sorted, 0.9) / divisor));
+        distribution.put("p99", round(percentile(sorted, 0.99) / divisor));
+        distribution.put("p999", round(percentile(sorted, 0.999) / divisor));
+        distribution.put("max", round(sorted[sorted.length - 1] / divisor));
+        return distribution;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Growable array of longs, appended to by many threads.
+     */
+    private static final class LongList {
+        private long[] values = new long[64];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
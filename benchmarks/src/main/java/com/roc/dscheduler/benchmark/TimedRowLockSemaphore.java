@@ -0,0 +1,24 @@
+package com.roc.dscheduler.benchmark;
+
+import org.quartz.impl.jdbcjobstore.LockException;
+import org.quartz.impl.jdbcjobstore.StdRowLockSemaphore;
+
+import java.sql.Connection;
+
+/**
+ * The row lock of a clustered job store ({@code SELECT ... FOR UPDATE} on QRTZ_LOCKS), timing how long each
+ * acquisition waited for the {@link SoakRecorder}. Set with {@code org.quartz.jobStore.lockHandler.class}.
+ */
+public class TimedRowLockSemaphore extends StdRowLockSemaphore {
+
+    @Override
+    protected void executeSQL(Connection conn, String lockName, String expandedSQL, String expandedInsertSQL)
+            throws LockException {
+        long start = System.nanoTime();
+        try {
+            super.executeSQL(conn, lockName, expandedSQL, expandedInsertSQL);
+        } finally {
+            SoakRecorder.lockWaited(lockName, System.nanoTime() - start);
+        }
+    }
+}
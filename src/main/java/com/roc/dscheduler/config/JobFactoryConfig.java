@@ -0,0 +1,24 @@
+package com.roc.dscheduler.config;
+
+import com.roc.dscheduler.quartz.RegistryJobFactory;
+import com.roc.dscheduler.service.JobTypeRegistry;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes the application scheduler and the partitions create jobs with the {@link RegistryJobFactory}.
+ */
+@Configuration
+public class JobFactoryConfig {
+
+    @Bean
+    public RegistryJobFactory jobFactory(JobTypeRegistry jobTypeRegistry) {
+        return new RegistryJobFactory(jobTypeRegistry);
+    }
+
+    @Bean
+    public SchedulerFactoryBeanCustomizer jobFactoryCustomizer(RegistryJobFactory jobFactory) {
+        return schedulerFactoryBean -> schedulerFactoryBean.setJobFactory(jobFactory);
+    }
+}
@@ -0,0 +1,95 @@
+package com.roc.dscheduler.config;
+
+import com.roc.dscheduler.quartz.RegistryJobFactory;
+import com.roc.dscheduler.service.SchedulerRouter;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.quartz.QuartzProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Creates the partition schedulers of the partitioned mode, see {@link SchedulerRouter}.
+ * <p>
+ * Every partition is configured like the application scheduler ({@code spring.quartz.properties}), with its own
+ * instance name, the node's instance id, a shorter idle wait, an auto-tuned acquisition batch and a share of the
+ * threads: the partitions of a node together run no more executions, and hold no more connections of the data
+ * sources, than the application scheduler would alone.
+ * Partitions are created but not started, {@link com.roc.dscheduler.service.PartitionManager} starts the partitions
+ * this node holds a lease on.
+ */
+@Configuration
+public class PartitionConfig {
+
+    private static final String SCHEDULER_PREFIX = "org.quartz.scheduler.";
+
+    @Value("${dscheduler.partition.count:1}")
+    private int partitionCount;
+
+    @Value("${dscheduler.partition.batch-max-count:50}")
+    private int batchMaxCount;
+
+    @Value("${dscheduler.partition.fire-ahead-max-window:500}")
+    private long fireAheadMaxWindow;
+
+    @Value("${dscheduler.partition.idle-wait-time:5000}")
+    private long idleWaitTime;
+
+    @Bean(destroyMethod = "shutdown")
+    public SchedulerRouter schedulerRouter(Scheduler scheduler, QuartzProperties quartzProperties,
+                                           RegistryJobFactory jobFactory) throws SchedulerException {
+        if (partitionCount <= 1) {
+            return new SchedulerRouter(Collections.singletonList(scheduler), false, false);
+        }
+        List<Scheduler> partitions = new ArrayList<>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Properties properties = partitionProperties(quartzProperties, scheduler, partition);
+            Scheduler partitionScheduler = new StdSchedulerFactory(properties).getScheduler();
+            partitionScheduler.setJobFactory(jobFactory);
+            partitions.add(partitionScheduler);
+        }
+        return new SchedulerRouter(partitions, true, quartzProperties.isWaitForJobsToCompleteOnShutdown());
+    }
+
+    private Properties partitionProperties(QuartzProperties quartzProperties, Scheduler scheduler, int partition)
+            throws SchedulerException {
+        Properties properties = new Properties();
+        properties.putAll(quartzProperties.getProperties());
+        String suffix = "-p" + partition;
+        properties.setProperty(SCHEDULER_PREFIX + "instanceName", scheduler.getSchedulerName() + suffix);
+        // Same id on every partition, so a node is the same cluster instance everywhere
+        properties.setProperty(SCHEDULER_PREFIX + "instanceId", scheduler.getSchedulerInstanceId());
+        String threadName = properties.getProperty(SCHEDULER_PREFIX + "threadName");
+        if (threadName != null) {
+            properties.setProperty(SCHEDULER_PREFIX + "threadName", threadName + suffix);
+        }
+        // A partition is polled by its owner only, so it can poll more often than the default 30s, which also
+        // bounds how long a node taking over a partition takes to notice the triggers released by the previous owner
+        properties.setProperty(SCHEDULER_PREFIX + "idleWaitTime", String.valueOf(idleWaitTime));
+        properties.setProperty(SCHEDULER_PREFIX + "batchTriggerAcquisitionMaxCount", String.valueOf(batchMaxCount));
+        properties.setProperty("org.quartz.jobStore.batchAutoTune", "true");
+        properties.setProperty("org.quartz.jobStore.fireAheadMaxWindow", String.valueOf(fireAheadMaxWindow));
+        share(properties, "org.quartz.threadPool.minThreads");
+        share(properties, "org.quartz.threadPool.maxThreads");
+        share(properties, "org.quartz.threadPool.threadCount");
+        return properties;
+    }
+
+    /**
+     * Replaces a thread count by the partition's share of it, rounded up.
+     */
+    private void share(Properties properties, String key) {
+        String threads = properties.getProperty(key);
+        if (threads != null) {
+            int perPartition = (Integer.parseInt(threads.trim()) + partitionCount - 1) / partitionCount;
+            properties.setProperty(key, String.valueOf(perPartition));
+        }
+    }
+}
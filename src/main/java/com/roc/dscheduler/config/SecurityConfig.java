@@ -45,6 +45,8 @@ public class SecurityConfig {
                                 .defaultSuccessUrl("/jobs", true) // Redirect to /jobs on successful login
                                 .permitAll()
                 )
+                .httpBasic(httpBasic -> {
+                }) // Basic authentication for the JSON API (/api/**)
                 .logout(logout ->
                         logout
                                 .logoutSuccessUrl("/login?logout") // Redirect to login page after logout
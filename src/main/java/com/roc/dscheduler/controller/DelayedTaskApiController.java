@@ -0,0 +1,67 @@
+package com.roc.dscheduler.controller;
+
+import com.roc.dscheduler.entity.DelayedTask;
+import com.roc.dscheduler.service.DelayedTaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON API for delayed one-shot tasks, see {@link DelayedTaskService}.
+ */
+@RestController
+@RequestMapping("/api/delayed-tasks")
+public class DelayedTaskApiController {
+
+    private final DelayedTaskService delayedTaskService;
+
+    @Value("${dscheduler.api.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    @Autowired
+    public DelayedTaskApiController(DelayedTaskService delayedTaskService) {
+        this.delayedTaskService = delayedTaskService;
+    }
+
+    /**
+     * Schedules tasks: handler, fireAt (epoch millis) and optional taskKey and payload each. Responds 400 if a task
+     * is invalid, nothing is scheduled then.
+     */
+    @PostMapping
+    public ResponseEntity<?> scheduleTasks(@RequestBody List<DelayedTask> tasks) {
+        if (tasks.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(error("Batch too large, at most " + maxBatchSize + " tasks per request"));
+        }
+        try {
+            return ResponseEntity.ok(Collections.singletonMap("scheduled", delayedTaskService.schedule(tasks)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{handler}/{taskKey}")
+    public ResponseEntity<?> cancelTask(@PathVariable String handler, @PathVariable String taskKey) {
+        try {
+            return delayedTaskService.cancel(handler, taskKey) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<?> getStatus() {
+        return ResponseEntity.ok(delayedTaskService.getStatus());
+    }
+
+    private static Map<String, String> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+}
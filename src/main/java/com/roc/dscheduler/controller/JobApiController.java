@@ -0,0 +1,187 @@
+package com.roc.dscheduler.controller;
+
+import com.roc.dscheduler.entity.BatchResult;
+import com.roc.dscheduler.entity.FireForecast;
+import com.roc.dscheduler.entity.GroupUsage;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.entity.JobType;
+import com.roc.dscheduler.entity.NodeLoad;
+import com.roc.dscheduler.service.FireForecastService;
+import com.roc.dscheduler.service.JobDataMigration;
+import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.JobTypeRegistry;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON API for bulk job management.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobApiController {
+
+    private static final Logger log = LoggerFactory.getLogger(JobApiController.class);
+
+    private final JobService jobService;
+    private final JobTypeRegistry jobTypeRegistry;
+    private final JobDataMigration jobDataMigration;
+    private final FireForecastService fireForecastService;
+
+    @Value("${dscheduler.api.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    @Autowired
+    public JobApiController(JobService jobService, JobTypeRegistry jobTypeRegistry,
+                            JobDataMigration jobDataMigration, FireForecastService fireForecastService) {
+        this.jobService = jobService;
+        this.jobTypeRegistry = jobTypeRegistry;
+        this.jobDataMigration = jobDataMigration;
+        this.fireForecastService = fireForecastService;
+    }
+
+    /**
+     * Lists the trigger groups with their executions in progress, overdue triggers and quota.
+     */
+    @GetMapping("/groups")
+    public List<GroupUsage> getGroupUsage() {
+        return jobService.getGroupUsage();
+    }
+
+    /**
+     * Lists the load every node published at its last cluster check-in.
+     */
+    @GetMapping("/nodes")
+    public List<NodeLoad> getNodeLoads() {
+        return jobService.getNodeLoads();
+    }
+
+    /**
+     * Lists the job classes jobs can be scheduled with.
+     */
+    @GetMapping("/types")
+    public List<JobType> getJobTypes() {
+        return jobTypeRegistry.getJobTypes();
+    }
+
+    /**
+     * Lists the next fire times of a job from now, computed from its cron expression.
+     */
+    @GetMapping("/fire-times")
+    public ResponseEntity<?> getFireTimes(@RequestParam String jobName, @RequestParam String jobGroup,
+                                          @RequestParam(defaultValue = "10") int count) {
+        try {
+            List<LocalDateTime> fireTimes = fireForecastService.previewFireTimes(JobKey.jobKey(jobName, jobGroup), count);
+            if (fireTimes == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error("Job not found"));
+            }
+            return ResponseEntity.ok(fireTimes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error computing the fire times of job {}: {}", jobName, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not compute fire times: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Forecasts the fires of all jobs not paused by time bucket, from now for a day unless given, with the busiest
+     * buckets and the cron expressions firing most in them.
+     */
+    @GetMapping("/forecast")
+    public ResponseEntity<?> getForecast(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                         @RequestParam(defaultValue = "15") int bucketMinutes) {
+        LocalDateTime start = from != null ? from : LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        try {
+            FireForecast forecast = fireForecastService.forecast(start, to != null ? to : start.plusDays(1), bucketMinutes);
+            return ResponseEntity.ok(forecast);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error forecasting fires: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not forecast fires: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Creates (or, with replace=true, upserts) a batch of jobs in one transaction.
+     * Responds 200 when every job was scheduled, 422 with the per-job errors otherwise.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> scheduleJobs(@RequestBody List<JobInfo> jobInfos,
+                                          @RequestParam(defaultValue = "false") boolean replace) {
+        if (jobInfos.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(error("Batch too large, at most " + maxBatchSize + " jobs per request"));
+        }
+        BatchResult result = jobService.scheduleJobs(jobInfos, replace);
+        return ResponseEntity.status(result.hasFailures() ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.OK).body(result);
+    }
+
+    @PostMapping("/batch/pause")
+    public ResponseEntity<?> pauseJobs(@RequestBody JobSelector selector) {
+        try {
+            return ResponseEntity.ok(jobService.pauseJobs(selector));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error pausing jobs: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not pause jobs: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch/resume")
+    public ResponseEntity<?> resumeJobs(@RequestBody JobSelector selector) {
+        try {
+            return ResponseEntity.ok(jobService.resumeJobs(selector));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error resuming jobs: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not resume jobs: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch/delete")
+    public ResponseEntity<?> deleteJobs(@RequestBody JobSelector selector) {
+        try {
+            return ResponseEntity.ok(jobService.deleteJobs(selector));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error deleting jobs: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not delete jobs: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Converts the Java-serialized JobDataMaps of all jobs and triggers to the compact encoding, see
+     * {@link JobDataMigration}. Responds 409 if this node does not store them in the compact encoding.
+     */
+    @PostMapping("/job-data/migrate")
+    public ResponseEntity<?> migrateJobData() {
+        try {
+            return ResponseEntity.ok(jobDataMigration.migrate());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        }
+    }
+
+    private static Map<String, String> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+}
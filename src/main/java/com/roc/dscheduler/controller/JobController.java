@@ -1,34 +1,73 @@
 package com.roc.dscheduler.controller;
 
+import com.roc.dscheduler.entity.ImportResult;
+import com.roc.dscheduler.entity.JobExecution;
 import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobQuery;
+import com.roc.dscheduler.entity.JobType;
+import com.roc.dscheduler.entity.JobSelector;
 import com.roc.dscheduler.entity.Page;
+import com.roc.dscheduler.service.ExecutionHistoryService;
+import com.roc.dscheduler.service.JobCatalog;
 import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.JobTransferService;
+import com.roc.dscheduler.service.JobTypeRegistry;
+import com.roc.dscheduler.service.LiveJobBroadcaster;
+import org.quartz.JobKey;
 import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import javax.validation.Valid;
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/jobs")
 public class JobController {
 
     private static final Logger log = LoggerFactory.getLogger(JobController.class);
+    private static final String NDJSON = "application/x-ndjson";
 
     private final JobService jobService;
+    private final JobCatalog jobCatalog;
+    private final ExecutionHistoryService historyService;
+    private final JobTransferService transferService;
+    private final LiveJobBroadcaster liveBroadcaster;
+    private final JobTypeRegistry jobTypeRegistry;
 
     @Autowired
-    public JobController(JobService jobService) {
+    public JobController(JobService jobService, JobCatalog jobCatalog, ExecutionHistoryService historyService,
+                         JobTransferService transferService, LiveJobBroadcaster liveBroadcaster,
+                         JobTypeRegistry jobTypeRegistry) {
         this.jobService = jobService;
+        this.jobCatalog = jobCatalog;
+        this.historyService = historyService;
+        this.transferService = transferService;
+        this.liveBroadcaster = liveBroadcaster;
+        this.jobTypeRegistry = jobTypeRegistry;
+    }
+
+    /**
+     * The job types offered by the job form, also when it is shown again with errors.
+     */
+    @ModelAttribute("jobTypes")
+    public List<JobType> jobTypes() {
+        return jobTypeRegistry.getJobTypes();
     }
 
 
@@ -42,64 +81,8 @@ public class JobController {
             @RequestParam(required = false) String searchType,
             Model model) {
         try {
-            // Get all jobs first (for filtering)
-            List<JobInfo> allJobs = jobService.getAllJobs();
-
-            // Apply search filter if search term is provided
-            if (search != null && !search.trim().isEmpty() && searchType != null) {
-                String searchTerm = search.toLowerCase().trim();
-                allJobs = allJobs.stream().filter(job -> {
-                    switch (searchType) {
-                        case "name":
-                            return job.getJobName().toLowerCase().contains(searchTerm);
-                        case "group":
-                            return job.getJobGroup().toLowerCase().contains(searchTerm);
-                        case "cron":
-                            return job.getCronExpression().toLowerCase().contains(searchTerm);
-                        case "status":
-                            return job.getTriggerState().toLowerCase().contains(searchTerm);
-                        default:
-                            return true;
-                    }
-                }).collect(Collectors.toList());
-            }
-
-            // Sort the jobs
-            Comparator<JobInfo> comparator;
-            switch (sort) {
-                case "jobGroup":
-                    comparator = Comparator.comparing(JobInfo::getJobGroup);
-                    break;
-                case "triggerState":
-                    comparator = Comparator.comparing(JobInfo::getTriggerState);
-                    break;
-                default:
-                    comparator = Comparator.comparing(JobInfo::getJobName);
-                    break;
-            }
-
-            if ("desc".equalsIgnoreCase(order)) {
-                comparator = comparator.reversed();
-            }
-
-            allJobs.sort(comparator);
-
-            // Apply pagination
-            int totalItems = allJobs.size();
-            int totalPages = (int) Math.ceil((double) totalItems / size);
-            page = Math.max(1, Math.min(page, totalPages));
-
-            int fromIndex = (page - 1) * size;
-            int toIndex = Math.min(fromIndex + size, totalItems);
-            List<JobInfo> pageJobs = allJobs.subList(fromIndex, toIndex);
-
-            // Create page object
-            Page<JobInfo> jobPage = new Page<>();
-            jobPage.setContent(pageJobs);
-            jobPage.setCurrentPage(page);
-            jobPage.setPageSize(size);
-            jobPage.setTotalItems(totalItems);
-            jobPage.setTotalPages(totalPages == 0 ? 1 : totalPages);
+            // Search, sort and paging run against the in-memory catalog, no JDBC traffic
+            Page<JobInfo> jobPage = jobCatalog.findJobs(new JobQuery(search, searchType, sort, order, page, size));
 
             model.addAttribute("page", jobPage);
             model.addAttribute("sortField", sort);
@@ -119,9 +102,129 @@ public class JobController {
         return "jobs/list";
     }
 
+    /**
+     * Server-Sent Events of the jobs given as pairs of jobGroup and jobName parameters (the rows of a list page),
+     * plus a notice when jobs are added. With all=true every job is pushed.
+     */
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> liveJobs(@RequestParam(required = false) List<String> jobGroup,
+                                      @RequestParam(required = false) List<String> jobName,
+                                      @RequestParam(defaultValue = "false") boolean all) {
+        int groups = jobGroup == null ? 0 : jobGroup.size();
+        int names = jobName == null ? 0 : jobName.size();
+        if (groups != names) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<JobKey> watched = new ArrayList<>(names);
+        for (int i = 0; i < names; i++) {
+            watched.add(JobKey.jobKey(jobName.get(i), jobGroup.get(i)));
+        }
+        try {
+            SseEmitter emitter = liveBroadcaster.subscribe(all ? null : watched);
+            return ResponseEntity.ok(emitter);
+        } catch (IllegalStateException e) {
+            log.warn("Live job list refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/groups")
+    public String listGroups(Model model) {
+        try {
+            model.addAttribute("groups", jobService.getGroupUsage());
+        } catch (Exception e) {
+            log.error("Error fetching group usage: {}", e.getMessage(), e);
+            model.addAttribute("error", "Could not retrieve group usage: " + e.getMessage());
+        }
+        return "jobs/groups";
+    }
+
+    @GetMapping("/nodes")
+    public String listNodes(Model model) {
+        try {
+            model.addAttribute("nodes", jobService.getNodeLoads());
+            model.addAttribute("now", System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Error fetching node loads: {}", e.getMessage(), e);
+            model.addAttribute("error", "Could not retrieve node loads: " + e.getMessage());
+        }
+        return "jobs/nodes";
+    }
+
+    @GetMapping("/{group}/{name}/executions")
+    public String listExecutions(@PathVariable String group,
+                                 @PathVariable String name,
+                                 @RequestParam(required = false) Long before,
+                                 @RequestParam(defaultValue = "20") int size,
+                                 Model model) {
+        model.addAttribute("jobName", name);
+        model.addAttribute("jobGroup", group);
+        model.addAttribute("size", size);
+        try {
+            List<JobExecution> executions = historyService.getExecutions(name, group, before, size);
+            model.addAttribute("executions", executions);
+            // Keyset cursor of the next page, only when this page is full
+            if (executions.size() == size) {
+                model.addAttribute("nextBefore", executions.get(executions.size() - 1).getId());
+            }
+        } catch (SchedulerException e) {
+            log.error("Error fetching executions of job {} in group {}: {}", name, group, e.getMessage(), e);
+            model.addAttribute("error", "Could not retrieve executions: " + e.getMessage());
+        }
+        return "jobs/executions";
+    }
+
+    @GetMapping(value = "/{group}/{name}/executions", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<JobExecution> listExecutionsJson(@PathVariable String group,
+                                                 @PathVariable String name,
+                                                 @RequestParam(required = false) Long before,
+                                                 @RequestParam(defaultValue = "20") int size) throws SchedulerException {
+        return historyService.getExecutions(name, group, before, size);
+    }
+
+    /**
+     * Streams the jobs matching the optional group, groupPrefix and namePattern parameters as NDJSON.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportJobs(JobSelector selector) {
+        StreamingResponseBody body = out -> {
+            try {
+                transferService.exportJobs(selector, out);
+            } catch (SchedulerException e) {
+                log.error("Error exporting jobs: {}", e.getMessage(), e);
+                throw new IOException("Could not export jobs: " + e.getMessage(), e);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"jobs.ndjson\"")
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    /**
+     * Imports an NDJSON upload (request body) in batches, see {@link JobTransferService#importJobs}.
+     * Responds 200 when every line was imported, 422 with the failures and the checkpoint to resume from otherwise.
+     */
+    @PostMapping(value = "/import", consumes = {NDJSON, MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    @ResponseBody
+    public ResponseEntity<ImportResult> importJobs(InputStream upload,
+                                                   JobSelector filter,
+                                                   @RequestParam(defaultValue = "false") boolean replace,
+                                                   @RequestParam(defaultValue = "false") boolean dryRun,
+                                                   @RequestParam(defaultValue = "0") long resumeAfter) throws IOException {
+        ImportResult result = transferService.importJobs(upload, filter, replace, dryRun, resumeAfter);
+        return ResponseEntity.status(result.hasFailures() ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.OK).body(result);
+    }
+
     @GetMapping("/new")
     public String showCreateJobForm(Model model) {
         model.addAttribute("jobInfo", new JobInfo());
+        try {
+            model.addAttribute("liveNodes", jobService.getLiveNodes().size());
+        } catch (SchedulerException e) {
+            log.warn("Could not read the live cluster nodes: {}", e.getMessage());
+        }
         return "jobs/form"; // Thymeleaf template: src/main/resources/templates/jobs/form.html
     }
 
@@ -140,9 +243,9 @@ public class JobController {
             jobService.scheduleJob(jobInfo);
             redirectAttributes.addFlashAttribute("successMessage", "Job '" + jobInfo.getJobName() + "' scheduled successfully!");
         } catch (ClassNotFoundException e) {
-            log.error("Error scheduling job {}: Job class not found - {}", jobInfo.getJobName(), jobInfo.getJobClass(), e);
+            log.error("Error scheduling job {}: {}", jobInfo.getJobName(), e.getMessage());
             model.addAttribute("jobInfo", jobInfo);
-            model.addAttribute("errorMessage", "Job class '" + jobInfo.getJobClass() + "' not found.");
+            model.addAttribute("errorMessage", "Job class '" + jobInfo.getJobClass() + "' is not a job type.");
             return "jobs/form";
         } catch (SchedulerException e) {
             log.error("Error scheduling job {}: {}", jobInfo.getJobName(), e.getMessage(), e);
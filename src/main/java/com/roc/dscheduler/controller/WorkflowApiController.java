@@ -0,0 +1,119 @@
+package com.roc.dscheduler.controller;
+
+import com.roc.dscheduler.entity.Workflow;
+import com.roc.dscheduler.entity.WorkflowRun;
+import com.roc.dscheduler.service.WorkflowService;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * JSON API for workflows: DAGs of jobs started by one trigger, see {@link WorkflowService}.
+ */
+@RestController
+@RequestMapping("/api/workflows")
+public class WorkflowApiController {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowApiController.class);
+    private static final int MAX_RUNS = 500;
+
+    private final WorkflowService workflowService;
+
+    @Autowired
+    public WorkflowApiController(WorkflowService workflowService) {
+        this.workflowService = workflowService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getWorkflows() {
+        try {
+            return ResponseEntity.ok(workflowService.getWorkflows());
+        } catch (SchedulerException e) {
+            log.error("Error listing workflows: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not list workflows: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<?> getWorkflow(@PathVariable String name) {
+        try {
+            Workflow workflow = workflowService.getWorkflow(name);
+            return workflow == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(workflow);
+        } catch (SchedulerException e) {
+            log.error("Error reading workflow {}: {}", name, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not read workflow: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Creates or replaces a workflow. Responds 400 if the definition is invalid (unknown job, cycle...).
+     */
+    @PutMapping("/{name}")
+    public ResponseEntity<?> saveWorkflow(@PathVariable String name, @RequestBody Workflow workflow) {
+        workflow.setName(name);
+        try {
+            workflowService.saveWorkflow(workflow);
+            return ResponseEntity.ok(workflow);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error saving workflow {}: {}", name, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not save workflow: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<?> deleteWorkflow(@PathVariable String name) {
+        try {
+            return workflowService.deleteWorkflow(name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (SchedulerException e) {
+            log.error("Error deleting workflow {}: {}", name, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not delete workflow: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Starts a run now. Responds 409 if the workflow is still running.
+     */
+    @PostMapping("/{name}/start")
+    public ResponseEntity<?> startWorkflow(@PathVariable String name) {
+        try {
+            WorkflowRun run = workflowService.startRun(name);
+            return run == null
+                    ? ResponseEntity.status(HttpStatus.CONFLICT).body(error("Workflow " + name + " is still running"))
+                    : ResponseEntity.ok(run);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage()));
+        } catch (SchedulerException e) {
+            log.error("Error starting workflow {}: {}", name, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not start workflow: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{name}/runs")
+    public ResponseEntity<?> getRuns(@PathVariable String name, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(workflowService.getRuns(name, Math.max(1, Math.min(limit, MAX_RUNS))));
+        } catch (SchedulerException e) {
+            log.error("Error listing runs of workflow {}: {}", name, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Could not list runs: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<?> getRun(@PathVariable long runId) {
+        WorkflowRun run = workflowService.getRun(runId);
+        return run == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(run);
+    }
+
+    private static Map<String, String> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+}
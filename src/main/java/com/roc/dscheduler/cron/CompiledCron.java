@@ -0,0 +1,397 @@
+package com.roc.dscheduler.cron;
+
+import org.quartz.CronExpression;
+
+import java.lang.reflect.Field;
+import java.text.ParseException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cron expression compiled into bit masks, one bit per second, minute, hour, day of month, month and day of week
+ * it matches, computing fire times with the schedule of {@link CronExpression}: the next fire time is found by looking
+ * up the next set bit of each field, instead of stepping a {@link java.util.Calendar} field by field. The days of a
+ * month are a mask as well, built once per month from the day-of-month or day-of-week field, so L, W and # cost no
+ * more than a plain list.
+ * <p>
+ * Expressions are parsed by Quartz, so exactly the expressions a {@code CronTrigger} accepts compile, with the same
+ * meaning. Like for Quartz, local times skipped by a daylight saving change never fire, and those repeated fire once,
+ * in standard time. Instances are immutable; {@link #compile(String)} caches them by expression, keeping the
+ * {@value #MAX_CACHED} most recently used.
+ */
+public final class CompiledCron {
+
+    private static final int MAX_CACHED = 10000;
+    // Least recently used expressions are evicted first
+    private static final Map<String, CompiledCron> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompiledCron>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledCron> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    private final String expression;
+    private final ZoneId zone;
+
+    private final long seconds;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth; // bits 1 to 31
+    private final long months; // bits 1 to 12
+    private final long daysOfWeek; // bits 1 (Sunday) to 7 (Saturday)
+    private final BitSet years;
+    private final int maxYear;
+
+    private final boolean byDayOfWeek; // day-of-month is '?'
+    private final boolean lastDayOfMonth;
+    private final int lastDayOffset;
+    private final boolean nearestWeekday;
+    private final boolean lastDayOfWeek;
+    private final int nthDayOfWeek;
+    // For plain day-of-week fields, the days of a month matching it, by the day of week of its first day
+    private final long[] weekdayMasks;
+
+    private CompiledCron(String expression, ZoneId zone) throws ParseException {
+        CronExpression cron = new CronExpression(expression);
+        this.expression = expression;
+        this.zone = zone;
+        seconds = mask(Fields.values(cron, Fields.SECONDS), 0, 59);
+        minutes = mask(Fields.values(cron, Fields.MINUTES), 0, 59);
+        hours = mask(Fields.values(cron, Fields.HOURS), 0, 23);
+        Set<Integer> dayOfMonthValues = Fields.values(cron, Fields.DAYS_OF_MONTH);
+        daysOfMonth = mask(dayOfMonthValues, 1, 31);
+        months = mask(Fields.values(cron, Fields.MONTHS), 1, 12);
+        daysOfWeek = mask(Fields.values(cron, Fields.DAYS_OF_WEEK), 1, 7);
+        years = new BitSet();
+        Set<Integer> yearValues = Fields.values(cron, Fields.YEARS);
+        if (yearValues.contains(Fields.ALL_SPEC)) {
+            years.set(1970, CronExpression.MAX_YEAR + 1);
+        } else {
+            yearValues.forEach(years::set);
+        }
+        maxYear = Math.min(years.length() - 1, CronExpression.MAX_YEAR);
+
+        byDayOfWeek = dayOfMonthValues.contains(Fields.NO_SPEC);
+        lastDayOfMonth = Fields.flag(cron, Fields.LAST_DAY_OF_MONTH);
+        lastDayOffset = lastDayOfMonth ? Fields.number(cron, Fields.LAST_DAY_OFFSET) : 0;
+        nearestWeekday = Fields.flag(cron, Fields.NEAREST_WEEKDAY);
+        lastDayOfWeek = Fields.flag(cron, Fields.LAST_DAY_OF_WEEK);
+        nthDayOfWeek = Fields.number(cron, Fields.NTH_DAY_OF_WEEK);
+
+        weekdayMasks = new long[8];
+        for (int firstDay = 1; firstDay <= 7; firstDay++) {
+            for (int day = 1; day <= 31; day++) {
+                if ((daysOfWeek & 1L << dayOfWeek(firstDay, day)) != 0) {
+                    weekdayMasks[firstDay] |= 1L << day;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the compiled expression in the default time zone, cached.
+     * @throws ParseException if Quartz does not accept the expression.
+     */
+    public static CompiledCron compile(String expression) throws ParseException {
+        CompiledCron cron = CACHE.get(expression);
+        if (cron == null) {
+            cron = new CompiledCron(expression, ZoneId.systemDefault());
+            CACHE.put(expression, cron);
+        }
+        return cron;
+    }
+
+    /**
+     * @return the compiled expression in the given time zone, not cached.
+     */
+    public static CompiledCron compile(String expression, ZoneId zone) throws ParseException {
+        return new CompiledCron(expression, zone);
+    }
+
+    /**
+     * @return whether Quartz accepts the expression, see {@link CronExpression#isValidExpression}.
+     */
+    public static boolean isValid(String expression) {
+        if (expression == null) {
+            return false;
+        }
+        try {
+            compile(expression);
+            return true;
+        } catch (ParseException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * @return the first fire time after the given time, as {@link CronExpression#getNextValidTimeAfter}, or null if
+     * there is none.
+     */
+    public Date getNextValidTimeAfter(Date after) {
+        long next = nextAfter(after.getTime());
+        return next < 0 ? null : new Date(next);
+    }
+
+    /**
+     * @return up to count fire times following the given time, fewer when the schedule ends.
+     */
+    public List<Date> getNextValidTimesAfter(Date after, int count) {
+        List<Date> times = new ArrayList<>(count);
+        long time = after.getTime();
+        while (times.size() < count && (time = nextAfter(time)) >= 0) {
+            times.add(new Date(time));
+        }
+        return times;
+    }
+
+    /**
+     * @return the first fire time after the given time in epoch milliseconds, or -1 if there is none.
+     */
+    public long nextAfter(long after) {
+        // Fire times are whole seconds, the first candidate is the next second
+        long start = Math.floorDiv(after, 1000) * 1000 + 1000;
+        LocalDateTime from = LocalDateTime.ofInstant(Instant.ofEpochMilli(start), zone);
+        int year = from.getYear();
+        int month = from.getMonthValue();
+        int day = from.getDayOfMonth();
+        int second = from.getHour() * 3600 + from.getMinute() * 60 + from.getSecond();
+        while (year <= maxYear) {
+            if (!years.get(year)) {
+                year = years.nextSetBit(year);
+                if (year < 0) {
+                    return -1;
+                }
+                month = 1;
+                day = 1;
+                second = 0;
+                continue;
+            }
+            int nextMonth = nextBit(months, month);
+            if (nextMonth < 0) {
+                year++;
+                month = 1;
+                day = 1;
+                second = 0;
+                continue;
+            }
+            if (nextMonth != month) {
+                month = nextMonth;
+                day = 1;
+                second = 0;
+            }
+            long days = daysOf(year, month);
+            for (int d = nextBit(days, day); d >= 0; d = nextBit(days, d + 1)) {
+                long time = timeOfDay(LocalDate.of(year, month, d), d == day ? second : 0, start);
+                if (time >= 0) {
+                    return time;
+                }
+            }
+            month++;
+            day = 1;
+            second = 0;
+            if (month > 12) {
+                year++;
+                month = 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first fire time of the day at or after a second of the day that is not before start, or -1.
+     */
+    private long timeOfDay(LocalDate date, int fromSecond, long start) {
+        int fromHour = fromSecond / 3600;
+        for (int h = nextBit(hours, fromHour); h >= 0; h = nextBit(hours, h + 1)) {
+            int fromMinute = h == fromHour ? fromSecond / 60 % 60 : 0;
+            for (int m = nextBit(minutes, fromMinute); m >= 0; m = nextBit(minutes, m + 1)) {
+                int firstSecond = h == fromHour && m == fromSecond / 60 % 60 ? fromSecond % 60 : 0;
+                for (int s = nextBit(seconds, firstSecond); s >= 0; s = nextBit(seconds, s + 1)) {
+                    long time = resolve(date.atTime(h, m, s), start);
+                    if (time >= 0) {
+                        return time;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the instant of a local time if it is not before start, or -1. As for Quartz, a local time repeated by a
+     * daylight saving change is in the later offset, one skipped by it has no instant.
+     */
+    private long resolve(LocalDateTime time, long start) {
+        ZoneOffsetTransition transition = zone.getRules().getTransition(time);
+        if (transition != null && transition.isGap()) {
+            return -1;
+        }
+        ZoneOffset offset = transition != null ? transition.getOffsetAfter() : zone.getRules().getOffset(time);
+        long instant = time.toInstant(offset).toEpochMilli();
+        return instant >= start ? instant : -1;
+    }
+
+    /**
+     * @return the days of a month the expression fires on, bits 1 to 31.
+     */
+    private long daysOf(int year, int month) {
+        int length = Month.of(month).length(Year.isLeap(year));
+        int firstDay = dayOfWeek(LocalDate.of(year, month, 1).getDayOfWeek());
+        long inMonth = (1L << length + 1) - 2;
+        if (byDayOfWeek) {
+            int dayOfWeek = Long.numberOfTrailingZeros(daysOfWeek);
+            int first = (dayOfWeek - firstDay + 7) % 7 + 1;
+            if (lastDayOfWeek) {
+                return 1L << first + (length - first) / 7 * 7;
+            }
+            if (nthDayOfWeek > 0) {
+                return (1L << first + (nthDayOfWeek - 1) * 7) & inMonth;
+            }
+            return weekdayMasks[firstDay] & inMonth;
+        }
+        if (lastDayOfMonth || nearestWeekday) {
+            int day = lastDayOfMonth ? length - lastDayOffset : Long.numberOfTrailingZeros(daysOfMonth);
+            if (day < 1) {
+                return 0;
+            }
+            // Like Quartz, a day past the end of the month is a weekday of the next month, "31W" fires on the 30th
+            // when the 31st would be a Saturday
+            if (nearestWeekday) {
+                int dayOfWeek = dayOfWeek(firstDay, day);
+                if (dayOfWeek == 7) {
+                    day += day == 1 ? 2 : -1;
+                } else if (dayOfWeek == 1) {
+                    day += day == length ? -2 : 1;
+                }
+            }
+            return (1L << day) & inMonth;
+        }
+        return daysOfMonth & inMonth;
+    }
+
+    private static int dayOfWeek(int firstDay, int day) {
+        return (firstDay - 1 + day - 1) % 7 + 1;
+    }
+
+    private static int dayOfWeek(DayOfWeek dayOfWeek) {
+        return dayOfWeek.getValue() % 7 + 1;
+    }
+
+    private static int nextBit(long mask, int from) {
+        if (from >= 64) {
+            return -1;
+        }
+        long bits = mask & -1L << from;
+        return bits == 0 ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @param values values of a field as parsed by Quartz, {@link Fields#ALL_SPEC} for '*' and {@link Fields#NO_SPEC}
+     *               for '?'.
+     */
+    private static long mask(Set<Integer> values, int min, int max) {
+        long mask = 0;
+        if (values.contains(Fields.ALL_SPEC)) {
+            for (int value = min; value <= max; value++) {
+                mask |= 1L << value;
+            }
+        } else if (!values.contains(Fields.NO_SPEC)) {
+            for (int value : values) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * The fields of an expression as Quartz parsed them. {@link CronExpression} is final and keeps them protected, so
+     * they are read by reflection, looked up once: a Quartz version renaming them fails here, not with wrong fire
+     * times.
+     */
+    private static final class Fields {
+
+        // Values standing for '*' and '?' in the value sets
+        static final Integer ALL_SPEC = 99;
+        static final Integer NO_SPEC = 98;
+
+        static final Field SECONDS = field("seconds");
+        static final Field MINUTES = field("minutes");
+        static final Field HOURS = field("hours");
+        static final Field DAYS_OF_MONTH = field("daysOfMonth");
+        static final Field MONTHS = field("months");
+        static final Field DAYS_OF_WEEK = field("daysOfWeek");
+        static final Field YEARS = field("years");
+        static final Field LAST_DAY_OF_MONTH = field("lastdayOfMonth");
+        static final Field LAST_DAY_OFFSET = field("lastdayOffset");
+        static final Field NEAREST_WEEKDAY = field("nearestWeekday");
+        static final Field LAST_DAY_OF_WEEK = field("lastdayOfWeek");
+        static final Field NTH_DAY_OF_WEEK = field("nthdayOfWeek");
+
+        private Fields() {
+        }
+
+        @SuppressWarnings("unchecked")
+        static Set<Integer> values(CronExpression cron, Field field) {
+            try {
+                return (Set<Integer>) field.get(cron);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static boolean flag(CronExpression cron, Field field) {
+            try {
+                return field.getBoolean(cron);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static int number(CronExpression cron, Field field) {
+            try {
+                return field.getInt(cron);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static Field field(String name) {
+            try {
+                Field field = CronExpression.class.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                throw new ExceptionInInitializerError("Unsupported Quartz version, CronExpression has no " + name);
+            }
+        }
+    }
+}
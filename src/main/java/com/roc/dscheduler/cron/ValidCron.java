@@ -0,0 +1,26 @@
+package com.roc.dscheduler.cron;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string must be a cron expression Quartz accepts. Null and blank strings are valid, pair it with
+ * {@code @NotBlank} when the expression is required.
+ */
+@Documented
+@Constraint(validatedBy = ValidCronValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidCron {
+
+    String message() default "Invalid cron expression '${validatedValue}'";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
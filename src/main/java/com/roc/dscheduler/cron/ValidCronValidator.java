@@ -0,0 +1,16 @@
+package com.roc.dscheduler.cron;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Validates {@link ValidCron} strings by compiling them, so the jobs validated are then scheduled and forecast from
+ * the cached {@link CompiledCron}.
+ */
+public class ValidCronValidator implements ConstraintValidator<ValidCron, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || value.trim().isEmpty() || CompiledCron.isValid(value);
+    }
+}
@@ -0,0 +1,56 @@
+package com.roc.dscheduler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk operation, with one entry per job.
+ */
+public class BatchResult {
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<Item> items = new ArrayList<>();
+
+    public void addSuccess(String jobName, String jobGroup) {
+        items.add(new Item(jobName, jobGroup, true, null));
+        total++;
+        succeeded++;
+    }
+
+    public void addFailure(String jobName, String jobGroup, String message) {
+        items.add(new Item(jobName, jobGroup, false, message));
+        total++;
+        failed++;
+    }
+
+    public boolean hasFailures() {
+        return failed > 0;
+    }
+
+    // Getters
+    public int getTotal() { return total; }
+    public int getSucceeded() { return succeeded; }
+    public int getFailed() { return failed; }
+    public List<Item> getItems() { return items; }
+
+    public static class Item {
+        private final String jobName;
+        private final String jobGroup;
+        private final boolean success;
+        private final String message;
+
+        public Item(String jobName, String jobGroup, boolean success, String message) {
+            this.jobName = jobName;
+            this.jobGroup = jobGroup;
+            this.success = success;
+            this.message = message;
+        }
+
+        public String getJobName() { return jobName; }
+        public String getJobGroup() { return jobGroup; }
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * A task to run once at a given time by a {@code DelayedTaskHandler}, stored in DS_DELAYED_TASK until it has run.
+ * Only handler, taskKey, payload and fireAt are given when scheduling, the rest is set by {@code DelayedTaskService}.
+ */
+public class DelayedTask {
+
+    private long id;
+    private String handler; // Name of the DelayedTaskHandler running the task
+    private String taskKey; // Optional, unique per handler, to cancel the task or not schedule it twice
+    private String payload; // Up to 2000 characters, passed to the handler as is
+    private long fireAt; // Epoch millis
+    private long slot; // fireAt divided by the slot size
+    private int bucket; // Lease unit, from the key or random
+    private int attempts; // Failed runs so far
+    private Long claim; // Load of the node that holds the task in its timer wheel, null until loaded
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+    public String getHandler() { return handler; }
+    public void setHandler(String handler) { this.handler = handler; }
+    public String getTaskKey() { return taskKey; }
+    public void setTaskKey(String taskKey) { this.taskKey = taskKey; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public long getFireAt() { return fireAt; }
+    public void setFireAt(long fireAt) { this.fireAt = fireAt; }
+    public long getSlot() { return slot; }
+    public void setSlot(long slot) { this.slot = slot; }
+    public int getBucket() { return bucket; }
+    public void setBucket(int bucket) { this.bucket = bucket; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public Long getClaim() { return claim; }
+    public void setClaim(Long claim) { this.claim = claim; }
+}
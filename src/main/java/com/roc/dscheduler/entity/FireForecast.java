@@ -0,0 +1,37 @@
+package com.roc.dscheduler.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The fires of all jobs not paused between two times, by time bucket, with the busiest buckets.
+ */
+public class FireForecast {
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int bucketMinutes;
+    private int jobs; // Jobs forecast, sharded jobs fire once per shard
+    private int expressions; // Distinct cron expressions, each computed once
+    private long fires;
+    private List<ForecastBucket> buckets;
+    private List<ForecastBucket> hotSpots; // Buckets with the most fires, busiest first
+
+    // Getters and Setters
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+    public int getBucketMinutes() { return bucketMinutes; }
+    public void setBucketMinutes(int bucketMinutes) { this.bucketMinutes = bucketMinutes; }
+    public int getJobs() { return jobs; }
+    public void setJobs(int jobs) { this.jobs = jobs; }
+    public int getExpressions() { return expressions; }
+    public void setExpressions(int expressions) { this.expressions = expressions; }
+    public long getFires() { return fires; }
+    public void setFires(long fires) { this.fires = fires; }
+    public List<ForecastBucket> getBuckets() { return buckets; }
+    public void setBuckets(List<ForecastBucket> buckets) { this.buckets = buckets; }
+    public List<ForecastBucket> getHotSpots() { return hotSpots; }
+    public void setHotSpots(List<ForecastBucket> hotSpots) { this.hotSpots = hotSpots; }
+}
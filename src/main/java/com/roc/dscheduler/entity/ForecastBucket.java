@@ -0,0 +1,30 @@
+package com.roc.dscheduler.entity;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * The fires forecast for one time bucket across the job catalog.
+ */
+public class ForecastBucket {
+
+    private LocalDateTime start;
+    private long fires;
+    private Map<String, Long> topExpressions; // Hot spots only: the cron expressions firing most, with their fires
+
+    public ForecastBucket() {
+    }
+
+    public ForecastBucket(LocalDateTime start, long fires) {
+        this.start = start;
+        this.fires = fires;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getStart() { return start; }
+    public void setStart(LocalDateTime start) { this.start = start; }
+    public long getFires() { return fires; }
+    public void setFires(long fires) { this.fires = fires; }
+    public Map<String, Long> getTopExpressions() { return topExpressions; }
+    public void setTopExpressions(Map<String, Long> topExpressions) { this.topExpressions = topExpressions; }
+}
@@ -0,0 +1,26 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * Usage of a trigger group: its executions and the triggers waiting to fire across the cluster, with the quota this
+ * node enforces.
+ */
+public class GroupUsage {
+
+    private String group;
+    private int running; // Executions in progress on all nodes
+    private int due; // Triggers whose fire time has passed, waiting to be acquired
+    private Integer limit; // Concurrency limit per node, null if none
+    private int weight;
+
+    // Getters and Setters
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+    public int getRunning() { return running; }
+    public void setRunning(int running) { this.running = running; }
+    public int getDue() { return due; }
+    public void setDue(int due) { this.due = due; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+    public int getWeight() { return weight; }
+    public void setWeight(int weight) { this.weight = weight; }
+}
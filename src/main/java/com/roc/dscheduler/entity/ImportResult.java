@@ -0,0 +1,85 @@
+package com.roc.dscheduler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a job import. Lines are numbered from 1, the checkpoint is the last line up to which the upload has
+ * been applied: an import that stopped on a failure is resumed by uploading the same file with resumeAfter set to it.
+ */
+public class ImportResult {
+
+    /**
+     * At most this many failures are reported, the counts stay exact.
+     */
+    public static final int MAX_REPORTED_FAILURES = 1000;
+
+    private final boolean dryRun;
+    private boolean completed;
+    private long read;
+    private long imported;
+    private long skipped;
+    private long failed;
+    private long checkpoint;
+    private List<Failure> failures = new ArrayList<>();
+
+    public ImportResult(boolean dryRun, long resumeAfter) {
+        this.dryRun = dryRun;
+        this.checkpoint = resumeAfter;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addSkipped() {
+        skipped++;
+    }
+
+    public void addRead() {
+        read++;
+    }
+
+    public void addFailure(long line, String jobName, String jobGroup, String message) {
+        failed++;
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(new Failure(line, jobName, jobGroup, message));
+        }
+    }
+
+    public boolean hasFailures() {
+        return failed > 0;
+    }
+
+    public void setCheckpoint(long checkpoint) { this.checkpoint = checkpoint; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    // Getters
+    public boolean isDryRun() { return dryRun; }
+    public boolean isCompleted() { return completed; }
+    public long getRead() { return read; }
+    public long getImported() { return imported; }
+    public long getSkipped() { return skipped; }
+    public long getFailed() { return failed; }
+    public long getCheckpoint() { return checkpoint; }
+    public List<Failure> getFailures() { return failures; }
+
+    public static class Failure {
+        private final long line;
+        private final String jobName;
+        private final String jobGroup;
+        private final String message;
+
+        public Failure(long line, String jobName, String jobGroup, String message) {
+            this.line = line;
+            this.jobName = jobName;
+            this.jobGroup = jobGroup;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getJobName() { return jobName; }
+        public String getJobGroup() { return jobGroup; }
+        public String getMessage() { return message; }
+    }
+}
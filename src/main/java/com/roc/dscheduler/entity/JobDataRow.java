@@ -0,0 +1,22 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * JOB_DATA column of a job or trigger row, with the key of the row: job or trigger name and group.
+ */
+public class JobDataRow {
+
+    private String schedName;
+    private String name;
+    private String group;
+    private byte[] jobData;
+
+    // Getters and Setters
+    public String getSchedName() { return schedName; }
+    public void setSchedName(String schedName) { this.schedName = schedName; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+    public byte[] getJobData() { return jobData; }
+    public void setJobData(byte[] jobData) { this.jobData = jobData; }
+}
@@ -0,0 +1,57 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * A change pushed to the live job list, see LiveJobBroadcaster.
+ */
+public class JobEvent {
+
+    /**
+     * A job was created, {@link #getJob()} holds its row.
+     */
+    public static final String ADDED = "added";
+
+    /**
+     * A job changed (state, fire times, definition), {@link #getJob()} holds its new row.
+     */
+    public static final String CHANGED = "changed";
+
+    /**
+     * A job was deleted.
+     */
+    public static final String REMOVED = "removed";
+
+    /**
+     * A job started or finished running on this node, see {@link #getRunning()} and {@link #getSuccess()}.
+     */
+    public static final String EXECUTION = "execution";
+
+    private String type;
+    private String jobName;
+    private String jobGroup;
+    private JobInfo job;
+    private Integer running; // executions of the job running on this node
+    private Boolean success; // outcome of the last finished execution, null while none finished
+
+    public JobEvent() {
+    }
+
+    public JobEvent(String type, String jobName, String jobGroup) {
+        this.type = type;
+        this.jobName = jobName;
+        this.jobGroup = jobGroup;
+    }
+
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    public String getJobGroup() { return jobGroup; }
+    public void setJobGroup(String jobGroup) { this.jobGroup = jobGroup; }
+    public JobInfo getJob() { return job; }
+    public void setJob(JobInfo job) { this.job = job; }
+    public Integer getRunning() { return running; }
+    public void setRunning(Integer running) { this.running = running; }
+    public Boolean getSuccess() { return success; }
+    public void setSuccess(Boolean success) { this.success = success; }
+}
@@ -0,0 +1,54 @@
+package com.roc.dscheduler.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * One execution of a job, as recorded in DS_JOB_EXECUTION.
+ */
+public class JobExecution {
+
+    private Long id;
+    private String schedName;
+    private String jobName;
+    private String jobGroup;
+    private String triggerName;
+    private String triggerGroup;
+    private String fireInstanceId;
+    private String instanceId; // Scheduler instance (node) that ran the job
+    private LocalDateTime scheduledFireTime;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private long durationMs;
+    private String status; // SUCCESS, FAILED, TIMEOUT or VETOED
+    private String errorMessage;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getSchedName() { return schedName; }
+    public void setSchedName(String schedName) { this.schedName = schedName; }
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    public String getJobGroup() { return jobGroup; }
+    public void setJobGroup(String jobGroup) { this.jobGroup = jobGroup; }
+    public String getTriggerName() { return triggerName; }
+    public void setTriggerName(String triggerName) { this.triggerName = triggerName; }
+    public String getTriggerGroup() { return triggerGroup; }
+    public void setTriggerGroup(String triggerGroup) { this.triggerGroup = triggerGroup; }
+    public String getFireInstanceId() { return fireInstanceId; }
+    public void setFireInstanceId(String fireInstanceId) { this.fireInstanceId = fireInstanceId; }
+    public String getInstanceId() { return instanceId; }
+    public void setInstanceId(String instanceId) { this.instanceId = instanceId; }
+    public LocalDateTime getScheduledFireTime() { return scheduledFireTime; }
+    public void setScheduledFireTime(LocalDateTime scheduledFireTime) { this.scheduledFireTime = scheduledFireTime; }
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+}
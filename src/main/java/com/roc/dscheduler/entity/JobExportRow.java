@@ -0,0 +1,21 @@
+package com.roc.dscheduler.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A job read for export, with the JOB_DATA columns of the job and of its trigger, still encoded. Only the
+ * {@link JobInfo} part is exported.
+ */
+public class JobExportRow extends JobInfo {
+
+    private byte[] jobData;
+    private byte[] triggerJobData;
+
+    // Getters and Setters
+    @JsonIgnore
+    public byte[] getJobData() { return jobData; }
+    public void setJobData(byte[] jobData) { this.jobData = jobData; }
+    @JsonIgnore
+    public byte[] getTriggerJobData() { return triggerJobData; }
+    public void setTriggerJobData(byte[] triggerJobData) { this.triggerJobData = triggerJobData; }
+}
@@ -1,6 +1,11 @@
 package com.roc.dscheduler.entity;
 
+import com.roc.dscheduler.cron.ValidCron;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
@@ -9,6 +14,7 @@ public class JobInfo {
 
     @NotBlank(message = "Job name cannot be blank")
     @Size(max = 200, message = "Job name must be less than 200 characters")
+    @Pattern(regexp = "^((?!#shard-).)*$", message = "Job name cannot contain '#shard-'")
     private String jobName;
 
     @NotBlank(message = "Job group cannot be blank")
@@ -20,11 +26,55 @@ public class JobInfo {
     private String jobClass; // Fully qualified class name of the job
 
     @NotBlank(message = "Cron expression cannot be blank")
+    @ValidCron
     private String cronExpression;
 
     @Size(max = 250, message = "Description must be less than 250 characters")
     private String description;
 
+    @Min(value = 1, message = "Shard count must be at least 1")
+    @Max(value = 1000, message = "Shard count must be at most 1000")
+    private int shardCount = 1; // 1 = not sharded
+
+    @Size(max = 2000, message = "Shard parameters must be less than 2000 characters")
+    private String shardParams; // optional, comma separated, one value per shard
+
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+
+    @Min(value = 0, message = "Misfire cap cannot be negative")
+    @Max(value = 1000, message = "Misfire cap must be at most 1000")
+    private int misfireCap = 10; // used by FIRE_ALL_CAPPED
+
+    @Min(value = 1, message = "Priority must be between 1 and 10")
+    @Max(value = 10, message = "Priority must be between 1 and 10")
+    private int priority = 5; // trigger priority, higher fires first when fires compete
+
+    @Min(value = 0, message = "Timeout cannot be negative")
+    @Max(value = 604800, message = "Timeout must be at most 7 days")
+    private int timeout; // seconds, 0 = none. An execution still running then is interrupted, see JobWatchdog
+
+    @Min(value = 0, message = "Retry attempts cannot be negative")
+    @Max(value = 100, message = "Retry attempts must be at most 100")
+    private int retryMaxAttempts; // 0 = failed executions are not retried, see JobRetryService
+
+    @Min(value = 1, message = "Retry backoff must be at least 1 second")
+    @Max(value = 86400, message = "Retry backoff must be at most 1 day")
+    private int retryBackoff = 10; // seconds before the first retry, doubled for every further attempt
+
+    @Min(value = 1, message = "Maximum retry backoff must be at least 1 second")
+    @Max(value = 604800, message = "Maximum retry backoff must be at most 7 days")
+    private int retryMaxBackoff = 3600; // seconds
+
+    @Size(max = 1000, message = "Retryable exceptions must be less than 1000 characters")
+    private String retryOn; // optional, comma separated exception class names, empty = any failure
+
+    @Min(value = 0, message = "Breaker threshold cannot be negative")
+    @Max(value = 1000, message = "Breaker threshold must be at most 1000")
+    private int breakerThreshold; // consecutive failures that pause the job, 0 = never
+
+    private int retryCount; // retries scheduled so far
+    private int consecutiveFailures;
+
     private String triggerState; // e.g., NORMAL, PAUSED, ERROR
     private LocalDateTime previousFireTime;
     private LocalDateTime nextFireTime;
@@ -70,6 +120,110 @@ public class JobInfo {
         this.description = description;
     }
 
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public String getShardParams() {
+        return shardParams;
+    }
+
+    public void setShardParams(String shardParams) {
+        this.shardParams = shardParams;
+    }
+
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) {
+        this.misfirePolicy = misfirePolicy;
+    }
+
+    public int getMisfireCap() {
+        return misfireCap;
+    }
+
+    public void setMisfireCap(int misfireCap) {
+        this.misfireCap = misfireCap;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public int getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(int retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public int getRetryMaxBackoff() {
+        return retryMaxBackoff;
+    }
+
+    public void setRetryMaxBackoff(int retryMaxBackoff) {
+        this.retryMaxBackoff = retryMaxBackoff;
+    }
+
+    public String getRetryOn() {
+        return retryOn;
+    }
+
+    public void setRetryOn(String retryOn) {
+        this.retryOn = retryOn;
+    }
+
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public void setBreakerThreshold(int breakerThreshold) {
+        this.breakerThreshold = breakerThreshold;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
     public String getTriggerState() {
         return triggerState;
     }
@@ -0,0 +1,80 @@
+package com.roc.dscheduler.entity;
+
+import java.util.Locale;
+
+/**
+ * Search, sort and paging options for the job list.
+ * Sort and search fields are whitelisted in the mapper, unknown values fall back to the defaults.
+ */
+public class JobQuery {
+
+    private String search;
+    private String searchType; // name, group, cron or status
+    private String sort = "jobName"; // jobName, jobGroup or triggerState
+    private String order = "asc";
+    private int page = 1;
+    private int size = 10;
+
+    public JobQuery() {
+    }
+
+    public JobQuery(String search, String searchType, String sort, String order, int page, int size) {
+        this.search = search;
+        this.searchType = searchType;
+        this.sort = sort;
+        this.order = order;
+        this.page = page;
+        this.size = size;
+    }
+
+    /**
+     * @return the trimmed search term, or null when there is nothing to filter on.
+     */
+    public String getSearchTerm() {
+        if (search == null || search.trim().isEmpty() || searchType == null) {
+            return null;
+        }
+        return search.trim();
+    }
+
+    /**
+     * @return a SQL LIKE pattern (escape character '!') matching the lower-cased values containing the search term
+     * literally, or null when there is nothing to filter on.
+     */
+    public String getSearchLike() {
+        String term = getSearchTerm();
+        if (term == null) {
+            return null;
+        }
+        StringBuilder like = new StringBuilder(term.length() + 8).append('%');
+        for (char c : term.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == '!') {
+                like.append('!');
+            }
+            like.append(c);
+        }
+        return like.append('%').toString();
+    }
+
+    public boolean isDescending() {
+        return "desc".equalsIgnoreCase(order);
+    }
+
+    public int getOffset() {
+        return (Math.max(page, 1) - 1) * size;
+    }
+
+    // Getters and Setters
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+    public String getSearchType() { return searchType; }
+    public void setSearchType(String searchType) { this.searchType = searchType; }
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+    public String getOrder() { return order; }
+    public void setOrder(String order) { this.order = order; }
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+}
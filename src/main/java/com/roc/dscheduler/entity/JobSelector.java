@@ -0,0 +1,111 @@
+package com.roc.dscheduler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selects jobs for a bulk operation: by exact group, by group prefix, by name pattern, by explicit keys,
+ * or by a combination (all given criteria must match). Name patterns use '*' and '?' wildcards.
+ */
+public class JobSelector {
+
+    private String group;
+    private String groupPrefix;
+    private String namePattern;
+    private List<JobInfo> jobs = new ArrayList<>(); // explicit jobs, only jobName and jobGroup are used
+    private Pattern nameRegex; // namePattern compiled by matches()
+
+    /**
+     * @return true if the selector only selects whole groups, which Quartz can handle with a single GroupMatcher.
+     */
+    public boolean isGroupOnly() {
+        return (group != null || groupPrefix != null) && namePattern == null && jobs.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return group == null && groupPrefix == null && namePattern == null && jobs.isEmpty();
+    }
+
+    /**
+     * @return true if the job matches every given criterion, the in-memory equivalent of the SQL filter.
+     */
+    public boolean matches(JobInfo job) {
+        if (group != null && !group.equals(job.getJobGroup())) {
+            return false;
+        }
+        if (groupPrefix != null && (job.getJobGroup() == null || !job.getJobGroup().startsWith(groupPrefix))) {
+            return false;
+        }
+        if (namePattern != null) {
+            if (nameRegex == null) {
+                nameRegex = Pattern.compile(toRegex(namePattern));
+            }
+            if (job.getJobName() == null || !nameRegex.matcher(job.getJobName()).matches()) {
+                return false;
+            }
+        }
+        return jobs.isEmpty() || jobs.stream().anyMatch(selected -> selected.getJobName().equals(job.getJobName())
+                && selected.getJobGroup().equals(job.getJobGroup()));
+    }
+
+    /**
+     * @return the name pattern translated to a SQL LIKE pattern (escape character '!'), or null.
+     */
+    public String getNameLike() {
+        return namePattern == null ? null : toLike(namePattern);
+    }
+
+    /**
+     * @return the group prefix as a SQL LIKE pattern (escape character '!'), or null.
+     */
+    public String getGroupLike() {
+        return groupPrefix == null ? null : toLike(groupPrefix) + "%";
+    }
+
+    private static String toLike(String pattern) {
+        StringBuilder like = new StringBuilder(pattern.length() + 8);
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '*':
+                    like.append('%');
+                    break;
+                case '?':
+                    like.append('_');
+                    break;
+                case '%':
+                case '_':
+                case '!':
+                    like.append('!').append(c);
+                    break;
+                default:
+                    like.append(c);
+            }
+        }
+        return like.toString();
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder(pattern.length() + 8);
+        for (char c : pattern.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    // Getters and Setters
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+    public String getGroupPrefix() { return groupPrefix; }
+    public void setGroupPrefix(String groupPrefix) { this.groupPrefix = groupPrefix; }
+    public String getNamePattern() { return namePattern; }
+    public void setNamePattern(String namePattern) { this.namePattern = namePattern; this.nameRegex = null; }
+    public List<JobInfo> getJobs() { return jobs; }
+    public void setJobs(List<JobInfo> jobs) { this.jobs = jobs != null ? jobs : new ArrayList<>(); }
+}
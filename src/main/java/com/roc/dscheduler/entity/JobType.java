@@ -0,0 +1,25 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * A job class found by {@link com.roc.dscheduler.service.JobTypeRegistry}, i.e. a class jobs can be scheduled with.
+ */
+public class JobType {
+
+    private final String className;
+    private final String name; // Simple class name
+    private final boolean singleton; // Every execution shares one instance, otherwise each gets a new one
+    private final boolean async;
+
+    public JobType(String className, String name, boolean singleton, boolean async) {
+        this.className = className;
+        this.name = name;
+        this.singleton = singleton;
+        this.async = async;
+    }
+
+    // Getters
+    public String getClassName() { return className; }
+    public String getName() { return name; }
+    public boolean isSingleton() { return singleton; }
+    public boolean isAsync() { return async; }
+}
@@ -0,0 +1,28 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * What the trigger of a job does with the fires it missed, e.g. while the cluster was down.
+ * Late fires are released through the catch-up rate of the job store, see DschedulerJobStore.
+ */
+public enum MisfirePolicy {
+
+    /**
+     * Fire every missed fire.
+     */
+    IGNORE,
+
+    /**
+     * Fire once now, then continue on schedule.
+     */
+    FIRE_ONCE,
+
+    /**
+     * Skip the missed fires and wait for the next regular fire.
+     */
+    DO_NOTHING,
+
+    /**
+     * Fire the latest missed fires, at most the job's misfire cap.
+     */
+    FIRE_ALL_CAPPED
+}
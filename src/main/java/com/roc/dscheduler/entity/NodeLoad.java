@@ -0,0 +1,47 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * Load of a cluster node as published with its check-in, stored in DS_NODE_LOAD. One row per scheduler and node,
+ * so in partitioned mode the thread figures are those of the partition's scheduler.
+ */
+public class NodeLoad {
+
+    private String schedName;
+    private String instanceName;
+    private boolean active; // Started and acquiring triggers, false in standby
+    private int busyThreads; // Executions holding a worker thread
+    private int poolSize;
+    private int asyncInFlight; // Async executions whose future has not completed
+    private int queueDepth; // Triggers acquired, waiting for their fire time
+    private Double cpuLoad; // System CPU load, 0 to 1, null if not available
+    private long heapUsed; // Bytes
+    private long heapMax; // Bytes, 0 if not available
+    private long updatedAt; // Epoch millis
+    private Long lastCheckinTime; // Epoch millis, from QRTZ_SCHEDULER_STATE, null once the node was recovered
+
+    // Getters and Setters
+    public String getSchedName() { return schedName; }
+    public void setSchedName(String schedName) { this.schedName = schedName; }
+    public String getInstanceName() { return instanceName; }
+    public void setInstanceName(String instanceName) { this.instanceName = instanceName; }
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+    public int getBusyThreads() { return busyThreads; }
+    public void setBusyThreads(int busyThreads) { this.busyThreads = busyThreads; }
+    public int getPoolSize() { return poolSize; }
+    public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+    public int getAsyncInFlight() { return asyncInFlight; }
+    public void setAsyncInFlight(int asyncInFlight) { this.asyncInFlight = asyncInFlight; }
+    public int getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(int queueDepth) { this.queueDepth = queueDepth; }
+    public Double getCpuLoad() { return cpuLoad; }
+    public void setCpuLoad(Double cpuLoad) { this.cpuLoad = cpuLoad; }
+    public long getHeapUsed() { return heapUsed; }
+    public void setHeapUsed(long heapUsed) { this.heapUsed = heapUsed; }
+    public long getHeapMax() { return heapMax; }
+    public void setHeapMax(long heapMax) { this.heapMax = heapMax; }
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+    public Long getLastCheckinTime() { return lastCheckinTime; }
+    public void setLastCheckinTime(Long lastCheckinTime) { this.lastCheckinTime = lastCheckinTime; }
+}
@@ -0,0 +1,19 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * Lease of a scheduler partition, as stored in DS_PARTITION_LEASE.
+ */
+public class PartitionLease {
+
+    private int partitionNo;
+    private String owner; // Instance id of the node holding the lease, null when released
+    private long expiresAt; // Epoch millis
+
+    // Getters and Setters
+    public int getPartitionNo() { return partitionNo; }
+    public void setPartitionNo(int partitionNo) { this.partitionNo = partitionNo; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+}
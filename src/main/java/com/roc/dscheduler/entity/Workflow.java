@@ -0,0 +1,51 @@
+package com.roc.dscheduler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A workflow: a DAG of existing jobs started together by one trigger. A job runs once all its upstream jobs
+ * succeeded, jobs whose upstream jobs are done run in parallel.
+ */
+public class Workflow {
+
+    private String name;
+    private String description;
+    private String cronExpression; // Null for a workflow only started on demand
+    private List<WorkflowNode> nodes = new ArrayList<>();
+
+    public Workflow() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    public void setCronExpression(String cronExpression) {
+        this.cronExpression = cronExpression;
+    }
+
+    public List<WorkflowNode> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<WorkflowNode> nodes) {
+        this.nodes = nodes;
+    }
+}
@@ -0,0 +1,57 @@
+package com.roc.dscheduler.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A job of a {@link Workflow} and the jobs it waits for.
+ */
+public class WorkflowNode {
+
+    private String jobName;
+    private String jobGroup;
+    private List<String> upstreams = new ArrayList<>(); // Upstream jobs as "group.name"
+
+    public WorkflowNode() {
+    }
+
+    public WorkflowNode(String jobName, String jobGroup, List<String> upstreams) {
+        this.jobName = jobName;
+        this.jobGroup = jobGroup;
+        this.upstreams = upstreams;
+    }
+
+    /**
+     * @return the reference other nodes use for this one in their upstreams, "group.name".
+     */
+    @JsonIgnore
+    public String getKey() {
+        return jobGroup + "." + jobName;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getJobGroup() {
+        return jobGroup;
+    }
+
+    public void setJobGroup(String jobGroup) {
+        this.jobGroup = jobGroup;
+    }
+
+    public List<String> getUpstreams() {
+        return upstreams;
+    }
+
+    public void setUpstreams(List<String> upstreams) {
+        this.upstreams = upstreams;
+    }
+}
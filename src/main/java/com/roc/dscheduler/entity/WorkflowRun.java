@@ -0,0 +1,43 @@
+package com.roc.dscheduler.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
+/**
+ * A run of a {@link Workflow}, as recorded in DS_WORKFLOW_RUN.
+ */
+public class WorkflowRun {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private long runId;
+    private String schedName;
+    private String workflowName;
+    private String status;
+    private String definition; // The workflow as JSON when the run started
+    private long startedAt;
+    private Long finishedAt;
+    private List<WorkflowRunNode> nodes;
+
+    // Getters and Setters
+    public long getRunId() { return runId; }
+    public void setRunId(long runId) { this.runId = runId; }
+    public String getSchedName() { return schedName; }
+    public void setSchedName(String schedName) { this.schedName = schedName; }
+    public String getWorkflowName() { return workflowName; }
+    public void setWorkflowName(String workflowName) { this.workflowName = workflowName; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    @JsonIgnore
+    public String getDefinition() { return definition; }
+    public void setDefinition(String definition) { this.definition = definition; }
+    public long getStartedAt() { return startedAt; }
+    public void setStartedAt(long startedAt) { this.startedAt = startedAt; }
+    public Long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Long finishedAt) { this.finishedAt = finishedAt; }
+    public List<WorkflowRunNode> getNodes() { return nodes; }
+    public void setNodes(List<WorkflowRunNode> nodes) { this.nodes = nodes; }
+}
@@ -0,0 +1,56 @@
+package com.roc.dscheduler.entity;
+
+/**
+ * State of one job of a workflow run, as recorded in DS_WORKFLOW_RUN_NODE.
+ * A job is PENDING until its upstream jobs succeeded, READY once claimed to be fired, RUNNING once its trigger is
+ * scheduled, then SUCCEEDED or FAILED. Jobs downstream of a failed job are SKIPPED.
+ */
+public class WorkflowRunNode {
+
+    public static final String PENDING = "PENDING";
+    public static final String READY = "READY";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    public static final String SKIPPED = "SKIPPED";
+
+    private long runId;
+    private String jobName;
+    private String jobGroup;
+    private int nodeIndex; // Position in the definition
+    private String status;
+    private int remainingUpstreams;
+    private int shardCount;
+    private int pendingShards;
+    private int failedShards;
+    private long updatedAt;
+    private String message;
+
+    public boolean isActive() {
+        return PENDING.equals(status) || READY.equals(status) || RUNNING.equals(status);
+    }
+
+    // Getters and Setters
+    public long getRunId() { return runId; }
+    public void setRunId(long runId) { this.runId = runId; }
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    public String getJobGroup() { return jobGroup; }
+    public void setJobGroup(String jobGroup) { this.jobGroup = jobGroup; }
+    public int getNodeIndex() { return nodeIndex; }
+    public void setNodeIndex(int nodeIndex) { this.nodeIndex = nodeIndex; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public int getRemainingUpstreams() { return remainingUpstreams; }
+    public void setRemainingUpstreams(int remainingUpstreams) { this.remainingUpstreams = remainingUpstreams; }
+    public int getShardCount() { return shardCount; }
+    public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+    public int getPendingShards() { return pendingShards; }
+    public void setPendingShards(int pendingShards) { this.pendingShards = pendingShards; }
+    public int getFailedShards() { return failedShards; }
+    public void setFailedShards(int failedShards) { this.failedShards = failedShards; }
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
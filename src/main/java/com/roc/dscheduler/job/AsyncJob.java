@@ -0,0 +1,38 @@
+package com.roc.dscheduler.job;
+
+import com.roc.dscheduler.quartz.AsyncExecutions;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A job doing non-blocking I/O: {@link #executeAsync} starts the work and returns a future, and the worker thread
+ * is released right away instead of waiting for the I/O. A few worker threads can then drive many concurrent
+ * executions, up to {@code org.quartz.jobStore.asyncMaxInFlight} per node.
+ * <p>
+ * For Quartz, the execution lasts until the future completes: job listeners (execution history, metrics...) see it
+ * finish then, with the future's failure if any, a {@code @DisallowConcurrentExecution} job does not fire again
+ * before, and an execution in flight on a failed node is recovered like a blocking one. A future not complete
+ * within {@code org.quartz.jobStore.asyncTimeout} fails the execution with a {@link java.util.concurrent.TimeoutException}
+ * and is cancelled.
+ * <p>
+ * The future must not block on a Quartz worker thread: run the I/O on a non-blocking client or an executor of its
+ * own. See {@link SampleAsyncJob}.
+ */
+public interface AsyncJob extends Job {
+
+    /**
+     * Starts the work of an execution.
+     *
+     * @return the future completing when the work is done, exceptionally if it failed. Null if there was nothing
+     * to do.
+     */
+    CompletableFuture<?> executeAsync(JobExecutionContext context);
+
+    @Override
+    default void execute(JobExecutionContext context) throws JobExecutionException {
+        AsyncExecutions.submit(context, () -> executeAsync(context));
+    }
+}
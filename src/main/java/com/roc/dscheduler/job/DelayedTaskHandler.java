@@ -0,0 +1,30 @@
+package com.roc.dscheduler.job;
+
+import com.roc.dscheduler.entity.DelayedTask;
+
+import java.util.List;
+
+/**
+ * Runs the delayed tasks scheduled with its name through {@code DelayedTaskService}: one-shot tasks at a given time,
+ * too many to be Quartz jobs (order timeouts, reminders). Handlers are Spring beans, found by type at startup, and
+ * every node of the cluster must have the handlers of the tasks it may load.
+ * <p>
+ * Due tasks are handed over in batches, at most {@code dscheduler.delayed.dispatch-batch-size} tasks of one handler
+ * per call, on the dispatch threads, so a handler must be thread-safe. A batch that throws is retried as a whole after
+ * a backoff, up to {@code dscheduler.delayed.max-attempts} runs. Tasks run at least once: a node failing after a batch
+ * ran and before it was deleted runs it again, so handlers must be idempotent. See {@link SampleDelayedTaskHandler}.
+ */
+public interface DelayedTaskHandler {
+
+    /**
+     * @return the name tasks are scheduled with, unique among the handlers.
+     */
+    String getName();
+
+    /**
+     * Runs a batch of due tasks.
+     *
+     * @throws Exception to run the whole batch again later.
+     */
+    void handle(List<DelayedTask> tasks) throws Exception;
+}
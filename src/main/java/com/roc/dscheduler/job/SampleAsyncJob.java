@@ -0,0 +1,40 @@
+package com.roc.dscheduler.job;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The async counterpart of {@link SampleJob}: the 5 seconds of work do not hold a worker thread.
+ * Copy this class for I/O-bound jobs and return the future of a non-blocking client instead of the delay.
+ */
+@DisallowConcurrentExecution // Still honoured, the next fire waits for the future
+public class SampleAsyncJob implements AsyncJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SampleAsyncJob.class);
+
+    // Stands for the I/O threads of a non-blocking client
+    private static final ScheduledExecutorService delays = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sample-async-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public CompletableFuture<?> executeAsync(JobExecutionContext context) {
+        String jobName = context.getJobDetail().getKey().getName();
+        log.info("SampleAsyncJob {} started, trigger: {}", jobName, context.getTrigger().getKey());
+
+        // Example: an HTTP call with a non-blocking client
+        // return webClient.get().uri(url).retrieve().toBodilessEntity().toFuture();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        delays.schedule(() -> done.complete(null), 5, TimeUnit.SECONDS);
+        return done.thenRun(() -> log.info("SampleAsyncJob {} finished", jobName));
+    }
+}
@@ -0,0 +1,36 @@
+package com.roc.dscheduler.job;
+
+import com.roc.dscheduler.entity.DelayedTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * A sample delayed task handler that logs the tasks it runs, scheduled with handler "sample".
+ * you can copy this class and use it as a template for your own handlers.
+ */
+@Component
+public class SampleDelayedTaskHandler implements DelayedTaskHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(SampleDelayedTaskHandler.class);
+
+    @Override
+    public String getName() {
+        return "sample";
+    }
+
+    @Override
+    public void handle(List<DelayedTask> tasks) {
+        long now = System.currentTimeMillis();
+        for (DelayedTask task : tasks) {
+            log.info("Delayed task {} (key: {}) ran {}ms after its fire time, payload: {}", task.getId(),
+                    task.getTaskKey(), now - task.getFireAt(), task.getPayload());
+        }
+
+        // Example: an order timeout, cancelling in one statement the orders of the batch still unpaid
+        // List<String> orderIds = tasks.stream().map(DelayedTask::getTaskKey).collect(Collectors.toList());
+        // orderMapper.cancelUnpaid(orderIds);
+    }
+}
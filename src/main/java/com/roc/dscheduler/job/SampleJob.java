@@ -1,11 +1,12 @@
 package com.roc.dscheduler.job;
 
 import org.quartz.DisallowConcurrentExecution;
-import org.quartz.Job;
+import org.quartz.InterruptableJob;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -14,17 +15,24 @@ import java.time.format.DateTimeFormatter;
 /**
  * A sample job that logs its execution time.
  * you can copy  this class and use it as a template for your own jobs.
+ * For jobs waiting on I/O (HTTP, database), start from {@link SampleAsyncJob}, which does not hold a worker thread.
+ * It is interruptable, so a job given a timeout is interrupted when the timeout expires.
  */
 
 @Component
+@Scope("prototype") // Holds the thread of its execution, so one instance per execution
 @DisallowConcurrentExecution // Prevents concurrent execution of the same job definition
-public class SampleJob implements Job {
+public class SampleJob implements InterruptableJob {
 
     private static final Logger log = LoggerFactory.getLogger(SampleJob.class);
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // Quartz creates a job instance per execution, so this is the thread of this execution
+    private volatile Thread worker;
+
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
+        worker = Thread.currentThread();
         String jobName = context.getJobDetail().getKey().getName();
         String jobGroup = context.getJobDetail().getKey().getGroup();
         LocalDateTime now = LocalDateTime.now();
@@ -39,6 +47,11 @@ public class SampleJob implements Job {
         // String myData = context.getJobDetail().getJobDataMap().getString("myDataKey");
         // log.info("JobDataMap value for 'myDataKey': {}", myData);
 
+        // Example: Sharded job (shard count > 1), process only the rows of this shard
+        // int shardIndex = context.getMergedJobDataMap().getInt(JobService.SHARD_INDEX);
+        // int shardTotal = context.getMergedJobDataMap().getInt(JobService.SHARD_TOTAL);
+        // ... WHERE MOD(id, shardTotal) = shardIndex
+
         // Simulate some work
         try {
             Thread.sleep(5000); // Sleep for 5 seconds
@@ -50,4 +63,14 @@ public class SampleJob implements Job {
 
         log.info("SampleJob (Name: {}, Group: {}) finished execution at: {}.", jobName, jobGroup, LocalDateTime.now().format(formatter));
     }
+
+    @Override
+    public void interrupt() {
+        // Called by another thread, on timeout or Scheduler.interrupt(). Blocking calls throw InterruptedException,
+        // a loop doing plain computation should check Thread.currentThread().isInterrupted() instead
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.roc.dscheduler.job;
+
+import com.roc.dscheduler.service.WorkflowService;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Starts a run of a workflow, scheduled by {@link WorkflowService} as {@code DS_WORKFLOW.<workflow name>} with the
+ * workflow's cron expression. The workflow name comes from the job data.
+ */
+@DisallowConcurrentExecution
+public class WorkflowStartJob implements Job {
+
+    @Autowired
+    private WorkflowService workflowService;
+
+    private String workflowName;
+
+    public void setWorkflowName(String workflowName) {
+        this.workflowName = workflowName;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            workflowService.startRun(workflowName);
+        } catch (SchedulerException | RuntimeException e) {
+            throw new JobExecutionException("Could not start workflow " + workflowName + ": " + e.getMessage(), e, false);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.job.AsyncJob;
+import com.roc.dscheduler.quartz.AsyncExecutions;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+
+/**
+ * Delays {@link JobListener#jobWasExecuted} of an {@link AsyncJob} execution until its future completed, with the
+ * future's failure, so the wrapped listener sees async executions end like blocking ones. Every job listener is
+ * registered wrapped.
+ */
+public class AsyncAwareJobListener implements JobListener {
+
+    private final JobListener listener;
+
+    public AsyncAwareJobListener(JobListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public String getName() {
+        return listener.getName();
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        listener.jobToBeExecuted(context);
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        listener.jobExecutionVetoed(context);
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (jobException != null || !AsyncExecutions.whenComplete(context.getFireInstanceId(),
+                failure -> listener.jobWasExecuted(context, failure))) {
+            listener.jobWasExecuted(context, jobException);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.entity.JobExecution;
+import com.roc.dscheduler.service.ExecutionHistoryService;
+import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.JobWatchdog;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
+import org.quartz.listeners.JobListenerSupport;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Records every execution (and veto) in the execution history. Runs on the worker thread, so it only builds the
+ * record and hands it to the non-blocking {@link ExecutionHistoryService#record(JobExecution)}.
+ * Executions of the shards of a sharded job are recorded under the job itself, the trigger tells the shard apart.
+ * Executions stopped by the {@link JobWatchdog} are recorded as TIMEOUT.
+ */
+public class ExecutionHistoryListener extends JobListenerSupport {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ExecutionHistoryService historyService;
+    private final String schedName;
+
+    public ExecutionHistoryListener(ExecutionHistoryService historyService, String schedName) {
+        this.historyService = historyService;
+        this.schedName = schedName;
+    }
+
+    @Override
+    public String getName() {
+        return "executionHistoryListener";
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        historyService.record(toExecution(context, "VETOED", null));
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        String status = JobWatchdog.isTimedOut(context) ? "TIMEOUT" : jobException == null ? "SUCCESS" : "FAILED";
+        historyService.record(toExecution(context, status, jobException));
+    }
+
+    private JobExecution toExecution(JobExecutionContext context, String status, JobExecutionException jobException) {
+        long runTime = Math.max(0, context.getJobRunTime());
+        JobExecution execution = new JobExecution();
+        execution.setSchedName(schedName);
+        try {
+            execution.setInstanceId(context.getScheduler().getSchedulerInstanceId());
+        } catch (SchedulerException e) {
+            getLog().warn("Could not read scheduler instance id: {}", e.getMessage());
+        }
+        String jobName = context.getJobDetail().getKey().getName();
+        int shard = jobName.indexOf(JobService.SHARD_SEPARATOR);
+        execution.setJobName(shard < 0 ? jobName : jobName.substring(0, shard));
+        execution.setJobGroup(context.getJobDetail().getKey().getGroup());
+        execution.setTriggerName(context.getTrigger().getKey().getName());
+        execution.setTriggerGroup(context.getTrigger().getKey().getGroup());
+        execution.setFireInstanceId(context.getFireInstanceId());
+        execution.setScheduledFireTime(toLocalDateTime(context.getScheduledFireTime()));
+        execution.setStartTime(toLocalDateTime(context.getFireTime()));
+        execution.setEndTime(toLocalDateTime(new Date(context.getFireTime().getTime() + runTime)));
+        execution.setDurationMs(runTime);
+        execution.setStatus(status);
+        if (jobException != null) {
+            Throwable cause = jobException.getCause() != null ? jobException.getCause() : jobException;
+            String message = cause.getClass().getName() + ": " + cause.getMessage();
+            execution.setErrorMessage(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        }
+        return execution;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return (date == null) ? null : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,213 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.JobCatalog;
+import com.roc.dscheduler.service.JobRetryService;
+import com.roc.dscheduler.service.JobService;
+import org.quartz.*;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Keeps the {@link JobCatalog} up to date with the changes and fires of this node.
+ * <p>
+ * Scheduler events are only raised on the node where the change was made, every change therefore also bumps the
+ * catalog version so the other nodes reload. This node does not reload for its own changes: the jobs it added or
+ * scheduled are read again by the catalog's next poll, with the columns the events do not carry. Fire events only
+ * refresh the fire times and are not propagated.
+ * The extra shards of a sharded job are not in the catalog, their events are ignored. Retry triggers are not shown
+ * either, scheduling them does not bump the version.
+ */
+public class JobCatalogListener extends SchedulerListenerSupport implements TriggerListener {
+
+    private final JobCatalog catalog;
+
+    public JobCatalogListener(JobCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public String getName() {
+        return "jobCatalogListener";
+    }
+
+    // SchedulerListener
+
+    @Override
+    public void jobAdded(JobDetail jobDetail) {
+        if (!isShard(jobDetail.getKey())) {
+            JobDataMap data = jobDetail.getJobDataMap();
+            catalog.putJob(jobDetail.getKey(), jobDetail.getJobClass().getName(), jobDetail.getDescription(),
+                    data.containsKey(JobService.SHARD_TOTAL) ? data.getInt(JobService.SHARD_TOTAL) : 1);
+            catalog.refreshLater(jobDetail.getKey());
+        }
+        catalog.markChanged();
+    }
+
+    @Override
+    public void jobScheduled(Trigger trigger) {
+        if (isPrimary(trigger.getKey(), trigger.getJobKey())) {
+            catalog.updateJob(trigger.getJobKey(), job -> {
+                job.setCronExpression(trigger instanceof CronTrigger ? ((CronTrigger) trigger).getCronExpression() : null);
+                job.setTriggerState("NORMAL");
+                job.setPriority(trigger.getPriority());
+                job.setPreviousFireTime(toLocalDateTime(trigger.getPreviousFireTime()));
+                job.setNextFireTime(toLocalDateTime(trigger.getNextFireTime()));
+            });
+            catalog.refreshLater(trigger.getJobKey());
+        }
+        if (!isRetry(trigger.getKey())) {
+            catalog.markChanged();
+        }
+    }
+
+    @Override
+    public void jobUnscheduled(TriggerKey triggerKey) {
+        JobKey jobKey = primaryJobKey(triggerKey);
+        if (jobKey != null) {
+            catalog.updateJob(jobKey, job -> {
+                job.setTriggerState("NO_TRIGGER");
+                job.setCronExpression(null);
+                job.setPreviousFireTime(null);
+                job.setNextFireTime(null);
+            });
+        }
+        if (!isRetry(triggerKey)) {
+            catalog.markChanged();
+        }
+    }
+
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        if (isPrimary(trigger.getKey(), trigger.getJobKey())) {
+            catalog.updateJob(trigger.getJobKey(), job -> {
+                job.setTriggerState("COMPLETE");
+                job.setNextFireTime(null);
+            });
+        }
+    }
+
+    @Override
+    public void jobDeleted(JobKey jobKey) {
+        catalog.removeJob(jobKey);
+        catalog.markChanged();
+    }
+
+    @Override
+    public void jobPaused(JobKey jobKey) {
+        setState(jobKey, "PAUSED");
+    }
+
+    @Override
+    public void jobResumed(JobKey jobKey) {
+        setState(jobKey, "NORMAL");
+    }
+
+    @Override
+    public void triggerPaused(TriggerKey triggerKey) {
+        setState(primaryJobKey(triggerKey), "PAUSED");
+    }
+
+    @Override
+    public void triggerResumed(TriggerKey triggerKey) {
+        setState(primaryJobKey(triggerKey), "NORMAL");
+    }
+
+    @Override
+    public void jobsPaused(String jobGroup) {
+        setGroupState(jobGroup, "PAUSED");
+    }
+
+    @Override
+    public void jobsResumed(String jobGroup) {
+        setGroupState(jobGroup, "NORMAL");
+    }
+
+    @Override
+    public void triggersPaused(String triggerGroup) {
+        setGroupState(triggerGroup, "PAUSED");
+    }
+
+    @Override
+    public void triggersResumed(String triggerGroup) {
+        setGroupState(triggerGroup, "NORMAL");
+    }
+
+    @Override
+    public void schedulingDataCleared() {
+        catalog.clear();
+        catalog.markChanged();
+    }
+
+    // TriggerListener
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        // Called after Trigger.triggered(), the trigger already carries the new fire times
+        if (isPrimary(trigger.getKey(), trigger.getJobKey())) {
+            catalog.updateJob(trigger.getJobKey(), job -> {
+                job.setPreviousFireTime(toLocalDateTime(trigger.getPreviousFireTime()));
+                job.setNextFireTime(toLocalDateTime(trigger.getNextFireTime()));
+            });
+        }
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+    }
+
+    private void setState(JobKey jobKey, String triggerState) {
+        if (jobKey != null) {
+            catalog.updateJob(jobKey, job -> {
+                if (!"NO_TRIGGER".equals(job.getTriggerState())) {
+                    job.setTriggerState(triggerState);
+                }
+            });
+        }
+        catalog.markChanged();
+    }
+
+    private void setGroupState(String group, String triggerState) {
+        catalog.updateGroupState(group, triggerState);
+        catalog.markChanged();
+    }
+
+    private static boolean isShard(JobKey jobKey) {
+        return jobKey.getName().contains(JobService.SHARD_SEPARATOR);
+    }
+
+    private static boolean isRetry(TriggerKey triggerKey) {
+        return triggerKey.getName().contains(JobRetryService.RETRY_SEPARATOR);
+    }
+
+    private static boolean isPrimary(TriggerKey triggerKey, JobKey jobKey) {
+        return !isShard(jobKey) && triggerKey.equals(TriggerKey.triggerKey(jobKey.getName() + JobService.TRIGGER_SUFFIX, jobKey.getGroup()));
+    }
+
+    /**
+     * @return the job fired by a primary trigger, or null for any other trigger.
+     */
+    private static JobKey primaryJobKey(TriggerKey triggerKey) {
+        String name = triggerKey.getName();
+        if (!name.endsWith(JobService.TRIGGER_SUFFIX) || name.contains(JobService.SHARD_SEPARATOR)) {
+            return null;
+        }
+        return JobKey.jobKey(name.substring(0, name.length() - JobService.TRIGGER_SUFFIX.length()), triggerKey.getGroup());
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return (date == null) ? null : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
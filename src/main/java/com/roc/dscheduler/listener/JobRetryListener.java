@@ -0,0 +1,29 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.JobRetryService;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Hands the outcome of every execution to the {@link JobRetryService}, which retries and counts the failures of the
+ * jobs with a retry policy or a circuit breaker.
+ */
+public class JobRetryListener extends JobListenerSupport {
+
+    private final JobRetryService retryService;
+
+    public JobRetryListener(JobRetryService retryService) {
+        this.retryService = retryService;
+    }
+
+    @Override
+    public String getName() {
+        return "jobRetryListener";
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        retryService.executed(context, jobException);
+    }
+}
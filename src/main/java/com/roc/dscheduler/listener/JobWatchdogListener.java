@@ -0,0 +1,38 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.JobWatchdog;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Hands the start and end of every execution to the {@link JobWatchdog}, which watches those with a timeout.
+ */
+public class JobWatchdogListener extends JobListenerSupport {
+
+    private final JobWatchdog watchdog;
+
+    public JobWatchdogListener(JobWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public String getName() {
+        return "jobWatchdogListener";
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        watchdog.watch(context);
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        watchdog.unwatch(context);
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        watchdog.unwatch(context);
+    }
+}
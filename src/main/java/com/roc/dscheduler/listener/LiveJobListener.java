@@ -0,0 +1,41 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.LiveJobBroadcaster;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Reports the executions of this node to the {@link LiveJobBroadcaster}. Runs on the worker thread and only
+ * queues the event. Executions of the shards of a sharded job are reported under the job itself.
+ */
+public class LiveJobListener extends JobListenerSupport {
+
+    private final LiveJobBroadcaster broadcaster;
+
+    public LiveJobListener(LiveJobBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public String getName() {
+        return "liveJobListener";
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        broadcaster.executionStarted(baseKey(context.getJobDetail().getKey()));
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        broadcaster.executionFinished(baseKey(context.getJobDetail().getKey()), jobException == null);
+    }
+
+    private static JobKey baseKey(JobKey jobKey) {
+        int shard = jobKey.getName().indexOf(JobService.SHARD_SEPARATOR);
+        return shard < 0 ? jobKey : JobKey.jobKey(jobKey.getName().substring(0, shard), jobKey.getGroup());
+    }
+}
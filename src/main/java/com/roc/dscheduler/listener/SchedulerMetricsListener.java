@@ -0,0 +1,64 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.SchedulerMetrics;
+import org.quartz.*;
+
+/**
+ * Feeds {@link SchedulerMetrics} from the fire path. Only reads values Quartz already holds in the context, nothing
+ * is allocated per fire.
+ */
+public class SchedulerMetricsListener implements TriggerListener, JobListener {
+
+    private final SchedulerMetrics metrics;
+
+    public SchedulerMetricsListener(SchedulerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return "schedulerMetricsListener";
+    }
+
+    // TriggerListener
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        if (context.getScheduledFireTime() != null) {
+            metrics.recordFireLag(trigger.getKey().getGroup(),
+                    context.getFireTime().getTime() - context.getScheduledFireTime().getTime());
+        }
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        metrics.countMisfire(trigger.getKey().getGroup());
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+    }
+
+    // JobListener
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        metrics.countVeto(context.getTrigger().getKey().getGroup());
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        metrics.recordExecution(context.getJobDetail().getJobClass().getName(), jobException == null,
+                context.getJobRunTime());
+    }
+}
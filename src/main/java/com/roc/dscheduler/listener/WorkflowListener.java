@@ -0,0 +1,72 @@
+package com.roc.dscheduler.listener;
+
+import com.roc.dscheduler.service.JobRetryService;
+import com.roc.dscheduler.service.JobService;
+import com.roc.dscheduler.service.JobWatchdog;
+import com.roc.dscheduler.service.WorkflowService;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.listeners.JobListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the executions fired for a workflow run to the {@link WorkflowService}, which completes the job and fires
+ * the downstream jobs. Runs on the worker thread before Quartz deletes the run trigger, so a job whose trigger is
+ * gone has been reported. Executions of the shards of a sharded job are reported under the job itself. A failure
+ * that {@link JobRetryService} retries is not reported, the retry is.
+ */
+public class WorkflowListener extends JobListenerSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowListener.class);
+
+    private final WorkflowService workflowService;
+
+    public WorkflowListener(WorkflowService workflowService) {
+        this.workflowService = workflowService;
+    }
+
+    @Override
+    public String getName() {
+        return "workflowListener";
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (JobRetryService.willRetry(context, jobException)) {
+            return;
+        }
+        if (JobWatchdog.isTimedOut(context)) {
+            finished(context, false, "Execution timed out");
+        } else {
+            finished(context, jobException == null, jobException == null ? null : jobException.getMessage());
+        }
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        finished(context, false, "Execution vetoed");
+    }
+
+    private void finished(JobExecutionContext context, boolean success, String message) {
+        JobDataMap triggerData = context.getTrigger().getJobDataMap();
+        if (!triggerData.containsKey(WorkflowService.RUN_ID)) {
+            return;
+        }
+        long runId = triggerData.getLongValue(WorkflowService.RUN_ID);
+        JobKey jobKey = baseKey(context.getJobDetail().getKey());
+        try {
+            workflowService.executionFinished(runId, jobKey, success, message);
+        } catch (Exception e) {
+            // The sweeper fails the job once its trigger is gone
+            log.error("Could not complete {} of workflow run {}: {}", jobKey, runId, e.getMessage(), e);
+        }
+    }
+
+    private static JobKey baseKey(JobKey jobKey) {
+        int shard = jobKey.getName().indexOf(JobService.SHARD_SEPARATOR);
+        return shard < 0 ? jobKey : JobKey.jobKey(jobKey.getName().substring(0, shard), jobKey.getGroup());
+    }
+}
@@ -0,0 +1,20 @@
+package com.roc.dscheduler.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * Cluster-wide change counter of the job catalog, one row per scheduler in DS_CATALOG_VERSION.
+ */
+@Mapper
+public interface CatalogVersionMapper {
+
+    @Select("SELECT VERSION FROM DS_CATALOG_VERSION WHERE SCHED_NAME = #{schedName}")
+    Long selectVersion(@Param("schedName") String schedName);
+
+    @Insert("INSERT INTO DS_CATALOG_VERSION (SCHED_NAME, VERSION) VALUES (#{schedName}, 1) "
+            + "ON DUPLICATE KEY UPDATE VERSION = VERSION + 1")
+    int incrementVersion(@Param("schedName") String schedName);
+}
@@ -0,0 +1,67 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.DelayedTask;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Delayed tasks in DS_DELAYED_TASK, see mapper/DelayedTaskMapper.xml.
+ * <p>
+ * A node loads tasks by claiming them with a token of its own, and only runs, deletes or reschedules the tasks still
+ * claimed with the token it loaded them with: a task cancelled or taken over by another node meanwhile is left alone.
+ */
+@Mapper
+public interface DelayedTaskMapper {
+
+    /**
+     * Inserts a batch of tasks with a single multi-row INSERT. A task whose handler and key are already scheduled is
+     * left as it is.
+     */
+    int insertBatch(@Param("schedName") String schedName, @Param("tasks") List<DelayedTask> tasks);
+
+    /**
+     * Claims the unclaimed tasks of a bucket due up to a slot, earliest slots first, if the owner still holds the
+     * bucket's lease. Only reads and locks the rows it claims, in the (SCHED_NAME, BUCKET, CLAIM, SLOT) index.
+     *
+     * @param leaseName scope of the bucket leases in DS_PARTITION_LEASE.
+     * @return the tasks claimed, at most limit.
+     */
+    int claimTasks(@Param("schedName") String schedName, @Param("bucket") int bucket,
+                   @Param("maxSlot") long maxSlot, @Param("claim") long claim, @Param("limit") int limit,
+                   @Param("leaseName") String leaseName, @Param("owner") String owner, @Param("now") long now);
+
+    List<DelayedTask> selectClaimed(@Param("schedName") String schedName, @Param("bucket") int bucket,
+                                    @Param("claim") long claim);
+
+    /**
+     * @return the ids among those given of the tasks still claimed with a token.
+     */
+    List<Long> selectClaimedIds(@Param("schedName") String schedName, @Param("claim") long claim,
+                                @Param("ids") Collection<Long> ids);
+
+    int deleteTasks(@Param("schedName") String schedName, @Param("claim") long claim,
+                    @Param("ids") Collection<Long> ids);
+
+    /**
+     * Counts a failed attempt and moves the tasks to a later fire time, unclaimed.
+     */
+    int retryTasks(@Param("schedName") String schedName, @Param("claim") long claim,
+                   @Param("ids") Collection<Long> ids, @Param("fireAt") long fireAt, @Param("slot") long slot);
+
+    /**
+     * Unclaims the tasks of a bucket, loaded by a node that has lost its lease.
+     */
+    int releaseClaims(@Param("schedName") String schedName, @Param("bucket") int bucket);
+
+    /**
+     * Unclaims the tasks of the given buckets due up to a slot and still claimed.
+     */
+    int releaseStaleClaims(@Param("schedName") String schedName, @Param("buckets") Collection<Integer> buckets,
+                           @Param("maxSlot") long maxSlot);
+
+    int deleteByKey(@Param("schedName") String schedName, @Param("handler") String handler,
+                    @Param("taskKey") String taskKey);
+}
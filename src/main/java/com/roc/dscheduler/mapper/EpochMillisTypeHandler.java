@@ -0,0 +1,47 @@
+package com.roc.dscheduler.mapper;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Maps Quartz's BIGINT epoch-millis columns (NEXT_FIRE_TIME, PREV_FIRE_TIME, ...) to LocalDateTime.
+ * Quartz stores -1 or NULL when there is no fire time, both are read as null.
+ */
+@MappedTypes(LocalDateTime.class)
+@MappedJdbcTypes(JdbcType.BIGINT)
+public class EpochMillisTypeHandler extends BaseTypeHandler<LocalDateTime> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, LocalDateTime parameter, JdbcType jdbcType) throws SQLException {
+        ps.setLong(i, parameter.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Override
+    public LocalDateTime getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toLocalDateTime(rs.getLong(columnName), rs.wasNull());
+    }
+
+    @Override
+    public LocalDateTime getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toLocalDateTime(rs.getLong(columnIndex), rs.wasNull());
+    }
+
+    @Override
+    public LocalDateTime getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toLocalDateTime(cs.getLong(columnIndex), cs.wasNull());
+    }
+
+    private LocalDateTime toLocalDateTime(long millis, boolean wasNull) {
+        return (wasNull || millis <= 0) ? null : Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
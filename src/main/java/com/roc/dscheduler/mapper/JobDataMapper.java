@@ -0,0 +1,35 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.JobDataRow;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * JOB_DATA of the jobs and triggers of all schedulers, read in key order and rewritten row by row by
+ * {@link com.roc.dscheduler.service.JobDataMigration}, see mapper/JobDataMapper.xml.
+ */
+@Mapper
+public interface JobDataMapper {
+
+    /**
+     * Selects the next jobs after the given one (from the first if null) in primary key order.
+     */
+    List<JobDataRow> selectJobData(@Param("after") JobDataRow after, @Param("limit") int limit);
+
+    /**
+     * Selects the next triggers after the given one (from the first if null) in primary key order.
+     */
+    List<JobDataRow> selectTriggerData(@Param("after") JobDataRow after, @Param("limit") int limit);
+
+    /**
+     * Replaces the job's data if it still is {@code expected}.
+     */
+    int updateJobData(@Param("row") JobDataRow row, @Param("expected") byte[] expected);
+
+    /**
+     * Replaces the trigger's data if it still is {@code expected}.
+     */
+    int updateTriggerData(@Param("row") JobDataRow row, @Param("expected") byte[] expected);
+}
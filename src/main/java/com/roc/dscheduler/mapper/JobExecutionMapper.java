@@ -0,0 +1,36 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.JobExecution;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Execution history in DS_JOB_EXECUTION, see mapper/JobExecutionMapper.xml.
+ */
+@Mapper
+public interface JobExecutionMapper {
+
+    /**
+     * Inserts a batch of executions with a single multi-row INSERT.
+     */
+    int insertBatch(@Param("executions") List<JobExecution> executions);
+
+    /**
+     * Selects the latest executions of a job, newest first.
+     *
+     * @param beforeId keyset cursor, only executions with a smaller id are returned. Null for the first page.
+     */
+    List<JobExecution> selectExecutions(@Param("schedName") String schedName,
+                                        @Param("jobName") String jobName,
+                                        @Param("jobGroup") String jobGroup,
+                                        @Param("beforeId") Long beforeId,
+                                        @Param("limit") int limit);
+
+    /**
+     * Deletes at most {@code limit} executions started before the cutoff.
+     */
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
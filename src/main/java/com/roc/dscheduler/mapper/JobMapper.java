@@ -0,0 +1,80 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.GroupUsage;
+import com.roc.dscheduler.entity.JobExportRow;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobQuery;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.entity.NodeLoad;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
+
+/**
+ * Read-only queries against the Quartz tables.
+ * Jobs, their primary trigger and cron expression are read with a single join, see mapper/JobMapper.xml.
+ * Job queries cover a list of scheduler names, the partitions of {@link com.roc.dscheduler.service.SchedulerRouter}.
+ */
+@Mapper
+public interface JobMapper {
+
+    /**
+     * Counts the jobs matching the query's search filter.
+     */
+    long countJobs(@Param("schedNames") List<String> schedNames,
+                   @Param("triggerSuffix") String triggerSuffix,
+                   @Param("query") JobQuery query);
+
+    /**
+     * Selects one page of jobs, filtered, sorted and limited in SQL.
+     */
+    List<JobInfo> selectJobPage(@Param("schedNames") List<String> schedNames,
+                                @Param("triggerSuffix") String triggerSuffix,
+                                @Param("query") JobQuery query);
+
+    /**
+     * Selects every job of the schedulers, ordered by group and name.
+     */
+    List<JobInfo> selectAllJobs(@Param("schedNames") List<String> schedNames,
+                                @Param("triggerSuffix") String triggerSuffix);
+
+    /**
+     * Selects the jobs matching the selector, in no particular order.
+     */
+    List<JobInfo> selectJobs(@Param("schedNames") List<String> schedNames,
+                             @Param("triggerSuffix") String triggerSuffix,
+                             @Param("selector") JobSelector selector);
+
+    /**
+     * Streams every job matching the selector, ordered by group and name, without loading the result set.
+     * The cursor must be read and closed within the transaction that opened it.
+     */
+    Cursor<JobExportRow> streamJobs(@Param("schedNames") List<String> schedNames,
+                               @Param("triggerSuffix") String triggerSuffix,
+                               @Param("selector") JobSelector selector);
+
+    /**
+     * Selects the name, group and shard count of every job matching the selector, ordered by group and name.
+     */
+    List<JobInfo> selectJobKeys(@Param("schedNames") List<String> schedNames,
+                                @Param("selector") JobSelector selector);
+
+    /**
+     * Counts the executions in progress and the overdue triggers of every trigger group having any.
+     */
+    List<GroupUsage> selectGroupUsage(@Param("schedNames") List<String> schedNames,
+                                      @Param("now") long now);
+
+    /**
+     * Selects the load every node published at its last check-in, by scheduler and instance id.
+     */
+    List<NodeLoad> selectNodeLoads(@Param("schedNames") List<String> schedNames);
+
+    /**
+     * Selects the instance ids of the cluster nodes that checked in recently, from QRTZ_SCHEDULER_STATE.
+     */
+    List<String> selectLiveInstances(@Param("schedName") String schedName,
+                                     @Param("now") long now);
+}
@@ -0,0 +1,47 @@
+package com.roc.dscheduler.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * Failure counters of the jobs with a retry policy or a circuit breaker, one row per job in DS_JOB_RETRY_STATE.
+ */
+@Mapper
+public interface JobRetryMapper {
+
+    /**
+     * Counts a failed execution, and a retry if one was scheduled for it.
+     */
+    @Insert("INSERT INTO DS_JOB_RETRY_STATE (SCHED_NAME, JOB_GROUP, JOB_NAME, CONSECUTIVE_FAILURES, RETRY_COUNT, "
+            + "LAST_FAILURE_AT) VALUES (#{schedName}, #{jobGroup}, #{jobName}, 1, #{retries}, #{now}) "
+            + "ON DUPLICATE KEY UPDATE CONSECUTIVE_FAILURES = CONSECUTIVE_FAILURES + 1, "
+            + "RETRY_COUNT = RETRY_COUNT + #{retries}, LAST_FAILURE_AT = #{now}")
+    int recordFailure(@Param("schedName") String schedName,
+                      @Param("jobGroup") String jobGroup,
+                      @Param("jobName") String jobName,
+                      @Param("retries") int retries,
+                      @Param("now") long now);
+
+    /**
+     * Reads the failure count with a lock on the row, so after {@link #recordFailure} in the same transaction it is
+     * the count including that failure and no other.
+     */
+    @Select("SELECT CONSECUTIVE_FAILURES FROM DS_JOB_RETRY_STATE "
+            + "WHERE SCHED_NAME = #{schedName} AND JOB_GROUP = #{jobGroup} AND JOB_NAME = #{jobName} FOR UPDATE")
+    Integer lockConsecutiveFailures(@Param("schedName") String schedName,
+                                      @Param("jobGroup") String jobGroup,
+                                      @Param("jobName") String jobName);
+
+    /**
+     * Ends a run of failures after a successful execution. Only writes if the job failed last.
+     */
+    @Update("UPDATE DS_JOB_RETRY_STATE SET CONSECUTIVE_FAILURES = 0 "
+            + "WHERE SCHED_NAME = #{schedName} AND JOB_GROUP = #{jobGroup} AND JOB_NAME = #{jobName} "
+            + "AND CONSECUTIVE_FAILURES > 0")
+    int resetFailures(@Param("schedName") String schedName,
+                      @Param("jobGroup") String jobGroup,
+                      @Param("jobName") String jobName);
+}
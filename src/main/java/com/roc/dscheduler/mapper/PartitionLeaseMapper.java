@@ -0,0 +1,47 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.PartitionLease;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * Partition leases of the partitioned mode, one row per scheduler and partition in DS_PARTITION_LEASE, and the bucket
+ * leases of the delayed tasks under the scheduler name suffixed with "/delayed".
+ * Every change is a conditional update, a lease is only ever taken over once it has expired.
+ */
+@Mapper
+public interface PartitionLeaseMapper {
+
+    @Select("SELECT PARTITION_NO AS partitionNo, OWNER AS owner, EXPIRES_AT AS expiresAt FROM DS_PARTITION_LEASE "
+            + "WHERE SCHED_NAME = #{schedName} ORDER BY PARTITION_NO")
+    List<PartitionLease> selectLeases(@Param("schedName") String schedName);
+
+    @Insert("INSERT INTO DS_PARTITION_LEASE (SCHED_NAME, PARTITION_NO, OWNER, EXPIRES_AT) "
+            + "VALUES (#{schedName}, #{partitionNo}, NULL, 0) ON DUPLICATE KEY UPDATE PARTITION_NO = PARTITION_NO")
+    int insertLease(@Param("schedName") String schedName, @Param("partitionNo") int partitionNo);
+
+    /**
+     * Takes or renews a lease.
+     *
+     * @return 1 if the owner holds the lease until expiresAt, 0 if another node holds it.
+     */
+    @Update("UPDATE DS_PARTITION_LEASE SET OWNER = #{owner}, EXPIRES_AT = #{expiresAt} "
+            + "WHERE SCHED_NAME = #{schedName} AND PARTITION_NO = #{partitionNo} "
+            + "AND (OWNER = #{owner} OR OWNER IS NULL OR EXPIRES_AT < #{now})")
+    int claimLease(@Param("schedName") String schedName, @Param("partitionNo") int partitionNo,
+                   @Param("owner") String owner, @Param("now") long now, @Param("expiresAt") long expiresAt);
+
+    /**
+     * Gives a lease up. Nodes holding fewer partitions may take it over right away, any node once expiresAt is
+     * a lease duration ago.
+     */
+    @Update("UPDATE DS_PARTITION_LEASE SET OWNER = NULL, EXPIRES_AT = #{expiresAt} "
+            + "WHERE SCHED_NAME = #{schedName} AND PARTITION_NO = #{partitionNo} AND OWNER = #{owner}")
+    int releaseLease(@Param("schedName") String schedName, @Param("partitionNo") int partitionNo,
+                     @Param("owner") String owner, @Param("expiresAt") long expiresAt);
+}
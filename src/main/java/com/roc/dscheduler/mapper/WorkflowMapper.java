@@ -0,0 +1,128 @@
+package com.roc.dscheduler.mapper;
+
+import com.roc.dscheduler.entity.WorkflowRun;
+import com.roc.dscheduler.entity.WorkflowRunNode;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * Workflow definitions and runs in DS_WORKFLOW, DS_WORKFLOW_RUN and DS_WORKFLOW_RUN_NODE,
+ * see mapper/WorkflowMapper.xml.
+ * <p>
+ * Every state change of a run is a conditional update on the state it leaves, so when several nodes (or a node and
+ * the sweeper) race for the same transition only one of them gets an update count of 1 and acts on it.
+ */
+@Mapper
+public interface WorkflowMapper {
+
+    int upsertWorkflow(@Param("schedName") String schedName, @Param("name") String name,
+                       @Param("definition") String definition, @Param("now") long now);
+
+    String selectWorkflow(@Param("schedName") String schedName, @Param("name") String name);
+
+    /**
+     * Selects a workflow definition and locks the workflow until the end of the transaction, so its runs start one
+     * at a time.
+     */
+    String lockWorkflow(@Param("schedName") String schedName, @Param("name") String name);
+
+    /**
+     * Selects the definitions of all workflows, ordered by name.
+     */
+    List<String> selectWorkflows(@Param("schedName") String schedName);
+
+    int deleteWorkflow(@Param("schedName") String schedName, @Param("name") String name);
+
+    /**
+     * Inserts a run and sets its generated id.
+     */
+    int insertRun(WorkflowRun run);
+
+    int insertRunNodes(@Param("runId") long runId, @Param("nodes") List<WorkflowRunNode> nodes);
+
+    /**
+     * Selects a run and locks it until the end of the transaction, so the jobs of a run complete one at a time and
+     * the last one sees the others' changes.
+     */
+    WorkflowRun lockRun(@Param("runId") long runId);
+
+    WorkflowRun selectRun(@Param("runId") long runId);
+
+    /**
+     * Selects the latest runs of a workflow, newest first, without their nodes.
+     */
+    List<WorkflowRun> selectRuns(@Param("schedName") String schedName, @Param("name") String name,
+                                 @Param("limit") int limit);
+
+    int countRunningRuns(@Param("schedName") String schedName, @Param("name") String name);
+
+    /**
+     * Selects the jobs of a run in definition order.
+     */
+    List<WorkflowRunNode> selectRunNodes(@Param("runId") long runId);
+
+    /**
+     * Selects the READY and RUNNING jobs of running runs not updated since {@code before}, oldest first.
+     */
+    List<WorkflowRunNode> selectStaleNodes(@Param("schedName") String schedName, @Param("before") long before,
+                                           @Param("limit") int limit);
+
+    /**
+     * Moves a PENDING job without remaining upstream jobs to READY.
+     *
+     * @return 1 if this call claimed the job for firing.
+     */
+    int claimNode(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("now") long now);
+
+    /**
+     * Moves a READY job to RUNNING once its triggers are scheduled.
+     */
+    int markRunning(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("now") long now);
+
+    /**
+     * Bumps the update time of a READY or RUNNING job if it is still the given one, so a single sweeper handles it.
+     */
+    int touchNode(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("expected") long expected,
+                  @Param("now") long now);
+
+    /**
+     * Counts down the remaining upstream jobs of a PENDING job.
+     */
+    int decrementUpstreams(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("now") long now);
+
+    /**
+     * Counts down the pending shards of a READY or RUNNING job once one of them finished.
+     *
+     * @return 0 if the job is not waiting for shards (it already completed).
+     */
+    int finishShard(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("failed") boolean failed,
+                    @Param("message") String message, @Param("now") long now);
+
+    /**
+     * Fails a READY or RUNNING job whatever its pending shards.
+     */
+    int failNode(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("message") String message,
+                 @Param("now") long now);
+
+    /**
+     * Moves a READY or RUNNING job without pending shards to SUCCEEDED, or FAILED if a shard failed.
+     *
+     * @return 1 if this call completed the job.
+     */
+    int completeNode(@Param("runId") long runId, @Param("node") WorkflowRunNode node, @Param("now") long now);
+
+    /**
+     * Moves the given PENDING jobs to SKIPPED.
+     */
+    int skipNodes(@Param("runId") long runId, @Param("nodes") List<WorkflowRunNode> nodes,
+                  @Param("message") String message, @Param("now") long now);
+
+    /**
+     * Ends a RUNNING run.
+     *
+     * @return 1 if this call ended the run.
+     */
+    int finishRun(@Param("runId") long runId, @Param("status") String status, @Param("now") long now);
+}
@@ -0,0 +1,24 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.entity.NodeLoad;
+
+import java.util.List;
+
+/**
+ * Decides how much a node takes of the triggers due, from its own load and the load its peers published at their
+ * last check-in. Consulted by {@link DschedulerJobStore} on the scheduler thread before every acquisition while other
+ * nodes of the cluster acquire too, configured with {@code org.quartz.jobStore.acquisitionPolicy}. The policy only
+ * sizes the batch: the peer loads are as old as a check-in interval, and delaying the scheduler thread on them would
+ * delay the fires of a node that has become idle since. Implementations need a public no-arg constructor and must be
+ * thread safe.
+ */
+public interface AcquisitionPolicy {
+
+    /**
+     * @param self     load of this node, sampled now.
+     * @param peers    load of the other nodes acquiring triggers of the same scheduler, never empty.
+     * @param maxCount triggers the scheduler would acquire: free threads, at most batchTriggerAcquisitionMaxCount.
+     * @return triggers to acquire at most, from 1 to {@code maxCount}.
+     */
+    int batchSize(NodeLoad self, List<NodeLoad> peers, int maxCount);
+}
@@ -0,0 +1,262 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.job.AsyncJob;
+import com.roc.dscheduler.service.HashedTimerWheel;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The executions of {@link AsyncJob}s in flight on this node, by fire instance id.
+ * <p>
+ * Quartz considers an execution finished when {@code execute} returns: it notifies the job listeners, then the job
+ * store. An async job returns as soon as its future is submitted, so the listeners and the job store register what
+ * they do on completion here instead, and it runs once the future completes, fails or times out, in registration
+ * order, on a completion thread. Until then the fired trigger stays in the job store: a
+ * {@code @DisallowConcurrentExecution} job stays blocked and the execution is recovered if the node fails.
+ * <p>
+ * Timeouts are on a {@link HashedTimerWheel}: an execution completing in time unlinks its timeout in O(1), so no
+ * finished execution stays referenced until its timeout would have expired.
+ * <p>
+ * Quartz instantiates the job stores and the jobs itself, so the registry is shared by the whole node and configured
+ * by {@link DschedulerJobStore} from {@code org.quartz.jobStore.async*}.
+ */
+public final class AsyncExecutions {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncExecutions.class);
+
+    private static final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    // A tick of 100 ms, a turn of the wheel is about 100 s
+    private static final HashedTimerWheel timer = new HashedTimerWheel("dscheduler-async-timer", 100,
+            TimeUnit.MILLISECONDS, 1024);
+
+    private static volatile long timeout = 3_600_000;
+    private static volatile int maxInFlight = 10_000;
+    private static volatile Semaphore permits = new Semaphore(maxInFlight);
+    private static volatile ExecutorService completer;
+
+    private AsyncExecutions() {
+    }
+
+    /**
+     * Sets the limits. Called by every job store on startup, before any execution.
+     *
+     * @param timeout          milliseconds after which an execution fails with a {@link TimeoutException}.
+     * @param maxInFlight      executions in flight at most, a worker submitting more waits for one to complete.
+     * @param completerThreads threads running the completions.
+     */
+    static synchronized void configure(long timeout, int maxInFlight, int completerThreads) {
+        AsyncExecutions.timeout = timeout;
+        if (maxInFlight != AsyncExecutions.maxInFlight && executions.isEmpty()) {
+            permits = new Semaphore(maxInFlight);
+            AsyncExecutions.maxInFlight = maxInFlight;
+        }
+        if (completer == null) {
+            completer = Executors.newFixedThreadPool(completerThreads, daemonThreads("dscheduler-async-completion"));
+        }
+    }
+
+    /**
+     * Starts an async execution and returns right away. Called by {@link AsyncJob#execute} on the worker thread.
+     *
+     * @throws JobExecutionException if the job threw or the worker was interrupted waiting for a free slot.
+     */
+    public static void submit(JobExecutionContext context, Supplier<CompletableFuture<?>> job)
+            throws JobExecutionException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JobExecutionException("Interrupted waiting for an async execution slot", e, false);
+        }
+        CompletableFuture<?> future;
+        try {
+            future = job.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new JobExecutionException(e, false);
+        }
+        if (future == null) {
+            permits.release();
+            return;
+        }
+        Execution execution = new Execution(context, future);
+        executions.put(context.getFireInstanceId(), execution);
+        HashedTimerWheel.Timeout timeoutTask = timer.schedule(() -> {
+            execution.fail(new TimeoutException("Async execution timed out after " + timeout + " ms"));
+        }, timeout, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, failure) -> {
+            timeoutTask.cancel();
+            execution.complete(failure);
+        });
+    }
+
+    /**
+     * Runs an action when an async execution completes, right away if it already completed.
+     *
+     * @param action called with the failure, null on success.
+     * @return false if the fire is not an async execution, nothing was registered.
+     */
+    public static boolean whenComplete(String fireInstanceId, Consumer<JobExecutionException> action) {
+        Execution execution = fireInstanceId == null ? null : executions.get(fireInstanceId);
+        if (execution == null) {
+            return false;
+        }
+        execution.onComplete(action);
+        return true;
+    }
+
+    /**
+     * Fails an async execution now and cancels its future, which frees its slot. Used to enforce a job's own timeout.
+     *
+     * @return false if the fire is not an async execution in flight.
+     */
+    public static boolean fail(String fireInstanceId, Throwable cause) {
+        Execution execution = fireInstanceId == null ? null : executions.get(fireInstanceId);
+        if (execution == null) {
+            return false;
+        }
+        execution.fail(cause);
+        return true;
+    }
+
+    /**
+     * Forgets an execution, once the job store recorded its completion.
+     */
+    static void remove(String fireInstanceId) {
+        executions.remove(fireInstanceId);
+    }
+
+    /**
+     * @return the executions of a scheduler not yet recorded as complete by its job store.
+     */
+    static int pending(String schedName) {
+        return (int) executions.values().stream().filter(execution -> execution.schedName.equals(schedName)).count();
+    }
+
+    /**
+     * @return the executions whose future has not completed yet, on the whole node.
+     */
+    public static int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Execution {
+        private final JobExecutionContext context;
+        private final CompletableFuture<?> future;
+        private final String schedName;
+        private final List<Consumer<JobExecutionException>> actions = new ArrayList<>();
+        private boolean completed;
+        private boolean draining;
+        private JobExecutionException failure;
+
+        private Execution(JobExecutionContext context, CompletableFuture<?> future) {
+            this.context = context;
+            this.future = future;
+            this.schedName = schedulerName(context);
+        }
+
+        private void onComplete(Consumer<JobExecutionException> action) {
+            synchronized (this) {
+                if (!completed || draining) {
+                    actions.add(action);
+                    return;
+                }
+            }
+            run(action);
+        }
+
+        /**
+         * Completes the execution with a failure before its future, then cancels the future.
+         */
+        private void fail(Throwable cause) {
+            complete(cause);
+            future.cancel(true);
+        }
+
+        /**
+         * Completes the execution once, by its future or its timeout, and hands the actions to a completion thread
+         * so they do not run on the thread completing the future (an HTTP client's I/O thread, say). Actions
+         * registered meanwhile are queued behind them, so the listeners always run before the job store.
+         */
+        private void complete(Throwable cause) {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                draining = true;
+                failure = toJobException(cause);
+            }
+            permits.release();
+            if (context instanceof JobExecutionContextImpl) {
+                ((JobExecutionContextImpl) context).setJobRunTime(System.currentTimeMillis() - context.getFireTime().getTime());
+            }
+            ExecutorService executor = completer;
+            if (executor == null) {
+                drain();
+            } else {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Consumer<JobExecutionException> action;
+                synchronized (this) {
+                    if (actions.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    action = actions.remove(0);
+                }
+                run(action);
+            }
+        }
+
+        private void run(Consumer<JobExecutionException> action) {
+            try {
+                action.accept(failure);
+            } catch (RuntimeException e) {
+                log.error("Completion of async execution {} failed: {}", context.getFireInstanceId(), e.getMessage(), e);
+            }
+        }
+
+        private static JobExecutionException toJobException(Throwable cause) {
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause == null || cause instanceof JobExecutionException) {
+                return (JobExecutionException) cause;
+            }
+            return new JobExecutionException(cause, false);
+        }
+
+        private static String schedulerName(JobExecutionContext context) {
+            try {
+                return context.getScheduler().getSchedulerName();
+            } catch (Exception e) {
+                return "";
+            }
+        }
+    }
+}
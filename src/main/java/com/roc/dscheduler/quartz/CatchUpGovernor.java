@@ -0,0 +1,75 @@
+package com.roc.dscheduler.quartz;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting how fast late (catch-up) fires are released, see {@link DschedulerJobStore}.
+ * The bucket holds up to {@code burst} tokens and refills at {@code ratePerSecond}.
+ */
+class CatchUpGovernor {
+
+    private static final long THROTTLE_MEMORY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final double ratePerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+    private long lastDenied;
+
+    CatchUpGovernor(double ratePerSecond, int burst) {
+        this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+        // Never denied: nanoTime has an arbitrary origin, so only a time relative to it is safe
+        this.lastDenied = lastRefill - THROTTLE_MEMORY_NANOS;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return true if the fire may be released now.
+     */
+    synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        lastDenied = System.nanoTime();
+        return false;
+    }
+
+    /**
+     * @return the whole tokens available now.
+     */
+    synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    /**
+     * @return true if a fire was denied recently, i.e. a catch-up is in progress.
+     */
+    synchronized boolean isThrottling() {
+        return System.nanoTime() - lastDenied < THROTTLE_MEMORY_NANOS;
+    }
+
+    /**
+     * Waits until the next token is available, at most one second.
+     */
+    void awaitToken() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            waitNanos = tokens >= 1 ? 0 : (long) ((1 - tokens) / ratePerNano);
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,115 @@
+package com.roc.dscheduler.quartz;
+
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link QuotaAwareDelegate} storing the JobDataMaps of jobs and triggers in the {@link JobDataCodec} encoding instead
+ * of Java serialization: a few bytes per entry instead of the class descriptors of the map and its values, read
+ * without reflection.
+ * <p>
+ * The maps read are {@link LazyJobDataMap}s, decoded when first used: the triggers read to be acquired, and stored
+ * again when fired, are not decoded unless their data is looked at; the maps of a fired trigger and its job are
+ * decoded once, to build the context of the execution. Java-serialized maps written before are still read (and written
+ * in the new encoding when they change), {@code JobDataMigration} converts them all. Nodes without this delegate cannot
+ * read the new encoding, so every node of a cluster must use it before any does. With {@code useProperties} the maps
+ * are stored as properties, as by {@link StdJDBCDelegate}.
+ */
+public class CompactJobDataDelegate extends QuotaAwareDelegate {
+
+    // Compact map read by getObjectFromBlob, set on the job or trigger by the select method that read it
+    private final ThreadLocal<LazyJobDataMap> lastRead = new ThreadLocal<>();
+
+    @Override
+    public JobDetail selectJobDetail(Connection conn, JobKey jobKey, ClassLoadHelper loadHelper)
+            throws ClassNotFoundException, IOException, SQLException {
+        try {
+            JobDetail job = super.selectJobDetail(conn, jobKey, loadHelper);
+            LazyJobDataMap data = lastRead.get();
+            if (job != null && data != null) {
+                ((JobDetailImpl) job).setJobDataMap(data);
+            }
+            return job;
+        } finally {
+            lastRead.remove();
+        }
+    }
+
+    @Override
+    public OperableTrigger selectTrigger(Connection conn, TriggerKey triggerKey)
+            throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        try {
+            OperableTrigger trigger = super.selectTrigger(conn, triggerKey);
+            LazyJobDataMap data = lastRead.get();
+            if (trigger != null && data != null) {
+                trigger.setJobDataMap(data);
+            }
+            return trigger;
+        } finally {
+            lastRead.remove();
+        }
+    }
+
+    @Override
+    public JobDataMap selectTriggerJobDataMap(Connection conn, String triggerName, String groupName)
+            throws SQLException, ClassNotFoundException, IOException {
+        try {
+            JobDataMap map = super.selectTriggerJobDataMap(conn, triggerName, groupName);
+            LazyJobDataMap data = lastRead.get();
+            return data != null ? data : map;
+        } finally {
+            lastRead.remove();
+        }
+    }
+
+    /**
+     * Reads a compact JobDataMap as null, leaving it to the select method to set it without copying it.
+     */
+    @Override
+    protected Object getObjectFromBlob(ResultSet rs, String colName)
+            throws ClassNotFoundException, IOException, SQLException {
+        if (!COL_JOB_DATAMAP.equals(colName) || canUseProperties()) {
+            return super.getObjectFromBlob(rs, colName);
+        }
+        byte[] bytes = rs.getBytes(colName);
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (JobDataCodec.isCompact(bytes)) {
+            lastRead.set(new LazyJobDataMap(bytes));
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    @Override
+    protected ByteArrayOutputStream serializeJobData(JobDataMap data) throws IOException {
+        if (canUseProperties()) {
+            return super.serializeJobData(data);
+        }
+        byte[] bytes = data instanceof LazyJobDataMap ? ((LazyJobDataMap) data).unchangedEncoding() : null;
+        if (bytes == null) {
+            bytes = JobDataCodec.encode(data == null ? null : data.getWrappedMap());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        out.write(bytes, 0, bytes.length);
+        return out;
+    }
+}
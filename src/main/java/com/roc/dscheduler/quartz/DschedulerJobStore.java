@@ -0,0 +1,795 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.entity.NodeLoad;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.JobDetail;
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.SchedulerStateRecord;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JobStoreTX} instrumented with Micrometer: latency of the job store calls on the fire path and the size of
+ * every trigger acquisition batch.
+ * <p>
+ * Quartz instantiates the job store itself, so meters go to {@link Metrics#globalRegistry}, to which Spring Boot adds
+ * its registry ({@code management.metrics.use-global-registry}, enabled by default).
+ * <p>
+ * Acquisition also governs catch-up: a fire later than {@code catchUpThreshold} behind its schedule (after an outage,
+ * a restart or a resume) needs a token of a bucket refilled at {@code catchUpRate} per second. Fires on schedule always
+ * go first, late fires are released by priority, then most late first, and the others are put back for a later
+ * acquisition. The bucket is per node. Triggers carrying {@link #MISFIRE_CAP} in their JobDataMap and ignoring
+ * misfires only replay their last {@code cap} missed fires.
+ * <p>
+ * With {@code batchAutoTune} the batch size and fire-ahead window adapt to the load: a full batch doubles both, up
+ * to the scheduler's {@code batchTriggerAcquisitionMaxCount} and {@code fireAheadMaxWindow}, a batch less than half
+ * full halves them. Triggers of a batch fire together with its first trigger, so up to the window early.
+ * <p>
+ * Trigger groups can be given concurrency limits and weights ({@code groupLimits}, {@code groupWeights}), enforced
+ * when triggers are acquired, see {@link GroupQuotas}. They need {@link QuotaAwareDelegate} as driver delegate. A slot
+ * freed by a group at its limit wakes the scheduler up, so its triggers due do not wait for the next idle poll.
+ * <p>
+ * In a cluster every node publishes its load (busy threads, acquired triggers, CPU, heap) to DS_NODE_LOAD at each
+ * check-in, see {@link NodeLoadMonitor}. While other nodes acquire triggers too, the {@code acquisitionPolicy} sizes
+ * each batch from the loads, so that the triggers due flow to the least loaded nodes.
+ * <p>
+ * With {@code leaseDuration} every instance also holds a short lease, renewed on a connection of
+ * {@code leaseDataSource} kept for it, and an instance whose lease expired is recovered right away rather than after
+ * missing its check-in, see {@link NodeLeases}.
+ * <p>
+ * With {@code schedulingDataSource} the calls of the fire path (acquiring, firing, releasing and completing triggers,
+ * check-in and misfire recovery) take their connections from that data source, so a burst of job
+ * management calls on {@code dataSource} cannot delay fires into misfires.
+ * <p>
+ * The completion of an {@link com.roc.dscheduler.job.AsyncJob} execution is recorded once its future completed, see
+ * {@link AsyncExecutions}. On shutdown the store waits up to {@code asyncShutdownTimeout} for the executions in
+ * flight, the fired triggers of those still running are left to recovery.
+ */
+public class DschedulerJobStore extends JobStoreTX {
+
+    /**
+     * Trigger JobDataMap key: maximum number of missed fires replayed by a trigger ignoring misfires.
+     */
+    public static final String MISFIRE_CAP = "misfireCap";
+
+    private static final int MAX_MISSED_SCAN = 100_000;
+    private static final long MIN_TUNED_WINDOW = 10;
+    private static final ThreadLocal<Boolean> firePath = new ThreadLocal<>();
+
+    private double catchUpRate = 20;
+    private int catchUpBurst = 50;
+    private long catchUpThreshold = 60_000;
+    private int catchUpScanSize = 20;
+    private boolean batchAutoTune;
+    private long fireAheadMaxWindow = 500;
+    private long asyncTimeout = 3_600_000;
+    private int asyncMaxInFlight = 10_000;
+    private int asyncCompletionThreads = 4;
+    private long asyncShutdownTimeout = 30_000;
+    private String groupLimits;
+    private String groupWeights;
+    private int defaultGroupWeight = 1;
+    private int groupScanSize = 100;
+    private String acquisitionPolicy;
+    private long leaseDuration;
+    private long leaseRenewInterval = 1000;
+    private String leaseDataSource;
+    private String schedulingDataSource;
+
+    private volatile int tunedMaxCount = 1;
+    private volatile long tunedTimeWindow;
+
+    private CatchUpGovernor governor;
+    private SchedulerSignaler signaler;
+    private NodeLoadMonitor loadMonitor;
+    private AcquisitionPolicy policy;
+    private NodeLeases leases;
+    private int threadPoolSize;
+    private final Map<String, Long> firedTokens = new ConcurrentHashMap<>(); // fireInstanceId -> fencing token
+    private final Set<String> leaseExpired = ConcurrentHashMap.newKeySet();
+    private volatile boolean halted;
+    private Counter deferred;
+
+    private Timer acquireTimer;
+    private Timer firedTimer;
+    private Timer completeTimer;
+    private Timer releaseTimer;
+    private Timer checkinTimer;
+    private DistributionSummary acquireBatch;
+
+    @Override
+    public void initialize(ClassLoadHelper classLoadHelper, SchedulerSignaler signaler) throws SchedulerConfigException {
+        acquireTimer = callTimer("acquireNextTriggers");
+        firedTimer = callTimer("triggersFired");
+        completeTimer = callTimer("triggeredJobComplete");
+        releaseTimer = callTimer("releaseAcquiredTrigger");
+        checkinTimer = callTimer("clusterCheckin");
+        acquireBatch = DistributionSummary.builder("dscheduler.jobstore.acquire.batch")
+                .description("Triggers acquired per acquisition")
+                .tag("scheduler", getInstanceName())
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100, 200, 500)
+                .register(Metrics.globalRegistry);
+        deferred = Counter.builder("dscheduler.jobstore.catchup.deferred")
+                .description("Late fires put back because the catch-up rate was exhausted")
+                .tag("scheduler", getInstanceName())
+                .register(Metrics.globalRegistry);
+        governor = new CatchUpGovernor(catchUpRate, catchUpBurst);
+        this.signaler = signaler;
+        try {
+            GroupQuotas.configure(groupLimits, groupWeights, defaultGroupWeight, groupScanSize);
+        } catch (IllegalArgumentException e) {
+            throw new SchedulerConfigException(e.getMessage(), e);
+        }
+        if (GroupQuotas.isEnabled() && !isQuotaAware(getDriverDelegateClass())) {
+            getLog().warn("Group quotas are configured but the driver delegate is not a {}, they are not enforced",
+                    QuotaAwareDelegate.class.getSimpleName());
+        }
+        if (acquisitionPolicy != null && !acquisitionPolicy.trim().isEmpty()) {
+            try {
+                policy = classLoadHelper.loadClass(acquisitionPolicy.trim()).asSubclass(AcquisitionPolicy.class)
+                        .getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new SchedulerConfigException("Cannot create acquisition policy " + acquisitionPolicy, e);
+            }
+        }
+        if (isClustered() && leaseDuration > 0) {
+            try {
+                leases = new NodeLeases(this, getInstanceName(), getInstanceId(), leaseDuration, leaseRenewInterval);
+            } catch (IllegalArgumentException e) {
+                throw new SchedulerConfigException(e.getMessage(), e);
+            }
+        }
+        AsyncExecutions.configure(asyncTimeout, asyncMaxInFlight, asyncCompletionThreads);
+        Gauge.builder("dscheduler.async.inflight", AsyncExecutions::inFlight)
+                .description("Async job executions whose future has not completed, on the whole node")
+                .register(Metrics.globalRegistry);
+        if (batchAutoTune) {
+            Gauge.builder("dscheduler.jobstore.batch.size", this, store -> store.tunedMaxCount)
+                    .description("Auto-tuned maximum number of triggers per acquisition")
+                    .tag("scheduler", getInstanceName())
+                    .register(Metrics.globalRegistry);
+            Gauge.builder("dscheduler.jobstore.batch.window", this, store -> store.tunedTimeWindow)
+                    .description("Auto-tuned fire-ahead window of an acquisition")
+                    .tag("scheduler", getInstanceName())
+                    .baseUnit("milliseconds")
+                    .register(Metrics.globalRegistry);
+        }
+        super.initialize(classLoadHelper, signaler);
+        loadMonitor = new NodeLoadMonitor(getInstanceName(), getInstanceId(), getTablePrefix());
+        loadMonitor.setPoolSize(threadPoolSize);
+    }
+
+    @Override
+    public void setThreadPoolSize(int poolSize) {
+        super.setThreadPoolSize(poolSize);
+        threadPoolSize = poolSize;
+        if (loadMonitor != null) {
+            loadMonitor.setPoolSize(poolSize);
+        }
+    }
+
+    @Override
+    public void schedulerStarted() throws SchedulerException {
+        loadMonitor.setActive(true);
+        super.schedulerStarted();
+        if (leases != null) {
+            leases.start();
+        }
+    }
+
+    @Override
+    public void schedulerPaused() {
+        loadMonitor.setActive(false);
+        super.schedulerPaused();
+    }
+
+    @Override
+    public void schedulerResumed() {
+        loadMonitor.setActive(true);
+        super.schedulerResumed();
+    }
+
+    @Override
+    public void shutdown() {
+        awaitAsyncExecutions();
+        if (leases != null) {
+            leases.stop();
+        }
+        halted = true;
+        super.shutdown();
+        for (String dataSource : new String[]{schedulingDataSource, leaseDataSource}) {
+            if (dataSource != null) {
+                try {
+                    DBConnectionManager.getInstance().shutdown(dataSource);
+                } catch (SQLException e) {
+                    getLog().warn("Database connection shutdown unsuccessful.", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        maxCount = applyPolicy(maxCount);
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            if (!batchAutoTune) {
+                List<OperableTrigger> acquired = acquireGoverned(noLaterThan, maxCount, timeWindow);
+                acquireBatch.record(acquired.size());
+                return acquired;
+            }
+            int batchSize = Math.min(maxCount, tunedMaxCount);
+            List<OperableTrigger> acquired = acquireGoverned(noLaterThan, batchSize,
+                    Math.max(timeWindow, tunedTimeWindow));
+            acquireBatch.record(acquired.size());
+            tuneBatch(acquired.size(), batchSize, maxCount);
+            return acquired;
+        } finally {
+            exitFirePath(entered);
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) throws JobPersistenceException {
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            List<TriggerFiredResult> results = super.triggersFired(triggers);
+            for (int i = 0; i < results.size(); i++) {
+                boolean fired = results.get(i).getTriggerFiredBundle() != null;
+                loadMonitor.fired(triggers.get(i), fired);
+                if (fired && leases != null) {
+                    firedTokens.put(triggers.get(i).getFireInstanceId(), leases.fencingToken());
+                }
+            }
+            return results;
+        } finally {
+            exitFirePath(entered);
+            firedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                                     CompletedExecutionInstruction triggerInstCode) {
+        String fireInstanceId = trigger.getFireInstanceId();
+        if (!AsyncExecutions.whenComplete(fireInstanceId, failure -> completeAsync(trigger, jobDetail, triggerInstCode))) {
+            complete(trigger, jobDetail, triggerInstCode);
+        }
+    }
+
+    private void completeAsync(OperableTrigger trigger, JobDetail jobDetail,
+                               CompletedExecutionInstruction triggerInstCode) {
+        try {
+            if (halted) {
+                getLog().warn("Async execution {} of {} completed after shutdown, left to recovery",
+                        trigger.getFireInstanceId(), jobDetail.getKey());
+            } else {
+                complete(trigger, jobDetail, triggerInstCode);
+            }
+        } finally {
+            AsyncExecutions.remove(trigger.getFireInstanceId());
+        }
+    }
+
+    private void complete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            Long token = firedTokens.remove(trigger.getFireInstanceId());
+            if (token != null && token != leases.fencingToken()) {
+                getLog().warn("Execution {} of {} completed after this node was fenced off, its fired trigger was "
+                        + "recovered by another node", trigger.getFireInstanceId(), jobDetail.getKey());
+                return;
+            }
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+        } finally {
+            exitFirePath(entered);
+            completeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            loadMonitor.completed();
+            releaseQuota(trigger);
+        }
+    }
+
+    @Override
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            super.releaseAcquiredTrigger(trigger);
+        } finally {
+            exitFirePath(entered);
+            releaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            loadMonitor.released(trigger);
+            releaseQuota(trigger);
+        }
+    }
+
+    /**
+     * Releases acquired triggers in a single transaction holding the TRIGGER_ACCESS lock.
+     */
+    private void releaseAcquiredTriggers(List<OperableTrigger> triggers) {
+        if (triggers.isEmpty()) {
+            return;
+        }
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            retryExecuteInNonManagedTXLock(LOCK_TRIGGER_ACCESS, conn -> {
+                for (OperableTrigger trigger : triggers) {
+                    releaseAcquiredTrigger(conn, trigger);
+                }
+                return null;
+            });
+        } finally {
+            exitFirePath(entered);
+            releaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (OperableTrigger trigger : triggers) {
+                loadMonitor.released(trigger);
+                releaseQuota(trigger);
+            }
+        }
+    }
+
+    private void releaseQuota(OperableTrigger trigger) {
+        if (GroupQuotas.release(trigger.getFireInstanceId()) && !halted) {
+            signaler.signalSchedulingChange(0L);
+        }
+    }
+
+    private static boolean isQuotaAware(String delegateClassName) {
+        try {
+            return delegateClassName != null
+                    && QuotaAwareDelegate.class.isAssignableFrom(Class.forName(delegateClassName));
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean doCheckin() throws JobPersistenceException {
+        boolean entered = enterFirePath();
+        long start = System.nanoTime();
+        try {
+            boolean recovered = super.doCheckin();
+            publishLoad();
+            return recovered;
+        } finally {
+            exitFirePath(entered);
+            checkinTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    protected RecoverMisfiredJobsResult doRecoverMisfires() throws JobPersistenceException {
+        boolean entered = enterFirePath();
+        try {
+            return super.doRecoverMisfires();
+        } finally {
+            exitFirePath(entered);
+        }
+    }
+
+    /**
+     * Takes the connections of the fire path from the scheduling data source, with the same settings as
+     * {@link #getConnection()}.
+     */
+    @Override
+    protected Connection getNonManagedTXConnection() throws JobPersistenceException {
+        if (firePath.get() == null) {
+            return super.getNonManagedTXConnection();
+        }
+        Connection conn;
+        try {
+            conn = DBConnectionManager.getInstance().getConnection(schedulingDataSource);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Failed to obtain DB connection from data source '"
+                    + schedulingDataSource + "': " + e, e);
+        }
+        if (conn == null) {
+            throw new JobPersistenceException("Could not get connection from DataSource '" + schedulingDataSource
+                    + "'");
+        }
+        conn = getAttributeRestoringConnection(conn);
+        try {
+            if (!isDontSetAutoCommitFalse()) {
+                conn.setAutoCommit(false);
+            }
+            if (isTxIsolationLevelSerializable()) {
+                conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            }
+        } catch (SQLException e) {
+            closeConnection(conn);
+            throw new JobPersistenceException("Failure setting up connection.", e);
+        }
+        return conn;
+    }
+
+    private boolean enterFirePath() {
+        if (schedulingDataSource == null || firePath.get() != null) {
+            return false;
+        }
+        firePath.set(Boolean.TRUE);
+        return true;
+    }
+
+    private static void exitFirePath(boolean entered) {
+        if (entered) {
+            firePath.remove();
+        }
+    }
+
+    /**
+     * Opens the connection the lease keeps for its renewals, from {@code leaseDataSource}, else from the data source
+     * of the fire path.
+     */
+    Connection openLeaseConnection() throws SQLException {
+        String dataSource = leaseDataSource != null ? leaseDataSource
+                : schedulingDataSource != null ? schedulingDataSource : getDataSource();
+        Connection conn = DBConnectionManager.getInstance().getConnection(dataSource);
+        if (conn == null) {
+            throw new SQLException("Could not get connection from DataSource '" + dataSource + "'");
+        }
+        conn.setAutoCommit(false);
+        return conn;
+    }
+
+    /**
+     * Runs the cluster recovery of an instance whose lease expired, as the Quartz cluster manager would once the
+     * instance missed its check-in: its fired triggers are released or recovered and its scheduler state removed.
+     */
+    void recoverInstance(String instanceId) {
+        if (halted || instanceId.equals(getInstanceId())) {
+            return;
+        }
+        leaseExpired.add(instanceId);
+        try {
+            if (doCheckin()) {
+                getLog().info("Recovered instance {} of {} after its lease expired", instanceId, getInstanceName());
+                // As the cluster manager does after a recovery, so the recovered triggers fire without waiting
+                signaler.signalSchedulingChange(0L);
+            }
+        } catch (JobPersistenceException e) {
+            getLog().warn("Recovery of instance {} failed, left to the next check-in: {}", instanceId, e.getMessage());
+        } finally {
+            leaseExpired.remove(instanceId);
+        }
+    }
+
+    @Override
+    protected List<SchedulerStateRecord> findFailedInstances(Connection conn) throws JobPersistenceException {
+        List<SchedulerStateRecord> failed = super.findFailedInstances(conn);
+        if (leaseExpired.isEmpty()) {
+            return failed;
+        }
+        Set<String> failedIds = new HashSet<>();
+        failed.forEach(record -> failedIds.add(record.getSchedulerInstanceId()));
+        try {
+            for (SchedulerStateRecord record : getDelegate().selectSchedulerStateRecords(conn, null)) {
+                String id = record.getSchedulerInstanceId();
+                if (leaseExpired.contains(id) && !id.equals(getInstanceId()) && failedIds.add(id)) {
+                    failed.add(record);
+                }
+            }
+        } catch (Exception e) {
+            throw new JobPersistenceException("Failure reading the scheduler states: " + e.getMessage(), e);
+        }
+        return failed;
+    }
+
+    /**
+     * Publishes this node's load and reads its peers'. A failure only leaves the policy with the previous loads.
+     */
+    private void publishLoad() {
+        try {
+            executeWithoutLock(conn -> {
+                try {
+                    loadMonitor.checkin(conn);
+                    return null;
+                } catch (SQLException e) {
+                    throw new JobPersistenceException("Failure publishing the node load: " + e.getMessage(), e);
+                }
+            });
+        } catch (JobPersistenceException e) {
+            getLog().warn(e.getMessage());
+        }
+    }
+
+    /**
+     * Lets the acquisition policy shrink the batch while other nodes acquire too. Never waits: this runs on the
+     * scheduler thread, and the peer loads are only as recent as their last check-in.
+     *
+     * @return the batch size to acquire at most.
+     */
+    private int applyPolicy(int maxCount) {
+        List<NodeLoad> peers = loadMonitor.peers();
+        if (policy == null || peers.isEmpty()) {
+            return maxCount;
+        }
+        return Math.max(1, Math.min(maxCount, policy.batchSize(loadMonitor.sample(), peers, maxCount)));
+    }
+
+    private void awaitAsyncExecutions() {
+        long deadline = System.currentTimeMillis() + asyncShutdownTimeout;
+        int pending = AsyncExecutions.pending(getInstanceName());
+        if (pending > 0) {
+            getLog().info("Waiting for {} async executions to complete", pending);
+        }
+        while (pending > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pending = AsyncExecutions.pending(getInstanceName());
+        }
+        if (pending > 0) {
+            getLog().warn("{} async executions still running at shutdown, left to recovery", pending);
+        }
+    }
+
+    /**
+     * Grows the batch and window after a full batch, shrinks them after a batch less than half full.
+     *
+     * @param acquired  triggers acquired.
+     * @param batchSize batch size of the acquisition.
+     * @param maxCount  current upper bound: free threads, at most batchTriggerAcquisitionMaxCount.
+     */
+    private void tuneBatch(int acquired, int batchSize, int maxCount) {
+        if (acquired >= batchSize) {
+            tunedMaxCount = Math.max(1, Math.min(maxCount, batchSize * 2));
+            tunedTimeWindow = Math.min(fireAheadMaxWindow, Math.max(MIN_TUNED_WINDOW, tunedTimeWindow * 2));
+        } else if (acquired <= batchSize / 2) {
+            tunedMaxCount = Math.max(1, batchSize / 2);
+            tunedTimeWindow = tunedTimeWindow / 2 < MIN_TUNED_WINDOW ? 0 : tunedTimeWindow / 2;
+        }
+    }
+
+    /**
+     * Acquires the next triggers and holds back late fires without a catch-up token. While a catch-up is running,
+     * more triggers are scanned, up to the tokens available and at most {@code catchUpScanSize}, so the late fires
+     * can be ordered by priority beyond a single batch. The triggers held back are released together in one
+     * transaction. Waits for a token instead of returning an empty batch, which would make the scheduler thread idle
+     * for its full wait time.
+     */
+    private List<OperableTrigger> acquireGoverned(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        while (true) {
+            int scanSize = governor.isThrottling()
+                    ? Math.max(maxCount, Math.min(catchUpScanSize, maxCount + governor.available())) : maxCount;
+            List<OperableTrigger> candidates;
+            try {
+                candidates = super.acquireNextTriggers(noLaterThan, scanSize, timeWindow);
+                candidates.forEach(GroupQuotas::acquired);
+            } finally {
+                if (GroupQuotas.releaseReserved() && !halted) {
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+            long now = System.currentTimeMillis();
+            List<OperableTrigger> acquired = new ArrayList<>(Math.min(maxCount, candidates.size()));
+            List<OperableTrigger> surplus = new ArrayList<>();
+            List<LateFire> late = new ArrayList<>();
+            for (OperableTrigger trigger : candidates) {
+                capMissedFires(trigger, now);
+                long lateness = lateness(trigger, now);
+                if (lateness > catchUpThreshold) {
+                    late.add(new LateFire(trigger, lateness));
+                } else if (acquired.size() < maxCount) {
+                    acquired.add(trigger);
+                } else {
+                    surplus.add(trigger);
+                }
+            }
+
+            late.sort(LateFire.ORDER);
+            boolean throttled = false;
+            for (LateFire lateFire : late) {
+                OperableTrigger trigger = lateFire.trigger;
+                if (acquired.size() >= maxCount) {
+                    surplus.add(trigger);
+                } else if (governor.tryAcquire()) {
+                    acquired.add(trigger);
+                } else {
+                    throttled = true;
+                    surplus.add(trigger);
+                    deferred.increment();
+                }
+            }
+            releaseAcquiredTriggers(surplus);
+            if (!acquired.isEmpty() || !throttled || halted) {
+                return held(acquired);
+            }
+            try {
+                governor.awaitToken();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return held(acquired);
+            }
+        }
+    }
+
+    private List<OperableTrigger> held(List<OperableTrigger> acquired) {
+        loadMonitor.acquired(acquired);
+        return acquired;
+    }
+
+    /**
+     * @return how late the fire is: behind now for a trigger ignoring misfires, behind its regular fire time for a
+     * trigger the misfire handler moved off its schedule (fire now).
+     */
+    private static long lateness(OperableTrigger trigger, long now) {
+        Date nextFireTime = trigger.getNextFireTime();
+        long lateness = now - nextFireTime.getTime();
+        if (!nextFireTime.equals(trigger.getFireTimeAfter(new Date(nextFireTime.getTime() - 1)))) {
+            Date after = trigger.getPreviousFireTime() != null ? trigger.getPreviousFireTime()
+                    : new Date(trigger.getStartTime().getTime() - 1);
+            Date regular = trigger.getFireTimeAfter(after);
+            if (regular != null) {
+                lateness = Math.max(lateness, nextFireTime.getTime() - regular.getTime());
+            }
+        }
+        return lateness;
+    }
+
+    /**
+     * Skips all but the last {@code cap} missed fires of a capped trigger.
+     */
+    private static void capMissedFires(OperableTrigger trigger, long now) {
+        if (trigger.getMisfireInstruction() != Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY
+                || !trigger.getJobDataMap().containsKey(MISFIRE_CAP)) {
+            return;
+        }
+        int cap = Math.max(0, trigger.getJobDataMap().getInt(MISFIRE_CAP));
+        Deque<Date> lastMissed = new ArrayDeque<>();
+        Date fireTime = trigger.getNextFireTime();
+        int missed = 0;
+        while (fireTime != null && fireTime.getTime() < now && missed < MAX_MISSED_SCAN) {
+            if (cap > 0) {
+                if (lastMissed.size() == cap) {
+                    lastMissed.removeFirst();
+                }
+                lastMissed.addLast(fireTime);
+            }
+            missed++;
+            fireTime = trigger.getFireTimeAfter(fireTime);
+        }
+        Date next = lastMissed.isEmpty() ? fireTime : lastMissed.getFirst();
+        if (missed > cap && next != null) {
+            trigger.setNextFireTime(next);
+        }
+    }
+
+    private static final class LateFire {
+
+        static final Comparator<LateFire> ORDER = Comparator.<LateFire>comparingInt(fire -> fire.trigger.getPriority())
+                .reversed()
+                .thenComparing(Comparator.<LateFire>comparingLong(fire -> fire.lateness).reversed());
+
+        final OperableTrigger trigger;
+        final long lateness;
+
+        LateFire(OperableTrigger trigger, long lateness) {
+            this.trigger = trigger;
+            this.lateness = lateness;
+        }
+    }
+
+    // Catch-up settings, set by StdSchedulerFactory from org.quartz.jobStore.*
+
+    public void setCatchUpRate(double catchUpRate) {
+        this.catchUpRate = catchUpRate;
+    }
+
+    public void setCatchUpBurst(int catchUpBurst) {
+        this.catchUpBurst = catchUpBurst;
+    }
+
+    public void setCatchUpThreshold(long catchUpThreshold) {
+        this.catchUpThreshold = catchUpThreshold;
+    }
+
+    public void setCatchUpScanSize(int catchUpScanSize) {
+        this.catchUpScanSize = catchUpScanSize;
+    }
+
+    public void setBatchAutoTune(boolean batchAutoTune) {
+        this.batchAutoTune = batchAutoTune;
+    }
+
+    public void setFireAheadMaxWindow(long fireAheadMaxWindow) {
+        this.fireAheadMaxWindow = fireAheadMaxWindow;
+    }
+
+    // Async job settings, shared by the whole node, see AsyncExecutions
+
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public void setAsyncMaxInFlight(int asyncMaxInFlight) {
+        this.asyncMaxInFlight = asyncMaxInFlight;
+    }
+
+    public void setAsyncCompletionThreads(int asyncCompletionThreads) {
+        this.asyncCompletionThreads = asyncCompletionThreads;
+    }
+
+    public void setAsyncShutdownTimeout(long asyncShutdownTimeout) {
+        this.asyncShutdownTimeout = asyncShutdownTimeout;
+    }
+
+    public void setGroupLimits(String groupLimits) {
+        this.groupLimits = groupLimits;
+    }
+
+    public void setGroupWeights(String groupWeights) {
+        this.groupWeights = groupWeights;
+    }
+
+    public void setDefaultGroupWeight(int defaultGroupWeight) {
+        this.defaultGroupWeight = defaultGroupWeight;
+    }
+
+    public void setGroupScanSize(int groupScanSize) {
+        this.groupScanSize = groupScanSize;
+    }
+
+    // Load-aware acquisition across the cluster, see AcquisitionPolicy
+
+    public void setAcquisitionPolicy(String acquisitionPolicy) {
+        this.acquisitionPolicy = acquisitionPolicy;
+    }
+
+    // Node leases for fast failover, see NodeLeases
+
+    public void setLeaseDuration(long leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+
+    public void setLeaseRenewInterval(long leaseRenewInterval) {
+        this.leaseRenewInterval = leaseRenewInterval;
+    }
+
+    public void setLeaseDataSource(String leaseDataSource) {
+        this.leaseDataSource = leaseDataSource == null || leaseDataSource.trim().isEmpty()
+                ? null : leaseDataSource.trim();
+    }
+
+    // Connections of the fire path
+
+    public void setSchedulingDataSource(String schedulingDataSource) {
+        this.schedulingDataSource = schedulingDataSource == null || schedulingDataSource.trim().isEmpty()
+                ? null : schedulingDataSource.trim();
+    }
+
+    private Timer callTimer(String operation) {
+        return Timer.builder("dscheduler.jobstore.calls")
+                .description("Job store call latency, including lock waits and retries")
+                .tag("scheduler", getInstanceName())
+                .tag("operation", operation)
+                .register(Metrics.globalRegistry);
+    }
+}
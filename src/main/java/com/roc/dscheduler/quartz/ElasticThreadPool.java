@@ -0,0 +1,307 @@
+package com.roc.dscheduler.quartz;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quartz {@link ThreadPool} that does not pin a fixed number of platform threads.
+ * <p>
+ * Capacity is always {@code maxThreads} concurrent executions, and {@link #blockForAvailableThreads()} reports the
+ * free capacity exactly, so the scheduler never acquires more triggers than it can run. How executions are run
+ * depends on the mode:
+ * <ul>
+ *     <li>{@code elastic}: platform threads, started on demand up to {@code maxThreads} and stopped again after
+ *     {@code keepAliveSeconds} idle, never below {@code minThreads}.</li>
+ *     <li>{@code virtual}: one virtual thread per execution (Java 21+). Blocking jobs then cost no platform thread.</li>
+ *     <li>{@code auto} (default): virtual when the runtime supports it, elastic otherwise.</li>
+ * </ul>
+ * Configured through {@code org.quartz.threadPool.*} properties, see application.yml. Busy and idle capacity are
+ * published as gauges to {@link Metrics#globalRegistry}, like {@link DschedulerJobStore}.
+ */
+public class ElasticThreadPool implements ThreadPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ElasticThreadPool.class);
+
+    private int minThreads = 10;
+    private int maxThreads;
+    private int threadCount = 10;
+    private int keepAliveSeconds = 60;
+    private String mode = "auto";
+    private String threadNamePrefix;
+    private String instanceName = "QuartzScheduler";
+
+    private ExecutorService executor;
+    private boolean virtual;
+    private final AtomicInteger busy = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private volatile boolean shutdown;
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (maxThreads <= 0) {
+            maxThreads = threadCount;
+        }
+        if (maxThreads <= 0) {
+            throw new SchedulerConfigException("maxThreads must be > 0");
+        }
+        minThreads = Math.min(minThreads, maxThreads);
+        if (minThreads < 0) {
+            throw new SchedulerConfigException("minThreads must be >= 0");
+        }
+        if (threadNamePrefix == null) {
+            threadNamePrefix = instanceName + "_Worker-";
+        }
+
+        String resolvedMode = mode.trim().toLowerCase();
+        if ("auto".equals(resolvedMode)) {
+            resolvedMode = isVirtualThreadSupported() ? "virtual" : "elastic";
+        }
+        switch (resolvedMode) {
+            case "virtual":
+                try {
+                    executor = newVirtualThreadExecutor(threadNamePrefix);
+                    virtual = true;
+                } catch (SchedulerConfigException e) {
+                    if (!"auto".equals(mode.trim().toLowerCase())) {
+                        throw e;
+                    }
+                    log.warn("Virtual threads unavailable, falling back to elastic mode: {}", e.getCause().toString());
+                    resolvedMode = "elastic";
+                    executor = newElasticExecutor();
+                }
+                break;
+            case "elastic":
+                executor = newElasticExecutor();
+                break;
+            default:
+                throw new SchedulerConfigException("Unknown thread pool mode '" + mode + "', use auto, elastic or virtual");
+        }
+        registerGauges();
+        log.info("Quartz thread pool '{}' initialized in {} mode with capacity {}", instanceName, resolvedMode, maxThreads);
+    }
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            while (busy.get() >= maxThreads && !shutdown) {
+                available.awaitUninterruptibly();
+            }
+            if (shutdown) {
+                return false;
+            }
+            busy.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            release();
+            log.error("Execution rejected by thread pool '{}'", instanceName, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        lock.lock();
+        try {
+            while (busy.get() >= maxThreads && !shutdown) {
+                available.awaitUninterruptibly();
+            }
+            return Math.max(0, maxThreads - busy.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        lock.lock();
+        try {
+            shutdown = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (waitForJobsToComplete) {
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    log.debug("Waiting for {} running jobs of thread pool '{}' to complete", busy.get(), instanceName);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxThreads;
+    }
+
+    /**
+     * @return the number of executions currently running.
+     */
+    public int getBusyThreadCount() {
+        return busy.get();
+    }
+
+    /**
+     * @return the number of platform threads currently alive in elastic mode, the running executions in virtual mode.
+     */
+    public int getCurrentThreadCount() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getPoolSize() : busy.get();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    // Configuration properties, set by StdSchedulerFactory from org.quartz.threadPool.*
+
+    public void setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * SimpleThreadPool property, used as maxThreads when maxThreads is not set. SchedulerFactoryBean always passes it.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    private void registerGauges() {
+        Gauge.builder("dscheduler.threadpool.busy", this, ElasticThreadPool::getBusyThreadCount)
+                .description("Executions currently running")
+                .tag("scheduler", instanceName)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("dscheduler.threadpool.idle", this, pool -> pool.maxThreads - pool.getBusyThreadCount())
+                .description("Free execution capacity")
+                .tag("scheduler", instanceName)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("dscheduler.threadpool.threads", this, ElasticThreadPool::getCurrentThreadCount)
+                .description("Live worker threads")
+                .tag("scheduler", instanceName)
+                .register(Metrics.globalRegistry);
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            busy.decrementAndGet();
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Core threads are kept alive, extra threads up to maxThreads are started on demand and time out when idle.
+     * A permit is released just before its thread goes back to the pool, so a hand-off can briefly find no idle
+     * thread at the maximum size: it then waits for that thread instead of being rejected.
+     */
+    private ExecutorService newElasticExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+        return new ThreadPoolExecutor(minThreads, maxThreads, keepAliveSeconds, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, (r, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Thread pool is shut down");
+            }
+            try {
+                pool.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        });
+    }
+
+    /**
+     * Virtual threads are final from Java 21. Java 19 and 20 already have {@code Thread.ofVirtual}, but as a preview
+     * API that fails without {@code --enable-preview}, so the runtime version is checked rather than the method.
+     * {@code Runtime.version().feature()} is read through reflection, the project still compiles for Java 8.
+     */
+    static boolean isVirtualThreadSupported() {
+        try {
+            Object version = Runtime.class.getMethod("version").invoke(null);
+            int feature = (Integer) version.getClass().getMethod("feature").invoke(version);
+            return feature >= 21;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())} through
+     * reflection, so the project still compiles for Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor(String threadNamePrefix) throws SchedulerConfigException {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new SchedulerConfigException("Virtual threads require Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.roc.dscheduler.quartz;
+
+import org.quartz.TriggerKey;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limits and weights of trigger groups on this node, and the executions each group holds.
+ * <p>
+ * A group at its limit is left out of trigger acquisition by {@link QuotaAwareDelegate}, and the triggers due are
+ * shared between the other groups in proportion to their weights: each slot goes to the group with the lowest
+ * running executions per weight. A group without triggers due does not use its share, so the others get it.
+ * <p>
+ * An execution holds its slot from the acquisition of its trigger to its completion ({@link DschedulerJobStore}
+ * counts them), async executions included. The slot is reserved when the trigger is selected, with a compare and set
+ * on the group's count, so job stores acquiring at the same time cannot pass a limit together: the acquisition then
+ * binds the slot to the fired trigger, and gives back the slots of the triggers it did not acquire. The groups of a partition are run by the partition's owner only, so the
+ * limits are per node. Like {@link AsyncExecutions} the quotas are shared by the job stores of the node, configured
+ * from {@code org.quartz.jobStore.groupLimits}, {@code groupWeights} and {@code defaultGroupWeight}.
+ */
+public final class GroupQuotas {
+
+    private static final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private static final Map<String, String> held = new ConcurrentHashMap<>(); // fireInstanceId -> group
+    private static final ThreadLocal<Map<String, Integer>> reserved = ThreadLocal.withInitial(HashMap::new);
+
+    private static volatile Map<String, Integer> limits = Collections.emptyMap();
+    private static volatile Map<String, Integer> weights = Collections.emptyMap();
+    private static volatile int defaultWeight = 1;
+    private static volatile int scanSize = 100;
+
+    private GroupQuotas() {
+    }
+
+    /**
+     * Sets the quotas. Called by every job store on startup.
+     *
+     * @param limits        "group=limit" pairs, comma separated.
+     * @param weights       "group=weight" pairs, comma separated.
+     * @param defaultWeight weight of the groups not listed.
+     * @param scanSize      triggers due read per acquisition to share out between the groups.
+     * @throws IllegalArgumentException if a pair is malformed or a value not positive.
+     */
+    static synchronized void configure(String limits, String weights, int defaultWeight, int scanSize) {
+        GroupQuotas.limits = parse(limits, "groupLimits");
+        GroupQuotas.weights = parse(weights, "groupWeights");
+        GroupQuotas.defaultWeight = Math.max(1, defaultWeight);
+        GroupQuotas.scanSize = Math.max(1, scanSize);
+    }
+
+    /**
+     * @return true if acquisition must consider the groups: limits are set or weights differ.
+     */
+    static boolean isEnabled() {
+        return !limits.isEmpty() || !weights.isEmpty();
+    }
+
+    /**
+     * @return how many triggers due to read for an acquisition of {@code maxCount}.
+     */
+    static int scanSize(int maxCount) {
+        return Math.max(maxCount, scanSize);
+    }
+
+    /**
+     * @return the groups at their limit, to leave out of the acquisition.
+     */
+    static Set<String> saturatedGroups() {
+        Set<String> saturated = new HashSet<>();
+        limits.forEach((group, limit) -> {
+            if (running(group) >= limit) {
+                saturated.add(group);
+            }
+        });
+        return saturated;
+    }
+
+    /**
+     * Picks up to {@code maxCount} triggers by weighted fair share, without exceeding any limit, and reserves a slot
+     * for each until {@link #acquired} or {@link #releaseReserved} on the same thread.
+     *
+     * @param due triggers due, by fire time then priority.
+     * @return the picked triggers, in the same order.
+     */
+    static List<TriggerKey> select(List<TriggerKey> due, int maxCount) {
+        Map<String, Deque<Integer>> byGroup = new LinkedHashMap<>();
+        for (int i = 0; i < due.size(); i++) {
+            byGroup.computeIfAbsent(due.get(i).getGroup(), group -> new ArrayDeque<>()).add(i);
+        }
+        boolean[] selected = new boolean[due.size()];
+        int count = 0;
+        while (count < maxCount && !byGroup.isEmpty()) {
+            String best = null;
+            double bestLoad = Double.MAX_VALUE;
+            for (Iterator<Map.Entry<String, Deque<Integer>>> it = byGroup.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Deque<Integer>> entry = it.next();
+                String group = entry.getKey();
+                int used = running(group);
+                if (used >= limit(group)) {
+                    it.remove();
+                    continue;
+                }
+                // Ties go to the earliest trigger, so equal groups alternate and keep the fire time order
+                double load = (used + 1.0) / weight(group);
+                if (load < bestLoad || (load == bestLoad && entry.getValue().peek() < byGroup.get(best).peek())) {
+                    best = group;
+                    bestLoad = load;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            if (!reserve(best)) {
+                // Another job store took the last slot since
+                byGroup.remove(best);
+                continue;
+            }
+            Deque<Integer> triggers = byGroup.get(best);
+            selected[triggers.poll()] = true;
+            count++;
+            if (triggers.isEmpty()) {
+                byGroup.remove(best);
+            }
+        }
+        List<TriggerKey> selection = new ArrayList<>(count);
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                selection.add(due.get(i));
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Counts an acquired trigger against its group until {@link #release}, in the slot reserved when it was selected
+     * if the thread holds one.
+     */
+    static void acquired(OperableTrigger trigger) {
+        String group = trigger.getKey().getGroup();
+        if (held.putIfAbsent(trigger.getFireInstanceId(), group) != null) {
+            return;
+        }
+        Map<String, Integer> reservations = reserved.get();
+        Integer count = reservations.get(group);
+        if (count == null) {
+            counter(group).incrementAndGet();
+        } else if (count == 1) {
+            reservations.remove(group);
+        } else {
+            reservations.put(group, count - 1);
+        }
+    }
+
+    /**
+     * Gives back the slots the thread reserved for triggers it did not acquire. Called once the acquisition ended.
+     *
+     * @return true if a group was at its limit, so its triggers due may be acquired again.
+     */
+    static boolean releaseReserved() {
+        Map<String, Integer> reservations = reserved.get();
+        if (reservations.isEmpty()) {
+            return false;
+        }
+        boolean freed = false;
+        for (Map.Entry<String, Integer> entry : reservations.entrySet()) {
+            String group = entry.getKey();
+            int count = entry.getValue();
+            freed |= counter(group).getAndAdd(-count) >= limit(group);
+        }
+        reservations.clear();
+        return freed;
+    }
+
+    /**
+     * Gives back the slot of an execution that completed or of a trigger released unfired.
+     *
+     * @return true if the group was at its limit, so its triggers due may be acquired again.
+     */
+    static boolean release(String fireInstanceId) {
+        String group = fireInstanceId == null ? null : held.remove(fireInstanceId);
+        if (group == null) {
+            return false;
+        }
+        AtomicInteger counter = running.get(group);
+        return counter != null && counter.getAndDecrement() >= limit(group);
+    }
+
+    private static boolean reserve(String group) {
+        AtomicInteger counter = counter(group);
+        int limit = limit(group);
+        while (true) {
+            int used = counter.get();
+            if (used >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(used, used + 1)) {
+                reserved.get().merge(group, 1, Integer::sum);
+                return true;
+            }
+        }
+    }
+
+    private static AtomicInteger counter(String group) {
+        return running.computeIfAbsent(group, g -> new AtomicInteger());
+    }
+
+    /**
+     * @return the executions of the group holding a slot on this node, reservations included.
+     */
+    public static int running(String group) {
+        AtomicInteger counter = running.get(group);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @return the concurrency limit of the group on a node, {@link Integer#MAX_VALUE} if none.
+     */
+    public static int limit(String group) {
+        return limits.getOrDefault(group, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the weight of the group.
+     */
+    public static int weight(String group) {
+        return weights.getOrDefault(group, defaultWeight);
+    }
+
+    /**
+     * @return the groups given a limit or a weight.
+     */
+    public static Set<String> configuredGroups() {
+        Set<String> groups = new TreeSet<>(limits.keySet());
+        groups.addAll(weights.keySet());
+        return groups;
+    }
+
+    private static Map<String, Integer> parse(String pairs, String property) {
+        Map<String, Integer> values = new HashMap<>();
+        if (pairs == null || pairs.trim().isEmpty()) {
+            return values;
+        }
+        for (String pair : pairs.split(",")) {
+            int separator = pair.lastIndexOf('=');
+            try {
+                int value = Integer.parseInt(pair.substring(separator + 1).trim());
+                if (separator <= 0 || value <= 0) {
+                    throw new NumberFormatException();
+                }
+                values.put(pair.substring(0, separator).trim(), value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(property + ": expected group=positive number, got '" + pair.trim() + "'");
+            }
+        }
+        return values;
+    }
+}
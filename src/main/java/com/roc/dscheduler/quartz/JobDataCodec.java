@@ -0,0 +1,233 @@
+package com.roc.dscheduler.quartz;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a JobDataMap, stored in the JOB_DATA column by {@link CompactJobDataDelegate}:
+ * <pre>
+ * 'D' 'J' version(1) count(varint) { key(string) type(1) value }*
+ * </pre>
+ * Strings are a varint length and UTF-8, ints and longs zigzag varints, other primitives fixed size. Values of other
+ * types are written Java-serialized, so any map that Quartz could store can be stored, but only those values depend on
+ * their classes staying compatible. An empty map is no bytes at all, read back as an empty map in either encoding.
+ * <p>
+ * The header tells the encoding apart from a Java-serialized map, which starts with {@code 0xACED}.
+ */
+public final class JobDataCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'D';
+    private static final byte MAGIC_1 = 'J';
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INT = 2;
+    private static final int LONG = 3;
+    private static final int BOOLEAN = 4;
+    private static final int DOUBLE = 5;
+    private static final int FLOAT = 6;
+    private static final int CHAR = 7;
+    private static final int SERIALIZED = 8;
+
+    private JobDataCodec() {
+    }
+
+    /**
+     * @return whether the bytes are in this encoding, as opposed to a Java-serialized map.
+     */
+    public static boolean isCompact(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    public static byte[] encode(Map<String, ?> data) throws IOException {
+        if (data == null || data.isEmpty()) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + data.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+        writeVarInt(out, data.size());
+        for (Map.Entry<String, ?> entry : data.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getKey(), entry.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the map, empty for no bytes.
+     */
+    public static Map<String, Object> decode(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            return new HashMap<>();
+        }
+        if (!isCompact(bytes)) {
+            throw new IOException("Not a compact JobDataMap");
+        }
+        int version = bytes[2] & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("JobDataMap encoding version " + version + " is newer than " + VERSION
+                    + ", written by a newer version of the application");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3));
+        int count = readVarInt(in);
+        Map<String, Object> data = new HashMap<>(Math.max(4, count * 4 / 3 + 1));
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            data.put(key, readValue(in));
+        }
+        return data;
+    }
+
+    /**
+     * Reads a map in either encoding, for {@link #isCompact} bytes and Java-serialized maps alike.
+     */
+    public static Map<?, ?> decodeAny(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (bytes == null || bytes.length == 0 || isCompact(bytes)) {
+            return decode(bytes);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Map<?, ?>) in.readObject();
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, String key, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(out, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+                objectOut.writeObject(value);
+            } catch (NotSerializableException e) {
+                throw new NotSerializableException("Unable to serialize JobDataMap for insertion into database "
+                        + "because the value of property '" + key + "' is not serializable: " + e.getMessage());
+            }
+            writeVarInt(out, serialized.size());
+            serialized.writeTo(out);
+        } else {
+            throw new NotSerializableException("Unable to serialize JobDataMap for insertion into database "
+                    + "because the value of property '" + key + "' is not serializable: " + value.getClass());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INT:
+                return (int) unzigzag(readVarLong(in));
+            case LONG:
+                return unzigzag(readVarLong(in));
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case CHAR:
+                return in.readChar();
+            case SERIALIZED:
+                byte[] serialized = new byte[readVarInt(in)];
+                in.readFully(serialized);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                    return objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Class of a JobDataMap value not found: " + e.getMessage(), e);
+                }
+            default:
+                throw new IOException("Unknown JobDataMap value type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readVarInt(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt JobDataMap: length " + value);
+        }
+        return (int) value;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt JobDataMap: varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
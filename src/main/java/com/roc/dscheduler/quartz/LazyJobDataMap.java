@@ -0,0 +1,139 @@
+package com.roc.dscheduler.quartz;
+
+import org.quartz.JobDataMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JobDataMap read by {@link CompactJobDataDelegate}, decoded from its {@link JobDataCodec} bytes the first time it is
+ * used. A trigger or job read without looking at its data never decodes it, and is written back with the bytes it was
+ * read with.
+ * <p>
+ * Every method touching the entries decodes first; {@link #isDirty} does not, decoding does not make a map dirty.
+ */
+class LazyJobDataMap extends JobDataMap {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile byte[] encoded;
+
+    LazyJobDataMap(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * @return the bytes to store the map with, when they are still those it was read with.
+     */
+    byte[] unchangedEncoding() {
+        byte[] bytes = encoded;
+        return bytes != null && !isDirty() ? bytes : null;
+    }
+
+    private void decode() {
+        if (encoded == null) {
+            return;
+        }
+        synchronized (this) {
+            if (encoded != null) {
+                Map<String, Object> decoded;
+                try {
+                    decoded = JobDataCodec.decode(encoded);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not decode JobDataMap", e);
+                }
+                // The typed puts of StringKeyDirtyFlagMap bypass put(String, Object), their entries are newer
+                Map<String, Object> map = super.getWrappedMap();
+                decoded.forEach(map::putIfAbsent);
+                encoded = null;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getWrappedMap() {
+        decode();
+        return super.getWrappedMap();
+    }
+
+    @Override
+    public void clear() {
+        decode();
+        super.clear();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        decode();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object val) {
+        decode();
+        return super.containsValue(val);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        decode();
+        return super.entrySet();
+    }
+
+    @Override
+    public Object get(Object key) {
+        decode();
+        return super.get(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        decode();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        decode();
+        return super.keySet();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        decode();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> t) {
+        decode();
+        super.putAll(t);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        decode();
+        return super.remove(key);
+    }
+
+    @Override
+    public int size() {
+        decode();
+        return super.size();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        decode();
+        return super.values();
+    }
+
+    @Override
+    public Object clone() {
+        decode();
+        return super.clone();
+    }
+}
@@ -0,0 +1,53 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.entity.NodeLoad;
+
+import java.util.List;
+
+/**
+ * Shares the triggers due in proportion to spare capacity: the node with the most spare capacity acquires full
+ * batches, the others shrink their batch to their share of it, down to a single trigger for a node without spare
+ * capacity. A loaded node therefore still acquires, just less, so nothing waits for an idle node that is not polling.
+ * <p>
+ * Spare capacity is the lowest of the free worker threads (executions and acquired triggers against the pool size),
+ * the idle system CPU, and the free heap once more than 70% of it is used.
+ */
+public class LoadAwareAcquisitionPolicy implements AcquisitionPolicy {
+
+    private static final double HEAP_HEADROOM = 0.3;
+
+    @Override
+    public int batchSize(NodeLoad self, List<NodeLoad> peers, int maxCount) {
+        return Math.max(1, (int) Math.ceil(maxCount * share(self, peers)));
+    }
+
+    /**
+     * @return spare capacity of this node relative to the node with the most, from 0 to 1.
+     */
+    private static double share(NodeLoad self, List<NodeLoad> peers) {
+        double spare = spareCapacity(self);
+        double most = spare;
+        for (NodeLoad peer : peers) {
+            most = Math.max(most, spareCapacity(peer));
+        }
+        return most <= 0 ? 1 : spare / most;
+    }
+
+    /**
+     * @return the spare capacity of a node, from 0 (saturated) to 1 (idle).
+     */
+    public static double spareCapacity(NodeLoad load) {
+        double spare = 1;
+        if (load.getPoolSize() > 0) {
+            spare = 1 - Math.min(1, (double) (load.getBusyThreads() + load.getQueueDepth()) / load.getPoolSize());
+        }
+        if (load.getCpuLoad() != null) {
+            spare = Math.min(spare, 1 - load.getCpuLoad());
+        }
+        if (load.getHeapMax() > 0) {
+            double freeHeap = 1 - (double) load.getHeapUsed() / load.getHeapMax();
+            spare = Math.min(spare, Math.min(1, freeHeap / HEAP_HEADROOM));
+        }
+        return Math.max(0, spare);
+    }
+}
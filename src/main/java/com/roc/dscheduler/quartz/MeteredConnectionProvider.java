@@ -0,0 +1,151 @@
+package com.roc.dscheduler.quartz;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Metrics;
+import org.quartz.utils.ConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hikari connection pool of a Quartz data source with its own size and timeouts, whose metrics ({@code hikaricp.*},
+ * tagged with the pool name) go to {@link Metrics#globalRegistry} like those of the Spring data sources. Configured
+ * with {@code org.quartz.dataSource.<name>.connectionProvider.class} and the properties of this class.
+ * <p>
+ * Every scheduler configures its own provider, so the provider of a pool name shares one pool between the
+ * application scheduler and its partitions instead of opening one per scheduler. The pool is closed when the last
+ * scheduler using it shut down.
+ */
+public class MeteredConnectionProvider implements ConnectionProvider {
+
+    private static final Map<String, SharedPool> pools = new HashMap<>();
+
+    private String driver;
+    private String URL;
+    private String user;
+    private String password;
+    private String poolName;
+    private int maxConnections = 10;
+    private int minIdle = -1; // Same as maxConnections
+    private long connectionTimeout = 30_000;
+    private long idleTimeout = 600_000;
+    private long maxLifetime = 1_800_000;
+    private String validationQuery;
+
+    private HikariDataSource dataSource;
+
+    @Override
+    public void initialize() throws SQLException {
+        if (URL == null || poolName == null) {
+            throw new SQLException("URL and poolName are required");
+        }
+        synchronized (pools) {
+            SharedPool pool = pools.get(poolName);
+            if (pool == null) {
+                pool = new SharedPool(createDataSource());
+                pools.put(poolName, pool);
+            }
+            pool.users++;
+            dataSource = pool.dataSource;
+        }
+    }
+
+    private HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+        config.setJdbcUrl(URL);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxConnections);
+        config.setMinimumIdle(minIdle < 0 ? maxConnections : minIdle);
+        config.setConnectionTimeout(connectionTimeout);
+        config.setIdleTimeout(idleTimeout);
+        config.setMaxLifetime(maxLifetime);
+        if (validationQuery != null && !validationQuery.trim().isEmpty()) {
+            config.setConnectionTestQuery(validationQuery);
+        }
+        // Quartz manages its transactions
+        config.setAutoCommit(false);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(Metrics.globalRegistry));
+        return new HikariDataSource(config);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Called by every scheduler using this data source on shutdown.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (pools) {
+            SharedPool pool = pools.get(poolName);
+            if (pool != null && --pool.users == 0) {
+                pools.remove(poolName);
+                pool.dataSource.close();
+            }
+        }
+    }
+
+    public void setDriver(String driver) {
+        this.driver = driver;
+    }
+
+    public void setURL(String URL) {
+        this.URL = URL;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public void setConnectionTimeout(long connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    private static final class SharedPool {
+        final HikariDataSource dataSource;
+        int users;
+
+        SharedPool(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
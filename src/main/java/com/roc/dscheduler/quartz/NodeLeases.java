@@ -0,0 +1,301 @@
+package com.roc.dscheduler.quartz;
+
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liveness of the instances of a clustered scheduler by short leases in DS_NODE_LEASE, so that a failed node is
+ * recovered within a few seconds instead of after a missed Quartz check-in (15 to 30s).
+ * <p>
+ * Every scheduler holds a lease of its own, and renews it every {@code leaseRenewInterval} with a single update of its
+ * heartbeat, leaving the Quartz check-in interval, and its locking, as it is. The lease keeps one connection of
+ * {@code leaseDataSource} for itself, so renewals never wait behind the worker threads for a pooled connection. Each
+ * instance reads the leases at the same time and times them on its own clock, so clock skew between nodes does not
+ * matter: a lease whose heartbeat did not move for {@code leaseDuration} has expired. The duration must cover several
+ * renewals and a reconnection, a lease expiring on a live node has its executions run twice. The first instance to
+ * delete an expired lease, conditionally on the heartbeat it saw, runs the Quartz cluster recovery of that instance
+ * right away, see {@link DschedulerJobStore#recoverInstance}. An instance that was paused itself (a long GC) restarts
+ * its timings instead of declaring every other instance failed.
+ * <p>
+ * Every lease carries a fencing token, incremented each time the instance takes a new lease. An instance that finds
+ * its lease gone at its next renewal was recovered by another node: it takes a new lease, and the executions it fired
+ * under the old token do not write their completion, the fired triggers having been recovered already. Jobs can pass
+ * {@link #fencingToken(Scheduler)} to external systems to reject writes from a node that was fenced.
+ */
+public final class NodeLeases {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeLeases.class);
+
+    private static final String RENEW = "UPDATE DS_NODE_LEASE SET HEARTBEAT = HEARTBEAT + 1 "
+            + "WHERE CLUSTER_NAME = ? AND INSTANCE_NAME = ? AND FENCING_TOKEN = ?";
+    private static final String SELECT_LEASES = "SELECT INSTANCE_NAME, FENCING_TOKEN, HEARTBEAT FROM DS_NODE_LEASE "
+            + "WHERE CLUSTER_NAME = ?";
+    private static final String INSERT_LEASE = "INSERT INTO DS_NODE_LEASE (CLUSTER_NAME, INSTANCE_NAME, FENCING_TOKEN, "
+            + "HEARTBEAT) VALUES (?, ?, ?, 0)";
+    private static final String DELETE_LEASE = "DELETE FROM DS_NODE_LEASE WHERE CLUSTER_NAME = ? AND INSTANCE_NAME = ?";
+    private static final String CLAIM_LEASE = DELETE_LEASE + " AND FENCING_TOKEN = ? AND HEARTBEAT = ?";
+
+    private static final Map<String, NodeLeases> started = new ConcurrentHashMap<>(); // By cluster and instance
+
+    private final DschedulerJobStore store;
+    private final String cluster;
+    private final String instanceId;
+    private final long leaseDuration;
+    private final long renewInterval;
+    private final Map<String, Observation> observed = new HashMap<>(); // Lease thread only
+
+    private volatile long token;
+    private long lastCycle; // Lease thread only
+    private Connection connection; // Lease thread only
+
+    private ScheduledExecutorService heartbeat;
+    private ExecutorService recovery;
+
+    /**
+     * @param store         job store renewing the lease and recovering the instances whose lease expired.
+     * @param cluster       leases are only compared within a cluster, named after the scheduler.
+     * @param instanceId    instance id of this node.
+     * @param leaseDuration milliseconds without renewal after which an instance is recovered.
+     * @param renewInterval milliseconds between renewals, also how often expiry is checked.
+     * @throws IllegalArgumentException if the duration does not cover two renewals.
+     */
+    NodeLeases(DschedulerJobStore store, String cluster, String instanceId, long leaseDuration, long renewInterval) {
+        if (renewInterval <= 0 || renewInterval * 2 > leaseDuration) {
+            throw new IllegalArgumentException("leaseRenewInterval must be positive and at most half the leaseDuration");
+        }
+        this.store = store;
+        this.cluster = cluster;
+        this.instanceId = instanceId;
+        this.leaseDuration = leaseDuration;
+        this.renewInterval = renewInterval;
+    }
+
+    /**
+     * Takes the lease and starts renewing it. Called when the scheduler starts.
+     */
+    synchronized void start() {
+        if (heartbeat != null) {
+            return;
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("dscheduler-lease-" + cluster));
+        recovery = Executors.newSingleThreadExecutor(daemonThreads("dscheduler-lease-recovery-" + cluster));
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, renewInterval, TimeUnit.MILLISECONDS);
+        started.put(key(cluster, instanceId), this);
+    }
+
+    /**
+     * Stops renewing and gives the lease up, the executions of the instance are then left to the regular Quartz
+     * recovery. Called on shutdown.
+     */
+    synchronized void stop() {
+        if (heartbeat == null) {
+            return;
+        }
+        started.remove(key(cluster, instanceId), this);
+        heartbeat.shutdownNow();
+        recovery.shutdownNow();
+        try {
+            heartbeat.awaitTermination(renewInterval * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        heartbeat = null;
+        recovery = null;
+        try {
+            if (connection == null) {
+                connection = store.openLeaseConnection();
+            }
+            release(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            log.warn("Could not give up the lease of {} in {}: {}", instanceId, cluster, e.getMessage());
+        } finally {
+            closeConnection();
+            token = 0;
+        }
+    }
+
+    /**
+     * @return the fencing token of the scheduler's lease, 0 while it holds none or leases are off. Increases every
+     * time the scheduler was fenced off by another node.
+     */
+    public static long fencingToken(Scheduler scheduler) throws SchedulerException {
+        NodeLeases leases = started.get(key(scheduler.getSchedulerName(), scheduler.getSchedulerInstanceId()));
+        return leases != null ? leases.token : 0;
+    }
+
+    long fencingToken() {
+        return token;
+    }
+
+    private void beat() {
+        List<String> expired;
+        try {
+            if (connection == null) {
+                connection = store.openLeaseConnection();
+            }
+            expired = cycle(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            log.warn("Lease renewal of {} in {} failed: {}", instanceId, cluster, e.getMessage());
+            closeConnection();
+            return;
+        }
+        for (String expiredInstance : expired) {
+            log.warn("Lease of instance {} in {} expired, recovering its jobs", expiredInstance, cluster);
+            recovery.execute(() -> store.recoverInstance(expiredInstance));
+        }
+    }
+
+    /**
+     * Renews this instance's lease, then claims the leases that expired.
+     *
+     * @return the instances whose lease this instance claimed, to recover once the transaction committed.
+     */
+    List<String> cycle(Connection conn) throws SQLException {
+        long now = System.currentTimeMillis();
+        boolean paused = lastCycle > 0 && now - lastCycle > leaseDuration / 2;
+        lastCycle = now;
+        renew(conn);
+
+        Map<String, Observation> leases = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_LEASES)) {
+            ps.setString(1, cluster);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    leases.put(rs.getString(1), new Observation(rs.getLong(2), rs.getLong(3), now));
+                }
+            }
+        }
+        observed.keySet().retainAll(leases.keySet());
+        List<String> claimed = new ArrayList<>();
+        for (Map.Entry<String, Observation> entry : leases.entrySet()) {
+            String instance = entry.getKey();
+            Observation lease = entry.getValue();
+            Observation previous = observed.get(instance);
+            if (instance.equals(instanceId) || paused || previous == null || !previous.sameLease(lease)) {
+                observed.put(instance, lease);
+            } else if (now - previous.seenAt >= leaseDuration && claim(conn, instance, lease)) {
+                observed.remove(instance);
+                claimed.add(instance);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Gives up this instance's lease.
+     */
+    void release(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(DELETE_LEASE + " AND FENCING_TOKEN = ?")) {
+            ps.setString(1, cluster);
+            ps.setString(2, instanceId);
+            ps.setLong(3, token);
+            ps.executeUpdate();
+        }
+    }
+
+    private void renew(Connection conn) throws SQLException {
+        if (token > 0) {
+            try (PreparedStatement ps = conn.prepareStatement(RENEW)) {
+                ps.setString(1, cluster);
+                ps.setString(2, instanceId);
+                ps.setLong(3, token);
+                if (ps.executeUpdate() == 1) {
+                    return;
+                }
+            }
+            log.error("The lease of {} in {} (token {}) expired and was taken over, its executions in progress were "
+                    + "recovered by another node and will not record their completion", instanceId, cluster, token);
+        }
+        // A new lease, with a token above any this instance held: a row left by a previous run is replaced
+        long previous = token;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_LEASES + " AND INSTANCE_NAME = ?")) {
+            ps.setString(1, cluster);
+            ps.setString(2, instanceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    previous = Math.max(previous, rs.getLong(2));
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(DELETE_LEASE)) {
+            ps.setString(1, cluster);
+            ps.setString(2, instanceId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_LEASE)) {
+            ps.setString(1, cluster);
+            ps.setString(2, instanceId);
+            ps.setLong(3, previous + 1);
+            ps.executeUpdate();
+        }
+        token = previous + 1;
+        log.info("Took lease of {} in {} with fencing token {}", instanceId, cluster, token);
+    }
+
+    private boolean claim(Connection conn, String instance, Observation lease) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(CLAIM_LEASE)) {
+            ps.setString(1, cluster);
+            ps.setString(2, instance);
+            ps.setLong(3, lease.token);
+            ps.setLong(4, lease.heartbeat);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close the lease connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+
+    private static String key(String cluster, String instanceId) {
+        return cluster + '\u0000' + instanceId;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Observation {
+        final long token;
+        final long heartbeat;
+        final long seenAt; // Local clock
+
+        Observation(long token, long heartbeat, long seenAt) {
+            this.token = token;
+            this.heartbeat = heartbeat;
+            this.seenAt = seenAt;
+        }
+
+        boolean sameLease(Observation other) {
+            return token == other.token && heartbeat == other.heartbeat;
+        }
+    }
+}
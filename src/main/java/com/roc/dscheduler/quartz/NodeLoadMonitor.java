@@ -0,0 +1,227 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.entity.NodeLoad;
+import org.quartz.spi.OperableTrigger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of a job store on this node, published to DS_NODE_LOAD at every cluster check-in together with a read of the
+ * load the other nodes published, for the {@link AcquisitionPolicy}.
+ * <p>
+ * Executions and acquired triggers are counted by the job store. Peers are the nodes acquiring triggers of the same
+ * scheduler that are not considered failed, by the check-in interval plus the 7.5s margin of the Quartz cluster
+ * manager. Rows of nodes no longer in QRTZ_SCHEDULER_STATE, i.e. recovered by the cluster, are deleted.
+ */
+final class NodeLoadMonitor {
+
+    private static final long SAMPLE_INTERVAL = 1000;
+    private static final long FAILURE_MARGIN = 7500;
+    private static final Method CPU_LOAD = cpuLoadMethod();
+
+    private static final String COLUMNS = "ACTIVE, BUSY_THREADS, POOL_SIZE, ASYNC_IN_FLIGHT, QUEUE_DEPTH, CPU_LOAD, "
+            + "HEAP_USED, HEAP_MAX, UPDATED_AT";
+    private static final String UPDATE_LOAD = "UPDATE DS_NODE_LOAD SET ACTIVE = ?, BUSY_THREADS = ?, POOL_SIZE = ?, "
+            + "ASYNC_IN_FLIGHT = ?, QUEUE_DEPTH = ?, CPU_LOAD = ?, HEAP_USED = ?, HEAP_MAX = ?, UPDATED_AT = ? "
+            + "WHERE SCHED_NAME = ? AND INSTANCE_NAME = ?";
+    private static final String INSERT_LOAD = "INSERT INTO DS_NODE_LOAD (" + COLUMNS + ", SCHED_NAME, INSTANCE_NAME) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final String schedName;
+    private final String instanceName;
+    private final String selectPeers;
+    private final String deleteRecovered;
+
+    private final AtomicInteger executing = new AtomicInteger();
+    private final Set<String> waiting = ConcurrentHashMap.newKeySet(); // fireInstanceIds acquired, not fired yet
+    private volatile int poolSize;
+    private volatile boolean active;
+    private volatile List<NodeLoad> peers = Collections.emptyList();
+
+    private volatile Double cpuLoad;
+    private volatile MemoryUsage heap;
+    private volatile long sampledAt;
+
+    NodeLoadMonitor(String schedName, String instanceName, String tablePrefix) {
+        this.schedName = schedName;
+        this.instanceName = instanceName;
+        this.selectPeers = "SELECT L.INSTANCE_NAME, L." + COLUMNS.replace(", ", ", L.")
+                + ", S.LAST_CHECKIN_TIME, S.CHECKIN_INTERVAL FROM DS_NODE_LOAD L JOIN " + tablePrefix
+                + "SCHEDULER_STATE S ON S.SCHED_NAME = L.SCHED_NAME AND S.INSTANCE_NAME = L.INSTANCE_NAME "
+                + "WHERE L.SCHED_NAME = ? AND L.INSTANCE_NAME <> ? AND L.ACTIVE = ?";
+        this.deleteRecovered = "DELETE FROM DS_NODE_LOAD WHERE SCHED_NAME = ? AND INSTANCE_NAME NOT IN "
+                + "(SELECT INSTANCE_NAME FROM " + tablePrefix + "SCHEDULER_STATE WHERE SCHED_NAME = ?)";
+    }
+
+    void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    void setActive(boolean active) {
+        this.active = active;
+    }
+
+    void acquired(List<OperableTrigger> triggers) {
+        for (OperableTrigger trigger : triggers) {
+            waiting.add(trigger.getFireInstanceId());
+        }
+    }
+
+    void fired(OperableTrigger trigger, boolean executing) {
+        if (waiting.remove(trigger.getFireInstanceId()) && executing) {
+            this.executing.incrementAndGet();
+        }
+    }
+
+    void released(OperableTrigger trigger) {
+        waiting.remove(trigger.getFireInstanceId());
+    }
+
+    void completed() {
+        executing.decrementAndGet();
+    }
+
+    /**
+     * @return the load of the other active nodes as of the last check-in, empty when running alone.
+     */
+    List<NodeLoad> peers() {
+        return peers;
+    }
+
+    /**
+     * @return the load of this node now. CPU and heap are sampled at most once a second.
+     */
+    NodeLoad sample() {
+        long now = System.currentTimeMillis();
+        if (now - sampledAt >= SAMPLE_INTERVAL) {
+            double cpu = systemCpuLoad();
+            cpuLoad = cpu < 0 ? null : cpu;
+            heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            sampledAt = now;
+        }
+        NodeLoad load = new NodeLoad();
+        load.setSchedName(schedName);
+        load.setInstanceName(instanceName);
+        load.setActive(active);
+        int asyncInFlight = AsyncExecutions.pending(schedName);
+        load.setBusyThreads(Math.max(0, executing.get() - asyncInFlight));
+        load.setPoolSize(poolSize);
+        load.setAsyncInFlight(asyncInFlight);
+        load.setQueueDepth(waiting.size());
+        load.setCpuLoad(cpuLoad);
+        load.setHeapUsed(heap.getUsed());
+        load.setHeapMax(Math.max(0, heap.getMax()));
+        load.setUpdatedAt(now);
+        return load;
+    }
+
+    /**
+     * Publishes the load of this node and reads the load of its peers.
+     */
+    void checkin(Connection conn) throws SQLException {
+        NodeLoad load = sample();
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_LOAD)) {
+            if (bindLoad(ps, load) == 0) {
+                try (PreparedStatement insert = conn.prepareStatement(INSERT_LOAD)) {
+                    bindLoad(insert, load);
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(deleteRecovered)) {
+            ps.setString(1, schedName);
+            ps.setString(2, schedName);
+            ps.executeUpdate();
+        }
+        List<NodeLoad> live = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(selectPeers)) {
+            ps.setString(1, schedName);
+            ps.setString(2, instanceName);
+            ps.setBoolean(3, true);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long lastCheckin = rs.getLong("LAST_CHECKIN_TIME");
+                    if (lastCheckin + rs.getLong("CHECKIN_INTERVAL") + FAILURE_MARGIN >= load.getUpdatedAt()) {
+                        live.add(readLoad(rs, lastCheckin));
+                    }
+                }
+            }
+        }
+        peers = Collections.unmodifiableList(live);
+    }
+
+    /**
+     * @return the system CPU load from 0 to 1, negative if not available.
+     */
+    private static double systemCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (CPU_LOAD == null || !(os instanceof com.sun.management.OperatingSystemMXBean)) {
+            return -1;
+        }
+        try {
+            return (Double) CPU_LOAD.invoke(os);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return getCpuLoad() of Java 14 and later, or getSystemCpuLoad() it deprecates, null if neither exists.
+     */
+    private static Method cpuLoadMethod() {
+        for (String name : new String[]{"getCpuLoad", "getSystemCpuLoad"}) {
+            try {
+                return com.sun.management.OperatingSystemMXBean.class.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                // Try the next one
+            }
+        }
+        return null;
+    }
+
+    private int bindLoad(PreparedStatement ps, NodeLoad load) throws SQLException {
+        ps.setBoolean(1, load.isActive());
+        ps.setInt(2, load.getBusyThreads());
+        ps.setInt(3, load.getPoolSize());
+        ps.setInt(4, load.getAsyncInFlight());
+        ps.setInt(5, load.getQueueDepth());
+        if (load.getCpuLoad() == null) {
+            ps.setNull(6, Types.DOUBLE);
+        } else {
+            ps.setDouble(6, load.getCpuLoad());
+        }
+        ps.setLong(7, load.getHeapUsed());
+        ps.setLong(8, load.getHeapMax());
+        ps.setLong(9, load.getUpdatedAt());
+        ps.setString(10, schedName);
+        ps.setString(11, instanceName);
+        return ps.executeUpdate();
+    }
+
+    private NodeLoad readLoad(ResultSet rs, long lastCheckin) throws SQLException {
+        NodeLoad load = new NodeLoad();
+        load.setSchedName(schedName);
+        load.setInstanceName(rs.getString("INSTANCE_NAME"));
+        load.setActive(rs.getBoolean("ACTIVE"));
+        load.setBusyThreads(rs.getInt("BUSY_THREADS"));
+        load.setPoolSize(rs.getInt("POOL_SIZE"));
+        load.setAsyncInFlight(rs.getInt("ASYNC_IN_FLIGHT"));
+        load.setQueueDepth(rs.getInt("QUEUE_DEPTH"));
+        double cpu = rs.getDouble("CPU_LOAD");
+        load.setCpuLoad(rs.wasNull() ? null : cpu);
+        load.setHeapUsed(rs.getLong("HEAP_USED"));
+        load.setHeapMax(rs.getLong("HEAP_MAX"));
+        load.setUpdatedAt(rs.getLong("UPDATED_AT"));
+        load.setLastCheckinTime(lastCheckin);
+        return load;
+    }
+}
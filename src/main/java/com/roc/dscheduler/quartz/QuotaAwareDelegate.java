@@ -0,0 +1,69 @@
+package com.roc.dscheduler.quartz;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link StdJDBCDelegate} selecting the triggers to acquire according to the {@link GroupQuotas}: the triggers of the
+ * groups at their limit are left out in SQL and stay waiting, and the triggers due are shared between the other
+ * groups by weight. Without quotas the selection is Quartz's own.
+ */
+public class QuotaAwareDelegate extends StdJDBCDelegate {
+
+    // Quartz's SELECT_NEXT_TRIGGER_TO_ACQUIRE, with the saturated groups left out
+    private static final String SELECT_TRIGGERS_DUE = "SELECT " + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_NEXT_FIRE_TIME + ", " + COL_PRIORITY + " FROM " + TABLE_PREFIX_SUBST + TABLE_TRIGGERS
+            + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ?"
+            + " AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" + COL_MISFIRE_INSTRUCTION + " != -1 AND "
+            + COL_NEXT_FIRE_TIME + " >= ?))";
+    private static final String ORDER_BY_FIRE_TIME = " ORDER BY " + COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
+
+    @Override
+    public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+            throws SQLException {
+        if (!GroupQuotas.isEnabled()) {
+            return super.selectTriggerToAcquire(conn, noLaterThan, noEarlierThan, maxCount);
+        }
+        List<String> saturated = new ArrayList<>(GroupQuotas.saturatedGroups());
+        StringBuilder sql = new StringBuilder(SELECT_TRIGGERS_DUE);
+        if (!saturated.isEmpty()) {
+            sql.append(" AND ").append(COL_TRIGGER_GROUP).append(" NOT IN (")
+                    .append(String.join(", ", Collections.nCopies(saturated.size(), "?"))).append(')');
+        }
+        sql.append(ORDER_BY_FIRE_TIME);
+        int scanSize = GroupQuotas.scanSize(maxCount);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<TriggerKey> due = new ArrayList<>();
+        try {
+            ps = conn.prepareStatement(rtp(sql.toString()));
+            ps.setMaxRows(scanSize);
+            ps.setFetchSize(scanSize);
+            int index = 1;
+            ps.setString(index++, STATE_WAITING);
+            ps.setBigDecimal(index++, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(index++, new BigDecimal(String.valueOf(noEarlierThan)));
+            for (String group : saturated) {
+                ps.setString(index++, group);
+            }
+            rs = ps.executeQuery();
+            while (rs.next() && due.size() < scanSize) {
+                due.add(TriggerKey.triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)));
+            }
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+        return GroupQuotas.select(due, maxCount);
+    }
+}
@@ -0,0 +1,73 @@
+package com.roc.dscheduler.quartz;
+
+import com.roc.dscheduler.service.JobTypeRegistry;
+import org.quartz.Job;
+import org.quartz.SchedulerContext;
+import org.quartz.spi.TriggerFiredBundle;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.scheduling.quartz.SpringBeanJobFactory;
+
+import java.beans.PropertyDescriptor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gets the job instance of each fire from its bean in the {@link JobTypeRegistry}, rather than having
+ * {@link SpringBeanJobFactory} build a new bean definition for the job class on every fire.
+ * <p>
+ * As with {@link SpringBeanJobFactory}, a prototype job gets the scheduler context and the job data as bean
+ * properties, provided its class has a property to set: the job data of a job without any is left undecoded, see
+ * {@link LazyJobDataMap}. A singleton job is shared by concurrent executions, so it reads the job data from the execution context.
+ * Jobs of classes that are not registered, scheduled before their package was left out of the scan, are still
+ * created by {@link SpringBeanJobFactory}.
+ */
+public class RegistryJobFactory extends SpringBeanJobFactory {
+
+    private final JobTypeRegistry registry;
+    private final Map<Class<?>, Boolean> settable = new ConcurrentHashMap<>();
+    private SchedulerContext schedulerContext;
+
+    public RegistryJobFactory(JobTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void setSchedulerContext(SchedulerContext schedulerContext) {
+        super.setSchedulerContext(schedulerContext);
+        this.schedulerContext = schedulerContext;
+    }
+
+    @Override
+    protected Object createJobInstance(TriggerFiredBundle bundle) throws Exception {
+        Class<? extends Job> jobClass = bundle.getJobDetail().getJobClass();
+        Job job = registry.getJob(jobClass);
+        if (job == null) {
+            return super.createJobInstance(bundle);
+        }
+        if (!registry.isSingleton(jobClass) && hasSettableProperties(job.getClass())) {
+            BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(job);
+            MutablePropertyValues pvs = new MutablePropertyValues();
+            if (schedulerContext != null) {
+                pvs.addPropertyValues(schedulerContext);
+            }
+            pvs.addPropertyValues(bundle.getJobDetail().getJobDataMap());
+            pvs.addPropertyValues(bundle.getTrigger().getJobDataMap());
+            bw.setPropertyValues(pvs, true);
+        }
+        return job;
+    }
+
+    private boolean hasSettableProperties(Class<?> type) {
+        return settable.computeIfAbsent(type, t -> {
+            for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(t)) {
+                if (property.getWriteMethod() != null) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+}
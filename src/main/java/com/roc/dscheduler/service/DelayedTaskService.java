@@ -0,0 +1,599 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.DelayedTask;
+import com.roc.dscheduler.entity.PartitionLease;
+import com.roc.dscheduler.job.DelayedTaskHandler;
+import com.roc.dscheduler.mapper.DelayedTaskMapper;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.mapper.PartitionLeaseMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delayed one-shot tasks: "run this once at time T" for a {@link DelayedTaskHandler}, in volumes Quartz triggers
+ * are not made for (order timeouts, reminders). Scheduling a task is one row in DS_DELAYED_TASK, inserted in
+ * multi-row batches; running it is one row deleted, in batches too.
+ * <p>
+ * Tasks are kept in two levels. In the table, rows are clustered by time slot ({@code slot-size}) and spread over
+ * {@code buckets} by task key. Buckets are leased to the live nodes, a fair share each, in DS_PARTITION_LEASE.
+ * Every {@code poll-interval}, a node claims the tasks of its buckets due within {@code look-ahead}, earliest slots
+ * first, and puts them in a {@link HashedTimerWheel}, which hands each due task to a dispatch thread at its fire time,
+ * within a tick. The dispatcher groups due tasks by handler and runs them in batches on {@code dispatch-threads}
+ * threads. Inserting and firing a task cost O(1) whatever the number of tasks pending; a node holds at most
+ * {@code max-loaded} tasks in memory and leaves the rest in the table.
+ * <p>
+ * A node only runs, deletes or reschedules the tasks still claimed with the token it loaded them with, checked
+ * right before running them: a cancelled task does not run, and a node taking over a bucket unclaims its tasks
+ * first, so those its former owner still holds in memory do not run there. A node only claims tasks while it holds
+ * the bucket's lease, so a node paused past its lease does not claim them back from the new owner. A task run by a node failing before
+ * deleting it runs again, tasks run at least once. A failed batch is retried after {@code retry-backoff}, doubled
+ * on every attempt, and dropped after {@code max-attempts}.
+ */
+@Service
+public class DelayedTaskService {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayedTaskService.class);
+    private static final String LEASE_SUFFIX = "/delayed";
+    private static final int MAX_KEY_LENGTH = 190;
+    private static final int MAX_PAYLOAD_LENGTH = 2000;
+
+    private final Scheduler scheduler;
+    private final DelayedTaskMapper taskMapper;
+    private final PartitionLeaseMapper leaseMapper;
+    private final JobMapper jobMapper;
+    private final MeterRegistry registry;
+    private final Map<String, DelayedTaskHandler> handlers = new TreeMap<>();
+
+    @Value("${dscheduler.delayed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dscheduler.delayed.buckets:64}")
+    private int buckets;
+
+    @Value("${dscheduler.delayed.slot-size:1000}")
+    private long slotSize;
+
+    @Value("${dscheduler.delayed.look-ahead:30000}")
+    private long lookAhead;
+
+    @Value("${dscheduler.delayed.poll-interval:500}")
+    private long pollInterval;
+
+    @Value("${dscheduler.delayed.claim-batch-size:5000}")
+    private int claimBatchSize;
+
+    @Value("${dscheduler.delayed.max-loaded:500000}")
+    private int maxLoaded;
+
+    @Value("${dscheduler.delayed.insert-batch-size:1000}")
+    private int insertBatchSize;
+
+    @Value("${dscheduler.delayed.tick:50}")
+    private long tick;
+
+    @Value("${dscheduler.delayed.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${dscheduler.delayed.dispatch-batch-size:500}")
+    private int dispatchBatchSize;
+
+    @Value("${dscheduler.delayed.dispatch-threads:8}")
+    private int dispatchThreads;
+
+    @Value("${dscheduler.delayed.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${dscheduler.delayed.retry-backoff:10000}")
+    private long retryBackoff;
+
+    @Value("${dscheduler.delayed.stale-after:60000}")
+    private long staleAfter;
+
+    @Value("${dscheduler.delayed.lease-duration:30000}")
+    private long leaseDuration;
+
+    // Buckets leased by this node and until when, replaced as a whole under leaseLock, read by the loader and dispatch
+    // threads
+    private volatile OwnedBuckets owned = OwnedBuckets.NONE;
+    private final Object leaseLock = new Object();
+    // Tasks of the wheel, due or running, not yet deleted or rescheduled
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final Queue<DelayedTask> due = new ConcurrentLinkedQueue<>();
+    private String schedName;
+    private HashedTimerWheel wheel;
+    private ExecutorService dispatchPool;
+    private Thread loader;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    private Counter scheduledCounter;
+    private Counter ranCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Timer lag;
+
+    @Autowired
+    public DelayedTaskService(Scheduler scheduler, DelayedTaskMapper taskMapper, PartitionLeaseMapper leaseMapper,
+                              JobMapper jobMapper, MeterRegistry registry, ObjectProvider<DelayedTaskHandler> handlers) {
+        this.scheduler = scheduler;
+        this.taskMapper = taskMapper;
+        this.leaseMapper = leaseMapper;
+        this.jobMapper = jobMapper;
+        this.registry = registry;
+        handlers.orderedStream().forEach(handler -> {
+            DelayedTaskHandler other = this.handlers.put(handler.getName(), handler);
+            if (other != null) {
+                throw new IllegalStateException("Delayed task handlers " + other.getClass().getName() + " and "
+                        + handler.getClass().getName() + " are both named " + handler.getName());
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        if (!enabled) {
+            return;
+        }
+        schedName = scheduler.getSchedulerName();
+        wheel = new HashedTimerWheel("dscheduler-delayed-wheel", tick, TimeUnit.MILLISECONDS, wheelSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        dispatchPool = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "dscheduler-delayed-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledCounter = Counter.builder("dscheduler.delayed.scheduled")
+                .description("Delayed tasks scheduled on this node")
+                .register(registry);
+        ranCounter = Counter.builder("dscheduler.delayed.ran")
+                .description("Delayed tasks run and deleted")
+                .register(registry);
+        failedCounter = Counter.builder("dscheduler.delayed.failed")
+                .description("Failed runs of delayed tasks, retried or dropped")
+                .register(registry);
+        droppedCounter = Counter.builder("dscheduler.delayed.dropped")
+                .description("Delayed tasks deleted after max-attempts failed runs")
+                .register(registry);
+        lag = Timer.builder("dscheduler.delayed.lag")
+                .description("Start of the run of a delayed task minus its fire time")
+                .register(registry);
+        Gauge.builder("dscheduler.delayed.loaded", loaded, AtomicInteger::get)
+                .description("Delayed tasks loaded in memory, waiting or running")
+                .register(registry);
+        Gauge.builder("dscheduler.delayed.buckets", this, service -> service.owned.buckets.size())
+                .description("Delayed task buckets leased by this node")
+                .register(registry);
+
+        running = true;
+        loader = new Thread(this::loadLoop, "dscheduler-delayed-loader");
+        loader.setDaemon(true);
+        loader.start();
+        dispatcher = new Thread(this::dispatchLoop, "dscheduler-delayed-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Stops loading and dispatching, waits for the batches running, and releases the bucket leases so other nodes
+     * take them over right away. Tasks loaded and not run are unclaimed by the new owners.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wheel.stop();
+        LockSupport.unpark(loader);
+        LockSupport.unpark(dispatcher);
+        loader.join(TimeUnit.SECONDS.toMillis(10));
+        dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+        dispatchPool.shutdown();
+        dispatchPool.awaitTermination(10, TimeUnit.SECONDS);
+        synchronized (leaseLock) {
+            try {
+                String instanceId = scheduler.getSchedulerInstanceId();
+                for (int bucket : owned.buckets) {
+                    leaseMapper.releaseLease(schedName + LEASE_SUFFIX, bucket, instanceId, 0);
+                }
+                owned = OwnedBuckets.NONE;
+            } catch (Exception e) {
+                log.warn("Could not release delayed task leases: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Schedules tasks, with one multi-row insert per {@code insert-batch-size} tasks. A task whose handler and key are
+     * already scheduled is left as it is, so scheduling the same keyed task twice runs it once.
+     *
+     * @param tasks handler, fire time (epoch millis, a past one runs right away) and optional key and payload.
+     * @return the number of tasks given.
+     * @throws IllegalArgumentException if a task has no handler of that name, no fire time, or a key or payload too long.
+     * @throws IllegalStateException    if delayed tasks are disabled.
+     */
+    public int schedule(List<DelayedTask> tasks) {
+        checkEnabled();
+        for (int i = 0; i < tasks.size(); i++) {
+            DelayedTask task = tasks.get(i);
+            String error = validate(task);
+            if (error != null) {
+                throw new IllegalArgumentException("Task " + i + ": " + error);
+            }
+            task.setSlot(task.getFireAt() / slotSize);
+            task.setBucket(task.getTaskKey() != null
+                    ? Math.floorMod((task.getHandler() + '/' + task.getTaskKey()).hashCode(), buckets)
+                    : ThreadLocalRandom.current().nextInt(buckets));
+            task.setAttempts(0);
+            task.setClaim(null);
+        }
+        for (int from = 0; from < tasks.size(); from += insertBatchSize) {
+            taskMapper.insertBatch(schedName, tasks.subList(from, Math.min(tasks.size(), from + insertBatchSize)));
+        }
+        scheduledCounter.increment(tasks.size());
+        return tasks.size();
+    }
+
+    /**
+     * Cancels a keyed task. A task already running is not interrupted.
+     *
+     * @return whether the task was scheduled.
+     * @throws IllegalStateException if delayed tasks are disabled.
+     */
+    public boolean cancel(String handler, String taskKey) {
+        checkEnabled();
+        return taskMapper.deleteByKey(schedName, handler, taskKey) > 0;
+    }
+
+    /**
+     * @return the state of this node: handlers, leased buckets, tasks loaded and due.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("handlers", handlers.keySet());
+        status.put("buckets", owned.buckets);
+        status.put("loaded", loaded.get());
+        status.put("due", due.size());
+        return status;
+    }
+
+    /**
+     * Renews, releases and takes bucket leases, so every live node holds at most {@code ceil(buckets / live nodes)}.
+     * Waits for the application scheduler to start, so the node has checked in and counts as live.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.delayed.lease-renew-interval:5000}",
+            initialDelayString = "${dscheduler.delayed.lease-renew-interval:5000}")
+    public void balance() {
+        if (!running) {
+            return;
+        }
+        try {
+            if (scheduler.isStarted() && !scheduler.isShutdown()) {
+                synchronized (leaseLock) {
+                    updateLeases();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Delayed task lease renewal failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Unclaims the tasks of the owned buckets still there {@code stale-after} past their fire time: tasks that could
+     * not be deleted or rescheduled after running (database unavailable), or loaded by this node for a bucket it had
+     * just given up. They are loaded again.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.delayed.stale-after:60000}",
+            initialDelayString = "${dscheduler.delayed.stale-after:60000}")
+    public void releaseStaleClaims() {
+        Set<Integer> leased = owned.at(System.currentTimeMillis());
+        if (!running || leased.isEmpty()) {
+            return;
+        }
+        try {
+            int released = taskMapper.releaseStaleClaims(schedName, leased,
+                    (System.currentTimeMillis() - staleAfter) / slotSize);
+            if (released > 0) {
+                log.warn("Unclaimed {} delayed tasks not run {}ms after their fire time", released, staleAfter);
+            }
+        } catch (Exception e) {
+            log.warn("Could not release stale delayed task claims: {}", e.getMessage());
+        }
+    }
+
+    private void updateLeases() throws SchedulerException {
+        String scope = schedName + LEASE_SUFFIX;
+        String instanceId = scheduler.getSchedulerInstanceId();
+        long now = System.currentTimeMillis();
+
+        List<PartitionLease> leases = leaseMapper.selectLeases(scope);
+        if (leases.size() < buckets) {
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                leaseMapper.insertLease(scope, bucket);
+            }
+            leases = leaseMapper.selectLeases(scope);
+        }
+        int liveNodes = Math.max(1, jobMapper.selectLiveInstances(schedName, now).size());
+        int share = (buckets + liveNodes - 1) / liveNodes;
+
+        // Renew, then give up the buckets above the fair share so nodes that joined get theirs
+        TreeSet<Integer> held = new TreeSet<>();
+        for (PartitionLease lease : leases) {
+            if (lease.getPartitionNo() < buckets && instanceId.equals(lease.getOwner())
+                    && leaseMapper.claimLease(scope, lease.getPartitionNo(), instanceId, now, now + leaseDuration) == 1) {
+                held.add(lease.getPartitionNo());
+            }
+        }
+        while (held.size() > share) {
+            leaseMapper.releaseLease(scope, held.pollLast(), instanceId, 0);
+        }
+
+        // Take free buckets up to the fair share, from an offset of our own so nodes do not all race for the same
+        int offset = Math.floorMod(instanceId.hashCode(), buckets);
+        Map<Integer, PartitionLease> byBucket = new HashMap<>();
+        for (PartitionLease lease : leases) {
+            byBucket.put(lease.getPartitionNo(), lease);
+        }
+        for (int i = 0; i < buckets && held.size() < share; i++) {
+            int bucket = (offset + i) % buckets;
+            PartitionLease lease = byBucket.get(bucket);
+            if (lease != null && !held.contains(bucket) && (lease.getOwner() == null || lease.getExpiresAt() < now)
+                    && leaseMapper.claimLease(scope, bucket, instanceId, now, now + leaseDuration) == 1) {
+                held.add(bucket);
+            }
+        }
+
+        // Tasks of a new bucket may still be claimed by its former owner, unclaim them before loading any
+        for (int bucket : held) {
+            if (!owned.at(now).contains(bucket)) {
+                int released = taskMapper.releaseClaims(schedName, bucket);
+                log.info("Took delayed task bucket {} ({} buckets, {} live nodes, {} tasks unclaimed)", bucket,
+                        buckets, liveNodes, released);
+            }
+        }
+        owned = new OwnedBuckets(held, now + leaseDuration);
+    }
+
+    private void loadLoop() {
+        while (running) {
+            long start = System.currentTimeMillis();
+            try {
+                load();
+            } catch (Exception e) {
+                log.warn("Could not load delayed tasks: {}", e.getMessage());
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            if (running && elapsed < pollInterval) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollInterval - elapsed));
+            }
+        }
+    }
+
+    /**
+     * Claims the tasks of the owned buckets due within the look-ahead and puts them in the wheel, until none is left
+     * or {@code max-loaded} tasks are in memory. Each claim covers a single bucket, so it only locks the rows of that
+     * bucket; the buckets take turns, a batch each, while any of them has more due.
+     * <p>
+     * Buckets whose lease ran out are not loaded: a node paused past its lease, the bucket may have a new owner that
+     * unclaimed its tasks. The claim itself checks the lease too, for a pause between the check and the claim.
+     */
+    private void load() throws SchedulerException {
+        Set<Integer> leased = owned.at(System.currentTimeMillis());
+        if (leased.isEmpty()) {
+            return;
+        }
+        String instanceId = scheduler.getSchedulerInstanceId();
+        long maxSlot = (System.currentTimeMillis() + lookAhead) / slotSize;
+        Set<Integer> pending = new TreeSet<>(leased);
+        while (running && !pending.isEmpty()) {
+            for (Iterator<Integer> it = pending.iterator(); running && it.hasNext(); ) {
+                int bucket = it.next();
+                int limit = Math.min(claimBatchSize, maxLoaded - loaded.get());
+                if (limit <= 0) {
+                    return;
+                }
+                if (!owned.at(System.currentTimeMillis()).contains(bucket)
+                        || claim(bucket, instanceId, maxSlot, limit) < limit) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims up to limit tasks of a bucket and puts them in the wheel, if the node still holds the bucket's lease.
+     *
+     * @return the number of tasks claimed.
+     */
+    private int claim(int bucket, String instanceId, long maxSlot, int limit) {
+        long claim = ThreadLocalRandom.current().nextLong();
+        int claimed = taskMapper.claimTasks(schedName, bucket, maxSlot, claim, limit, schedName + LEASE_SUFFIX,
+                instanceId, System.currentTimeMillis());
+        if (claimed > 0) {
+            List<DelayedTask> tasks = taskMapper.selectClaimed(schedName, bucket, claim);
+            loaded.addAndGet(tasks.size());
+            long now = System.currentTimeMillis();
+            for (DelayedTask task : tasks) {
+                wheel.schedule(() -> due.add(task), task.getFireAt() - now, TimeUnit.MILLISECONDS);
+            }
+        }
+        return claimed;
+    }
+
+    private void dispatchLoop() {
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        while (running) {
+            Set<Integer> leased = owned.at(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                LockSupport.parkNanos(parkNanos);
+                continue;
+            }
+            // Group by handler and load, a batch is checked, deleted or rescheduled with one statement
+            Map<String, Map<Long, List<DelayedTask>>> groups = new HashMap<>();
+            DelayedTask task;
+            while ((task = due.poll()) != null) {
+                if (!leased.contains(task.getBucket())) {
+                    // The bucket moved to another node, which unclaimed the task and loads it again
+                    loaded.decrementAndGet();
+                    continue;
+                }
+                groups.computeIfAbsent(task.getHandler(), handler -> new HashMap<>())
+                        .computeIfAbsent(task.getClaim(), claim -> new ArrayList<>())
+                        .add(task);
+            }
+            for (Map.Entry<String, Map<Long, List<DelayedTask>>> byHandler : groups.entrySet()) {
+                for (Map.Entry<Long, List<DelayedTask>> byClaim : byHandler.getValue().entrySet()) {
+                    List<DelayedTask> tasks = byClaim.getValue();
+                    for (int from = 0; from < tasks.size(); from += dispatchBatchSize) {
+                        List<DelayedTask> batch = tasks.subList(from, Math.min(tasks.size(), from + dispatchBatchSize));
+                        dispatchPool.execute(() -> run(byHandler.getKey(), byClaim.getKey(), batch));
+                    }
+                }
+            }
+        }
+    }
+
+    private void run(String handlerName, long claim, List<DelayedTask> batch) {
+        try {
+            // Leave out the tasks cancelled or unclaimed since they were loaded
+            Set<Long> claimed = new HashSet<>(taskMapper.selectClaimedIds(schedName, claim, ids(batch)));
+            List<DelayedTask> tasks = new ArrayList<>(claimed.size());
+            for (DelayedTask task : batch) {
+                if (claimed.contains(task.getId())) {
+                    tasks.add(task);
+                }
+            }
+            if (tasks.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (DelayedTask task : tasks) {
+                lag.record(Math.max(0, now - task.getFireAt()), TimeUnit.MILLISECONDS);
+            }
+            try {
+                DelayedTaskHandler handler = handlers.get(handlerName);
+                if (handler == null) {
+                    throw new IllegalStateException("No delayed task handler named " + handlerName + " on this node");
+                }
+                handler.handle(Collections.unmodifiableList(tasks));
+            } catch (Exception e) {
+                retry(handlerName, claim, tasks, e);
+                return;
+            }
+            taskMapper.deleteTasks(schedName, claim, ids(tasks));
+            ranCounter.increment(tasks.size());
+        } catch (Exception e) {
+            // Left claimed, releaseStaleClaims loads them again
+            log.warn("Could not run {} delayed tasks of {}: {}", batch.size(), handlerName, e.getMessage());
+        } finally {
+            loaded.addAndGet(-batch.size());
+        }
+    }
+
+    /**
+     * Reschedules the tasks of a failed batch after a backoff doubled on every attempt, or deletes them after the
+     * last attempt.
+     */
+    private void retry(String handlerName, long claim, List<DelayedTask> tasks, Exception cause) {
+        failedCounter.increment(tasks.size());
+        List<Long> exhausted = new ArrayList<>();
+        Map<Integer, List<Long>> byAttempts = new TreeMap<>();
+        for (DelayedTask task : tasks) {
+            if (task.getAttempts() + 1 >= maxAttempts) {
+                exhausted.add(task.getId());
+            } else {
+                byAttempts.computeIfAbsent(task.getAttempts(), attempts -> new ArrayList<>()).add(task.getId());
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, List<Long>> entry : byAttempts.entrySet()) {
+            long fireAt = now + (retryBackoff << Math.min(entry.getKey(), 16));
+            taskMapper.retryTasks(schedName, claim, entry.getValue(), fireAt, fireAt / slotSize);
+        }
+        if (!exhausted.isEmpty()) {
+            taskMapper.deleteTasks(schedName, claim, exhausted);
+            droppedCounter.increment(exhausted.size());
+            log.error("Dropped {} delayed tasks of {} after {} attempts: {}", exhausted.size(), handlerName,
+                    maxAttempts, cause.toString());
+        }
+        if (!byAttempts.isEmpty()) {
+            log.warn("{} delayed tasks of {} failed, retrying: {}", tasks.size() - exhausted.size(), handlerName,
+                    cause.toString());
+        }
+    }
+
+    private String validate(DelayedTask task) {
+        if (task.getHandler() == null || !handlers.containsKey(task.getHandler())) {
+            return "unknown handler " + task.getHandler() + ", handlers are " + handlers.keySet();
+        }
+        if (task.getFireAt() <= 0) {
+            return "fireAt (epoch millis) is required";
+        }
+        if (task.getTaskKey() != null && task.getTaskKey().length() > MAX_KEY_LENGTH) {
+            return "taskKey longer than " + MAX_KEY_LENGTH + " characters";
+        }
+        if (task.getPayload() != null && task.getPayload().length() > MAX_PAYLOAD_LENGTH) {
+            return "payload longer than " + MAX_PAYLOAD_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private void checkEnabled() {
+        if (!enabled) {
+            throw new IllegalStateException("Delayed tasks are disabled (dscheduler.delayed.enabled)");
+        }
+    }
+
+    /**
+     * Buckets leased by a node, valid until their leases expire unless renewed.
+     */
+    private static final class OwnedBuckets {
+        static final OwnedBuckets NONE = new OwnedBuckets(Collections.emptySet(), 0);
+
+        final Set<Integer> buckets;
+        final long expiresAt;
+
+        OwnedBuckets(Set<Integer> buckets, long expiresAt) {
+            this.buckets = Collections.unmodifiableSet(buckets);
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return the buckets, none once the leases expired.
+         */
+        Set<Integer> at(long now) {
+            return now < expiresAt ? buckets : Collections.emptySet();
+        }
+    }
+
+    private static List<Long> ids(List<DelayedTask> tasks) {
+        List<Long> ids = new ArrayList<>(tasks.size());
+        for (DelayedTask task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,174 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.JobExecution;
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.ExecutionHistoryListener;
+import com.roc.dscheduler.mapper.JobExecutionMapper;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records job executions asynchronously and serves the history.
+ * <p>
+ * {@link ExecutionHistoryListener} hands every finished execution to {@link #record(JobExecution)}, which only
+ * enqueues it. A single background thread flushes the queue to DS_JOB_EXECUTION with multi-row inserts, so a
+ * worker thread never waits for the database. Old rows are purged in chunks according to the retention.
+ */
+@Service
+public class ExecutionHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionHistoryService.class);
+
+    private final Scheduler scheduler;
+    private final SchedulerRouter router;
+    private final JobExecutionMapper executionMapper;
+
+    @Value("${dscheduler.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dscheduler.history.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${dscheduler.history.batch-size:500}")
+    private int batchSize;
+
+    @Value("${dscheduler.history.flush-interval:200}")
+    private long flushInterval;
+
+    @Value("${dscheduler.history.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${dscheduler.history.purge-batch-size:5000}")
+    private int purgeBatchSize;
+
+    private ExecutionRecordBuffer<JobExecution> buffer;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Autowired
+    public ExecutionHistoryService(Scheduler scheduler, SchedulerRouter router, JobExecutionMapper executionMapper) {
+        this.scheduler = scheduler;
+        this.router = router;
+        this.executionMapper = executionMapper;
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        if (!enabled) {
+            return;
+        }
+        buffer = new ExecutionRecordBuffer<>(bufferSize);
+        running = true;
+        writer = new Thread(this::writeLoop, "dscheduler-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+        // Executions in partitions are recorded under the application scheduler's name
+        ExecutionHistoryListener listener = new ExecutionHistoryListener(this, scheduler.getSchedulerName());
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Enqueues an execution for writing. Never blocks, the record is dropped if the buffer is full.
+     *
+     * @param execution the finished execution.
+     */
+    public void record(JobExecution execution) {
+        if (buffer != null && !buffer.offer(execution) && log.isDebugEnabled()) {
+            log.debug("Execution history buffer full, dropped record of {}.{}", execution.getJobGroup(), execution.getJobName());
+        }
+    }
+
+    /**
+     * Retrieves the latest executions of a job, newest first.
+     *
+     * @param jobName  Name of the job.
+     * @param jobGroup Group of the job.
+     * @param beforeId keyset cursor: id of the last execution of the previous page, or null for the first page.
+     * @param limit    maximum number of executions to return.
+     * @return List of executions.
+     * @throws SchedulerException if the scheduler name cannot be read.
+     */
+    @Transactional(readOnly = true)
+    public List<JobExecution> getExecutions(String jobName, String jobGroup, Long beforeId, int limit) throws SchedulerException {
+        return executionMapper.selectExecutions(scheduler.getSchedulerName(), jobName, jobGroup, beforeId,
+                Math.max(1, Math.min(limit, 500)));
+    }
+
+    /**
+     * @return the number of records dropped because the buffer was full.
+     */
+    public long getDroppedCount() {
+        return buffer == null ? 0 : buffer.getDropped();
+    }
+
+    /**
+     * Deletes executions older than the retention, in chunks so no long-running delete locks the table.
+     */
+    @Scheduled(cron = "${dscheduler.history.purge-cron:0 0 * * * *}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = executionMapper.deleteOlderThan(cutoff, purgeBatchSize);
+                total += deleted;
+            } while (deleted == purgeBatchSize);
+        } catch (Exception e) {
+            log.warn("Could not purge execution history: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Purged {} executions started before {}", total, cutoff);
+        }
+    }
+
+    private void writeLoop() {
+        List<JobExecution> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+                continue;
+            }
+            try {
+                executionMapper.insertBatch(batch);
+            } catch (Exception e) {
+                log.warn("Could not write {} execution records: {}", batch.size(), e.getMessage());
+                if (!running) {
+                    break;
+                }
+            }
+            batch.clear();
+        }
+    }
+}
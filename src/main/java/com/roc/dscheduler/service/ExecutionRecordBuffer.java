@@ -0,0 +1,78 @@
+package com.roc.dscheduler.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring buffer.
+ * <p>
+ * Producers (the Quartz worker threads) claim a slot with a single CAS and never block: when the buffer is full
+ * the record is dropped and counted. The single consumer frees a slot before advancing the head, so a producer
+ * can only claim a slot that has already been drained.
+ */
+class ExecutionRecordBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the next power of two.
+     */
+    ExecutionRecordBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return false if the buffer is full and the element was dropped.
+     */
+    boolean offer(T element) {
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) (t & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} elements into {@code target}. Must only be called from the consumer thread.
+     *
+     * @return the number of elements drained.
+     */
+    int drainTo(List<T> target, int max) {
+        long h = head.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) (h & mask);
+            T element = slots.get(index);
+            if (element == null) {
+                break; // empty, or the producer that claimed this slot has not published yet
+            }
+            slots.lazySet(index, null);
+            target.add(element);
+            h++;
+            count++;
+        }
+        head.lazySet(h);
+        return count;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+}
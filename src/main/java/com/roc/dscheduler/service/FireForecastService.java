@@ -0,0 +1,198 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.cron.CompiledCron;
+import com.roc.dscheduler.entity.FireForecast;
+import com.roc.dscheduler.entity.ForecastBucket;
+import com.roc.dscheduler.entity.JobInfo;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Fire times computed ahead from the cron expressions of the job catalog, with {@link CompiledCron}: the next fire
+ * times of a job, and the fires of the whole catalog by time bucket to spot the times many jobs fire at once.
+ * <p>
+ * The forecast computes the fire times of each distinct expression once and counts them for all the jobs using it,
+ * a catalog where thousands of jobs fire at the top of the hour costs as much as one such job. Jobs are forecast with
+ * their cron schedule only: paused jobs are left out, misfires, retries and workflow runs are not forecast.
+ */
+@Service
+public class FireForecastService {
+
+    private static final Logger log = LoggerFactory.getLogger(FireForecastService.class);
+    private static final int TOP_EXPRESSIONS = 5;
+
+    private final JobCatalog jobCatalog;
+
+    @Value("${dscheduler.forecast.max-preview:1000}")
+    private int maxPreview;
+
+    @Value("${dscheduler.forecast.max-window-hours:168}")
+    private int maxWindowHours;
+
+    @Value("${dscheduler.forecast.max-buckets:10080}")
+    private int maxBuckets;
+
+    @Value("${dscheduler.forecast.hot-spots:10}")
+    private int hotSpots;
+
+    @Autowired
+    public FireForecastService(JobCatalog jobCatalog) {
+        this.jobCatalog = jobCatalog;
+    }
+
+    /**
+     * @param count fire times wanted, at most {@code dscheduler.forecast.max-preview}.
+     * @return the next fire times of a job from now, fewer when its schedule ends, or null if the job is unknown.
+     * @throws IllegalArgumentException if count is out of range.
+     */
+    public List<LocalDateTime> previewFireTimes(JobKey jobKey, int count) throws SchedulerException {
+        if (count < 1 || count > maxPreview) {
+            throw new IllegalArgumentException("Count must be between 1 and " + maxPreview);
+        }
+        JobInfo job = jobCatalog.getJob(jobKey);
+        if (job == null || job.getCronExpression() == null) {
+            return null;
+        }
+        CompiledCron cron;
+        try {
+            cron = CompiledCron.compile(job.getCronExpression());
+        } catch (ParseException e) {
+            return Collections.emptyList();
+        }
+        return cron.getNextValidTimesAfter(new Date(), count).stream()
+                .map(time -> LocalDateTime.ofInstant(time.toInstant(), cron.getZone()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Forecasts the fires of all jobs not paused, from (inclusive) to (exclusive) a time, in buckets starting at from.
+     *
+     * @throws IllegalArgumentException if the window or bucket is out of range.
+     */
+    public FireForecast forecast(LocalDateTime from, LocalDateTime to, int bucketMinutes) throws SchedulerException {
+        if (!to.isAfter(from) || Duration.between(from, to).compareTo(Duration.ofHours(maxWindowHours)) > 0) {
+            throw new IllegalArgumentException("The forecast must end after it starts, within " + maxWindowHours
+                    + " hours");
+        }
+        long bucketMillis = Duration.ofMinutes(Math.max(1, bucketMinutes)).toMillis();
+        long windowMillis = Duration.between(from, to).toMillis();
+        if (bucketMinutes < 1 || (windowMillis + bucketMillis - 1) / bucketMillis > maxBuckets) {
+            throw new IllegalArgumentException("Bucket must be at least 1 minute, at most " + maxBuckets
+                    + " buckets per forecast");
+        }
+        long start = System.currentTimeMillis();
+
+        // Jobs per expression, weighted by their shards
+        Map<String, Integer> weights = new HashMap<>();
+        int jobs = 0;
+        for (JobInfo job : jobCatalog.getJobs()) {
+            if (job.getCronExpression() != null && !"PAUSED".equals(job.getTriggerState())) {
+                weights.merge(job.getCronExpression(), Math.max(1, job.getShardCount()), Integer::sum);
+                jobs++;
+            }
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        long begin = from.atZone(zone).toInstant().toEpochMilli();
+        long end = to.atZone(zone).toInstant().toEpochMilli();
+        long[] fires = new long[(int) ((end - begin + bucketMillis - 1) / bucketMillis)];
+        Map<String, CompiledCron> crons = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            CompiledCron cron;
+            try {
+                cron = CompiledCron.compile(entry.getKey());
+            } catch (ParseException e) {
+                continue;
+            }
+            crons.put(entry.getKey(), cron);
+            for (long time = cron.nextAfter(begin - 1); time >= 0 && time < end; time = cron.nextAfter(time)) {
+                fires[(int) ((time - begin) / bucketMillis)] += entry.getValue();
+            }
+        }
+
+        List<ForecastBucket> buckets = new ArrayList<>(fires.length);
+        long total = 0;
+        for (int i = 0; i < fires.length; i++) {
+            buckets.add(new ForecastBucket(bucketStart(begin, i, bucketMillis, zone), fires[i]));
+            total += fires[i];
+        }
+        List<ForecastBucket> hottest = new ArrayList<>();
+        for (int i : hottestBuckets(fires)) {
+            ForecastBucket bucket = new ForecastBucket(bucketStart(begin, i, bucketMillis, zone), fires[i]);
+            long bucketBegin = begin + i * bucketMillis;
+            bucket.setTopExpressions(topExpressions(crons, weights, bucketBegin, Math.min(end, bucketBegin + bucketMillis)));
+            hottest.add(bucket);
+        }
+
+        FireForecast forecast = new FireForecast();
+        forecast.setFrom(from);
+        forecast.setTo(to);
+        forecast.setBucketMinutes(bucketMinutes);
+        forecast.setJobs(jobs);
+        forecast.setExpressions(crons.size());
+        forecast.setFires(total);
+        forecast.setBuckets(buckets);
+        forecast.setHotSpots(hottest);
+        log.debug("Forecast {} fires of {} jobs ({} expressions) in {} buckets in {}ms", total, jobs, crons.size(),
+                fires.length, System.currentTimeMillis() - start);
+        return forecast;
+    }
+
+    /**
+     * @return the indexes of the buckets with the most fires, busiest first, leaving out empty buckets.
+     */
+    private List<Integer> hottestBuckets(long[] fires) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(i -> fires[i]).thenComparing(Comparator.reverseOrder()));
+        for (int i = 0; i < fires.length; i++) {
+            if (fires[i] > 0) {
+                top.add(i);
+                if (top.size() > hotSpots) {
+                    top.poll();
+                }
+            }
+        }
+        List<Integer> hottest = new ArrayList<>(top);
+        hottest.sort(Comparator.<Integer>comparingLong(i -> fires[i]).reversed().thenComparing(Comparator.naturalOrder()));
+        return hottest;
+    }
+
+    /**
+     * @return the expressions firing most in a bucket, with their fires, most first.
+     */
+    private Map<String, Long> topExpressions(Map<String, CompiledCron> crons, Map<String, Integer> weights,
+                                             long begin, long end) {
+        Map<String, Long> fires = new HashMap<>();
+        for (Map.Entry<String, CompiledCron> entry : crons.entrySet()) {
+            long count = 0;
+            for (long time = entry.getValue().nextAfter(begin - 1); time >= 0 && time < end;
+                 time = entry.getValue().nextAfter(time)) {
+                count++;
+            }
+            if (count > 0) {
+                fires.put(entry.getKey(), count * weights.get(entry.getKey()));
+            }
+        }
+        return fires.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_EXPRESSIONS)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static LocalDateTime bucketStart(long begin, int index, long bucketMillis, ZoneId zone) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(begin + index * bucketMillis), zone);
+    }
+}
@@ -0,0 +1,575 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.cron.CompiledCron;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobQuery;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.entity.Page;
+import com.roc.dscheduler.listener.JobCatalogListener;
+import com.roc.dscheduler.mapper.CatalogVersionMapper;
+import com.roc.dscheduler.mapper.JobMapper;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory snapshot of all jobs, indexed by name, group and trigger state.
+ * <p>
+ * Local changes arrive through {@link JobCatalogListener} and are applied incrementally, changes made on other
+ * cluster nodes are detected by polling the DS_CATALOG_VERSION counter and trigger a full reload.
+ * Local changes bump that counter once per poll interval. Jobs added or scheduled locally are read again at the next
+ * poll, in one query with the mapping of the full reload, for the columns the events do not carry (misfire policy,
+ * retry counts).
+ * Reads never touch the database once the catalog is loaded.
+ * <p>
+ * Every change of a cached job, whatever its origin, is passed to the registered {@link ChangeListener}s.
+ */
+@Component
+public class JobCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(JobCatalog.class);
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int MAX_ROLL_FORWARD_STEPS = 1000;
+    private static final int REFRESH_BATCH_SIZE = 500;
+
+    private final Scheduler scheduler;
+    private final SchedulerRouter router;
+    private final JobMapper jobMapper;
+    private final CatalogVersionMapper versionMapper;
+
+    @Value("${dscheduler.catalog.full-reload-interval:300000}")
+    private long fullReloadInterval;
+
+    private final Map<JobKey, JobInfo> jobs = new ConcurrentHashMap<>();
+    // lower-cased name + name + group -> job, sorted by name and usable for prefix lookups
+    private final ConcurrentSkipListMap<String, JobInfo> byName = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<JobKey>> byGroup = new ConcurrentHashMap<>();
+    private final Map<String, Set<JobKey>> byState = new ConcurrentHashMap<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Set<JobKey> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    private final Object writeLock = new Object();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private volatile boolean loaded;
+    private volatile long knownVersion = -1;
+    private volatile long lastFullReload;
+
+    @Autowired
+    public JobCatalog(Scheduler scheduler, SchedulerRouter router, JobMapper jobMapper,
+                      CatalogVersionMapper versionMapper) {
+        this.scheduler = scheduler;
+        this.router = router;
+        this.jobMapper = jobMapper;
+        this.versionMapper = versionMapper;
+    }
+
+    @PostConstruct
+    public void init() throws SchedulerException {
+        JobCatalogListener listener = new JobCatalogListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addSchedulerListener(listener);
+            partition.getListenerManager().addTriggerListener(listener);
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            // The catalog is loaded lazily on the first query if the database is not reachable yet
+            log.warn("Could not load job catalog at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves one page of jobs from memory, with the same search and sort semantics as {@link JobService#findJobs}.
+     *
+     * @param query search, sort and paging options.
+     * @return the requested page, clamped to the last page when out of range.
+     * @throws SchedulerException if the catalog is not loaded yet and loading fails.
+     */
+    public Page<JobInfo> findJobs(JobQuery query) throws SchedulerException {
+        ensureLoaded();
+        int size = Math.max(1, query.getSize());
+        String term = query.getSearchTerm();
+
+        List<JobInfo> content;
+        long totalItems;
+        if (term == null && !"jobGroup".equals(query.getSort()) && !"triggerState".equals(query.getSort())) {
+            // Unfiltered and sorted by name: walk the name index, no sorting or copying of the whole catalog
+            totalItems = byName.size();
+            int page = clampPage(query.getPage(), totalItems, size);
+            Collection<JobInfo> ordered = query.isDescending() ? byName.descendingMap().values() : byName.values();
+            content = ordered.stream().skip((long) (page - 1) * size).limit(size).collect(Collectors.toList());
+            query.setPage(page);
+        } else {
+            List<JobInfo> matches = filter(query.getSearchType(), term).sorted(comparator(query)).collect(Collectors.toList());
+            totalItems = matches.size();
+            int page = clampPage(query.getPage(), totalItems, size);
+            int fromIndex = (page - 1) * size;
+            content = new ArrayList<>(matches.subList(fromIndex, (int) Math.min(fromIndex + size, totalItems)));
+            query.setPage(page);
+        }
+
+        int totalPages = (int) Math.ceil((double) totalItems / size);
+        Page<JobInfo> jobPage = new Page<>();
+        jobPage.setContent(content);
+        jobPage.setCurrentPage(query.getPage());
+        jobPage.setPageSize(size);
+        jobPage.setTotalItems(totalItems);
+        jobPage.setTotalPages(totalPages == 0 ? 1 : totalPages);
+        return jobPage;
+    }
+
+    /**
+     * @return the jobs whose name starts with the given prefix (case-insensitive), ordered by name.
+     */
+    public List<JobInfo> findByNamePrefix(String prefix) throws SchedulerException {
+        ensureLoaded();
+        String from = prefix.toLowerCase();
+        return new ArrayList<>(byName.subMap(from, true, from + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     * @return the jobs of a group, in no particular order.
+     */
+    public List<JobInfo> findByGroup(String group) throws SchedulerException {
+        ensureLoaded();
+        return byGroup.getOrDefault(group, Collections.emptySet()).stream()
+                .map(jobs::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * @return all jobs, in no particular order.
+     */
+    public Collection<JobInfo> getJobs() throws SchedulerException {
+        ensureLoaded();
+        return Collections.unmodifiableCollection(jobs.values());
+    }
+
+    /**
+     * @return the cached job, or null if it is unknown.
+     */
+    public JobInfo getJob(JobKey jobKey) {
+        return jobs.get(jobKey);
+    }
+
+    /**
+     * Registers a listener notified of every change of a cached job.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @return the total number of jobs in the catalog.
+     */
+    public int size() {
+        return jobs.size();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Incremental updates, called by JobCatalogListener
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Inserts or replaces the static part of a job (class, description and shard count), keeping its trigger fields.
+     */
+    public void putJob(JobKey jobKey, String jobClass, String description, int shardCount) {
+        synchronized (writeLock) {
+            JobInfo current = jobs.get(jobKey);
+            JobInfo updated = current != null ? copyOf(current) : new JobInfo();
+            updated.setJobName(jobKey.getName());
+            updated.setJobGroup(jobKey.getGroup());
+            updated.setJobClass(jobClass);
+            updated.setDescription(description);
+            updated.setShardCount(shardCount);
+            if (updated.getTriggerState() == null) {
+                updated.setTriggerState("NO_TRIGGER");
+            }
+            index(current, updated);
+        }
+    }
+
+    /**
+     * Applies a change to a copy of the cached job and re-indexes it. Unknown jobs are ignored,
+     * they will show up with the next reload.
+     */
+    public void updateJob(JobKey jobKey, Consumer<JobInfo> change) {
+        synchronized (writeLock) {
+            JobInfo current = jobs.get(jobKey);
+            if (current == null) {
+                return;
+            }
+            JobInfo updated = copyOf(current);
+            change.accept(updated);
+            index(current, updated);
+        }
+    }
+
+    /**
+     * Sets the trigger state of every cached job of a group, or of all jobs when group is null.
+     */
+    public void updateGroupState(String group, String triggerState) {
+        synchronized (writeLock) {
+            Collection<JobKey> keys = group == null ? new ArrayList<>(jobs.keySet())
+                    : new ArrayList<>(byGroup.getOrDefault(group, Collections.emptySet()));
+            for (JobKey jobKey : keys) {
+                updateJob(jobKey, job -> {
+                    if (!"NO_TRIGGER".equals(job.getTriggerState())) {
+                        job.setTriggerState(triggerState);
+                    }
+                });
+            }
+        }
+    }
+
+    public void removeJob(JobKey jobKey) {
+        synchronized (writeLock) {
+            index(jobs.get(jobKey), null);
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            if (!changeListeners.isEmpty()) {
+                jobs.values().forEach(job -> notifyListeners(job, null));
+            }
+            jobs.clear();
+            byName.clear();
+            byGroup.clear();
+            byState.clear();
+        }
+    }
+
+    /**
+     * Marks the catalog as changed locally. The cluster-wide version is bumped once by the next poll,
+     * so bulk operations touching thousands of jobs cost a single write.
+     */
+    public void markChanged() {
+        changed.set(true);
+    }
+
+    /**
+     * Reads the job again with the next poll, unless a full reload covers it.
+     */
+    public void refreshLater(JobKey jobKey) {
+        pendingRefresh.add(jobKey);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Cluster synchronisation
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Picks up changes made on other nodes and rolls forward fire times of jobs fired elsewhere.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.catalog.poll-interval:2000}")
+    public void poll() {
+        try {
+            if (changed.getAndSet(false)) {
+                try {
+                    publishChange();
+                } catch (Exception e) {
+                    changed.set(true); // retry with the next poll
+                    throw e;
+                }
+            }
+            Long version = versionMapper.selectVersion(scheduler.getSchedulerName());
+            long current = version == null ? 0 : version;
+            if (!loaded || current != knownVersion || System.currentTimeMillis() - lastFullReload > fullReloadInterval) {
+                pendingRefresh.clear();
+                reload();
+            } else {
+                refreshPending();
+                rollForwardFireTimes();
+            }
+        } catch (Exception e) {
+            log.warn("Job catalog poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the whole catalog with a fresh snapshot read in one query. Only the jobs that differ from the
+     * snapshot are re-indexed, so readers never see a partial catalog and listeners only see actual changes.
+     */
+    public void reload() throws SchedulerException {
+        String schedName = scheduler.getSchedulerName();
+        Long version = versionMapper.selectVersion(schedName);
+        List<JobInfo> snapshot = jobMapper.selectAllJobs(router.getPartitionNames(), JobService.TRIGGER_SUFFIX);
+        synchronized (writeLock) {
+            Set<JobKey> removed = new HashSet<>(jobs.keySet());
+            for (JobInfo job : snapshot) {
+                JobKey jobKey = JobKey.jobKey(job.getJobName(), job.getJobGroup());
+                removed.remove(jobKey);
+                JobInfo current = jobs.get(jobKey);
+                if (current == null || !sameRow(current, job)) {
+                    index(current, job);
+                }
+            }
+            for (JobKey jobKey : removed) {
+                index(jobs.get(jobKey), null);
+            }
+            knownVersion = version == null ? 0 : version;
+            lastFullReload = System.currentTimeMillis();
+            loaded = true;
+        }
+        log.debug("Job catalog reloaded with {} jobs at version {}", snapshot.size(), knownVersion);
+    }
+
+    /**
+     * Reads the jobs waiting for a refresh with the query of {@link #reload()}, in batches of explicit keys.
+     * Jobs no longer found were deleted, which their own event reports.
+     */
+    private void refreshPending() {
+        List<JobKey> keys = new ArrayList<>(REFRESH_BATCH_SIZE);
+        for (Iterator<JobKey> it = pendingRefresh.iterator(); it.hasNext(); ) {
+            keys.add(it.next());
+            it.remove();
+            if (keys.size() == REFRESH_BATCH_SIZE || !it.hasNext()) {
+                try {
+                    refresh(keys);
+                } catch (RuntimeException e) {
+                    pendingRefresh.addAll(keys); // Retried with the next poll
+                    throw e;
+                }
+                keys.clear();
+            }
+        }
+    }
+
+    private void refresh(List<JobKey> keys) {
+        JobSelector selector = new JobSelector();
+        selector.setJobs(keys.stream()
+                .map(jobKey -> new JobInfo(jobKey.getName(), jobKey.getGroup(), null, null, null, null, null, null))
+                .collect(Collectors.toList()));
+        List<JobInfo> rows = jobMapper.selectJobs(router.getPartitionNames(), JobService.TRIGGER_SUFFIX, selector);
+        synchronized (writeLock) {
+            for (JobInfo job : rows) {
+                JobInfo current = jobs.get(JobKey.jobKey(job.getJobName(), job.getJobGroup()));
+                if (current == null || !sameRow(current, job)) {
+                    index(current, job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bumps the cluster-wide version so other nodes reload, and records it as already seen by this node
+     * when no other node changed the catalog in between.
+     */
+    private void publishChange() throws SchedulerException {
+        String schedName = scheduler.getSchedulerName();
+        versionMapper.incrementVersion(schedName);
+        Long version = versionMapper.selectVersion(schedName);
+        if (version != null && knownVersion == version - 1) {
+            knownVersion = version;
+        }
+    }
+
+    private void ensureLoaded() throws SchedulerException {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Jobs fired on other nodes are not reported to the local listener, their fire times are advanced
+     * from the cron expression instead of reloading them from the database.
+     */
+    private void rollForwardFireTimes() {
+        LocalDateTime now = LocalDateTime.now();
+        for (JobInfo job : jobs.values()) {
+            if (job.getNextFireTime() == null || job.getCronExpression() == null || job.getNextFireTime().isAfter(now)
+                    || "PAUSED".equals(job.getTriggerState())) {
+                continue;
+            }
+            CompiledCron cron;
+            try {
+                cron = CompiledCron.compile(job.getCronExpression());
+            } catch (ParseException e) {
+                continue;
+            }
+            Date nowDate = Date.from(now.atZone(ZoneId.systemDefault()).toInstant());
+            Date previous = Date.from(job.getNextFireTime().atZone(ZoneId.systemDefault()).toInstant());
+            Date next = cron.getNextValidTimeAfter(previous);
+            for (int i = 0; next != null && !next.after(nowDate) && i < MAX_ROLL_FORWARD_STEPS; i++) {
+                previous = next;
+                next = cron.getNextValidTimeAfter(previous);
+            }
+            Date previousFireTime = previous;
+            Date nextFireTime = next;
+            updateJob(JobKey.jobKey(job.getJobName(), job.getJobGroup()), updated -> {
+                updated.setPreviousFireTime(toLocalDateTime(previousFireTime));
+                updated.setNextFireTime(nextFireTime != null ? toLocalDateTime(nextFireTime) : null);
+            });
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Indexes
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Swaps the previous version of a job for the new one in all indexes. Must hold the write lock.
+     */
+    private void index(JobInfo previous, JobInfo updated) {
+        if (previous != null) {
+            JobKey jobKey = JobKey.jobKey(previous.getJobName(), previous.getJobGroup());
+            jobs.remove(jobKey);
+            byName.remove(nameKey(previous));
+            removeFromIndex(byGroup, previous.getJobGroup(), jobKey);
+            removeFromIndex(byState, previous.getTriggerState(), jobKey);
+        }
+        if (updated != null) {
+            JobKey jobKey = JobKey.jobKey(updated.getJobName(), updated.getJobGroup());
+            jobs.put(jobKey, updated);
+            byName.put(nameKey(updated), updated);
+            byGroup.computeIfAbsent(updated.getJobGroup(), k -> ConcurrentHashMap.newKeySet()).add(jobKey);
+            byState.computeIfAbsent(updated.getTriggerState(), k -> ConcurrentHashMap.newKeySet()).add(jobKey);
+        }
+        if (previous != null || updated != null) {
+            notifyListeners(previous, updated);
+        }
+    }
+
+    private void notifyListeners(JobInfo previous, JobInfo updated) {
+        for (ChangeListener listener : changeListeners) {
+            try {
+                listener.jobChanged(previous, updated);
+            } catch (Exception e) {
+                log.warn("Job catalog change listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void removeFromIndex(Map<String, Set<JobKey>> index, String key, JobKey jobKey) {
+        if (key == null) {
+            return;
+        }
+        Set<JobKey> keys = index.get(key);
+        if (keys != null) {
+            keys.remove(jobKey);
+            if (keys.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String nameKey(JobInfo job) {
+        return job.getJobName().toLowerCase() + KEY_SEPARATOR + job.getJobName() + KEY_SEPARATOR + job.getJobGroup();
+    }
+
+    private Stream<JobInfo> filter(String searchType, String term) {
+        if (term == null) {
+            return jobs.values().stream();
+        }
+        String searchTerm = term.toLowerCase();
+        switch (searchType) {
+            case "name":
+                return byName.values().stream().filter(job -> job.getJobName().toLowerCase().contains(searchTerm));
+            case "group":
+                return fromIndex(byGroup, searchTerm);
+            case "cron":
+                return jobs.values().stream().filter(job -> job.getCronExpression() != null
+                        && job.getCronExpression().toLowerCase().contains(searchTerm));
+            case "status":
+                return fromIndex(byState, searchTerm);
+            default:
+                return jobs.values().stream();
+        }
+    }
+
+    private Stream<JobInfo> fromIndex(Map<String, Set<JobKey>> index, String searchTerm) {
+        return index.entrySet().stream()
+                .filter(entry -> entry.getKey().toLowerCase().contains(searchTerm))
+                .flatMap(entry -> entry.getValue().stream())
+                .map(jobs::get)
+                .filter(Objects::nonNull);
+    }
+
+    private static Comparator<JobInfo> comparator(JobQuery query) {
+        Comparator<JobInfo> comparator;
+        switch (query.getSort()) {
+            case "jobGroup":
+                comparator = Comparator.comparing(JobInfo::getJobGroup, String.CASE_INSENSITIVE_ORDER);
+                break;
+            case "triggerState":
+                comparator = Comparator.comparing(JobInfo::getTriggerState);
+                break;
+            default:
+                comparator = Comparator.comparing(JobInfo::getJobName, String.CASE_INSENSITIVE_ORDER);
+                break;
+        }
+        if (query.isDescending()) {
+            comparator = comparator.reversed();
+        }
+        return comparator.thenComparing(JobInfo::getJobGroup).thenComparing(JobInfo::getJobName);
+    }
+
+    private static int clampPage(int page, long totalItems, int size) {
+        int totalPages = (int) Math.ceil((double) totalItems / size);
+        return Math.max(1, Math.min(page, totalPages));
+    }
+
+    private static JobInfo copyOf(JobInfo job) {
+        JobInfo copy = new JobInfo(job.getJobName(), job.getJobGroup(), job.getJobClass(), job.getCronExpression(),
+                job.getDescription(), job.getTriggerState(), job.getPreviousFireTime(), job.getNextFireTime());
+        copy.setShardCount(job.getShardCount());
+        copy.setPriority(job.getPriority());
+        copy.setMisfirePolicy(job.getMisfirePolicy());
+        copy.setRetryCount(job.getRetryCount());
+        copy.setConsecutiveFailures(job.getConsecutiveFailures());
+        return copy;
+    }
+
+    /**
+     * @return true if both versions of a job show the same row, i.e. every field read by the job queries is equal.
+     */
+    private static boolean sameRow(JobInfo a, JobInfo b) {
+        return Objects.equals(a.getJobClass(), b.getJobClass())
+                && Objects.equals(a.getCronExpression(), b.getCronExpression())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && a.getShardCount() == b.getShardCount()
+                && a.getPriority() == b.getPriority()
+                && a.getMisfirePolicy() == b.getMisfirePolicy()
+                && a.getRetryCount() == b.getRetryCount()
+                && a.getConsecutiveFailures() == b.getConsecutiveFailures()
+                && Objects.equals(a.getTriggerState(), b.getTriggerState())
+                && Objects.equals(a.getPreviousFireTime(), b.getPreviousFireTime())
+                && Objects.equals(a.getNextFireTime(), b.getNextFireTime());
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    /**
+     * Notified of every change of a cached job, under the catalog's write lock: implementations must not block.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * @param previous the job before the change, null if it was added.
+         * @param current  the job after the change, null if it was removed.
+         */
+        void jobChanged(JobInfo previous, JobInfo current);
+    }
+}
@@ -0,0 +1,109 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.JobDataRow;
+import com.roc.dscheduler.mapper.JobDataMapper;
+import com.roc.dscheduler.quartz.CompactJobDataDelegate;
+import com.roc.dscheduler.quartz.JobDataCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.quartz.QuartzProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Converts the Java-serialized JobDataMaps of all jobs and triggers to the encoding of {@link CompactJobDataDelegate},
+ * once every node runs with that delegate. Rows are read in key order in batches and each converted row is written
+ * with a compare-and-set on its old data, so the scheduler keeps running: a row the job store rewrote meanwhile is
+ * already in the new encoding. Rows whose data cannot be read (a value's class is gone) are left as they are and
+ * counted as failed. Running it again converts what is left.
+ */
+@Service
+public class JobDataMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(JobDataMigration.class);
+
+    private final JobDataMapper jobDataMapper;
+    private final QuartzProperties quartzProperties;
+
+    @Value("${dscheduler.job-data.migration-batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public JobDataMigration(JobDataMapper jobDataMapper, QuartzProperties quartzProperties) {
+        this.jobDataMapper = jobDataMapper;
+        this.quartzProperties = quartzProperties;
+    }
+
+    /**
+     * @return the rows converted ("jobs", "triggers"), and those that could not be ("failed").
+     * @throws IllegalStateException if this node does not run with {@link CompactJobDataDelegate}.
+     */
+    public Map<String, Long> migrate() {
+        checkDelegate();
+        long start = System.currentTimeMillis();
+        long[] failed = new long[1];
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("jobs", migrate(jobDataMapper::selectJobData, jobDataMapper::updateJobData, failed));
+        result.put("triggers", migrate(jobDataMapper::selectTriggerData, jobDataMapper::updateTriggerData, failed));
+        result.put("failed", failed[0]);
+        log.info("Converted the JobDataMaps of {} jobs and {} triggers in {}ms, {} failed", result.get("jobs"),
+                result.get("triggers"), System.currentTimeMillis() - start, failed[0]);
+        return result;
+    }
+
+    private long migrate(BiFunction<JobDataRow, Integer, List<JobDataRow>> select, RowUpdate update, long[] failed) {
+        long converted = 0;
+        JobDataRow after = null;
+        List<JobDataRow> rows;
+        do {
+            rows = select.apply(after, batchSize);
+            for (JobDataRow row : rows) {
+                byte[] legacy = row.getJobData();
+                if (legacy == null || legacy.length == 0 || JobDataCodec.isCompact(legacy)) {
+                    continue;
+                }
+                try {
+                    @SuppressWarnings("unchecked")
+                    Map<String, ?> data = (Map<String, ?>) JobDataCodec.decodeAny(legacy);
+                    row.setJobData(JobDataCodec.encode(data));
+                } catch (Exception e) {
+                    log.warn("Could not convert the JobDataMap of {}.{} in {}: {}", row.getGroup(), row.getName(),
+                            row.getSchedName(), e.toString());
+                    failed[0]++;
+                    continue;
+                }
+                converted += update.apply(row, legacy);
+            }
+            if (!rows.isEmpty()) {
+                after = rows.get(rows.size() - 1);
+            }
+        } while (rows.size() == batchSize);
+        return converted;
+    }
+
+    private void checkDelegate() {
+        Map<String, String> properties = quartzProperties.getProperties();
+        String delegate = properties.get("org.quartz.jobStore.driverDelegateClass");
+        boolean compact;
+        try {
+            compact = delegate != null
+                    && CompactJobDataDelegate.class.isAssignableFrom(Class.forName(delegate.trim()));
+        } catch (ClassNotFoundException e) {
+            compact = false;
+        }
+        if (!compact || Boolean.parseBoolean(properties.get("org.quartz.jobStore.useProperties"))) {
+            throw new IllegalStateException("JobDataMaps can only be converted with driverDelegateClass "
+                    + CompactJobDataDelegate.class.getName() + " and useProperties false, on every node");
+        }
+    }
+
+    private interface RowUpdate {
+        int apply(JobDataRow row, byte[] expected);
+    }
+}
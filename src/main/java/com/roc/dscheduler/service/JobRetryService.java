@@ -0,0 +1,242 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.JobRetryListener;
+import com.roc.dscheduler.mapper.JobRetryMapper;
+import com.roc.dscheduler.quartz.DschedulerJobStore;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retries failed executions and pauses jobs that keep failing, for the jobs defined with a retry policy or a
+ * circuit breaker ({@link JobService#RETRY_MAX_ATTEMPTS}, {@link JobService#BREAKER_THRESHOLD}).
+ * <p>
+ * {@link JobRetryListener} hands every finished execution to {@link #executed}. A failure that is retryable (any
+ * failure, or one caused by an exception listed in {@link JobService#RETRY_ON}) is retried by a durable one-shot
+ * trigger on the same job, starting after an exponential backoff with jitter: half of
+ * {@code min(retryMaxBackoff, retryBackoff * 2^(attempt - 1))} plus a random part of the other half, so failures of
+ * many jobs at once do not retry at once. No thread waits during the backoff, and a retry pending when its node fails
+ * is fired by another node. The retry trigger carries the job data of the failed trigger, so a workflow run sees the
+ * retry as its execution, with the attempt ({@link #RETRY_ATTEMPT}) and the scheduled fire time it retries
+ * ({@link #RETRY_ORIGIN}).
+ * <p>
+ * Consecutive failures and retries are counted per job in DS_JOB_RETRY_STATE, shards under their job, and shown in
+ * the job list through the {@link JobCatalog}. A failure is counted and read back in one transaction holding the row
+ * lock, so shards failing at once each see their own count. The counts are updated in the local catalog only, without
+ * bumping the cluster-wide catalog version: a failing job would otherwise have every node reload the whole catalog
+ * at each poll. Other nodes show them from their next reload. The job is paused when the count crosses a multiple of
+ * {@code breakerThreshold}, its pending retry with it; resuming the job fires the retry and gives it another
+ * {@code breakerThreshold} failures. A successful execution resets the count.
+ */
+@Service
+public class JobRetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRetryService.class);
+
+    /**
+     * Trigger data keys of a retry: the attempt, from 1, and the scheduled fire time of the failed execution.
+     */
+    public static final String RETRY_ATTEMPT = "retryAttempt";
+    public static final String RETRY_ORIGIN = "retryOrigin";
+    /**
+     * Separator in retry trigger names, a retry of "x_trigger" is "x_trigger#retry-&lt;origin&gt;-&lt;attempt&gt;".
+     */
+    public static final String RETRY_SEPARATOR = "#retry-";
+
+    private final SchedulerRouter router;
+    private final JobService jobService;
+    private final JobRetryMapper retryMapper;
+    private final SchedulerMetrics metrics;
+    private final JobCatalog jobCatalog;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JobRetryService(SchedulerRouter router, JobService jobService, JobRetryMapper retryMapper,
+                           SchedulerMetrics metrics, JobCatalog jobCatalog, TransactionTemplate transactionTemplate) {
+        this.router = router;
+        this.jobService = jobService;
+        this.retryMapper = retryMapper;
+        this.metrics = metrics;
+        this.jobCatalog = jobCatalog;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        JobRetryListener listener = new JobRetryListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+    }
+
+    /**
+     * @return true if this failed execution is retried, whatever the circuit breaker decides. Lets other listeners
+     * treat the failure as not final.
+     */
+    public static boolean willRetry(JobExecutionContext context, JobExecutionException jobException) {
+        Throwable failure = failure(context, jobException);
+        if (failure == null) {
+            return false;
+        }
+        JobDataMap data = context.getMergedJobDataMap();
+        int maxAttempts = data.containsKey(JobService.RETRY_MAX_ATTEMPTS)
+                ? data.getInt(JobService.RETRY_MAX_ATTEMPTS) : 0;
+        if (attempt(context) >= maxAttempts) {
+            return false;
+        }
+        if (jobException != null && (jobException.refireImmediately() || jobException.unscheduleFiringTrigger()
+                || jobException.unscheduleAllTriggers())) {
+            return false; // The job decided what happens next
+        }
+        return isRetryable(failure, data.getString(JobService.RETRY_ON));
+    }
+
+    /**
+     * Retries a failed execution and counts its outcome. Called on the worker thread when it ended, once an async
+     * execution completed, before Quartz completes its trigger.
+     */
+    public void executed(JobExecutionContext context, JobExecutionException jobException) {
+        JobDataMap data = context.getMergedJobDataMap();
+        int breakerThreshold = data.containsKey(JobService.BREAKER_THRESHOLD)
+                ? data.getInt(JobService.BREAKER_THRESHOLD) : 0;
+        if (!data.containsKey(JobService.RETRY_MAX_ATTEMPTS) && breakerThreshold <= 0) {
+            return;
+        }
+        JobKey jobKey = baseKey(context.getJobDetail().getKey());
+        try {
+            // Counted under the scheduler of the job itself, where the job list reads it
+            String schedName = router.getScheduler(jobKey).getSchedulerName();
+            if (failure(context, jobException) == null) {
+                if (retryMapper.resetFailures(schedName, jobKey.getGroup(), jobKey.getName()) > 0) {
+                    jobCatalog.updateJob(jobKey, job -> job.setConsecutiveFailures(0));
+                }
+                return;
+            }
+            boolean retry = willRetry(context, jobException);
+            int failures = transactionTemplate.execute(status -> {
+                retryMapper.recordFailure(schedName, jobKey.getGroup(), jobKey.getName(), retry ? 1 : 0,
+                        System.currentTimeMillis());
+                return retryMapper.lockConsecutiveFailures(schedName, jobKey.getGroup(), jobKey.getName());
+            });
+            jobCatalog.updateJob(jobKey, job -> {
+                job.setConsecutiveFailures(failures);
+                job.setRetryCount(job.getRetryCount() + (retry ? 1 : 0));
+            });
+            if (retry) {
+                scheduleRetry(context, data);
+            }
+            int before = failures - 1;
+            if (breakerThreshold > 0 && before / breakerThreshold < failures / breakerThreshold) {
+                // Pauses the retry too, it fires once the job is resumed
+                metrics.countBreakerTrip(jobKey.getGroup());
+                log.warn("Job {} failed {} times in a row, pausing it", jobKey, failures);
+                jobService.pauseJob(jobKey.getName(), jobKey.getGroup());
+            }
+        } catch (Exception e) {
+            log.error("Could not handle the failure of execution {} of {}: {}", context.getFireInstanceId(),
+                    context.getJobDetail().getKey(), e.getMessage(), e);
+        }
+    }
+
+    private void scheduleRetry(JobExecutionContext context, JobDataMap data) throws SchedulerException {
+        Trigger failed = context.getTrigger();
+        int attempt = attempt(context) + 1;
+        Date origin = failed.getJobDataMap().containsKey(RETRY_ORIGIN)
+                ? new Date(failed.getJobDataMap().getLongValue(RETRY_ORIGIN)) : context.getScheduledFireTime();
+        long delay = backoff(attempt, data.getInt(JobService.RETRY_BACKOFF), data.getInt(JobService.RETRY_MAX_BACKOFF));
+
+        String name = failed.getKey().getName();
+        int separator = name.indexOf(RETRY_SEPARATOR);
+        String baseName = separator < 0 ? name : name.substring(0, separator);
+        JobDataMap retryData = new JobDataMap(failed.getJobDataMap());
+        retryData.remove(DschedulerJobStore.MISFIRE_CAP);
+        retryData.put(RETRY_ATTEMPT, attempt);
+        retryData.put(RETRY_ORIGIN, origin.getTime());
+        Trigger retry = TriggerBuilder.newTrigger()
+                .withIdentity(TriggerKey.triggerKey(baseName + RETRY_SEPARATOR
+                        + Long.toString(origin.getTime(), 36) + "-" + attempt, failed.getKey().getGroup()))
+                .forJob(context.getJobDetail().getKey())
+                .withDescription("Retry " + attempt + " of " + baseName)
+                .withPriority(failed.getPriority())
+                .usingJobData(retryData)
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .startAt(new Date(System.currentTimeMillis() + delay))
+                .build();
+        context.getScheduler().scheduleJob(retry);
+        metrics.countRetry(context.getJobDetail().getKey().getGroup());
+        log.info("Execution {} of {} failed, retry {} in {} ms", context.getFireInstanceId(),
+                context.getJobDetail().getKey(), attempt, delay);
+    }
+
+    /**
+     * @return millis before a retry: half the exponential backoff plus a random part of the other half.
+     */
+    static long backoff(int attempt, int backoffSeconds, int maxBackoffSeconds) {
+        long max = Math.max(1, maxBackoffSeconds) * 1000L;
+        long delay = Math.min(max, Math.max(1, backoffSeconds) * 1000L << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @return the retries this execution is, 0 for a regular fire.
+     */
+    private static int attempt(JobExecutionContext context) {
+        JobDataMap triggerData = context.getTrigger().getJobDataMap();
+        return triggerData.containsKey(RETRY_ATTEMPT) ? triggerData.getIntValue(RETRY_ATTEMPT) : 0;
+    }
+
+    /**
+     * @return why the execution failed, null if it succeeded. A timed out execution failed with a TimeoutException.
+     */
+    private static Throwable failure(JobExecutionContext context, JobExecutionException jobException) {
+        if (jobException != null) {
+            return jobException.getCause() != null ? jobException.getCause() : jobException;
+        }
+        return JobWatchdog.isTimedOut(context) ? new TimeoutException("Execution timed out") : null;
+    }
+
+    /**
+     * @return true if no exception is listed or one in the cause chain is, or extends, a listed exception, by fully
+     * qualified or simple name.
+     */
+    private static boolean isRetryable(Throwable failure, String retryOn) {
+        if (!StringUtils.hasText(retryOn)) {
+            return true;
+        }
+        String[] names = StringUtils.tokenizeToStringArray(retryOn, ",");
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            for (Class<?> type = cause.getClass(); type != null; type = type.getSuperclass()) {
+                for (String name : names) {
+                    if (name.equals(type.getName()) || name.equals(type.getSimpleName())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static JobKey baseKey(JobKey jobKey) {
+        int shard = jobKey.getName().indexOf(JobService.SHARD_SEPARATOR);
+        return shard < 0 ? jobKey : JobKey.jobKey(jobKey.getName().substring(0, shard), jobKey.getGroup());
+    }
+}
@@ -1,66 +1,281 @@
 package com.roc.dscheduler.service;
 
+import com.roc.dscheduler.entity.BatchResult;
+import com.roc.dscheduler.entity.GroupUsage;
 import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobQuery;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.entity.MisfirePolicy;
+import com.roc.dscheduler.entity.NodeLoad;
+import com.roc.dscheduler.entity.Page;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.quartz.DschedulerJobStore;
+import com.roc.dscheduler.quartz.GroupQuotas;
 import org.quartz.*;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 public class JobService {
 
     private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    /**
+     * Suffix of the primary trigger name, a job "x" is fired by the trigger "x_trigger" in the same group.
+     */
+    public static final String TRIGGER_SUFFIX = "_trigger";
+
+    /**
+     * Separator of the extra shards of a sharded job: shard k (k >= 1) of job "x" is the job "x#shard-k" in the same
+     * group, fired by its own trigger "x#shard-k_trigger". Shard 0 is the job itself.
+     */
+    public static final String SHARD_SEPARATOR = "#shard-";
+
+    /**
+     * JobDataMap keys of a sharded job execution.
+     */
+    public static final String SHARD_INDEX = "shardIndex";
+    public static final String SHARD_TOTAL = "shardTotal";
+    public static final String SHARD_PARAM = "shardParam";
+    /**
+     * Job data key of shard 0: the parameters of all shards, comma separated, so exports read them from a single job.
+     */
+    public static final String SHARD_PARAMS = "shardParams";
+    /**
+     * Job data key: execution timeout in seconds, see {@link JobWatchdog}.
+     */
+    public static final String TIMEOUT = "timeout";
+    /**
+     * Job data keys of the retry policy and circuit breaker, see {@link JobRetryService}. Retry backoffs in seconds,
+     * retryable exceptions comma separated.
+     */
+    public static final String RETRY_MAX_ATTEMPTS = "retryMaxAttempts";
+    public static final String RETRY_BACKOFF = "retryBackoff";
+    public static final String RETRY_MAX_BACKOFF = "retryMaxBackoff";
+    public static final String RETRY_ON = "retryOn";
+    public static final String BREAKER_THRESHOLD = "breakerThreshold";
+
     private final Scheduler scheduler;
+    private final SchedulerRouter router;
+    private final JobMapper jobMapper;
+    private final JobCatalog jobCatalog;
+    private final Validator validator;
+    private final JobTypeRegistry jobTypeRegistry;
 
     @Autowired
-    public JobService(Scheduler scheduler) throws SchedulerException {
+    public JobService(Scheduler scheduler, SchedulerRouter router, JobMapper jobMapper, JobCatalog jobCatalog,
+                      Validator validator, JobTypeRegistry jobTypeRegistry) throws SchedulerException {
         this.scheduler = scheduler;
+        this.router = router;
+        this.jobMapper = jobMapper;
+        this.jobCatalog = jobCatalog;
+        this.validator = validator;
+        this.jobTypeRegistry = jobTypeRegistry;
     }
 
     /**
      * Schedules a new job.
+     * <p>
+     * A job with a shard count N > 1 is stored as N jobs with the same class and cron expression, each with its own
+     * trigger and {@link #SHARD_INDEX}, {@link #SHARD_TOTAL} and optional {@link #SHARD_PARAM} in its JobDataMap.
+     * Each shard is fired by its own trigger, so a class annotated with {@code @DisallowConcurrentExecution} only
+     * serializes each shard with itself, but a node acquiring a batch of triggers may take several shards of a fire.
+     * In partitioned mode the shards are routed to consecutive partitions, which are run by different nodes.
+     * The shard count is fixed when the job is saved, it does not follow the cluster membership.
+     * The shards request recovery: the shard of a failed node is re-executed by another node.
      *
      * @param jobInfo containing job details.
      * @throws SchedulerException     if scheduling fails.
-     * @throws ClassNotFoundException if the job class is not found.
+     * @throws ClassNotFoundException if the job class is not a registered job type.
      */
     public void scheduleJob(JobInfo jobInfo) throws SchedulerException, ClassNotFoundException {
         JobKey jobKey = JobKey.jobKey(jobInfo.getJobName(), jobInfo.getJobGroup());
 
-        if (scheduler.checkExists(jobKey)) {
+        if (router.getScheduler(jobKey).checkExists(jobKey)) {
             log.warn("Job {} in group {} already exists. It will be updated.", jobInfo.getJobName(), jobInfo.getJobGroup());
             // Optionally delete and recreate, or update. For simplicity, we'll allow Quartz to update if overwriteExistingJobs is true.
             // scheduler.deleteJob(jobKey);
         }
 
-        @SuppressWarnings("unchecked")
-        Class<? extends Job> jobClass = (Class<? extends Job>) Class.forName(jobInfo.getJobClass());
+        Map<JobDetail, Set<? extends Trigger>> shards = new LinkedHashMap<>();
+        buildShards(jobInfo, jobTypeRegistry.getJobClass(jobInfo.getJobClass()), jobInfo.getShardCount(), shards);
 
-        JobDetail jobDetail = JobBuilder.newJob(jobClass)
-                .withIdentity(jobKey)
-                .withDescription(jobInfo.getDescription())
-                .storeDurably() // Important if the job is to exist without triggers
-                .build();
+        scheduleInPartitions(shards, false);
+        log.info("Scheduled job: {} in group: {} with cron: {} ({} shards)", jobInfo.getJobName(), jobInfo.getJobGroup(),
+                jobInfo.getCronExpression(), shards.size());
+    }
 
-        Trigger trigger = TriggerBuilder.newTrigger()
-                .forJob(jobDetail)
-                .withIdentity(jobInfo.getJobName() + "_trigger", jobInfo.getJobGroup())
-                .withDescription(jobInfo.getDescription())
-                .withSchedule(CronScheduleBuilder.cronSchedule(jobInfo.getCronExpression())
-                        .withMisfireHandlingInstructionFireAndProceed()) // Example misfire instruction
-                .build();
+    /**
+     * Creates or updates many jobs in a single job store transaction per partition.
+     * The whole batch is validated first: if any job is invalid nothing is scheduled.
+     *
+     * @param jobInfos jobs to schedule.
+     * @param replace  whether existing jobs with the same key are replaced. If false, existing jobs are reported as failures.
+     * @return one result per job.
+     */
+    public BatchResult scheduleJobs(List<JobInfo> jobInfos, boolean replace) {
+        Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new LinkedHashMap<>();
+        List<String> errors = prepareBatch(jobInfos, replace, jobsAndTriggers);
+
+        boolean valid = errors.stream().allMatch(Objects::isNull);
+        String batchError = valid ? null : "Not scheduled, the batch contains invalid jobs";
+        if (valid && !jobsAndTriggers.isEmpty()) {
+            try {
+                if (replace) {
+                    deleteSurplusShards(jobInfos, jobsAndTriggers);
+                }
+                scheduleInPartitions(jobsAndTriggers, replace);
+                log.info("Scheduled {} jobs in one batch (replace: {})", jobInfos.size(), replace);
+            } catch (SchedulerException e) {
+                log.error("Error scheduling batch of {} jobs: {}", jobsAndTriggers.size(), e.getMessage(), e);
+                batchError = "Batch failed: " + e.getMessage();
+            }
+        }
+        return toResult(jobInfos, errors, batchError);
+    }
+
+    /**
+     * Validates a batch exactly like {@link #scheduleJobs(List, boolean)} does, without scheduling anything.
+     *
+     * @param jobInfos jobs to validate.
+     * @param replace  whether existing jobs with the same key would be replaced.
+     * @return one result per job.
+     */
+    public BatchResult validateJobs(List<JobInfo> jobInfos, boolean replace) {
+        return toResult(jobInfos, prepareBatch(jobInfos, replace, new LinkedHashMap<>()), null);
+    }
+
+    /**
+     * Fills in the parts of a job definition the job queries cannot read, because Quartz only stores them in
+     * job data maps: the timeout, the retry policy, the misfire cap of a FIRE_ALL_CAPPED job and the parameters of a
+     * sharded job.
+     * Reads the job and the trigger of jobs whose policy reads as IGNORE.
+     *
+     * @param jobInfo job read by the job queries, completed in place.
+     * @throws SchedulerException if the job, trigger or shards cannot be read.
+     */
+    public void completeDefinition(JobInfo jobInfo) throws SchedulerException {
+        JobKey jobKey = JobKey.jobKey(jobInfo.getJobName(), jobInfo.getJobGroup());
+        JobDetail job = router.getScheduler(jobKey).getJobDetail(jobKey);
+        Trigger trigger = null;
+        if (jobInfo.getMisfirePolicy() == MisfirePolicy.IGNORE) {
+            TriggerKey triggerKey = TriggerKey.triggerKey(jobInfo.getJobName() + TRIGGER_SUFFIX, jobInfo.getJobGroup());
+            trigger = router.getScheduler(jobKey).getTrigger(triggerKey);
+        }
+        completeDefinition(jobInfo, job != null ? job.getJobDataMap() : null,
+                trigger != null ? trigger.getJobDataMap() : null);
+    }
+
+    /**
+     * Same as {@link #completeDefinition(JobInfo)} from job data maps already read, for the export stream.
+     * Only the shards of a sharded job scheduled before {@link #SHARD_PARAMS} are read from the scheduler.
+     *
+     * @param jobInfo     job read by the job queries, completed in place.
+     * @param jobData     job data of the job (shard 0), null if it has none.
+     * @param triggerData job data of its trigger, null if it has none.
+     * @throws SchedulerException if the shards cannot be read.
+     */
+    public void completeDefinition(JobInfo jobInfo, Map<?, ?> jobData, Map<?, ?> triggerData)
+            throws SchedulerException {
+        JobDataMap data = new JobDataMap(jobData != null ? jobData : Collections.emptyMap());
+        if (data.containsKey(TIMEOUT)) {
+            jobInfo.setTimeout(data.getInt(TIMEOUT));
+        }
+        if (data.containsKey(RETRY_MAX_ATTEMPTS)) {
+            jobInfo.setRetryMaxAttempts(data.getInt(RETRY_MAX_ATTEMPTS));
+            jobInfo.setRetryBackoff(data.getInt(RETRY_BACKOFF));
+            jobInfo.setRetryMaxBackoff(data.getInt(RETRY_MAX_BACKOFF));
+            jobInfo.setRetryOn(data.getString(RETRY_ON));
+            jobInfo.setBreakerThreshold(data.getInt(BREAKER_THRESHOLD));
+        }
+        if (jobInfo.getMisfirePolicy() == MisfirePolicy.IGNORE && triggerData != null
+                && triggerData.containsKey(DschedulerJobStore.MISFIRE_CAP)) {
+            jobInfo.setMisfirePolicy(MisfirePolicy.FIRE_ALL_CAPPED);
+            jobInfo.setMisfireCap(new JobDataMap(triggerData).getInt(DschedulerJobStore.MISFIRE_CAP));
+        }
+        if (jobInfo.getShardCount() > 1 && data.containsKey(SHARD_PARAMS)) {
+            jobInfo.setShardParams(data.getString(SHARD_PARAMS));
+        } else if (jobInfo.getShardCount() > 1 && data.containsKey(SHARD_PARAM)) {
+            List<String> params = new ArrayList<>(jobInfo.getShardCount());
+            for (JobKey shardKey : shardKeys(jobInfo)) {
+                JobDetail jobDetail = router.getScheduler(shardKey).getJobDetail(shardKey);
+                if (jobDetail == null || !jobDetail.getJobDataMap().containsKey(SHARD_PARAM)) {
+                    return;
+                }
+                params.add(jobDetail.getJobDataMap().getString(SHARD_PARAM));
+            }
+            jobInfo.setShardParams(String.join(",", params));
+        }
+    }
 
-        scheduler.scheduleJob(jobDetail, trigger);
-        log.info("Scheduled job: {} in group: {} with cron: {}", jobInfo.getJobName(), jobInfo.getJobGroup(), jobInfo.getCronExpression());
+    /**
+     * Pauses every job matched by the selector. Whole groups are paused with a single GroupMatcher call.
+     *
+     * @param selector jobs to pause.
+     * @return one result per matched job.
+     * @throws SchedulerException if the matched jobs cannot be read.
+     */
+    public BatchResult pauseJobs(JobSelector selector) throws SchedulerException {
+        List<JobInfo> jobs = selectJobs(selector);
+        if (selector.isGroupOnly()) {
+            GroupMatcher<JobKey> matcher = groupMatcher(selector);
+            return applyToGroup(jobs, () -> {
+                for (Scheduler partition : router.getPartitions()) {
+                    if (matcher != null) {
+                        partition.pauseJobs(matcher);
+                    }
+                }
+            });
+        }
+        return applyToEach(jobs, jobKey -> router.getScheduler(jobKey).pauseJob(jobKey));
+    }
+
+    /**
+     * Resumes every job matched by the selector. Whole groups are resumed with a single GroupMatcher call.
+     *
+     * @param selector jobs to resume.
+     * @return one result per matched job.
+     * @throws SchedulerException if the matched jobs cannot be read.
+     */
+    public BatchResult resumeJobs(JobSelector selector) throws SchedulerException {
+        List<JobInfo> jobs = selectJobs(selector);
+        if (selector.isGroupOnly()) {
+            GroupMatcher<JobKey> matcher = groupMatcher(selector);
+            return applyToGroup(jobs, () -> {
+                for (Scheduler partition : router.getPartitions()) {
+                    if (matcher != null) {
+                        partition.resumeJobs(matcher);
+                    }
+                }
+            });
+        }
+        return applyToEach(jobs, jobKey -> router.getScheduler(jobKey).resumeJob(jobKey));
+    }
+
+    /**
+     * Deletes every job matched by the selector in a single job store transaction per partition.
+     *
+     * @param selector jobs to delete.
+     * @return one result per matched job.
+     * @throws SchedulerException if the matched jobs cannot be read.
+     */
+    public BatchResult deleteJobs(JobSelector selector) throws SchedulerException {
+        List<JobInfo> jobs = selectJobs(selector);
+        List<JobKey> jobKeys = jobs.stream().flatMap(job -> shardKeys(job).stream()).collect(Collectors.toList());
+        return applyToGroup(jobs, () -> {
+            deleteInPartitions(jobKeys);
+            log.info("Deleted {} jobs", jobs.size());
+        });
     }
 
     /**
@@ -71,7 +286,9 @@ public class JobService {
      * @throws SchedulerException if pausing fails.
      */
     public void pauseJob(String jobName, String jobGroup) throws SchedulerException {
-        scheduler.pauseJob(JobKey.jobKey(jobName, jobGroup));
+        for (JobKey jobKey : shardKeys(jobName, jobGroup)) {
+            router.getScheduler(jobKey).pauseJob(jobKey);
+        }
         log.info("Paused job: {} in group: {}", jobName, jobGroup);
     }
 
@@ -83,7 +300,9 @@ public class JobService {
      * @throws SchedulerException if resuming fails.
      */
     public void resumeJob(String jobName, String jobGroup) throws SchedulerException {
-        scheduler.resumeJob(JobKey.jobKey(jobName, jobGroup));
+        for (JobKey jobKey : shardKeys(jobName, jobGroup)) {
+            router.getScheduler(jobKey).resumeJob(jobKey);
+        }
         log.info("Resumed job: {} in group: {}", jobName, jobGroup);
     }
 
@@ -95,47 +314,356 @@ public class JobService {
      * @throws SchedulerException if deletion fails.
      */
     public void deleteJob(String jobName, String jobGroup) throws SchedulerException {
-        scheduler.deleteJob(JobKey.jobKey(jobName, jobGroup));
+        deleteInPartitions(shardKeys(jobName, jobGroup));
         log.info("Deleted job: {} in group: {}", jobName, jobGroup);
     }
 
     /**
-     * Retrieves all scheduled jobs.
+     * Retrieves one page of jobs. Search, sort and paging run in SQL against the Quartz tables,
+     * so only the rows of the requested page are read.
+     *
+     * @param query search, sort and paging options.
+     * @return the requested page, clamped to the last page when out of range.
+     * @throws SchedulerException if retrieval fails.
+     */
+    @Transactional(readOnly = true)
+    public Page<JobInfo> findJobs(JobQuery query) throws SchedulerException {
+        List<String> schedNames = router.getPartitionNames();
+        query.setSize(Math.max(1, query.getSize()));
+        long totalItems = jobMapper.countJobs(schedNames, TRIGGER_SUFFIX, query);
+        int totalPages = (int) Math.ceil((double) totalItems / query.getSize());
+        query.setPage(Math.max(1, Math.min(query.getPage(), totalPages)));
+
+        Page<JobInfo> page = new Page<>();
+        page.setContent(totalItems == 0 ? Collections.<JobInfo>emptyList()
+                : jobMapper.selectJobPage(schedNames, TRIGGER_SUFFIX, query));
+        page.setCurrentPage(query.getPage());
+        page.setPageSize(query.getSize());
+        page.setTotalItems(totalItems);
+        page.setTotalPages(totalPages == 0 ? 1 : totalPages);
+        return page;
+    }
+
+    /**
+     * Retrieves all scheduled jobs with a single query.
      *
      * @return List of jobInfos.
      * @throws SchedulerException if retrieval fails.
      */
     public List<JobInfo> getAllJobs() throws SchedulerException {
-        List<JobInfo> jobInfos = new ArrayList<>();
-        Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.anyJobGroup());
-
-        for (JobKey jobKey : jobKeys) {
-            JobDetail jobDetail = scheduler.getJobDetail(jobKey);
-            List<? extends Trigger> triggers = scheduler.getTriggersOfJob(jobKey);
-
-            JobInfo jobInfo = new JobInfo();
-            jobInfo.setJobName(jobKey.getName());
-            jobInfo.setJobGroup(jobKey.getGroup());
-            jobInfo.setJobClass(jobDetail.getJobClass().getName());
-            jobInfo.setDescription(jobDetail.getDescription());
-
-            if (!triggers.isEmpty()) {
-                Trigger trigger = triggers.get(0); // Assuming one trigger per job for simplicity
-                jobInfo.setTriggerState(scheduler.getTriggerState(trigger.getKey()).name());
-                jobInfo.setPreviousFireTime(toLocalDateTime(trigger.getPreviousFireTime()));
-                jobInfo.setNextFireTime(toLocalDateTime(trigger.getNextFireTime()));
-                if (trigger instanceof CronTrigger) {
-                    jobInfo.setCronExpression(((CronTrigger) trigger).getCronExpression());
+        return jobMapper.selectAllJobs(router.getPartitionNames(), TRIGGER_SUFFIX);
+    }
+
+    /**
+     * Retrieves the usage of every trigger group that has executions in progress, overdue triggers or a quota.
+     *
+     * @return the groups by name, with this node's limit and weight.
+     */
+    @Transactional(readOnly = true)
+    public List<GroupUsage> getGroupUsage() {
+        Map<String, GroupUsage> usage = new TreeMap<>();
+        for (GroupUsage group : jobMapper.selectGroupUsage(router.getPartitionNames(), System.currentTimeMillis())) {
+            usage.put(group.getGroup(), group);
+        }
+        for (String group : GroupQuotas.configuredGroups()) {
+            usage.computeIfAbsent(group, name -> {
+                GroupUsage idle = new GroupUsage();
+                idle.setGroup(name);
+                return idle;
+            });
+        }
+        for (GroupUsage group : usage.values()) {
+            int limit = GroupQuotas.limit(group.getGroup());
+            group.setLimit(limit == Integer.MAX_VALUE ? null : limit);
+            group.setWeight(GroupQuotas.weight(group.getGroup()));
+        }
+        return new ArrayList<>(usage.values());
+    }
+
+    /**
+     * Retrieves the load the nodes published at their last cluster check-in, for every scheduler.
+     *
+     * @return the loads by scheduler and instance id, empty when not clustered.
+     */
+    @Transactional(readOnly = true)
+    public List<NodeLoad> getNodeLoads() {
+        return jobMapper.selectNodeLoads(router.getPartitionNames());
+    }
+
+    /**
+     * Retrieves the cluster nodes that are currently checked in.
+     *
+     * @return instance ids of the live nodes, at least this node.
+     * @throws SchedulerException if the scheduler cannot be read.
+     */
+    public List<String> getLiveNodes() throws SchedulerException {
+        List<String> nodes = jobMapper.selectLiveInstances(scheduler.getSchedulerName(), System.currentTimeMillis());
+        return nodes.isEmpty() ? Collections.singletonList(scheduler.getSchedulerInstanceId()) : nodes;
+    }
+
+    /**
+     * Builds the job and trigger of every shard. A job with a single shard is built exactly like an unsharded job.
+     *
+     * @throws IllegalArgumentException if the shard parameters do not match the shard count.
+     */
+    private void buildShards(JobInfo jobInfo, Class<? extends Job> jobClass, int shardTotal,
+                             Map<JobDetail, Set<? extends Trigger>> into) {
+        String[] params = StringUtils.hasText(jobInfo.getShardParams())
+                ? StringUtils.tokenizeToStringArray(jobInfo.getShardParams(), ",") : null;
+        if (params != null && params.length != shardTotal) {
+            throw new IllegalArgumentException("Expected " + shardTotal + " shard parameters but got " + params.length);
+        }
+        for (int index = 0; index < shardTotal; index++) {
+            String name = index == 0 ? jobInfo.getJobName() : jobInfo.getJobName() + SHARD_SEPARATOR + index;
+            JobBuilder jobBuilder = JobBuilder.newJob(jobClass)
+                    .withIdentity(name, jobInfo.getJobGroup())
+                    .withDescription(jobInfo.getDescription())
+                    .storeDurably(); // Important if the job is to exist without triggers
+            if (jobInfo.getTimeout() > 0) {
+                jobBuilder.usingJobData(TIMEOUT, jobInfo.getTimeout());
+            }
+            if (jobInfo.getRetryMaxAttempts() > 0 || jobInfo.getBreakerThreshold() > 0) {
+                jobBuilder.usingJobData(RETRY_MAX_ATTEMPTS, jobInfo.getRetryMaxAttempts())
+                        .usingJobData(RETRY_BACKOFF, jobInfo.getRetryBackoff())
+                        .usingJobData(RETRY_MAX_BACKOFF, jobInfo.getRetryMaxBackoff())
+                        .usingJobData(RETRY_ON, StringUtils.hasText(jobInfo.getRetryOn()) ? jobInfo.getRetryOn() : "")
+                        .usingJobData(BREAKER_THRESHOLD, jobInfo.getBreakerThreshold());
+            }
+            if (shardTotal > 1) {
+                jobBuilder.requestRecovery()
+                        .usingJobData(SHARD_INDEX, index)
+                        .usingJobData(SHARD_TOTAL, shardTotal);
+                if (params != null) {
+                    jobBuilder.usingJobData(SHARD_PARAM, params[index]);
+                }
+                if (params != null && index == 0) {
+                    jobBuilder.usingJobData(SHARD_PARAMS, String.join(",", params));
                 }
+            }
+            JobDetail jobDetail = jobBuilder.build();
+            into.put(jobDetail, Collections.singleton(buildTrigger(jobInfo, jobDetail)));
+        }
+    }
+
+    private Trigger buildTrigger(JobInfo jobInfo, JobDetail jobDetail) {
+        MisfirePolicy misfirePolicy = jobInfo.getMisfirePolicy() != null ? jobInfo.getMisfirePolicy() : MisfirePolicy.FIRE_ONCE;
+        CronScheduleBuilder schedule = CronScheduleBuilder.cronSchedule(jobInfo.getCronExpression());
+        switch (misfirePolicy) {
+            case IGNORE:
+            case FIRE_ALL_CAPPED:
+                schedule.withMisfireHandlingInstructionIgnoreMisfires();
+                break;
+            case DO_NOTHING:
+                schedule.withMisfireHandlingInstructionDoNothing();
+                break;
+            default:
+                schedule.withMisfireHandlingInstructionFireAndProceed();
+        }
+        TriggerBuilder<CronTrigger> trigger = TriggerBuilder.newTrigger()
+                .forJob(jobDetail)
+                .withIdentity(jobDetail.getKey().getName() + TRIGGER_SUFFIX, jobInfo.getJobGroup())
+                .withDescription(jobInfo.getDescription())
+                .withPriority(jobInfo.getPriority())
+                .withSchedule(schedule);
+        if (misfirePolicy == MisfirePolicy.FIRE_ALL_CAPPED) {
+            trigger.usingJobData(DschedulerJobStore.MISFIRE_CAP, jobInfo.getMisfireCap());
+        }
+        return trigger.build();
+    }
+
+    /**
+     * Validates a batch and builds the jobs and triggers of its valid jobs.
+     *
+     * @return the error of each job, null for valid jobs.
+     */
+    private List<String> prepareBatch(List<JobInfo> jobInfos, boolean replace,
+                                      Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers) {
+        Set<JobKey> seen = new HashSet<>();
+        List<String> errors = new ArrayList<>(jobInfos.size());
+
+        for (JobInfo jobInfo : jobInfos) {
+            String error = validate(jobInfo, seen, replace);
+            errors.add(error);
+            if (error == null) {
+                try {
+                    buildShards(jobInfo, jobTypeRegistry.getJobClass(jobInfo.getJobClass()), jobInfo.getShardCount(),
+                            jobsAndTriggers);
+                } catch (Exception e) {
+                    errors.set(errors.size() - 1, e.getMessage());
+                }
+            }
+        }
+        return errors;
+    }
+
+    private static BatchResult toResult(List<JobInfo> jobInfos, List<String> errors, String batchError) {
+        BatchResult result = new BatchResult();
+        for (int i = 0; i < jobInfos.size(); i++) {
+            JobInfo jobInfo = jobInfos.get(i);
+            if (errors.get(i) != null) {
+                result.addFailure(jobInfo.getJobName(), jobInfo.getJobGroup(), errors.get(i));
+            } else if (batchError != null) {
+                result.addFailure(jobInfo.getJobName(), jobInfo.getJobGroup(), batchError);
+            } else {
+                result.addSuccess(jobInfo.getJobName(), jobInfo.getJobGroup());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the first validation error of a job in a batch, or null if it is valid.
+     */
+    private String validate(JobInfo jobInfo, Set<JobKey> seen, boolean replace) {
+        Set<ConstraintViolation<JobInfo>> violations = validator.validate(jobInfo);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        JobKey jobKey = JobKey.jobKey(jobInfo.getJobName(), jobInfo.getJobGroup());
+        if (!seen.add(jobKey)) {
+            return "Duplicate job in batch";
+        }
+        try {
+            jobTypeRegistry.getJobClass(jobInfo.getJobClass());
+        } catch (ClassNotFoundException e) {
+            return "Job class '" + jobInfo.getJobClass() + "' is not a job type";
+        }
+        if (!replace && jobCatalog.getJob(jobKey) != null) {
+            return "Job already exists";
+        }
+        return null;
+    }
+
+    private List<JobInfo> selectJobs(JobSelector selector) throws SchedulerException {
+        if (selector.isEmpty()) {
+            throw new IllegalArgumentException("A selector needs at least a group, group prefix, name pattern or job list");
+        }
+        return jobMapper.selectJobKeys(router.getPartitionNames(), selector);
+    }
+
+    /**
+     * @return the keys of a job and of all its shards, or only the given key if the job does not exist.
+     */
+    private List<JobKey> shardKeys(String jobName, String jobGroup) throws SchedulerException {
+        JobSelector selector = new JobSelector();
+        selector.setJobs(Collections.singletonList(new JobInfo(jobName, jobGroup, null, null, null, null, null, null)));
+        List<JobInfo> jobs = jobMapper.selectJobKeys(router.getPartitionNames(), selector);
+        return jobs.isEmpty() ? Collections.singletonList(JobKey.jobKey(jobName, jobGroup)) : shardKeys(jobs.get(0));
+    }
+
+    private static List<JobKey> shardKeys(JobInfo job) {
+        List<JobKey> jobKeys = new ArrayList<>(Math.max(1, job.getShardCount()));
+        jobKeys.add(JobKey.jobKey(job.getJobName(), job.getJobGroup()));
+        for (int index = 1; index < job.getShardCount(); index++) {
+            jobKeys.add(JobKey.jobKey(job.getJobName() + SHARD_SEPARATOR + index, job.getJobGroup()));
+        }
+        return jobKeys;
+    }
+
+    /**
+     * Deletes the shards that replaced jobs had beyond their new shard count, scheduleJobs would keep them.
+     */
+    private void deleteSurplusShards(List<JobInfo> jobInfos, Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers)
+            throws SchedulerException {
+        JobSelector selector = new JobSelector();
+        selector.setJobs(jobInfos);
+        Set<JobKey> scheduled = new HashSet<>();
+        jobsAndTriggers.keySet().forEach(jobDetail -> scheduled.add(jobDetail.getKey()));
+        List<JobKey> surplus = jobMapper.selectJobKeys(router.getPartitionNames(), selector).stream()
+                .flatMap(job -> shardKeys(job).stream())
+                .filter(jobKey -> !scheduled.contains(jobKey))
+                .collect(Collectors.toList());
+        if (!surplus.isEmpty()) {
+            deleteInPartitions(surplus);
+        }
+    }
+
+    /**
+     * Schedules jobs with one scheduleJobs call per partition.
+     */
+    private void scheduleInPartitions(Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers, boolean replace)
+            throws SchedulerException {
+        Map<Scheduler, Map<JobDetail, Set<? extends Trigger>>> byPartition = new LinkedHashMap<>();
+        jobsAndTriggers.forEach((jobDetail, triggers) -> byPartition
+                .computeIfAbsent(router.getScheduler(jobDetail.getKey()), partition -> new LinkedHashMap<>())
+                .put(jobDetail, triggers));
+        for (Map.Entry<Scheduler, Map<JobDetail, Set<? extends Trigger>>> entry : byPartition.entrySet()) {
+            entry.getKey().scheduleJobs(entry.getValue(), replace);
+        }
+    }
+
+    /**
+     * Deletes jobs with one deleteJobs call per partition.
+     */
+    private void deleteInPartitions(List<JobKey> jobKeys) throws SchedulerException {
+        Map<Scheduler, List<JobKey>> byPartition = jobKeys.stream()
+                .collect(Collectors.groupingBy(router::getScheduler, LinkedHashMap::new, Collectors.toList()));
+        for (Map.Entry<Scheduler, List<JobKey>> entry : byPartition.entrySet()) {
+            entry.getKey().deleteJobs(entry.getValue());
+        }
+    }
+
+    /**
+     * @return the matcher of a group-only selector, with the semantics of the selector: given both, the group only
+     * matches if it starts with the prefix. Null if the group and prefix exclude each other, nothing matches.
+     */
+    private static GroupMatcher<JobKey> groupMatcher(JobSelector selector) {
+        if (selector.getGroup() == null) {
+            return GroupMatcher.jobGroupStartsWith(selector.getGroupPrefix());
+        }
+        if (selector.getGroupPrefix() != null && !selector.getGroup().startsWith(selector.getGroupPrefix())) {
+            return null;
+        }
+        return GroupMatcher.jobGroupEquals(selector.getGroup());
+    }
+
+    /**
+     * Runs one scheduler call covering all jobs and reports the same outcome for each of them.
+     */
+    private BatchResult applyToGroup(List<JobInfo> jobs, SchedulerAction action) {
+        BatchResult result = new BatchResult();
+        String error = null;
+        try {
+            action.run();
+        } catch (SchedulerException e) {
+            log.error("Bulk operation on {} jobs failed: {}", jobs.size(), e.getMessage(), e);
+            error = e.getMessage();
+        }
+        for (JobInfo job : jobs) {
+            if (error == null) {
+                result.addSuccess(job.getJobName(), job.getJobGroup());
             } else {
-                jobInfo.setTriggerState("NO_TRIGGER"); // Job exists but has no trigger
+                result.addFailure(job.getJobName(), job.getJobGroup(), error);
             }
-            jobInfos.add(jobInfo);
         }
-        return jobInfos;
+        return result;
+    }
+
+    /**
+     * Applies the action to every job and its shards, reporting one result per job.
+     */
+    private BatchResult applyToEach(List<JobInfo> jobs, JobAction action) {
+        BatchResult result = new BatchResult();
+        for (JobInfo job : jobs) {
+            try {
+                for (JobKey jobKey : shardKeys(job)) {
+                    action.apply(jobKey);
+                }
+                result.addSuccess(job.getJobName(), job.getJobGroup());
+            } catch (SchedulerException e) {
+                result.addFailure(job.getJobName(), job.getJobGroup(), e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface SchedulerAction {
+        void run() throws SchedulerException;
     }
 
-    private LocalDateTime toLocalDateTime(Date date) {
-        return (date == null) ? null : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    @FunctionalInterface
+    private interface JobAction {
+        void apply(JobKey jobKey) throws SchedulerException;
     }
 }
\ No newline at end of file
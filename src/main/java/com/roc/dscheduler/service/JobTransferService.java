@@ -0,0 +1,234 @@
+package com.roc.dscheduler.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.roc.dscheduler.entity.BatchResult;
+import com.roc.dscheduler.entity.ImportResult;
+import com.roc.dscheduler.entity.JobExportRow;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.quartz.JobDataCodec;
+import org.apache.ibatis.cursor.Cursor;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports and imports the job catalog as NDJSON, one {@link JobInfo} per line, for backups and migrations between
+ * environments (or to another partition count).
+ * <p>
+ * The export streams the jobs from a database cursor and the import parses the upload line by line, so both run in
+ * constant memory whatever the size of the catalog. The import schedules the jobs in batches of
+ * {@code dscheduler.transfer.import-batch-size}, one job store transaction per batch and partition, and stops at the
+ * first failed batch. Its {@link ImportResult#getCheckpoint() checkpoint} tells where to resume.
+ */
+@Service
+public class JobTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobTransferService.class);
+
+    private final SchedulerRouter router;
+    private final JobService jobService;
+    private final JobMapper jobMapper;
+    private final ObjectWriter jobWriter;
+    private final ObjectReader jobReader;
+
+    @Value("${dscheduler.transfer.import-batch-size:500}")
+    private int importBatchSize;
+
+    @Autowired
+    public JobTransferService(SchedulerRouter router, JobService jobService, JobMapper jobMapper,
+                              ObjectMapper objectMapper) {
+        this.router = router;
+        this.jobService = jobService;
+        this.jobMapper = jobMapper;
+        this.jobWriter = objectMapper.writerFor(JobInfo.class);
+        this.jobReader = objectMapper.readerFor(JobInfo.class);
+    }
+
+    /**
+     * Writes every job matching the selector as one JSON line, ordered by group and name.
+     * The transaction keeps the cursor's connection open while the jobs are written.
+     *
+     * @param selector jobs to export, an empty selector exports all jobs.
+     * @param out      stream to write to, flushed but not closed.
+     * @return the number of exported jobs.
+     * @throws IOException        if writing fails.
+     * @throws SchedulerException if a job definition cannot be read.
+     */
+    @Transactional(readOnly = true)
+    public long exportJobs(JobSelector selector, OutputStream out) throws IOException, SchedulerException {
+        long count = 0;
+        BufferedOutputStream buffered = new BufferedOutputStream(out);
+        try (Cursor<JobExportRow> jobs = jobMapper.streamJobs(router.getPartitionNames(), JobService.TRIGGER_SUFFIX,
+                selector)) {
+            for (JobExportRow job : jobs) {
+                complete(job);
+                buffered.write(jobWriter.writeValueAsBytes(job));
+                buffered.write('\n');
+                count++;
+            }
+        }
+        buffered.flush();
+        log.info("Exported {} jobs", count);
+        return count;
+    }
+
+    /**
+     * Completes an exported job from the job data read with it. Data the codec cannot read, such as maps stored as
+     * properties, is read through the scheduler instead.
+     */
+    private void complete(JobExportRow job) throws SchedulerException {
+        Map<?, ?> jobData;
+        Map<?, ?> triggerData;
+        try {
+            jobData = JobDataCodec.decodeAny(job.getJobData());
+            triggerData = JobDataCodec.decodeAny(job.getTriggerJobData());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.debug("Reading the job data of {}.{} through the scheduler: {}", job.getJobGroup(), job.getJobName(),
+                    e.toString());
+            jobService.completeDefinition(job);
+            return;
+        }
+        jobService.completeDefinition(job, jobData, triggerData);
+    }
+
+    /**
+     * Imports the jobs of an NDJSON upload. Blank lines are ignored, jobs not matching the filter are skipped.
+     * Jobs exported as paused are paused right after their batch is scheduled.
+     * <p>
+     * A dry run validates every line without scheduling anything and reports all failures. Jobs are validated per
+     * batch, a duplicate key in two different batches is only detected when they are scheduled.
+     *
+     * @param in          the upload.
+     * @param filter      jobs to import, an empty selector imports all jobs.
+     * @param replace     whether existing jobs with the same key are replaced.
+     * @param dryRun      whether to only validate.
+     * @param resumeAfter lines to skip, the checkpoint of a previous import of the same upload.
+     * @return counts, failures and the checkpoint reached.
+     * @throws IOException if the upload cannot be read.
+     */
+    public ImportResult importJobs(InputStream in, JobSelector filter, boolean replace, boolean dryRun,
+                                   long resumeAfter) throws IOException {
+        ImportResult result = new ImportResult(dryRun, resumeAfter);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<JobInfo> batch = new ArrayList<>(importBatchSize);
+        List<Long> batchLines = new ArrayList<>(importBatchSize);
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line <= resumeAfter || text.trim().isEmpty()) {
+                continue;
+            }
+            result.addRead();
+            JobInfo job;
+            try {
+                job = jobReader.readValue(text);
+            } catch (JsonProcessingException e) {
+                result.addFailure(line, null, null, "Malformed line: " + e.getOriginalMessage());
+                if (dryRun) {
+                    continue;
+                }
+                return result;
+            }
+            if (!filter.matches(job)) {
+                result.addSkipped();
+                continue;
+            }
+            batch.add(job);
+            batchLines.add(line);
+            if (batch.size() == importBatchSize) {
+                if (!applyBatch(batch, batchLines, replace, dryRun, result)) {
+                    return result;
+                }
+                result.setCheckpoint(line);
+            }
+        }
+        if (applyBatch(batch, batchLines, replace, dryRun, result)) {
+            result.setCheckpoint(line);
+            result.setCompleted(true);
+        }
+        log.info("{} {} jobs ({} skipped, {} failed)", dryRun ? "Validated" : "Imported", result.getImported(),
+                result.getSkipped(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Validates or schedules a batch and clears it.
+     *
+     * @return false if the batch was not scheduled.
+     */
+    private boolean applyBatch(List<JobInfo> batch, List<Long> batchLines, boolean replace, boolean dryRun,
+                               ImportResult result) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        BatchResult batchResult = dryRun ? jobService.validateJobs(batch, replace) : jobService.scheduleJobs(batch, replace);
+        List<BatchResult.Item> items = batchResult.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            BatchResult.Item item = items.get(i);
+            if (!item.isSuccess()) {
+                result.addFailure(batchLines.get(i), item.getJobName(), item.getJobGroup(), item.getMessage());
+            }
+        }
+        result.addImported(batchResult.getSucceeded());
+        boolean scheduled = dryRun || !batchResult.hasFailures();
+        if (!dryRun && scheduled) {
+            pausePausedJobs(batch, batchLines, result);
+        }
+        batch.clear();
+        batchLines.clear();
+        return scheduled;
+    }
+
+    /**
+     * Pauses the jobs of a scheduled batch that were exported as paused. A job that could not be paused is
+     * reported as a failure but stays imported, so the import goes on.
+     */
+    private void pausePausedJobs(List<JobInfo> batch, List<Long> batchLines, ImportResult result) {
+        Map<JobKey, Long> pausedLines = new HashMap<>();
+        List<JobInfo> paused = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            JobInfo job = batch.get(i);
+            if ("PAUSED".equals(job.getTriggerState())) {
+                paused.add(job);
+                pausedLines.put(JobKey.jobKey(job.getJobName(), job.getJobGroup()), batchLines.get(i));
+            }
+        }
+        if (paused.isEmpty()) {
+            return;
+        }
+        JobSelector selector = new JobSelector();
+        selector.setJobs(paused);
+        try {
+            for (BatchResult.Item item : jobService.pauseJobs(selector).getItems()) {
+                if (!item.isSuccess()) {
+                    result.addFailure(pausedLines.get(JobKey.jobKey(item.getJobName(), item.getJobGroup())),
+                            item.getJobName(), item.getJobGroup(), "Imported but not paused: " + item.getMessage());
+                }
+            }
+        } catch (SchedulerException e) {
+            log.error("Could not pause {} imported jobs: {}", paused.size(), e.getMessage(), e);
+            for (JobInfo job : paused) {
+                result.addFailure(pausedLines.get(JobKey.jobKey(job.getJobName(), job.getJobGroup())),
+                        job.getJobName(), job.getJobGroup(), "Imported but not paused: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.JobType;
+import com.roc.dscheduler.job.AsyncJob;
+import org.quartz.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * The job classes jobs can be scheduled with, found once at startup by scanning {@code dscheduler.job-types.packages}
+ * for implementations of {@link Job}.
+ * <p>
+ * Every job class is a bean: a job class that is a component keeps its own definition and scope, the others are
+ * registered as prototype beans. Spring resolves the constructor and the injection points of a bean definition once,
+ * so creating a job on each fire only runs the cached injection. A stateless job can be made a singleton by
+ * annotating it {@code @Component}, every execution then shares one instance, and a job holding per-execution state
+ * must be {@code @Scope("prototype")}.
+ * <p>
+ * Runs as a bean definition registry post-processor, so it is configured from the environment rather than injected.
+ */
+@Service
+public class JobTypeRegistry implements BeanDefinitionRegistryPostProcessor, EnvironmentAware, BeanClassLoaderAware {
+
+    private static final Logger log = LoggerFactory.getLogger(JobTypeRegistry.class);
+
+    private final Map<String, Registration> registrations = new HashMap<>();
+    private List<JobType> jobTypes = Collections.emptyList();
+    private String[] packages;
+    private Environment environment;
+    private ClassLoader classLoader;
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+        this.packages = StringUtils.commaDelimitedListToStringArray(
+                StringUtils.trimAllWhitespace(environment.getProperty("dscheduler.job-types.packages", "com.roc.dscheduler.job")));
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Scans the packages and registers a prototype bean for every job class that is not a bean yet.
+     */
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        Map<String, String> beanNames = new HashMap<>();
+        for (String beanName : registry.getBeanDefinitionNames()) {
+            String beanClassName = registry.getBeanDefinition(beanName).getBeanClassName();
+            if (beanClassName != null) {
+                beanNames.putIfAbsent(beanClassName, beanName);
+            }
+        }
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false, environment);
+        scanner.addIncludeFilter(new AssignableTypeFilter(Job.class));
+        for (String basePackage : packages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                String className = candidate.getBeanClassName();
+                Class<? extends Job> jobClass = ClassUtils.resolveClassName(className, classLoader)
+                        .asSubclass(Job.class);
+                String beanName = beanNames.get(className);
+                if (beanName == null) {
+                    RootBeanDefinition definition = new RootBeanDefinition(jobClass);
+                    definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+                    beanName = className;
+                    registry.registerBeanDefinition(beanName, definition);
+                }
+                registrations.put(className, new Registration(jobClass, beanName));
+            }
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+        List<JobType> types = new ArrayList<>(registrations.size());
+        for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+            Registration registration = entry.getValue();
+            registration.singleton = beanFactory.getMergedBeanDefinition(registration.beanName).isSingleton();
+            types.add(new JobType(entry.getKey(), registration.jobClass.getSimpleName(), registration.singleton,
+                    AsyncJob.class.isAssignableFrom(registration.jobClass)));
+        }
+        types.sort(Comparator.comparing(JobType::getName).thenComparing(JobType::getClassName));
+        jobTypes = Collections.unmodifiableList(types);
+        log.info("Registered {} job types from {}", types.size(), Arrays.toString(packages));
+    }
+
+    /**
+     * @return the registered job types, by simple name.
+     */
+    public List<JobType> getJobTypes() {
+        return jobTypes;
+    }
+
+    /**
+     * Resolves the class of a registered job type.
+     *
+     * @throws ClassNotFoundException if no job type has this class name.
+     */
+    public Class<? extends Job> getJobClass(String className) throws ClassNotFoundException {
+        Registration registration = className == null ? null : registrations.get(className);
+        if (registration == null) {
+            throw new ClassNotFoundException(className + " is not a job type, job classes are scanned in "
+                    + Arrays.toString(packages));
+        }
+        return registration.jobClass;
+    }
+
+    /**
+     * @return true if the class is a registered job type whose executions share one instance.
+     */
+    public boolean isSingleton(Class<? extends Job> jobClass) {
+        Registration registration = registrations.get(jobClass.getName());
+        return registration != null && registration.singleton;
+    }
+
+    /**
+     * Gets the job instance for an execution from its bean.
+     *
+     * @return the job, or null if the class is not a registered job type (or the same name from another loader).
+     */
+    public Job getJob(Class<? extends Job> jobClass) {
+        Registration registration = registrations.get(jobClass.getName());
+        if (registration == null || registration.jobClass != jobClass) {
+            return null;
+        }
+        return beanFactory.getBean(registration.beanName, Job.class);
+    }
+
+    private static final class Registration {
+        private final Class<? extends Job> jobClass;
+        private final String beanName;
+        private boolean singleton;
+
+        private Registration(Class<? extends Job> jobClass, String beanName) {
+            this.jobClass = jobClass;
+            this.beanName = beanName;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.job.AsyncJob;
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.JobWatchdogListener;
+import com.roc.dscheduler.quartz.AsyncExecutions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quartz.InterruptableJob;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Enforces the execution timeout of jobs defined with one ({@link JobService#TIMEOUT}).
+ * <p>
+ * {@link JobWatchdogListener} watches every execution of such a job on this node when it starts and unwatches it
+ * when it ends. Each watch is a timeout on a single {@link HashedTimerWheel}, so watching costs O(1) per execution
+ * and no thread per execution. When a timeout expires the execution is marked as timed out (recorded as TIMEOUT in
+ * the history, counted in {@code dscheduler.job.timeouts}) and stopped:
+ * <ul>
+ *     <li>an {@link AsyncJob} execution fails right away and its future is cancelled, which frees its slot;</li>
+ *     <li>an {@link InterruptableJob} is interrupted, it is up to the job to stop;</li>
+ *     <li>other jobs run on. With {@code dscheduler.watchdog.hard-kill}, a job still running after the grace period
+ *     gets its worker thread interrupted, so a job blocked in an interruptible call gives its thread back.</li>
+ * </ul>
+ */
+@Service
+public class JobWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(JobWatchdog.class);
+    private static final String TIMED_OUT = "dscheduler.timedOut";
+
+    private final SchedulerRouter router;
+    private final SchedulerMetrics metrics;
+    private final MeterRegistry registry;
+
+    @Value("${dscheduler.watchdog.tick:100}")
+    private long tick;
+
+    @Value("${dscheduler.watchdog.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${dscheduler.watchdog.hard-kill:false}")
+    private boolean hardKill;
+
+    @Value("${dscheduler.watchdog.hard-kill-grace:30000}")
+    private long hardKillGrace;
+
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private HashedTimerWheel wheel;
+
+    @Autowired
+    public JobWatchdog(SchedulerRouter router, SchedulerMetrics metrics, MeterRegistry registry) {
+        this.router = router;
+        this.metrics = metrics;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        wheel = new HashedTimerWheel("dscheduler-watchdog", tick, TimeUnit.MILLISECONDS, wheelSize);
+        JobWatchdogListener listener = new JobWatchdogListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+        Gauge.builder("dscheduler.watchdog.watched", watches, Map::size)
+                .description("Executions with a timeout running on this node")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Starts watching an execution, if its job has a timeout. Called on the worker thread when it starts.
+     */
+    public void watch(JobExecutionContext context) {
+        JobDataMap data = context.getMergedJobDataMap();
+        int timeout = data.containsKey(JobService.TIMEOUT) ? data.getInt(JobService.TIMEOUT) : 0;
+        if (timeout <= 0) {
+            return;
+        }
+        Watch watch = new Watch(context, Thread.currentThread());
+        watches.put(context.getFireInstanceId(), watch);
+        watch.timeout = wheel.schedule(() -> expired(watch, timeout), timeout, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops watching an execution. Called when it ended, once an async execution completed.
+     */
+    public void unwatch(JobExecutionContext context) {
+        Watch watch = watches.remove(context.getFireInstanceId());
+        if (watch == null) {
+            return;
+        }
+        synchronized (watch) {
+            watch.done = true;
+        }
+        HashedTimerWheel.Timeout timeout = watch.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        if (isTimedOut(context) && watch.thread == Thread.currentThread()) {
+            // Clears an interrupt the job did not consume, so it does not hit the next execution of the worker
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @return true if the execution ran past its timeout.
+     */
+    public static boolean isTimedOut(JobExecutionContext context) {
+        return Boolean.TRUE.equals(context.get(TIMED_OUT));
+    }
+
+    /**
+     * Runs on the wheel thread, so it only signals the execution.
+     */
+    private void expired(Watch watch, int timeout) {
+        JobExecutionContext context = watch.context;
+        context.put(TIMED_OUT, Boolean.TRUE);
+        metrics.countTimeout(context.getJobDetail().getKey().getGroup());
+        log.warn("Execution {} of {} timed out after {} s", context.getFireInstanceId(),
+                context.getJobDetail().getKey(), timeout);
+        if (AsyncExecutions.fail(context.getFireInstanceId(),
+                new TimeoutException("Execution timed out after " + timeout + " s"))) {
+            return;
+        }
+        if (context.getJobInstance() instanceof InterruptableJob) {
+            try {
+                context.getScheduler().interrupt(context.getFireInstanceId());
+            } catch (SchedulerException e) {
+                log.warn("Could not interrupt execution {}: {}", context.getFireInstanceId(), e.getMessage());
+            }
+        }
+        if (hardKill) {
+            wheel.schedule(() -> kill(watch), hardKillGrace, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Interrupts the worker thread of an execution still running after the grace period. Thread.stop would free
+     * the thread whatever the job does, but can leave locks and shared state inconsistent, so it is not used.
+     */
+    private void kill(Watch watch) {
+        synchronized (watch) {
+            // Once done, the thread may already run another execution
+            if (watch.done) {
+                return;
+            }
+            log.warn("Execution {} still running {} ms after its timeout, interrupting thread {}",
+                    watch.context.getFireInstanceId(), hardKillGrace, watch.thread.getName());
+            watch.thread.interrupt();
+        }
+    }
+
+    private static final class Watch {
+        private final JobExecutionContext context;
+        private final Thread thread;
+        private volatile HashedTimerWheel.Timeout timeout;
+        private boolean done;
+
+        private Watch(JobExecutionContext context, Thread thread) {
+            this.context = context;
+            this.thread = thread;
+        }
+    }
+}
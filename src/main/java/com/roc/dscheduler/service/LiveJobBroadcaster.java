@@ -0,0 +1,287 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.JobEvent;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.LiveJobListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes job changes to the browsers showing the job list, as Server-Sent Events.
+ * <p>
+ * Changes come from the {@link JobCatalog}, so they cover this node's changes and fires as well as the changes of
+ * other nodes picked up by its poll, and executions come from {@link LiveJobListener}, so they only cover this
+ * node. Each client watches the jobs of the page it shows and gets a notice when jobs are added.
+ * <p>
+ * Every client has its own queue holding at most one pending event per job: a newer change replaces the pending
+ * one, so a client receives the latest state of each job once per flush interval however often the job changed.
+ * Each client has at most one send in flight. A slow client keeps coalescing while its send is blocked, and when
+ * its queue outgrows {@code dscheduler.live.max-pending} it is sent a resync event and disconnected. The page then
+ * reloads, so a slow client never holds more than a bounded queue and never delays the other clients.
+ */
+@Service
+public class LiveJobBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveJobBroadcaster.class);
+    private static final String ADDED_NOTICE_KEY = "added";
+
+    private final SchedulerRouter router;
+    private final JobCatalog jobCatalog;
+    private final MeterRegistry registry;
+
+    @Value("${dscheduler.live.max-clients:200}")
+    private int maxClients;
+
+    @Value("${dscheduler.live.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${dscheduler.live.heartbeat-interval:15000}")
+    private long heartbeatInterval;
+
+    @Value("${dscheduler.live.timeout:1800000}")
+    private long timeout;
+
+    @Value("${dscheduler.live.send-threads:4}")
+    private int sendThreads;
+
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final Map<JobKey, AtomicInteger> running = new ConcurrentHashMap<>();
+    private ExecutorService sender;
+
+    @Autowired
+    public LiveJobBroadcaster(SchedulerRouter router, JobCatalog jobCatalog, MeterRegistry registry) {
+        this.router = router;
+        this.jobCatalog = jobCatalog;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        AtomicInteger threadCount = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "dscheduler-live-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        jobCatalog.addChangeListener(this::jobChanged);
+        LiveJobListener listener = new LiveJobListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+        Gauge.builder("dscheduler.live.clients", clients, List::size)
+                .description("Browsers connected to the live job list")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Client client : clients) {
+            client.emitter.complete();
+        }
+        clients.clear();
+        sender.shutdownNow();
+    }
+
+    /**
+     * Connects a client.
+     *
+     * @param watched jobs whose changes and executions are pushed, or null for every job.
+     * @return the emitter to return from the request.
+     * @throws IllegalStateException if {@code dscheduler.live.max-clients} clients are connected.
+     */
+    public SseEmitter subscribe(Collection<JobKey> watched) {
+        if (clients.size() >= maxClients) {
+            throw new IllegalStateException("Too many live clients, at most " + maxClients);
+        }
+        SseEmitter emitter = new SseEmitter(timeout);
+        Client client = new Client(emitter, watched == null ? null : new HashSet<>(watched));
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        clients.add(client);
+        // Executions already running when the page was rendered
+        running.forEach((jobKey, count) -> {
+            if (client.watches(jobKey) && count.get() > 0) {
+                client.offer(executionKey(jobKey), executionEvent(jobKey, count.get(), null));
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Called by {@link LiveJobListener} when an execution of the job starts on this node.
+     */
+    public void executionStarted(JobKey jobKey) {
+        int count = running.computeIfAbsent(jobKey, k -> new AtomicInteger()).incrementAndGet();
+        publish(jobKey, executionKey(jobKey), executionEvent(jobKey, count, null));
+    }
+
+    /**
+     * Called by {@link LiveJobListener} when an execution of the job finished on this node.
+     */
+    public void executionFinished(JobKey jobKey, boolean success) {
+        AtomicInteger counter = running.get(jobKey);
+        int count = counter == null ? 0 : Math.max(0, counter.decrementAndGet());
+        if (count == 0) {
+            running.computeIfPresent(jobKey, (k, c) -> c.get() <= 0 ? null : c);
+        }
+        publish(jobKey, executionKey(jobKey), executionEvent(jobKey, count, success));
+    }
+
+    /**
+     * Hands the pending events of every client to the sender threads, and a heartbeat to idle clients so dead
+     * connections are detected.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.live.flush-interval:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Client client : clients) {
+            if (client.hasWork(now) && client.sending.compareAndSet(false, true)) {
+                try {
+                    sender.execute(() -> send(client));
+                } catch (RejectedExecutionException e) {
+                    client.sending.set(false);
+                }
+            }
+        }
+    }
+
+    private void jobChanged(JobInfo previous, JobInfo current) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        JobInfo job = current != null ? current : previous;
+        JobKey jobKey = JobKey.jobKey(job.getJobName(), job.getJobGroup());
+        String type = previous == null ? JobEvent.ADDED : current == null ? JobEvent.REMOVED : JobEvent.CHANGED;
+        JobEvent event = new JobEvent(type, job.getJobName(), job.getJobGroup());
+        event.setJob(current);
+        publish(jobKey, "job:" + jobKey, event);
+    }
+
+    private void publish(JobKey jobKey, String key, JobEvent event) {
+        for (Client client : clients) {
+            if (client.watches(jobKey)) {
+                client.offer(key, event);
+            } else if (JobEvent.ADDED.equals(event.getType())) {
+                // Added jobs are not on the page, the client only needs to know there are some
+                client.offer(ADDED_NOTICE_KEY, event);
+            }
+        }
+    }
+
+    private void send(Client client) {
+        try {
+            Batch batch = client.drain();
+            if (batch.resync) {
+                client.emitter.send(SseEmitter.event().name("resync").data(""));
+                client.emitter.complete();
+                clients.remove(client);
+                log.debug("Live client fell behind, sent resync");
+            } else if (!batch.events.isEmpty()) {
+                client.emitter.send(SseEmitter.event().name("jobs").data(batch.events, MediaType.APPLICATION_JSON));
+            } else {
+                client.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+            client.lastSent = System.currentTimeMillis();
+        } catch (Exception e) {
+            // The client went away, the emitter's error callback may not run outside a request
+            clients.remove(client);
+            client.emitter.completeWithError(e);
+        } finally {
+            client.sending.set(false);
+        }
+    }
+
+    private static String executionKey(JobKey jobKey) {
+        return "execution:" + jobKey;
+    }
+
+    private static JobEvent executionEvent(JobKey jobKey, int count, Boolean success) {
+        JobEvent event = new JobEvent(JobEvent.EXECUTION, jobKey.getName(), jobKey.getGroup());
+        event.setRunning(count);
+        event.setSuccess(success);
+        return event;
+    }
+
+    private final class Client {
+        private final SseEmitter emitter;
+        private final Set<JobKey> watched;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final LinkedHashMap<String, JobEvent> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private volatile long lastSent = System.currentTimeMillis();
+
+        private Client(SseEmitter emitter, Set<JobKey> watched) {
+            this.emitter = emitter;
+            this.watched = watched;
+        }
+
+        private boolean watches(JobKey jobKey) {
+            return watched == null || watched.contains(jobKey);
+        }
+
+        /**
+         * Queues an event, replacing the pending event with the same key. An added job that changes again is still
+         * reported as added, an added job removed before the flush is not reported at all.
+         */
+        private synchronized void offer(String key, JobEvent event) {
+            if (resync) {
+                return;
+            }
+            JobEvent queued = pending.get(key);
+            if (queued != null && JobEvent.ADDED.equals(queued.getType()) && !ADDED_NOTICE_KEY.equals(key)) {
+                if (JobEvent.REMOVED.equals(event.getType())) {
+                    pending.remove(key);
+                    return;
+                }
+                JobEvent added = new JobEvent(JobEvent.ADDED, event.getJobName(), event.getJobGroup());
+                added.setJob(event.getJob());
+                event = added;
+            }
+            pending.put(key, event);
+            if (pending.size() > maxPending) {
+                pending.clear();
+                resync = true;
+            }
+        }
+
+        private synchronized boolean hasWork(long now) {
+            return resync || !pending.isEmpty() || now - lastSent >= heartbeatInterval;
+        }
+
+        private synchronized Batch drain() {
+            Batch batch = new Batch(resync, new ArrayList<>(pending.values()));
+            pending.clear();
+            return batch;
+        }
+    }
+
+    private static final class Batch {
+        private final boolean resync;
+        private final List<JobEvent> events;
+
+        private Batch(boolean resync, List<JobEvent> events) {
+            this.resync = resync;
+            this.events = events;
+        }
+    }
+}
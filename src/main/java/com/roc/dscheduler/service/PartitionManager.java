@@ -0,0 +1,249 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.PartitionLease;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.mapper.PartitionLeaseMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+
+/**
+ * Balances the partitions of the partitioned mode over the live nodes with leases in DS_PARTITION_LEASE.
+ * <p>
+ * Every node renews its leases and takes free partitions while no live node holds fewer, and the node holding the
+ * most offers one while another holds at least two fewer, so the live nodes end up with {@code floor} or
+ * {@code ceil(partitions / live nodes)} partitions each. The scheduler of a partition runs on the node holding the
+ * lease and stays in standby everywhere else, so each TRIGGER_ACCESS lock is only contended by its owner.
+ * A partition released on shutdown is taken over at the next renewal of another node, the partition of a failed
+ * node once its lease has expired, and Quartz then recovers the failed node's jobs as usual.
+ * <p>
+ * Leases only decide which node acquires triggers, Quartz's locking still guards every partition: two nodes briefly
+ * running the same partition (clock skew, a long pause) is safe, it only costs contention.
+ */
+@Component
+public class PartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionManager.class);
+    private static final int OFFER_SUSPENSION_LEASES = 10;
+
+    private final Scheduler scheduler;
+    private final SchedulerRouter router;
+    private final PartitionLeaseMapper leaseMapper;
+    private final JobMapper jobMapper;
+    private final MeterRegistry registry;
+
+    @Value("${dscheduler.partition.lease-duration:30000}")
+    private long leaseDuration;
+
+    private final TreeSet<Integer> owned = new TreeSet<>();
+    private int offered = -1;
+    private long offeredAt;
+    private long offersSuspendedUntil;
+    private volatile boolean stopped;
+
+    @Autowired
+    public PartitionManager(Scheduler scheduler, SchedulerRouter router, PartitionLeaseMapper leaseMapper,
+                            JobMapper jobMapper, MeterRegistry registry) {
+        this.scheduler = scheduler;
+        this.router = router;
+        this.leaseMapper = leaseMapper;
+        this.jobMapper = jobMapper;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (router.isPartitioned()) {
+            Gauge.builder("dscheduler.partition.owned", this, manager -> manager.getOwnedPartitions().size())
+                    .description("Partitions whose scheduler runs on this node")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Renews, releases and takes leases, then starts or stands by the partition schedulers accordingly.
+     * Waits for the application scheduler to start, so the node has checked in and counts as live.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.partition.lease-renew-interval:5000}",
+            initialDelayString = "${dscheduler.partition.lease-renew-interval:5000}")
+    public void balance() {
+        if (!router.isPartitioned() || stopped) {
+            return;
+        }
+        try {
+            if (scheduler.isStarted() && !scheduler.isShutdown()) {
+                synchronized (owned) {
+                    updateLeases();
+                    applyLeases();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Partition lease renewal failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the partitions this node holds a lease on.
+     */
+    public Set<Integer> getOwnedPartitions() {
+        synchronized (owned) {
+            return new TreeSet<>(owned);
+        }
+    }
+
+    /**
+     * Stands by the owned partitions and releases their leases, so other nodes take them over immediately.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!router.isPartitioned()) {
+            return;
+        }
+        stopped = true;
+        synchronized (owned) {
+            try {
+                String schedName = scheduler.getSchedulerName();
+                String instanceId = scheduler.getSchedulerInstanceId();
+                if (offered >= 0) {
+                    owned.add(offered);
+                    offered = -1;
+                }
+                for (int partition : owned) {
+                    router.getPartitions().get(partition).standby();
+                    leaseMapper.releaseLease(schedName, partition, instanceId, 0);
+                }
+                owned.clear();
+            } catch (Exception e) {
+                log.warn("Could not release partition leases: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void updateLeases() throws SchedulerException {
+        String schedName = scheduler.getSchedulerName();
+        String instanceId = scheduler.getSchedulerInstanceId();
+        int partitionCount = router.getPartitions().size();
+        long now = System.currentTimeMillis();
+
+        Map<Integer, PartitionLease> leases = selectLeases(schedName, partitionCount);
+        List<String> liveNodes = jobMapper.selectLiveInstances(schedName, now);
+
+        // Renew, a lease that could not be renewed has been taken over after expiring
+        owned.clear();
+        Map<String, Integer> leaseCounts = new HashMap<>();
+        for (PartitionLease lease : leases.values()) {
+            if (instanceId.equals(lease.getOwner())) {
+                if (leaseMapper.claimLease(schedName, lease.getPartitionNo(), instanceId, now, now + leaseDuration) == 1) {
+                    owned.add(lease.getPartitionNo());
+                }
+            } else if (lease.getOwner() != null && lease.getExpiresAt() >= now) {
+                leaseCounts.merge(lease.getOwner(), 1, Integer::sum);
+            }
+        }
+        settleOffer(leases.get(offered), schedName, instanceId, now);
+        leaseCounts.put(instanceId, owned.size());
+        int fewest = liveNodes.stream().filter(node -> !node.equals(instanceId))
+                .mapToInt(node -> leaseCounts.getOrDefault(node, 0)).min().orElse(Integer.MAX_VALUE);
+
+        // Offer a partition to a node holding at least two fewer, if this node holds the most (ties go to the
+        // lowest instance id) and no offer is pending, so a single partition moves at a time. The partition keeps
+        // running here until it is taken.
+        boolean pending = leases.values().stream().anyMatch(lease -> lease.getOwner() == null
+                && lease.getExpiresAt() > 0 && now - lease.getExpiresAt() <= leaseDuration);
+        if (offered < 0 && !pending && fewest <= owned.size() - 2 && now >= offersSuspendedUntil
+                && isLargestOwner(instanceId, leaseCounts)) {
+            offered = owned.pollLast();
+            offeredAt = now;
+            leaseMapper.releaseLease(schedName, offered, instanceId, now);
+            log.info("Offered partition {} ({} partitions, {} live nodes)", offered, partitionCount, liveNodes.size());
+        }
+
+        // Take free partitions while no other node holds fewer. Start at an offset of our own so nodes do not all
+        // race for the same ones. A partition nobody took for a whole lease duration is taken anyway.
+        int offset = Math.floorMod(instanceId.hashCode(), partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            int partition = (offset + i) % partitionCount;
+            PartitionLease lease = leases.get(partition);
+            if (owned.contains(partition) || partition == offered || lease == null) {
+                continue;
+            }
+            boolean free = lease.getOwner() == null || lease.getExpiresAt() < now;
+            boolean orphaned = lease.getExpiresAt() < now - leaseDuration;
+            if (free && (owned.size() <= fewest || orphaned)
+                    && leaseMapper.claimLease(schedName, partition, instanceId, now, now + leaseDuration) == 1) {
+                owned.add(partition);
+                log.info("Took partition {} ({} partitions, {} live nodes)", partition, partitionCount, liveNodes.size());
+            }
+        }
+    }
+
+    /**
+     * Ends the pending offer once another node took the partition. An offer nobody took within a lease duration
+     * (the node holding fewer is about to be declared failed, or stuck) is withdrawn, and no partition is offered
+     * for a while.
+     */
+    private void settleOffer(PartitionLease lease, String schedName, String instanceId, long now) {
+        if (offered < 0) {
+            return;
+        }
+        if (lease == null || lease.getOwner() != null) {
+            log.info("Partition {} taken over by {}", offered, lease == null ? null : lease.getOwner());
+            offered = -1;
+        } else if (now - offeredAt > leaseDuration) {
+            if (leaseMapper.claimLease(schedName, offered, instanceId, now, now + leaseDuration) == 1) {
+                owned.add(offered);
+            }
+            offered = -1;
+            offersSuspendedUntil = now + OFFER_SUSPENSION_LEASES * leaseDuration;
+        }
+    }
+
+    private static boolean isLargestOwner(String instanceId, Map<String, Integer> leaseCounts) {
+        int count = leaseCounts.get(instanceId);
+        return leaseCounts.entrySet().stream().noneMatch(other -> other.getValue() > count
+                || other.getValue() == count && other.getKey().compareTo(instanceId) < 0);
+    }
+
+    private Map<Integer, PartitionLease> selectLeases(String schedName, int partitionCount) {
+        List<PartitionLease> rows = leaseMapper.selectLeases(schedName);
+        if (rows.size() < partitionCount) {
+            for (int partition = 0; partition < partitionCount; partition++) {
+                leaseMapper.insertLease(schedName, partition);
+            }
+            rows = leaseMapper.selectLeases(schedName);
+        }
+        Map<Integer, PartitionLease> leases = new HashMap<>();
+        for (PartitionLease lease : rows) {
+            if (lease.getPartitionNo() < partitionCount) {
+                leases.put(lease.getPartitionNo(), lease);
+            }
+        }
+        return leases;
+    }
+
+    private void applyLeases() throws SchedulerException {
+        List<Scheduler> partitions = router.getPartitions();
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            Scheduler partitionScheduler = partitions.get(partition);
+            boolean running = partitionScheduler.isStarted() && !partitionScheduler.isInStandbyMode();
+            boolean leased = owned.contains(partition) || partition == offered;
+            if (leased && !running) {
+                partitionScheduler.start();
+            } else if (!leased && running) {
+                partitionScheduler.standby();
+                log.info("Partition {} is no longer leased, scheduler in standby", partition);
+            }
+        }
+    }
+}
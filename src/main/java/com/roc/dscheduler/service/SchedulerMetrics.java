@@ -0,0 +1,170 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.SchedulerMetricsListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Scheduler meters fed by {@link SchedulerMetricsListener}: fire lag per job group, execution duration per job class,
+ * misfires, vetoes and timeouts (counted by {@link JobWatchdog}).
+ * <p>
+ * The methods run on the fire path of every trigger. Meters are created once per tag value and looked up in a map
+ * afterwards, so recording does not allocate. Tag values are user-defined names: once {@code max-tag-values}
+ * distinct values are in use, further values are reported as {@value #OTHER}, which bounds the number of series.
+ * Thread pool and job store meters are registered by the Quartz components themselves, see
+ * {@link com.roc.dscheduler.quartz.ElasticThreadPool} and {@link com.roc.dscheduler.quartz.DschedulerJobStore}.
+ */
+@Service
+public class SchedulerMetrics {
+
+    private static final String OTHER = "other";
+
+    private static final Duration[] LAG_BUCKETS = {
+            Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+            Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5),
+            Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(60)};
+
+    private static final Duration[] DURATION_BUCKETS = {
+            Duration.ofMillis(10), Duration.ofMillis(100), Duration.ofMillis(500), Duration.ofSeconds(1),
+            Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(1),
+            Duration.ofMinutes(5), Duration.ofMinutes(30)};
+
+    private final SchedulerRouter router;
+    private final MeterRegistry registry;
+
+    @Value("${dscheduler.metrics.max-tag-values:200}")
+    private int maxTagValues;
+
+    private final Map<String, Timer> fireLag = new ConcurrentHashMap<>();
+    private final Map<String, Timer> succeeded = new ConcurrentHashMap<>();
+    private final Map<String, Timer> failed = new ConcurrentHashMap<>();
+    private final Map<String, Counter> misfires = new ConcurrentHashMap<>();
+    private final Map<String, Counter> vetoes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> timeouts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> breakerTrips = new ConcurrentHashMap<>();
+
+    private final Function<String, Timer> newFireLag;
+    private final Function<String, Timer> newSucceeded;
+    private final Function<String, Timer> newFailed;
+    private final Function<String, Counter> newMisfires;
+    private final Function<String, Counter> newVetoes;
+    private final Function<String, Counter> newTimeouts;
+    private final Function<String, Counter> newRetries;
+    private final Function<String, Counter> newBreakerTrips;
+
+    @Autowired
+    public SchedulerMetrics(SchedulerRouter router, MeterRegistry registry) {
+        this.router = router;
+        this.registry = registry;
+        // Created once, a capturing lambda passed inline would be allocated on every lookup
+        this.newFireLag = group -> Timer.builder("dscheduler.trigger.fire.lag")
+                .description("Actual fire time minus scheduled fire time")
+                .tag("group", group)
+                .serviceLevelObjectives(LAG_BUCKETS)
+                .register(registry);
+        this.newSucceeded = jobClass -> durationTimer(jobClass, "success");
+        this.newFailed = jobClass -> durationTimer(jobClass, "failure");
+        this.newMisfires = group -> Counter.builder("dscheduler.trigger.misfires")
+                .description("Triggers that missed their fire time by more than the misfire threshold")
+                .tag("group", group)
+                .register(registry);
+        this.newVetoes = group -> Counter.builder("dscheduler.job.vetoes")
+                .description("Executions vetoed by a trigger listener")
+                .tag("group", group)
+                .register(registry);
+        this.newTimeouts = group -> Counter.builder("dscheduler.job.timeouts")
+                .description("Executions still running when their job's timeout expired")
+                .tag("group", group)
+                .register(registry);
+        this.newRetries = group -> Counter.builder("dscheduler.job.retries")
+                .description("Retries scheduled for failed executions")
+                .tag("group", group)
+                .register(registry);
+        this.newBreakerTrips = group -> Counter.builder("dscheduler.job.breaker.trips")
+                .description("Jobs paused by their circuit breaker after consecutive failures")
+                .tag("group", group)
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void init() throws SchedulerException {
+        SchedulerMetricsListener listener = new SchedulerMetricsListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addTriggerListener(listener);
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+    }
+
+    /**
+     * @param group     group of the fired trigger.
+     * @param lagMillis actual fire time minus scheduled fire time.
+     */
+    public void recordFireLag(String group, long lagMillis) {
+        meter(fireLag, group, newFireLag).record(Math.max(0, lagMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param jobClass       class name of the executed job.
+     * @param success        whether the job completed without exception.
+     * @param durationMillis run time of the job.
+     */
+    public void recordExecution(String jobClass, boolean success, long durationMillis) {
+        meter(success ? succeeded : failed, jobClass, success ? newSucceeded : newFailed)
+                .record(Math.max(0, durationMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void countMisfire(String group) {
+        meter(misfires, group, newMisfires).increment();
+    }
+
+    public void countVeto(String group) {
+        meter(vetoes, group, newVetoes).increment();
+    }
+
+    public void countTimeout(String group) {
+        meter(timeouts, group, newTimeouts).increment();
+    }
+
+    public void countRetry(String group) {
+        meter(retries, group, newRetries).increment();
+    }
+
+    public void countBreakerTrip(String group) {
+        meter(breakerTrips, group, newBreakerTrips).increment();
+    }
+
+    private Timer durationTimer(String jobClass, String outcome) {
+        return Timer.builder("dscheduler.job.duration")
+                .description("Job execution time")
+                .tag("job_class", jobClass)
+                .tag("outcome", outcome)
+                .serviceLevelObjectives(DURATION_BUCKETS)
+                .register(registry);
+    }
+
+    private <M> M meter(Map<String, M> meters, String tagValue, Function<String, M> factory) {
+        M meter = meters.get(tagValue);
+        if (meter != null) {
+            return meter;
+        }
+        if (meters.size() >= maxTagValues) {
+            return meters.computeIfAbsent(OTHER, factory);
+        }
+        return meters.computeIfAbsent(tagValue, factory);
+    }
+}
@@ -0,0 +1,113 @@
+package com.roc.dscheduler.service;
+
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Routes jobs to the scheduler of their partition.
+ * <p>
+ * Without partitioning ({@code dscheduler.partition.count} 1) there is a single partition, the application's
+ * scheduler. With N partitions every partition is a scheduler of its own named {@code <instanceName>-p<k>}, with its
+ * own rows in the Quartz tables and therefore its own TRIGGER_ACCESS lock. A job group is hashed to a partition, the
+ * shards of a sharded job are spread over the following partitions so they still run on different nodes.
+ * The routing only depends on the key, changing the partition count moves jobs to other partitions.
+ */
+public class SchedulerRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerRouter.class);
+
+    private final List<Scheduler> partitions;
+    private final List<String> partitionNames;
+    private final boolean partitioned;
+    private final boolean waitForJobsToComplete;
+
+    /**
+     * @param partitions            schedulers of the partitions, indexed by partition number.
+     * @param partitioned           whether the schedulers are owned by the router, as opposed to the single
+     *                              application scheduler.
+     * @param waitForJobsToComplete whether {@link #shutdown()} waits for running jobs.
+     */
+    public SchedulerRouter(List<Scheduler> partitions, boolean partitioned, boolean waitForJobsToComplete)
+            throws SchedulerException {
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+        List<String> names = new ArrayList<>(partitions.size());
+        for (Scheduler partition : partitions) {
+            names.add(partition.getSchedulerName());
+        }
+        this.partitionNames = Collections.unmodifiableList(names);
+        this.partitioned = partitioned;
+        this.waitForJobsToComplete = waitForJobsToComplete;
+    }
+
+    /**
+     * @return the scheduler holding the job.
+     */
+    public Scheduler getScheduler(JobKey jobKey) {
+        return partitions.get(partitionOf(jobKey));
+    }
+
+    /**
+     * @return the partition number of a job: its group's hash, plus the shard index for the shards of a sharded job.
+     */
+    public int partitionOf(JobKey jobKey) {
+        if (partitions.size() == 1) {
+            return 0;
+        }
+        int hash = jobKey.getGroup().hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash + shardIndex(jobKey.getName()), partitions.size());
+    }
+
+    /**
+     * @return the schedulers of all partitions, indexed by partition number.
+     */
+    public List<Scheduler> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @return the scheduler names of all partitions, i.e. the SCHED_NAME values holding jobs.
+     */
+    public List<String> getPartitionNames() {
+        return partitionNames;
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Shuts the partition schedulers down. The application scheduler is left to Spring.
+     */
+    public void shutdown() {
+        if (!partitioned) {
+            return;
+        }
+        for (Scheduler partition : partitions) {
+            try {
+                partition.shutdown(waitForJobsToComplete);
+            } catch (SchedulerException e) {
+                log.warn("Could not shut down partition scheduler: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static int shardIndex(String jobName) {
+        int separator = jobName.lastIndexOf(JobService.SHARD_SEPARATOR);
+        if (separator < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(jobName.substring(separator + JobService.SHARD_SEPARATOR.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
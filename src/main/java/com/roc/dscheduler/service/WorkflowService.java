@@ -0,0 +1,576 @@
+package com.roc.dscheduler.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.roc.dscheduler.cron.CompiledCron;
+import com.roc.dscheduler.entity.JobInfo;
+import com.roc.dscheduler.entity.JobSelector;
+import com.roc.dscheduler.entity.Workflow;
+import com.roc.dscheduler.entity.WorkflowNode;
+import com.roc.dscheduler.entity.WorkflowRun;
+import com.roc.dscheduler.entity.WorkflowRunNode;
+import com.roc.dscheduler.job.WorkflowStartJob;
+import com.roc.dscheduler.listener.AsyncAwareJobListener;
+import com.roc.dscheduler.listener.WorkflowListener;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.mapper.WorkflowMapper;
+import org.quartz.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * Workflows: DAGs of existing jobs started by one trigger, see {@link Workflow}.
+ * <p>
+ * A workflow is started by its job {@code DS_WORKFLOW.<name>} ({@link WorkflowStartJob}), which records a run in
+ * DS_WORKFLOW_RUN with one row per job in DS_WORKFLOW_RUN_NODE, and fires the jobs without upstream jobs. A job of
+ * the run is fired with a one-shot trigger of its own, so it runs on whichever node acquires it like any other fire,
+ * and the jobs ready at the same time run in parallel across the cluster. When it finishes, {@link WorkflowListener}
+ * completes it on the node that ran it and fires the downstream jobs whose upstream jobs all succeeded: a join fires
+ * once, when its last upstream job succeeds. A failed job fails the run and skips every job downstream of it.
+ * <p>
+ * The run state is in the database and every transition is a conditional update, so a run goes on whichever nodes
+ * fail. Run triggers are persistent, and the triggers of a job that requests recovery are recovered by Quartz.
+ * {@link #sweep()} fires again the jobs claimed by a node that failed before firing them, and fails the jobs whose
+ * execution was lost. Firing is at least once: a job fired twice runs twice but completes once.
+ */
+@Service
+public class WorkflowService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowService.class);
+
+    /**
+     * Group of the jobs starting the workflows, named after their workflow.
+     */
+    public static final String WORKFLOW_GROUP = "DS_WORKFLOW";
+    /**
+     * Group of the triggers firing the jobs of the runs.
+     */
+    public static final String RUN_TRIGGER_GROUP = "DS_WORKFLOW_RUN";
+    /**
+     * Data of the start job: the workflow to start.
+     */
+    public static final String WORKFLOW_NAME = "workflowName";
+    /**
+     * Data of the run triggers: the run the fired job belongs to.
+     */
+    public static final String RUN_ID = "workflowRunId";
+
+    private static final int MAX_NAME_LENGTH = 150;
+    private static final int MAX_NODES = 1000;
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final Scheduler scheduler;
+    private final SchedulerRouter router;
+    private final WorkflowMapper workflowMapper;
+    private final JobMapper jobMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${dscheduler.workflow.stale-after:60000}")
+    private long staleAfter;
+
+    @Autowired
+    public WorkflowService(Scheduler scheduler, SchedulerRouter router, WorkflowMapper workflowMapper,
+                           JobMapper jobMapper, ObjectMapper objectMapper, TransactionTemplate transactionTemplate) {
+        this.scheduler = scheduler;
+        this.router = router;
+        this.workflowMapper = workflowMapper;
+        this.jobMapper = jobMapper;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void registerListener() throws SchedulerException {
+        WorkflowListener listener = new WorkflowListener(this);
+        for (Scheduler partition : router.getPartitions()) {
+            partition.getListenerManager().addJobListener(new AsyncAwareJobListener(listener));
+        }
+    }
+
+    /**
+     * Creates or replaces a workflow and schedules its start job. Runs already started go on with the definition
+     * they started with.
+     *
+     * @throws IllegalArgumentException if the definition is invalid: no job, an unknown job, a job listed twice,
+     *                                  an unknown upstream job, a cycle or an invalid cron expression.
+     * @throws SchedulerException       if the start job cannot be scheduled.
+     */
+    public void saveWorkflow(Workflow workflow) throws SchedulerException {
+        validate(workflow);
+        workflowMapper.upsertWorkflow(scheduler.getSchedulerName(), workflow.getName(), toJson(workflow),
+                System.currentTimeMillis());
+
+        JobKey startKey = startKey(workflow.getName());
+        Scheduler partition = router.getScheduler(startKey);
+        JobDetail startJob = JobBuilder.newJob(WorkflowStartJob.class)
+                .withIdentity(startKey)
+                .withDescription(workflow.getDescription())
+                .usingJobData(WORKFLOW_NAME, workflow.getName())
+                .storeDurably()
+                .build();
+        TriggerKey triggerKey = TriggerKey.triggerKey(workflow.getName() + JobService.TRIGGER_SUFFIX, WORKFLOW_GROUP);
+        if (workflow.getCronExpression() == null) {
+            partition.addJob(startJob, true);
+            partition.unscheduleJob(triggerKey);
+        } else {
+            // A run missed while the cluster was down is not caught up, the next one starts on schedule
+            Trigger trigger = TriggerBuilder.newTrigger()
+                    .withIdentity(triggerKey)
+                    .forJob(startKey)
+                    .withSchedule(CronScheduleBuilder.cronSchedule(workflow.getCronExpression())
+                            .withMisfireHandlingInstructionDoNothing())
+                    .build();
+            partition.scheduleJob(startJob, Collections.singleton(trigger), true);
+        }
+        log.info("Workflow saved: {} ({} jobs)", workflow.getName(), workflow.getNodes().size());
+    }
+
+    /**
+     * Deletes a workflow and its start job. Runs already started go on.
+     *
+     * @return false if there is no such workflow.
+     */
+    public boolean deleteWorkflow(String name) throws SchedulerException {
+        JobKey startKey = startKey(name);
+        router.getScheduler(startKey).deleteJob(startKey);
+        boolean deleted = workflowMapper.deleteWorkflow(scheduler.getSchedulerName(), name) > 0;
+        if (deleted) {
+            log.info("Workflow deleted: {}", name);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the workflow, or null if there is no such workflow.
+     */
+    public Workflow getWorkflow(String name) throws SchedulerException {
+        String definition = workflowMapper.selectWorkflow(scheduler.getSchedulerName(), name);
+        return definition == null ? null : fromJson(definition);
+    }
+
+    public List<Workflow> getWorkflows() throws SchedulerException {
+        List<Workflow> workflows = new ArrayList<>();
+        for (String definition : workflowMapper.selectWorkflows(scheduler.getSchedulerName())) {
+            workflows.add(fromJson(definition));
+        }
+        return workflows;
+    }
+
+    /**
+     * @return the run with its jobs, or null if there is no such run.
+     */
+    public WorkflowRun getRun(long runId) {
+        WorkflowRun run = workflowMapper.selectRun(runId);
+        if (run != null) {
+            run.setNodes(workflowMapper.selectRunNodes(runId));
+        }
+        return run;
+    }
+
+    /**
+     * @return the latest runs of a workflow, newest first, without their jobs.
+     */
+    public List<WorkflowRun> getRuns(String name, int limit) throws SchedulerException {
+        return workflowMapper.selectRuns(scheduler.getSchedulerName(), name, limit);
+    }
+
+    /**
+     * Starts a run of a workflow and fires its jobs without upstream jobs. A workflow runs once at a time, a start
+     * while a run is in progress is skipped.
+     *
+     * @return the run, or null if skipped.
+     * @throws IllegalArgumentException if there is no such workflow.
+     */
+    public WorkflowRun startRun(String name) throws SchedulerException {
+        String schedName = scheduler.getSchedulerName();
+        String definition = workflowMapper.selectWorkflow(schedName, name);
+        if (definition == null) {
+            throw new IllegalArgumentException("Workflow not found: " + name);
+        }
+        Workflow workflow = fromJson(definition);
+        Map<JobKey, Integer> shardCounts = shardCounts(workflow);
+        long now = System.currentTimeMillis();
+
+        WorkflowRun run = new WorkflowRun();
+        run.setSchedName(schedName);
+        run.setWorkflowName(name);
+        run.setStatus(WorkflowRun.RUNNING);
+        run.setDefinition(definition);
+        run.setStartedAt(now);
+        List<WorkflowRunNode> nodes = new ArrayList<>();
+        List<WorkflowNode> definitionNodes = workflow.getNodes();
+        for (int index = 0; index < definitionNodes.size(); index++) {
+            WorkflowNode definitionNode = definitionNodes.get(index);
+            WorkflowRunNode node = new WorkflowRunNode();
+            node.setJobName(definitionNode.getJobName());
+            node.setJobGroup(definitionNode.getJobGroup());
+            node.setNodeIndex(index);
+            node.setRemainingUpstreams(definitionNode.getUpstreams().size());
+            // The jobs without upstream jobs are claimed right away
+            node.setStatus(node.getRemainingUpstreams() == 0 ? WorkflowRunNode.READY : WorkflowRunNode.PENDING);
+            node.setShardCount(shardCounts.getOrDefault(
+                    JobKey.jobKey(node.getJobName(), node.getJobGroup()), 1));
+            node.setPendingShards(node.getShardCount());
+            node.setUpdatedAt(now);
+            nodes.add(node);
+        }
+        // Under the lock of the workflow, so two nodes starting it at the same time cannot both find it idle. A run
+        // started while the definition is saved keeps the definition it was built from
+        boolean started = transactionTemplate.execute(status -> {
+            if (workflowMapper.lockWorkflow(schedName, name) == null
+                    || workflowMapper.countRunningRuns(schedName, name) > 0) {
+                return false;
+            }
+            workflowMapper.insertRun(run);
+            workflowMapper.insertRunNodes(run.getRunId(), nodes);
+            return true;
+        });
+        if (!started) {
+            log.warn("Workflow {} is still running or was deleted, start skipped", name);
+            return null;
+        }
+        log.info("Workflow {} started, run {}", name, run.getRunId());
+        for (WorkflowRunNode node : nodes) {
+            node.setRunId(run.getRunId());
+            if (WorkflowRunNode.READY.equals(node.getStatus())) {
+                fireNode(node);
+            }
+        }
+        run.setNodes(nodes);
+        return run;
+    }
+
+    /**
+     * Called by {@link WorkflowListener} when an execution fired for a run finished, once per shard for a sharded
+     * job. Completes the job once all its shards finished and fires the downstream jobs it made ready.
+     *
+     * @param jobKey  the job, not the shard.
+     * @param message the error of a failed execution.
+     */
+    public void executionFinished(long runId, JobKey jobKey, boolean success, String message) {
+        WorkflowRunNode node = new WorkflowRunNode();
+        node.setRunId(runId);
+        node.setJobName(jobKey.getName());
+        node.setJobGroup(jobKey.getGroup());
+        List<WorkflowRunNode> ready = transactionTemplate.execute(status -> {
+            long now = System.currentTimeMillis();
+            WorkflowRun run = workflowMapper.lockRun(runId);
+            if (run == null || workflowMapper.finishShard(runId, node, !success, truncate(message), now) == 0) {
+                return Collections.<WorkflowRunNode>emptyList();
+            }
+            return complete(run, node, now);
+        });
+        ready.forEach(this::fireNode);
+    }
+
+    /**
+     * Fires again the jobs of running runs claimed but not fired for {@code dscheduler.workflow.stale-after}
+     * (the node that claimed them failed), and fails the jobs whose execution is gone without having finished
+     * (the node running them failed and the job does not request recovery). Every node sweeps, a conditional
+     * update gives each job to one of them.
+     */
+    @Scheduled(fixedDelayString = "${dscheduler.workflow.sweep-interval:30000}",
+            initialDelayString = "${dscheduler.workflow.sweep-interval:30000}")
+    public void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            List<WorkflowRunNode> stale = workflowMapper.selectStaleNodes(scheduler.getSchedulerName(),
+                    now - staleAfter, SWEEP_BATCH_SIZE);
+            for (WorkflowRunNode node : stale) {
+                if (workflowMapper.touchNode(node.getRunId(), node, node.getUpdatedAt(), now) != 1) {
+                    continue;
+                }
+                if (WorkflowRunNode.READY.equals(node.getStatus())) {
+                    log.info("Firing again {}.{} of workflow run {}", node.getJobGroup(), node.getJobName(), node.getRunId());
+                    fireNode(node);
+                } else if (!isExecutionPending(node)) {
+                    log.warn("Execution of {}.{} of workflow run {} lost", node.getJobGroup(), node.getJobName(),
+                            node.getRunId());
+                    failNode(node, "Execution lost");
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Workflow sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Schedules a one-shot trigger per shard of a READY job and marks it RUNNING. The trigger keys are derived from
+     * the run and the job, so firing a job again does not fire it twice.
+     */
+    private void fireNode(WorkflowRunNode node) {
+        try {
+            for (int shard = 0; shard < node.getShardCount(); shard++) {
+                JobKey jobKey = shardKey(node, shard);
+                Trigger trigger = TriggerBuilder.newTrigger()
+                        .withIdentity(runTriggerKey(node, shard))
+                        .forJob(jobKey)
+                        .usingJobData(RUN_ID, node.getRunId())
+                        .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                        .startNow()
+                        .build();
+                Scheduler partition = router.getScheduler(jobKey);
+                try {
+                    partition.scheduleJob(trigger);
+                } catch (ObjectAlreadyExistsException e) {
+                    // Fired before
+                } catch (SchedulerException e) {
+                    if (!partition.checkExists(jobKey)) {
+                        failNode(node, "Job not found: " + jobKey);
+                        return;
+                    }
+                    throw e;
+                }
+            }
+            workflowMapper.markRunning(node.getRunId(), node, System.currentTimeMillis());
+        } catch (Exception e) {
+            // Stays READY, the sweeper fires it again
+            log.error("Could not fire {}.{} of workflow run {}: {}", node.getJobGroup(), node.getJobName(),
+                    node.getRunId(), e.getMessage(), e);
+        }
+    }
+
+    private void failNode(WorkflowRunNode node, String message) {
+        List<WorkflowRunNode> ready = transactionTemplate.execute(status -> {
+            long now = System.currentTimeMillis();
+            WorkflowRun run = workflowMapper.lockRun(node.getRunId());
+            if (run == null || workflowMapper.failNode(node.getRunId(), node, message, now) == 0) {
+                return Collections.<WorkflowRunNode>emptyList();
+            }
+            return complete(run, node, now);
+        });
+        ready.forEach(this::fireNode);
+    }
+
+    /**
+     * Completes a job without pending shards, within the transaction holding the run's lock: claims the downstream
+     * jobs it made ready, or skips every job downstream of it if it failed, then ends the run once no job is left.
+     *
+     * @return the claimed jobs, to be fired after the commit.
+     */
+    private List<WorkflowRunNode> complete(WorkflowRun run, WorkflowRunNode completed, long now) {
+        long runId = run.getRunId();
+        if (workflowMapper.completeNode(runId, completed, now) == 0) {
+            return Collections.emptyList();
+        }
+        Map<String, WorkflowRunNode> nodes = new LinkedHashMap<>();
+        for (WorkflowRunNode node : workflowMapper.selectRunNodes(runId)) {
+            node.setRunId(runId);
+            nodes.put(node.getJobGroup() + "." + node.getJobName(), node);
+        }
+        String completedKey = completed.getJobGroup() + "." + completed.getJobName();
+        Map<String, List<String>> downstreams = downstreams(fromJsonUnchecked(run.getDefinition()));
+        List<WorkflowRunNode> ready = new ArrayList<>();
+        if (WorkflowRunNode.SUCCEEDED.equals(nodes.get(completedKey).getStatus())) {
+            for (String downstreamKey : downstreams.getOrDefault(completedKey, Collections.emptyList())) {
+                WorkflowRunNode downstream = nodes.get(downstreamKey);
+                if (workflowMapper.decrementUpstreams(runId, downstream, now) == 1
+                        && workflowMapper.claimNode(runId, downstream, now) == 1) {
+                    downstream.setStatus(WorkflowRunNode.READY);
+                    ready.add(downstream);
+                }
+            }
+        } else {
+            List<WorkflowRunNode> skipped = new ArrayList<>();
+            Deque<String> queue = new ArrayDeque<>(downstreams.getOrDefault(completedKey, Collections.emptyList()));
+            Set<String> seen = new HashSet<>();
+            while (!queue.isEmpty()) {
+                String key = queue.poll();
+                if (seen.add(key)) {
+                    skipped.add(nodes.get(key));
+                    queue.addAll(downstreams.getOrDefault(key, Collections.emptyList()));
+                }
+            }
+            if (!skipped.isEmpty()) {
+                workflowMapper.skipNodes(runId, skipped, "Upstream job " + completedKey + " failed", now);
+            }
+        }
+        if (ready.isEmpty()) {
+            finishRunIfDone(runId, now);
+        }
+        return ready;
+    }
+
+    private void finishRunIfDone(long runId, long now) {
+        List<WorkflowRunNode> nodes = workflowMapper.selectRunNodes(runId);
+        if (nodes.stream().anyMatch(WorkflowRunNode::isActive)) {
+            return;
+        }
+        boolean succeeded = nodes.stream().allMatch(node -> WorkflowRunNode.SUCCEEDED.equals(node.getStatus()));
+        String status = succeeded ? WorkflowRun.SUCCEEDED : WorkflowRun.FAILED;
+        if (workflowMapper.finishRun(runId, status, now) == 1) {
+            log.info("Workflow run {} {}", runId, status.toLowerCase());
+        }
+    }
+
+    /**
+     * @return whether an execution of the job is still to come or in progress: one of its run triggers is still
+     * there (it is deleted once the execution finished), a retry of it was scheduled, or Quartz recovered one.
+     */
+    private boolean isExecutionPending(WorkflowRunNode node) throws SchedulerException {
+        for (int shard = 0; shard < node.getShardCount(); shard++) {
+            JobKey jobKey = shardKey(node, shard);
+            TriggerKey runTriggerKey = runTriggerKey(node, shard);
+            for (Trigger trigger : router.getScheduler(jobKey).getTriggersOfJob(jobKey)) {
+                if (trigger.getKey().equals(runTriggerKey)
+                        || Scheduler.DEFAULT_RECOVERY_GROUP.equals(trigger.getKey().getGroup())
+                        || isRetryOf(trigger, node)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRetryOf(Trigger trigger, WorkflowRunNode node) {
+        JobDataMap data = trigger.getJobDataMap();
+        return data.containsKey(JobRetryService.RETRY_ATTEMPT) && data.containsKey(RUN_ID)
+                && data.getLongValue(RUN_ID) == node.getRunId();
+    }
+
+    private void validate(Workflow workflow) throws SchedulerException {
+        String name = workflow.getName();
+        if (name == null || name.trim().isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Workflow name must be 1 to " + MAX_NAME_LENGTH + " characters");
+        }
+        if (workflow.getCronExpression() != null && !CompiledCron.isValid(workflow.getCronExpression())) {
+            throw new IllegalArgumentException("Invalid cron expression: " + workflow.getCronExpression());
+        }
+        List<WorkflowNode> nodes = workflow.getNodes();
+        if (nodes == null || nodes.isEmpty() || nodes.size() > MAX_NODES) {
+            throw new IllegalArgumentException("A workflow needs 1 to " + MAX_NODES + " jobs");
+        }
+        Set<String> keys = new HashSet<>();
+        for (WorkflowNode node : nodes) {
+            if (node.getJobName() == null || node.getJobGroup() == null) {
+                throw new IllegalArgumentException("Every job of a workflow needs a name and a group");
+            }
+            if (node.getUpstreams() == null) {
+                node.setUpstreams(new ArrayList<>());
+            }
+            if (!keys.add(node.getKey())) {
+                throw new IllegalArgumentException("Job listed twice: " + node.getKey());
+            }
+        }
+        for (WorkflowNode node : nodes) {
+            for (String upstream : node.getUpstreams()) {
+                if (!keys.contains(upstream)) {
+                    throw new IllegalArgumentException("Unknown upstream job of " + node.getKey() + ": " + upstream);
+                }
+            }
+            if (new HashSet<>(node.getUpstreams()).size() != node.getUpstreams().size()) {
+                throw new IllegalArgumentException("Upstream job listed twice for " + node.getKey());
+            }
+        }
+        // Kahn's algorithm: a cycle leaves jobs that never get ready
+        Map<String, List<String>> downstreams = downstreams(workflow);
+        Map<String, Integer> remaining = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (WorkflowNode node : nodes) {
+            remaining.put(node.getKey(), node.getUpstreams().size());
+            if (node.getUpstreams().isEmpty()) {
+                ready.add(node.getKey());
+            }
+        }
+        int sorted = 0;
+        while (!ready.isEmpty()) {
+            sorted++;
+            for (String downstream : downstreams.getOrDefault(ready.poll(), Collections.emptyList())) {
+                if (remaining.merge(downstream, -1, Integer::sum) == 0) {
+                    ready.add(downstream);
+                }
+            }
+        }
+        if (sorted < nodes.size()) {
+            throw new IllegalArgumentException("The jobs of a workflow cannot depend on each other in a cycle");
+        }
+        Set<JobKey> existing = shardCounts(workflow).keySet();
+        for (WorkflowNode node : nodes) {
+            if (!existing.contains(JobKey.jobKey(node.getJobName(), node.getJobGroup()))) {
+                throw new IllegalArgumentException("Job not found: " + node.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return the shard count of every existing job of the workflow.
+     */
+    private Map<JobKey, Integer> shardCounts(Workflow workflow) throws SchedulerException {
+        List<JobInfo> jobs = new ArrayList<>();
+        for (WorkflowNode node : workflow.getNodes()) {
+            jobs.add(new JobInfo(node.getJobName(), node.getJobGroup(), null, null, null, null, null, null));
+        }
+        JobSelector selector = new JobSelector();
+        selector.setJobs(jobs);
+        Map<JobKey, Integer> shardCounts = new HashMap<>();
+        for (JobInfo job : jobMapper.selectJobKeys(router.getPartitionNames(), selector)) {
+            shardCounts.put(JobKey.jobKey(job.getJobName(), job.getJobGroup()), Math.max(1, job.getShardCount()));
+        }
+        return shardCounts;
+    }
+
+    /**
+     * @return the downstream jobs of every job, in definition order.
+     */
+    private static Map<String, List<String>> downstreams(Workflow workflow) {
+        Map<String, List<String>> downstreams = new HashMap<>();
+        for (WorkflowNode node : workflow.getNodes()) {
+            for (String upstream : node.getUpstreams()) {
+                downstreams.computeIfAbsent(upstream, k -> new ArrayList<>()).add(node.getKey());
+            }
+        }
+        return downstreams;
+    }
+
+    private static JobKey startKey(String name) {
+        return JobKey.jobKey(name, WORKFLOW_GROUP);
+    }
+
+    private static JobKey shardKey(WorkflowRunNode node, int shard) {
+        String jobName = shard == 0 ? node.getJobName() : node.getJobName() + JobService.SHARD_SEPARATOR + shard;
+        return JobKey.jobKey(jobName, node.getJobGroup());
+    }
+
+    private static TriggerKey runTriggerKey(WorkflowRunNode node, int shard) {
+        String name = "run-" + node.getRunId() + "-" + node.getNodeIndex() + (shard == 0 ? "" : "-" + shard);
+        return TriggerKey.triggerKey(name, RUN_TRIGGER_GROUP);
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    private String toJson(Workflow workflow) throws SchedulerException {
+        try {
+            return objectMapper.writeValueAsString(workflow);
+        } catch (JsonProcessingException e) {
+            throw new SchedulerException("Could not write workflow " + workflow.getName(), e);
+        }
+    }
+
+    private Workflow fromJson(String definition) throws SchedulerException {
+        try {
+            return objectMapper.readValue(definition, Workflow.class);
+        } catch (JsonProcessingException e) {
+            throw new SchedulerException("Could not read workflow definition", e);
+        }
+    }
+
+    private Workflow fromJsonUnchecked(String definition) {
+        try {
+            return objectMapper.readValue(definition, Workflow.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read workflow definition", e);
+        }
+    }
+}
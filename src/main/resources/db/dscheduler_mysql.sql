@@ -0,0 +1,154 @@
+-- Dscheduler tables, created next to the Quartz QRTZ_ tables (tables_mysql_innodb.sql from the Quartz distribution).
+-- spring.quartz.jdbc.initialize-schema is "never", run this script manually before the first start.
+
+-- Change counter of the in-memory job catalog, bumped on every job change so other nodes reload.
+CREATE TABLE IF NOT EXISTS DS_CATALOG_VERSION
+(
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION    BIGINT       NOT NULL,
+    PRIMARY KEY (SCHED_NAME)
+) ENGINE = InnoDB;
+
+-- Execution history written in batches by ExecutionHistoryService.
+-- For very large volumes the table can be RANGE partitioned on START_TIME, the retention purge deletes in chunks either way.
+CREATE TABLE IF NOT EXISTS DS_JOB_EXECUTION
+(
+    ID                  BIGINT       NOT NULL AUTO_INCREMENT,
+    SCHED_NAME          VARCHAR(120) NOT NULL,
+    JOB_NAME            VARCHAR(190) NOT NULL,
+    JOB_GROUP           VARCHAR(190) NOT NULL,
+    TRIGGER_NAME        VARCHAR(190) NOT NULL,
+    TRIGGER_GROUP       VARCHAR(190) NOT NULL,
+    FIRE_INSTANCE_ID    VARCHAR(95)  NOT NULL,
+    INSTANCE_ID         VARCHAR(190) NOT NULL,
+    SCHEDULED_FIRE_TIME DATETIME(3)  NULL,
+    START_TIME          DATETIME(3)  NOT NULL,
+    END_TIME            DATETIME(3)  NOT NULL,
+    DURATION_MS         BIGINT       NOT NULL,
+    STATUS              VARCHAR(16)  NOT NULL,
+    ERROR_MESSAGE       VARCHAR(1000) NULL,
+    PRIMARY KEY (ID),
+    KEY IDX_DS_JOB_EXECUTION_JOB (SCHED_NAME, JOB_GROUP, JOB_NAME, ID),
+    KEY IDX_DS_JOB_EXECUTION_START (START_TIME)
+) ENGINE = InnoDB;
+
+-- Partition leases of the partitioned mode (dscheduler.partition.count > 1), maintained by PartitionManager.
+-- A node runs the scheduler of a partition while it holds the lease, EXPIRES_AT is in epoch millis.
+-- DelayedTaskService leases the buckets of DS_DELAYED_TASK here too, under SCHED_NAME suffixed with "/delayed".
+CREATE TABLE IF NOT EXISTS DS_PARTITION_LEASE
+(
+    SCHED_NAME   VARCHAR(120) NOT NULL,
+    PARTITION_NO INT          NOT NULL,
+    OWNER        VARCHAR(190) NULL,
+    EXPIRES_AT   BIGINT       NOT NULL,
+    PRIMARY KEY (SCHED_NAME, PARTITION_NO)
+) ENGINE = InnoDB;
+
+-- Workflow definitions maintained by WorkflowService: a DAG of jobs, stored as JSON, started by the job
+-- DS_WORKFLOW.<WORKFLOW_NAME>. UPDATED_AT is in epoch millis.
+CREATE TABLE IF NOT EXISTS DS_WORKFLOW
+(
+    SCHED_NAME    VARCHAR(120) NOT NULL,
+    WORKFLOW_NAME VARCHAR(150) NOT NULL,
+    DEFINITION    MEDIUMTEXT   NOT NULL,
+    UPDATED_AT    BIGINT       NOT NULL,
+    PRIMARY KEY (SCHED_NAME, WORKFLOW_NAME)
+) ENGINE = InnoDB;
+
+-- Workflow runs, each with a copy of the definition it was started with. Times are in epoch millis.
+CREATE TABLE IF NOT EXISTS DS_WORKFLOW_RUN
+(
+    RUN_ID        BIGINT       NOT NULL AUTO_INCREMENT,
+    SCHED_NAME    VARCHAR(120) NOT NULL,
+    WORKFLOW_NAME VARCHAR(150) NOT NULL,
+    STATUS        VARCHAR(16)  NOT NULL,
+    DEFINITION    MEDIUMTEXT   NOT NULL,
+    STARTED_AT    BIGINT       NOT NULL,
+    FINISHED_AT   BIGINT       NULL,
+    PRIMARY KEY (RUN_ID),
+    KEY IDX_DS_WORKFLOW_RUN_NAME (SCHED_NAME, WORKFLOW_NAME, RUN_ID),
+    KEY IDX_DS_WORKFLOW_RUN_STATUS (SCHED_NAME, STATUS)
+) ENGINE = InnoDB;
+
+-- State of every job of a workflow run. REMAINING_UPSTREAMS counts the upstream jobs still to succeed, PENDING_SHARDS
+-- and FAILED_SHARDS the shards of the job (SHARD_COUNT when the run started) still running and failed, so joins and sharded jobs complete exactly once.
+CREATE TABLE IF NOT EXISTS DS_WORKFLOW_RUN_NODE
+(
+    RUN_ID              BIGINT        NOT NULL,
+    JOB_GROUP           VARCHAR(190)  NOT NULL,
+    JOB_NAME            VARCHAR(190)  NOT NULL,
+    NODE_INDEX          INT           NOT NULL,
+    STATUS              VARCHAR(16)   NOT NULL,
+    REMAINING_UPSTREAMS INT           NOT NULL,
+    SHARD_COUNT         INT           NOT NULL,
+    PENDING_SHARDS      INT           NOT NULL,
+    FAILED_SHARDS       INT           NOT NULL,
+    UPDATED_AT          BIGINT        NOT NULL,
+    MESSAGE             VARCHAR(1000) NULL,
+    PRIMARY KEY (RUN_ID, JOB_GROUP, JOB_NAME),
+    KEY IDX_DS_WORKFLOW_RUN_NODE_STATUS (STATUS, UPDATED_AT)
+) ENGINE = InnoDB;
+
+-- Load of every node, per scheduler, published by DschedulerJobStore at each cluster check-in and read by the other
+-- nodes for load-aware trigger acquisition. Rows of nodes recovered by the cluster are deleted. UPDATED_AT is in epoch millis.
+CREATE TABLE IF NOT EXISTS DS_NODE_LOAD
+(
+    SCHED_NAME      VARCHAR(120) NOT NULL,
+    INSTANCE_NAME   VARCHAR(190) NOT NULL,
+    ACTIVE          BOOLEAN      NOT NULL,
+    BUSY_THREADS    INT          NOT NULL,
+    POOL_SIZE       INT          NOT NULL,
+    ASYNC_IN_FLIGHT INT          NOT NULL,
+    QUEUE_DEPTH     INT          NOT NULL,
+    CPU_LOAD        DOUBLE       NULL,
+    HEAP_USED       BIGINT       NOT NULL,
+    HEAP_MAX        BIGINT       NOT NULL,
+    UPDATED_AT      BIGINT       NOT NULL,
+    PRIMARY KEY (SCHED_NAME, INSTANCE_NAME)
+) ENGINE = InnoDB;
+
+-- Node leases renewed every leaseRenewInterval by NodeLeases, one row per instance of a scheduler (CLUSTER_NAME, the
+-- application scheduler and each partition apart). HEARTBEAT counts the renewals, FENCING_TOKEN increases each time
+-- the instance takes a new lease.
+CREATE TABLE IF NOT EXISTS DS_NODE_LEASE
+(
+    CLUSTER_NAME  VARCHAR(120) NOT NULL,
+    INSTANCE_NAME VARCHAR(190) NOT NULL,
+    FENCING_TOKEN BIGINT       NOT NULL,
+    HEARTBEAT     BIGINT       NOT NULL,
+    PRIMARY KEY (CLUSTER_NAME, INSTANCE_NAME)
+) ENGINE = InnoDB;
+
+-- Failures of the jobs with a retry policy or circuit breaker, counted by JobRetryService under the scheduler of the
+-- job itself (shards under their job). A successful execution resets CONSECUTIVE_FAILURES, RETRY_COUNT only grows.
+CREATE TABLE IF NOT EXISTS DS_JOB_RETRY_STATE
+(
+    SCHED_NAME           VARCHAR(120) NOT NULL,
+    JOB_GROUP            VARCHAR(190) NOT NULL,
+    JOB_NAME             VARCHAR(190) NOT NULL,
+    CONSECUTIVE_FAILURES INT          NOT NULL,
+    RETRY_COUNT          INT          NOT NULL,
+    LAST_FAILURE_AT      BIGINT       NOT NULL,
+    PRIMARY KEY (SCHED_NAME, JOB_GROUP, JOB_NAME)
+) ENGINE = InnoDB;
+
+-- Delayed one-shot tasks of DelayedTaskService, deleted once run. Rows are clustered by time slot (FIRE_AT divided by
+-- the slot size) and spread over buckets leased to the nodes; CLAIM is the load that put the task in a node's timer
+-- wheel, NULL until then. TASK_KEY is optional and unique per handler. FIRE_AT is in epoch millis.
+CREATE TABLE IF NOT EXISTS DS_DELAYED_TASK
+(
+    SCHED_NAME VARCHAR(120)  NOT NULL,
+    SLOT       BIGINT        NOT NULL,
+    ID         BIGINT        NOT NULL AUTO_INCREMENT,
+    BUCKET     INT           NOT NULL,
+    FIRE_AT    BIGINT        NOT NULL,
+    HANDLER    VARCHAR(190)  NOT NULL,
+    TASK_KEY   VARCHAR(190)  NULL,
+    PAYLOAD    VARCHAR(2000) NULL,
+    ATTEMPTS   INT           NOT NULL,
+    CLAIM      BIGINT        NULL,
+    PRIMARY KEY (SCHED_NAME, SLOT, ID),
+    KEY IDX_DS_DELAYED_TASK_ID (ID),
+    KEY IDX_DS_DELAYED_TASK_CLAIM (SCHED_NAME, BUCKET, CLAIM, SLOT),
+    UNIQUE KEY UK_DS_DELAYED_TASK_KEY (SCHED_NAME, HANDLER, TASK_KEY)
+) ENGINE = InnoDB;
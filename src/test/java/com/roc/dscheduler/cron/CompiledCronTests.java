@@ -0,0 +1,83 @@
+package com.roc.dscheduler.cron;
+
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledCronTests {
+
+    private static final String[] EXPRESSIONS = {
+            "0 0/5 * * * ?", "0 15 10 ? * MON-FRI", "0 0 12 1/5 * ?", "0 15 10 L * ?", "0 0 9 ? * 6#3",
+            "* * * * * ?", "0 30 1 * * ?", "0 30 2 * * ?", "0 0/20 1-3 * * ?", "0 0 0 31 * ?", "0 0 0 29 2 ?",
+            "0 0 12 15W * ?", "0 0 12 1W * ?", "0 0 12 31W * ?", "0 0 12 LW * ?", "0 0 12 L-3 * ?",
+            "0 0 12 L-3W * ?", "0 0 12 ? * 6L", "0 0 12 ? * 2#5", "0 0 12 ? * L", "0 0 12 ? * SUN,SAT",
+            "15,45 10-20/3 8-17 ? JAN,JUN-AUG 2-6", "0 0 0 1 1 ? 2027-2030", "0 0 23 30 11-1 ?", "0 0/7 22-2 * * ?"};
+
+    private static final String[] ZONES = {"UTC", "Asia/Shanghai", "America/New_York", "Australia/Lord_Howe"};
+
+    @Test
+    void firesAsQuartz() throws Exception {
+        Random random = new Random(42);
+        for (String zone : ZONES) {
+            for (String expression : EXPRESSIONS) {
+                CronExpression quartz = new CronExpression(expression);
+                quartz.setTimeZone(TimeZone.getTimeZone(zone));
+                CompiledCron compiled = CompiledCron.compile(expression, ZoneId.of(zone));
+                for (int run = 0; run < 10; run++) {
+                    // From a random time in 2025 to 2028, milliseconds included
+                    Date after = new Date(1735689600000L + (long) (random.nextDouble() * 4 * 365 * 86400000L));
+                    assertSameFireTimes(quartz, compiled, after);
+                }
+                // Across the daylight saving changes of New York
+                assertSameFireTimes(quartz, compiled, date("2025-03-08T20:00:00"));
+                assertSameFireTimes(quartz, compiled, date("2025-11-01T20:00:00"));
+            }
+        }
+    }
+
+    @Test
+    void validatesAsQuartz() {
+        assertTrue(CompiledCron.isValid("0 0 12 ? * 6#3"));
+        assertFalse(CompiledCron.isValid("0 0 12 * * MON"));
+        assertFalse(CompiledCron.isValid("0 0 25 * * ?"));
+        assertFalse(CompiledCron.isValid("not a cron"));
+        assertFalse(CompiledCron.isValid(null));
+    }
+
+    @Test
+    void keepsTheMostRecentlyUsedExpressions() throws Exception {
+        CompiledCron recent = CompiledCron.compile("0 0 12 * * ?");
+        CompiledCron eldest = CompiledCron.compile("0 0 13 * * ?");
+        for (int i = 0; i < 10000; i++) {
+            assertSame(recent, CompiledCron.compile("0 0 12 * * ?"));
+            CompiledCron.compile(i % 60 + " " + i / 60 % 60 + " " + i / 3600 + " * * ?");
+        }
+        assertSame(recent, CompiledCron.compile("0 0 12 * * ?"));
+        assertNotSame(eldest, CompiledCron.compile("0 0 13 * * ?"));
+    }
+
+    private static void assertSameFireTimes(CronExpression quartz, CompiledCron compiled, Date after) {
+        Date expected = after;
+        Date actual = after;
+        for (int i = 0; i < 100 && expected != null; i++) {
+            expected = quartz.getNextValidTimeAfter(expected);
+            actual = compiled.getNextValidTimeAfter(actual);
+            assertEquals(expected, actual, () -> "'" + compiled + "' in " + compiled.getZone() + " after " + after);
+        }
+    }
+
+    private static Date date(String time) {
+        return Date.from(LocalDateTime.parse(time).atZone(ZoneId.of("America/New_York")).toInstant());
+    }
+}
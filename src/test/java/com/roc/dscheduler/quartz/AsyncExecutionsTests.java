@@ -0,0 +1,154 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Completion of the executions registered in {@link AsyncExecutions}: by their future, a failure or a timeout.
+ */
+class AsyncExecutionsTests {
+
+    private static final String SCHED_NAME = "async-test";
+
+    private final JobExecutionContext context = mock(JobExecutionContext.class);
+
+    @BeforeEach
+    void configure() throws Exception {
+        AsyncExecutions.configure(3_600_000, 10_000, 2);
+        Scheduler scheduler = mock(Scheduler.class);
+        when(scheduler.getSchedulerName()).thenReturn(SCHED_NAME);
+        when(context.getScheduler()).thenReturn(scheduler);
+        when(context.getFireInstanceId()).thenReturn("fire-1");
+        when(context.getFireTime()).thenReturn(new Date());
+    }
+
+    @AfterEach
+    void forget() {
+        AsyncExecutions.remove("fire-1");
+        AsyncExecutions.configure(3_600_000, 10_000, 2);
+    }
+
+    @Test
+    void runsTheActionsInOrderOnceTheFutureCompletes() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AsyncExecutions.submit(context, () -> future);
+        List<String> completed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        assertTrue(AsyncExecutions.whenComplete("fire-1", failure -> {
+            completed.add("listener " + failure);
+            done.countDown();
+        }));
+        assertTrue(AsyncExecutions.whenComplete("fire-1", failure -> {
+            completed.add("store " + failure);
+            done.countDown();
+        }));
+        assertEquals(1, AsyncExecutions.pending(SCHED_NAME));
+        assertEquals(1, AsyncExecutions.inFlight());
+
+        future.complete("done");
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("listener null", "store null"), completed);
+        assertEquals(0, AsyncExecutions.inFlight());
+        // Still pending until the job store recorded the completion
+        assertEquals(1, AsyncExecutions.pending(SCHED_NAME));
+        AsyncExecutions.remove("fire-1");
+        assertEquals(0, AsyncExecutions.pending(SCHED_NAME));
+    }
+
+    @Test
+    void passesTheFailureOfTheFuture() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AsyncExecutions.submit(context, () -> future);
+        IllegalStateException cause = new IllegalStateException("Failing on purpose");
+
+        future.completeExceptionally(cause);
+
+        JobExecutionException failure = awaitFailure();
+        assertSame(cause, failure.getCause());
+    }
+
+    @Test
+    void failingCancelsTheFuture() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AsyncExecutions.submit(context, () -> future);
+
+        assertTrue(AsyncExecutions.fail("fire-1", new TimeoutException("Job timeout")));
+
+        assertInstanceOf(TimeoutException.class, awaitFailure().getCause());
+        assertTrue(future.isCancelled());
+        assertEquals(0, AsyncExecutions.inFlight());
+        assertFalse(AsyncExecutions.fail("fire-2", new TimeoutException("Job timeout")));
+    }
+
+    @Test
+    void timesOut() throws Exception {
+        AsyncExecutions.configure(150, 10_000, 2);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AsyncExecutions.submit(context, () -> future);
+
+        assertInstanceOf(TimeoutException.class, awaitFailure().getCause());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void releasesTheSlotOfAJobThatThrew() {
+        assertThrows(JobExecutionException.class, () -> AsyncExecutions.submit(context, () -> {
+            throw new IllegalStateException("Failing on purpose");
+        }));
+
+        assertEquals(0, AsyncExecutions.inFlight());
+        assertFalse(AsyncExecutions.whenComplete("fire-1", failure -> {
+        }));
+    }
+
+    @Test
+    void runsAnActionRegisteredAfterCompletion() throws Exception {
+        AsyncExecutions.submit(context, () -> CompletableFuture.completedFuture("done"));
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<JobExecutionException> failure = new AtomicReference<>(new JobExecutionException());
+
+        assertTrue(AsyncExecutions.whenComplete("fire-1", result -> {
+            failure.set(result);
+            done.countDown();
+        }));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+    }
+
+    private JobExecutionException awaitFailure() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<JobExecutionException> failure = new AtomicReference<>();
+        AsyncExecutions.whenComplete("fire-1", result -> {
+            failure.set(result);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return failure.get();
+    }
+}
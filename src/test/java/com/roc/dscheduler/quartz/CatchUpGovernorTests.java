@@ -0,0 +1,51 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Token bucket of {@link CatchUpGovernor}: burst, refill and the throttling state.
+ */
+class CatchUpGovernorTests {
+
+    @Test
+    void releasesABurstThenDenies() {
+        CatchUpGovernor governor = new CatchUpGovernor(0.001, 3);
+
+        assertEquals(3, governor.available());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(governor.tryAcquire());
+        }
+        assertFalse(governor.tryAcquire());
+        assertEquals(0, governor.available());
+    }
+
+    @Test
+    void throttlesOnlyOnceAFireWasDenied() {
+        CatchUpGovernor governor = new CatchUpGovernor(0.001, 1);
+
+        assertFalse(governor.isThrottling());
+        assertTrue(governor.tryAcquire());
+        assertFalse(governor.isThrottling());
+        assertFalse(governor.tryAcquire());
+        assertTrue(governor.isThrottling());
+    }
+
+    @Test
+    void refillsAtTheRate() throws Exception {
+        CatchUpGovernor governor = new CatchUpGovernor(20, 1);
+        assertTrue(governor.tryAcquire());
+
+        long start = System.nanoTime();
+        governor.awaitToken();
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waited >= 40 && waited < 1000, "waited " + waited + "ms");
+        assertTrue(governor.tryAcquire());
+    }
+}
@@ -0,0 +1,117 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.SchedulerConfigException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Capacity of {@link ElasticThreadPool} in elastic mode: the scheduler is never handed more executions than
+ * {@code maxThreads}.
+ */
+class ElasticThreadPoolTests {
+
+    private final ElasticThreadPool pool = new ElasticThreadPool();
+    private final ExecutorService caller = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown(false);
+        caller.shutdownNow();
+    }
+
+    @Test
+    void reportsTheFreeCapacity() throws Exception {
+        start(3);
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(pool.runInThread(() -> {
+                running.countDown();
+                await(done);
+            }));
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, pool.getBusyThreadCount());
+        assertEquals(1, pool.blockForAvailableThreads());
+        done.countDown();
+        assertEquals(3, waitForCapacity(3));
+    }
+
+    @Test
+    void blocksWhileAtCapacity() throws Exception {
+        start(1);
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(pool.runInThread(() -> await(done)));
+
+        Future<Integer> free = caller.submit(pool::blockForAvailableThreads);
+        assertThrows(TimeoutException.class, () -> free.get(200, TimeUnit.MILLISECONDS));
+        done.countDown();
+        assertEquals(1, free.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void usesTheThreadCountWithoutMaxThreads() throws Exception {
+        pool.setThreadCount(4);
+        pool.setMinThreads(10);
+        pool.setMode("elastic");
+        pool.setInstanceName("threadCount");
+        pool.initialize();
+
+        assertEquals(4, pool.getPoolSize());
+        assertFalse(pool.isVirtual());
+    }
+
+    @Test
+    void rejectsAnUnknownMode() {
+        pool.setMaxThreads(1);
+        pool.setMode("fixed");
+
+        assertThrows(SchedulerConfigException.class, pool::initialize);
+    }
+
+    @Test
+    void runsNothingOnceShutDown() throws Exception {
+        start(1);
+        pool.shutdown(true);
+
+        assertFalse(pool.runInThread(() -> {
+        }));
+    }
+
+    private void start(int maxThreads) throws SchedulerConfigException {
+        pool.setMaxThreads(maxThreads);
+        pool.setMinThreads(0);
+        pool.setMode("elastic");
+        pool.setInstanceName("test-" + maxThreads);
+        pool.initialize();
+    }
+
+    private int waitForCapacity(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.blockForAvailableThreads() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return pool.blockForAvailableThreads();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
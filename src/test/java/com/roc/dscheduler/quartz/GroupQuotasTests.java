@@ -0,0 +1,129 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.TriggerKey;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Selection of the triggers due by {@link GroupQuotas}: weighted shares, limits, and the slots reserved while
+ * selecting.
+ */
+class GroupQuotasTests {
+
+    private static final AtomicInteger fireInstanceIds = new AtomicInteger();
+
+    private final List<String> fired = new ArrayList<>();
+
+    @BeforeEach
+    void configure() {
+        GroupQuotas.configure("limited=2, shared=5", "heavy=3", 1, 100);
+    }
+
+    @AfterEach
+    void releaseAll() {
+        GroupQuotas.releaseReserved();
+        fired.forEach(GroupQuotas::release);
+        GroupQuotas.configure("", "", 1, 100);
+    }
+
+    @Test
+    void sharesTheTriggersDueByWeight() {
+        List<TriggerKey> due = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            due.add(TriggerKey.triggerKey("heavy-" + i, "heavy"));
+            due.add(TriggerKey.triggerKey("light-" + i, "light"));
+        }
+
+        List<TriggerKey> selection = GroupQuotas.select(due, 8);
+
+        assertEquals(6, selection.stream().filter(key -> key.getGroup().equals("heavy")).count());
+        assertEquals(2, selection.stream().filter(key -> key.getGroup().equals("light")).count());
+    }
+
+    @Test
+    void leavesOutTheGroupsAtTheirLimit() {
+        List<TriggerKey> due = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            due.add(TriggerKey.triggerKey("limited-" + i, "limited"));
+        }
+
+        assertEquals(2, GroupQuotas.select(due, 10).size());
+        assertTrue(GroupQuotas.saturatedGroups().contains("limited"));
+        assertTrue(GroupQuotas.select(due, 10).isEmpty());
+    }
+
+    @Test
+    void bindsTheAcquiredTriggersToTheirReservation() {
+        List<TriggerKey> due = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            due.add(TriggerKey.triggerKey("limited-" + i, "limited"));
+        }
+        List<TriggerKey> selection = GroupQuotas.select(due, 10);
+        GroupQuotas.acquired(trigger(selection.get(0)));
+
+        // The second trigger was selected but not acquired, its slot is given back
+        assertTrue(GroupQuotas.releaseReserved());
+        assertEquals(1, GroupQuotas.running("limited"));
+        assertFalse(GroupQuotas.releaseReserved());
+
+        assertFalse(GroupQuotas.release(fired.remove(0)));
+        assertEquals(0, GroupQuotas.running("limited"));
+    }
+
+    @Test
+    void neverExceedsALimitAcrossConcurrentAcquisitions() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                List<TriggerKey> due = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    due.add(TriggerKey.triggerKey("shared-" + thread + "-" + i, "shared"));
+                }
+                start.await();
+                List<TriggerKey> selection = GroupQuotas.select(due, 4);
+                selection.forEach(key -> GroupQuotas.acquired(trigger(key)));
+                GroupQuotas.releaseReserved();
+                return selection.size();
+            }));
+        }
+        start.countDown();
+        int acquired = 0;
+        for (Future<Integer> result : results) {
+            acquired += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(5, acquired);
+        assertEquals(5, GroupQuotas.running("shared"));
+    }
+
+    private OperableTrigger trigger(TriggerKey key) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setKey(key);
+        trigger.setFireInstanceId("fire-" + fireInstanceIds.incrementAndGet());
+        synchronized (fired) {
+            fired.add(trigger.getFireInstanceId());
+        }
+        return trigger;
+    }
+}
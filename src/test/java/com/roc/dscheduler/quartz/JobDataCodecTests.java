@@ -0,0 +1,121 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDataMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobDataCodecTests {
+
+    @Test
+    void roundTripsEveryValueType() throws Exception {
+        Map<String, Object> data = sample();
+        byte[] bytes = JobDataCodec.encode(data);
+        assertTrue(JobDataCodec.isCompact(bytes));
+        assertEquals(data, JobDataCodec.decode(bytes));
+        assertEquals(data, JobDataCodec.decodeAny(bytes));
+    }
+
+    @Test
+    void readsEmptyMapsAsNoBytes() throws Exception {
+        assertEquals(0, JobDataCodec.encode(new HashMap<>()).length);
+        assertTrue(JobDataCodec.decode(new byte[0]).isEmpty());
+        assertTrue(JobDataCodec.decodeAny(null).isEmpty());
+    }
+
+    /**
+     * The conversion of {@code JobDataMigration}: a map stored by Quartz, Java-serialized, read back and re-encoded.
+     */
+    @Test
+    void convertsJavaSerializedMaps() throws Exception {
+        JobDataMap legacy = new JobDataMap(sample());
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(legacy);
+        }
+        byte[] bytes = serialized.toByteArray();
+        assertFalse(JobDataCodec.isCompact(bytes));
+
+        @SuppressWarnings("unchecked")
+        Map<String, ?> decoded = (Map<String, ?>) JobDataCodec.decodeAny(bytes);
+        assertEquals(sample(), new HashMap<>(decoded));
+        assertEquals(sample(), JobDataCodec.decode(JobDataCodec.encode(decoded)));
+        assertThrows(IOException.class, () -> JobDataCodec.decode(bytes));
+    }
+
+    @Test
+    void rejectsNewerVersions() throws Exception {
+        byte[] bytes = JobDataCodec.encode(sample());
+        bytes[2] = JobDataCodec.VERSION + 1;
+        IOException e = assertThrows(IOException.class, () -> JobDataCodec.decode(bytes));
+        assertTrue(e.getMessage().contains("newer"), e.getMessage());
+        bytes[2] = (byte) 0xFF;
+        assertThrows(IOException.class, () -> JobDataCodec.decode(bytes));
+    }
+
+    @Test
+    void decodesLazilyOnFirstAccess() throws Exception {
+        byte[] bytes = JobDataCodec.encode(sample());
+        LazyJobDataMap map = new LazyJobDataMap(bytes);
+        assertFalse(map.isDirty());
+        assertArrayEquals(bytes, map.unchangedEncoding());
+
+        assertEquals("任务-日本語-😀", map.getString("string"));
+        assertFalse(map.isDirty());
+        assertNull(map.unchangedEncoding());
+        assertEquals(sample(), new HashMap<>(map.getWrappedMap()));
+
+        // Broken bytes only fail once the map is used
+        bytes[2] = JobDataCodec.VERSION + 1;
+        LazyJobDataMap newer = new LazyJobDataMap(bytes);
+        assertNotNull(newer.unchangedEncoding());
+        assertThrows(UncheckedIOException.class, newer::size);
+    }
+
+    @Test
+    void keepsTypedPutsBeforeDecoding() throws Exception {
+        LazyJobDataMap map = new LazyJobDataMap(JobDataCodec.encode(sample()));
+        map.put("int", 7);
+        assertTrue(map.isDirty());
+        assertNull(map.unchangedEncoding());
+        assertEquals(7, map.getInt("int"));
+        assertEquals(Long.MIN_VALUE, map.getLong("longMin"));
+    }
+
+    private static Map<String, Object> sample() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("null", null);
+        data.put("empty", "");
+        data.put("string", "任务-日本語-😀");
+        data.put("intMin", Integer.MIN_VALUE);
+        data.put("intMax", Integer.MAX_VALUE);
+        data.put("int", 0);
+        data.put("longMin", Long.MIN_VALUE);
+        data.put("longMax", Long.MAX_VALUE);
+        data.put("long", -1L);
+        data.put("true", true);
+        data.put("float", -1.5f);
+        data.put("floatNaN", Float.NaN);
+        data.put("double", Math.PI);
+        data.put("doubleMax", Double.MAX_VALUE);
+        data.put("char", '字');
+        data.put("date", new Date(1735689600000L));
+        data.put("decimal", new BigDecimal("12345678901234567890.123"));
+        return data;
+    }
+}
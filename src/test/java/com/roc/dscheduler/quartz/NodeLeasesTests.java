@@ -0,0 +1,196 @@
+package com.roc.dscheduler.quartz;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lease cycles of {@link NodeLeases} against an in-memory DS_NODE_LEASE, with a lease of 200 ms renewed every 50 ms.
+ */
+class NodeLeasesTests {
+
+    private static final String CLUSTER = "test";
+    private static final long LEASE_DURATION = 200;
+
+    private final Map<String, long[]> leases = new TreeMap<>(); // Instance -> token, heartbeat
+    private Connection connection;
+    private NodeLeases nodeLeases;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = connection();
+        nodeLeases = new NodeLeases(mock(DschedulerJobStore.class), CLUSTER, "node-1", LEASE_DURATION, 50);
+    }
+
+    @Test
+    void takesALeaseAboveTheTokenItHeldBefore() throws Exception {
+        leases.put("node-1", new long[]{3, 42});
+
+        nodeLeases.cycle(connection);
+        nodeLeases.cycle(connection);
+
+        assertEquals(4, nodeLeases.fencingToken());
+        assertEquals(4, leases.get("node-1")[0]);
+        assertEquals(1, leases.get("node-1")[1]);
+    }
+
+    @Test
+    void claimsALeaseNotRenewedForItsDuration() throws Exception {
+        leases.put("node-2", new long[]{1, 7});
+
+        List<String> claimed = cycleFor(LEASE_DURATION + 50, () -> {
+        });
+
+        assertEquals(Collections.singletonList("node-2"), claimed);
+        assertFalse(leases.containsKey("node-2"));
+    }
+
+    @Test
+    void leavesALeaseBeingRenewed() throws Exception {
+        leases.put("node-2", new long[]{1, 7});
+
+        List<String> claimed = cycleFor(LEASE_DURATION * 2, () -> leases.get("node-2")[1]++);
+
+        assertTrue(claimed.isEmpty());
+        assertTrue(leases.containsKey("node-2"));
+    }
+
+    @Test
+    void restartsItsTimingsAfterBeingPaused() throws Exception {
+        leases.put("node-2", new long[]{1, 7});
+        nodeLeases.cycle(connection);
+
+        // Longer than the lease, as a long GC pause: the other lease only looks expired
+        Thread.sleep(LEASE_DURATION + 50);
+
+        assertTrue(nodeLeases.cycle(connection).isEmpty());
+        assertTrue(leases.containsKey("node-2"));
+    }
+
+    @Test
+    void takesANewLeaseOnceFenced() throws Exception {
+        nodeLeases.cycle(connection);
+        long token = nodeLeases.fencingToken();
+        // Claimed by another node meanwhile
+        leases.remove("node-1");
+
+        nodeLeases.cycle(connection);
+
+        assertEquals(token + 1, nodeLeases.fencingToken());
+        assertEquals(token + 1, leases.get("node-1")[0]);
+    }
+
+    @Test
+    void givesItsLeaseUp() throws Exception {
+        nodeLeases.cycle(connection);
+        nodeLeases.release(connection);
+
+        assertFalse(leases.containsKey("node-1"));
+    }
+
+    @Test
+    void requiresTwoRenewalsPerLease() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new NodeLeases(mock(DschedulerJobStore.class), CLUSTER, "node-1", 100, 60));
+    }
+
+    /**
+     * Cycles every 20 ms, well within the pause detection, running {@code between} before each cycle.
+     */
+    private List<String> cycleFor(long millis, Runnable between) throws Exception {
+        List<String> claimed = new ArrayList<>();
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            between.run();
+            claimed.addAll(nodeLeases.cycle(connection));
+            Thread.sleep(20);
+        }
+        return claimed;
+    }
+
+    /**
+     * A connection running the statements of {@link NodeLeases} on {@link #leases}.
+     */
+    private Connection connection() throws Exception {
+        Connection conn = mock(Connection.class);
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+        return conn;
+    }
+
+    private PreparedStatement statement(String sql) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        List<Object> params = new ArrayList<>(Collections.nCopies(4, null));
+        doAnswer(invocation -> params.set((int) invocation.getArgument(0) - 1, invocation.getArgument(1)))
+                .when(ps).setString(anyInt(), anyString());
+        doAnswer(invocation -> params.set((int) invocation.getArgument(0) - 1, invocation.getArgument(1)))
+                .when(ps).setLong(anyInt(), anyLong());
+        when(ps.executeUpdate()).thenAnswer(invocation -> update(sql, params));
+        when(ps.executeQuery()).thenAnswer(invocation -> query(sql, params));
+        return ps;
+    }
+
+    private int update(String sql, List<Object> params) {
+        assertEquals(CLUSTER, params.get(0));
+        String instance = (String) params.get(1);
+        long[] lease = leases.get(instance);
+        if (sql.startsWith("UPDATE")) {
+            if (lease == null || lease[0] != (Long) params.get(2)) {
+                return 0;
+            }
+            lease[1]++;
+            return 1;
+        }
+        if (sql.startsWith("INSERT")) {
+            leases.put(instance, new long[]{(Long) params.get(2), 0});
+            return 1;
+        }
+        boolean matches = lease != null
+                && (params.get(2) == null || lease[0] == (Long) params.get(2))
+                && (params.get(3) == null || lease[1] == (Long) params.get(3));
+        if (matches) {
+            leases.remove(instance);
+        }
+        return matches ? 1 : 0;
+    }
+
+    private ResultSet query(String sql, List<Object> params) throws Exception {
+        assertEquals(CLUSTER, params.get(0));
+        List<Object[]> rows = new ArrayList<>();
+        leases.forEach((instance, lease) -> {
+            if (!sql.contains("INSTANCE_NAME = ?") || instance.equals(params.get(1))) {
+                rows.add(new Object[]{instance, lease[0], lease[1]});
+            }
+        });
+        Iterator<Object[]> iterator = rows.iterator();
+        Object[][] current = new Object[1][];
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenAnswer(invocation -> {
+            current[0] = iterator.hasNext() ? iterator.next() : null;
+            return current[0] != null;
+        });
+        when(rs.getString(1)).thenAnswer(invocation -> current[0][0]);
+        when(rs.getLong(2)).thenAnswer(invocation -> current[0][1]);
+        when(rs.getLong(3)).thenAnswer(invocation -> current[0][2]);
+        return rs;
+    }
+}
@@ -0,0 +1,226 @@
+package com.roc.dscheduler.service;
+
+import com.roc.dscheduler.entity.DelayedTask;
+import com.roc.dscheduler.entity.PartitionLease;
+import com.roc.dscheduler.job.DelayedTaskHandler;
+import com.roc.dscheduler.mapper.DelayedTaskMapper;
+import com.roc.dscheduler.mapper.JobMapper;
+import com.roc.dscheduler.mapper.PartitionLeaseMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.Scheduler;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the loader and dispatcher of {@link DelayedTaskService} against mocked mappers: two buckets, of which this node
+ * leases bucket 0 and another live node holds bucket 1.
+ */
+class DelayedTaskServiceTests {
+
+    private static final String SCHED_NAME = "test";
+    private static final String LEASE_NAME = "test/delayed";
+    private static final String INSTANCE_ID = "node-1";
+    private static final long RETRY_BACKOFF = 60000;
+
+    private final DelayedTaskMapper taskMapper = mock(DelayedTaskMapper.class);
+    private final PartitionLeaseMapper leaseMapper = mock(PartitionLeaseMapper.class);
+    private final JobMapper jobMapper = mock(JobMapper.class);
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private final List<List<Long>> handled = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+    private DelayedTaskService service;
+
+    @BeforeEach
+    void start() throws Exception {
+        when(scheduler.getSchedulerName()).thenReturn(SCHED_NAME);
+        when(scheduler.getSchedulerInstanceId()).thenReturn(INSTANCE_ID);
+        when(scheduler.isStarted()).thenReturn(true);
+        when(jobMapper.selectLiveInstances(eq(SCHED_NAME), anyLong())).thenReturn(Arrays.asList(INSTANCE_ID, "node-2"));
+        when(leaseMapper.selectLeases(LEASE_NAME)).thenReturn(Arrays.asList(
+                lease(0, null, 0), lease(1, "node-2", Long.MAX_VALUE)));
+        when(leaseMapper.claimLease(eq(LEASE_NAME), eq(0), eq(INSTANCE_ID), anyLong(), anyLong())).thenReturn(1);
+
+        DelayedTaskHandler handler = new DelayedTaskHandler() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public void handle(List<DelayedTask> tasks) {
+                if (failing) {
+                    throw new IllegalStateException("Failing on purpose");
+                }
+                List<Long> ids = new ArrayList<>();
+                tasks.forEach(task -> ids.add(task.getId()));
+                handled.add(ids);
+            }
+        };
+        service = new DelayedTaskService(scheduler, taskMapper, leaseMapper, jobMapper, new SimpleMeterRegistry(),
+                new StaticListableBeanFactory(Collections.singletonMap("handler", handler))
+                        .getBeanProvider(DelayedTaskHandler.class));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "buckets", 2);
+        ReflectionTestUtils.setField(service, "slotSize", 1000L);
+        ReflectionTestUtils.setField(service, "lookAhead", 30000L);
+        ReflectionTestUtils.setField(service, "pollInterval", 20L);
+        ReflectionTestUtils.setField(service, "claimBatchSize", 2);
+        ReflectionTestUtils.setField(service, "maxLoaded", 100);
+        ReflectionTestUtils.setField(service, "insertBatchSize", 100);
+        ReflectionTestUtils.setField(service, "tick", 10L);
+        ReflectionTestUtils.setField(service, "wheelSize", 64);
+        ReflectionTestUtils.setField(service, "dispatchBatchSize", 100);
+        ReflectionTestUtils.setField(service, "dispatchThreads", 1);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoff", RETRY_BACKOFF);
+        ReflectionTestUtils.setField(service, "staleAfter", 60000L);
+        ReflectionTestUtils.setField(service, "leaseDuration", 30000L);
+        service.start();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        service.stop();
+    }
+
+    @Test
+    void claimsTheLeasedBucketOnly() {
+        service.balance();
+
+        verify(taskMapper).releaseClaims(SCHED_NAME, 0);
+        verify(taskMapper, timeout(1000).atLeastOnce())
+                .claimTasks(eq(SCHED_NAME), eq(0), anyLong(), anyLong(), eq(2), eq(LEASE_NAME), eq(INSTANCE_ID), anyLong());
+        verify(taskMapper, never())
+                .claimTasks(eq(SCHED_NAME), eq(1), anyLong(), anyLong(), anyInt(), eq(LEASE_NAME), eq(INSTANCE_ID), anyLong());
+    }
+
+    @Test
+    void claimsAgainWhileBatchesAreFull() {
+        when(taskMapper.claimTasks(eq(SCHED_NAME), eq(0), anyLong(), anyLong(), anyInt(), eq(LEASE_NAME),
+                eq(INSTANCE_ID), anyLong())).thenReturn(2, 2, 1, 0);
+        when(taskMapper.selectClaimed(eq(SCHED_NAME), eq(0), anyLong())).thenAnswer(invocation -> Arrays.asList(
+                task(invocation.getArgument(2), 0, 3600000), task(invocation.getArgument(2), 0, 3600000)));
+        service.balance();
+
+        verify(taskMapper, timeout(1000).times(3)).selectClaimed(eq(SCHED_NAME), eq(0), anyLong());
+        assertEquals(6, service.getStatus().get("loaded"));
+    }
+
+    @Test
+    void stopsClaimingOnceTheLeaseExpired() throws Exception {
+        ReflectionTestUtils.setField(service, "leaseDuration", 200L);
+        service.balance();
+        verify(taskMapper, timeout(1000).atLeastOnce())
+                .claimTasks(eq(SCHED_NAME), eq(0), anyLong(), anyLong(), anyInt(), eq(LEASE_NAME), eq(INSTANCE_ID), anyLong());
+
+        // Not renewed, as if the node was paused: another node may own the bucket by now
+        Thread.sleep(250);
+        clearInvocations(taskMapper);
+        verify(taskMapper, after(200).never())
+                .claimTasks(anyString(), anyInt(), anyLong(), anyLong(), anyInt(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void runsOnlyTheTasksStillClaimed() {
+        when(taskMapper.claimTasks(eq(SCHED_NAME), eq(0), anyLong(), anyLong(), anyInt(), eq(LEASE_NAME),
+                eq(INSTANCE_ID), anyLong())).thenReturn(2, 0);
+        when(taskMapper.selectClaimed(eq(SCHED_NAME), eq(0), anyLong())).thenAnswer(invocation -> Arrays.asList(
+                task(invocation.getArgument(2), 1, 0), task(invocation.getArgument(2), 2, 0)));
+        // Task 2 was cancelled, or unclaimed by a node that took the bucket over, after it was loaded
+        when(taskMapper.selectClaimedIds(eq(SCHED_NAME), anyLong(), anyList()))
+                .thenReturn(Collections.singletonList(1L));
+        service.balance();
+
+        verify(taskMapper, timeout(1000)).deleteTasks(eq(SCHED_NAME), anyLong(), eq(Collections.singletonList(1L)));
+        assertEquals(Collections.singletonList(Collections.singletonList(1L)), handled);
+    }
+
+    @Test
+    void retriesFailedBatchesWithBackoffThenDrops() {
+        failing = true;
+        when(taskMapper.claimTasks(eq(SCHED_NAME), eq(0), anyLong(), anyLong(), anyInt(), eq(LEASE_NAME),
+                eq(INSTANCE_ID), anyLong())).thenReturn(2, 1, 0);
+        when(taskMapper.selectClaimed(eq(SCHED_NAME), eq(0), anyLong())).thenAnswer(invocation -> {
+            long claim = invocation.getArgument(2);
+            return Arrays.asList(task(claim, 1, 0, 0), task(claim, 2, 0, 1), task(claim, 3, 0, 2));
+        }).thenReturn(Collections.emptyList());
+        when(taskMapper.selectClaimedIds(eq(SCHED_NAME), anyLong(), anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(2));
+        long start = System.currentTimeMillis();
+        service.balance();
+
+        ArgumentCaptor<Long> fireAt = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Long> slot = ArgumentCaptor.forClass(Long.class);
+        verify(taskMapper, timeout(1000)).deleteTasks(eq(SCHED_NAME), anyLong(), eq(Collections.singletonList(3L)));
+        verify(taskMapper).retryTasks(eq(SCHED_NAME), anyLong(), eq(Collections.singletonList(1L)), fireAt.capture(),
+                slot.capture());
+        verify(taskMapper).retryTasks(eq(SCHED_NAME), anyLong(), eq(Collections.singletonList(2L)), fireAt.capture(),
+                slot.capture());
+        long end = System.currentTimeMillis();
+        assertBetween(start + RETRY_BACKOFF, end + RETRY_BACKOFF, fireAt.getAllValues().get(0));
+        assertBetween(start + 2 * RETRY_BACKOFF, end + 2 * RETRY_BACKOFF, fireAt.getAllValues().get(1));
+        assertEquals(fireAt.getAllValues().get(0) / 1000, slot.getAllValues().get(0));
+        assertTrue(handled.isEmpty());
+    }
+
+    @Test
+    void releasesItsLeasesOnStop() throws Exception {
+        service.balance();
+        service.stop();
+
+        verify(leaseMapper).releaseLease(LEASE_NAME, 0, INSTANCE_ID, 0);
+        assertEquals(Collections.emptySet(), service.getStatus().get("buckets"));
+    }
+
+    private static void assertBetween(long from, long to, long actual) {
+        assertTrue(actual >= from && actual <= to, actual + " not in [" + from + ", " + to + "]");
+    }
+
+    private static PartitionLease lease(int bucket, String owner, long expiresAt) {
+        PartitionLease lease = new PartitionLease();
+        lease.setPartitionNo(bucket);
+        lease.setOwner(owner);
+        lease.setExpiresAt(expiresAt);
+        return lease;
+    }
+
+    private static DelayedTask task(long claim, long id, long delay) {
+        return task(claim, id, delay, 0);
+    }
+
+    private static DelayedTask task(long claim, long id, long delay, int attempts) {
+        DelayedTask task = new DelayedTask();
+        task.setId(id);
+        task.setHandler("test");
+        task.setFireAt(System.currentTimeMillis() + delay);
+        task.setBucket(0);
+        task.setAttempts(attempts);
+        task.setClaim(claim);
+        return task;
+    }
+}
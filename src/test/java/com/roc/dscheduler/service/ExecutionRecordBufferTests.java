@@ -0,0 +1,95 @@
+package com.roc.dscheduler.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ring buffer of {@link ExecutionRecordBuffer}: order, drops when full and concurrent producers.
+ */
+class ExecutionRecordBufferTests {
+
+    @Test
+    void drainsInOfferOrder() {
+        ExecutionRecordBuffer<Integer> buffer = new ExecutionRecordBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void dropsWhenFullUntilDrained() {
+        // Rounded up to 8
+        ExecutionRecordBuffer<Integer> buffer = new ExecutionRecordBuffer<>(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(8));
+        assertFalse(buffer.offer(9));
+        assertEquals(2, buffer.getDropped());
+
+        buffer.drainTo(new ArrayList<>(), 1);
+        assertTrue(buffer.offer(10));
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 10);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 10), drained);
+    }
+
+    @Test
+    void losesNothingAcceptedFromConcurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 50000;
+        ExecutionRecordBuffer<Integer> buffer = new ExecutionRecordBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> accepted = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            accepted.add(executor.submit(() -> {
+                List<Integer> offered = new ArrayList<>();
+                start.await();
+                for (int i = first; i < first + perProducer; i++) {
+                    if (buffer.offer(i)) {
+                        offered.add(i);
+                    }
+                }
+                return offered;
+            }));
+        }
+        start.countDown();
+        List<Integer> drained = new ArrayList<>();
+        while (!accepted.stream().allMatch(Future::isDone)) {
+            buffer.drainTo(drained, 100);
+        }
+        buffer.drainTo(drained, Integer.MAX_VALUE);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Set<Integer> expected = new HashSet<>();
+        for (Future<List<Integer>> future : accepted) {
+            expected.addAll(future.get());
+        }
+        assertEquals(expected.size(), drained.size());
+        assertEquals(expected, new HashSet<>(drained));
+        assertEquals(producers * perProducer, expected.size() + buffer.getDropped());
+    }
+}
@@ -0,0 +1,96 @@
+package com.roc.dscheduler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Timeouts of a {@link HashedTimerWheel} with a tick of 10 ms and 8 buckets, a turn of 80 ms.
+ */
+class HashedTimerWheelTests {
+
+    private final HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 5);
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void runsNoEarlierThanTheDelay() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong ranAfter = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(() -> {
+            ranAfter.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            ran.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(ranAfter.get() >= 50, "ran after " + ranAfter.get() + "ms");
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void waitsForTheTurnsBeyondTheWheel() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // More than two turns of the wheel
+        wheel.schedule(ran::countDown, 200, TimeUnit.MILLISECONDS);
+
+        assertFalse(ran.await(150, TimeUnit.MILLISECONDS));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void neverRunsACancelledTimeout() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        HashedTimerWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void cannotCancelATimeoutThatRan() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        HashedTimerWheel.Timeout timeout = wheel.schedule(ran::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void keepsTurningAfterAFailingTask() throws Exception {
+        wheel.schedule(() -> {
+            throw new IllegalStateException("Failing on purpose");
+        }, 0, TimeUnit.MILLISECONDS);
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.schedule(ran::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void refusesTimeoutsOnceStopped() {
+        wheel.stop();
+
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> {
+        }, 10, TimeUnit.MILLISECONDS));
+    }
+}
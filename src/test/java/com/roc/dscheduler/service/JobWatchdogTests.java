@@ -0,0 +1,128 @@
+package com.roc.dscheduler.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.InterruptableJob;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Timeouts enforced by {@link JobWatchdog} on executions of jobs with a one second timeout.
+ */
+class JobWatchdogTests {
+
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private final SchedulerMetrics metrics = mock(SchedulerMetrics.class);
+    private JobWatchdog watchdog;
+
+    @BeforeEach
+    void start() throws Exception {
+        when(scheduler.getListenerManager()).thenReturn(mock(ListenerManager.class));
+        SchedulerRouter router = mock(SchedulerRouter.class);
+        when(router.getPartitions()).thenReturn(Collections.singletonList(scheduler));
+        watchdog = new JobWatchdog(router, metrics, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(watchdog, "tick", 10L);
+        ReflectionTestUtils.setField(watchdog, "wheelSize", 64);
+        ReflectionTestUtils.setField(watchdog, "hardKillGrace", 50L);
+        watchdog.start();
+    }
+
+    @AfterEach
+    void stop() {
+        watchdog.stop();
+    }
+
+    @Test
+    void interruptsAnInterruptableJobPastItsTimeout() throws Exception {
+        JobExecutionContext context = context(mock(InterruptableJob.class), 1);
+        watchdog.watch(context);
+
+        verify(scheduler, timeout(3000)).interrupt("fire-1");
+        assertTrue(JobWatchdog.isTimedOut(context));
+        verify(metrics).countTimeout("test");
+    }
+
+    @Test
+    void leavesAnExecutionEndingInTime() throws Exception {
+        JobExecutionContext context = context(mock(InterruptableJob.class), 1);
+        watchdog.watch(context);
+        watchdog.unwatch(context);
+
+        verify(scheduler, after(1500).never()).interrupt("fire-1");
+        assertFalse(JobWatchdog.isTimedOut(context));
+    }
+
+    @Test
+    void ignoresJobsWithoutTimeout() throws Exception {
+        JobExecutionContext context = context(mock(InterruptableJob.class), 0);
+        watchdog.watch(context);
+
+        verify(scheduler, after(1200).never()).interrupt("fire-1");
+        assertFalse(JobWatchdog.isTimedOut(context));
+    }
+
+    @Test
+    void interruptsTheWorkerAfterTheGracePeriod() throws Exception {
+        ReflectionTestUtils.setField(watchdog, "hardKill", true);
+        JobExecutionContext context = context(mock(Job.class), 1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean cleared = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            watchdog.watch(context);
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                // Interrupted again, as by a job ignoring the first interrupt
+                Thread.currentThread().interrupt();
+            }
+            watchdog.unwatch(context);
+            cleared.set(!Thread.currentThread().isInterrupted());
+            done.countDown();
+        });
+        worker.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertTrue(cleared.get());
+        assertTrue(JobWatchdog.isTimedOut(context));
+    }
+
+    private JobExecutionContext context(Job job, int timeoutSeconds) {
+        JobDetail jobDetail = JobBuilder.newJob(Job.class).withIdentity("job", "test")
+                .usingJobData(JobService.TIMEOUT, timeoutSeconds).build();
+        OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity("trigger", "test")
+                .forJob(jobDetail).build();
+        trigger.setFireInstanceId("fire-1");
+        TriggerFiredBundle bundle = new TriggerFiredBundle(jobDetail, trigger, null, false, new Date(), null, null,
+                null);
+        return new JobExecutionContextImpl(scheduler, bundle, job);
+    }
+}